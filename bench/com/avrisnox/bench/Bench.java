@@ -0,0 +1,84 @@
+package com.avrisnox.bench;
+
+import java.util.Arrays;
+
+/**Bench
+ * Shared helpers for the benchmarks in this source root.
+ * Each benchmark is a plain main class: it first checks that the code under test gives the right answers, failing with an AssertionError if not, then prints its measurements one line per configuration.
+ * Build and run them against the library sources, for example:
+ * javac -d out $(find src bench -name '*.java') && java -cp out com.avrisnox.bench.SortsBench
+ */
+final class Bench {
+	private Bench() {
+	}
+
+	/**
+	 * arg(String[], int, int)
+	 * Reads an optional integer argument.
+	 *
+	 * @param args     The command line arguments
+	 * @param index    The position of the argument
+	 * @param fallback The value to use when the argument is missing
+	 * @return The argument, or the fallback
+	 */
+	static int arg(String[] args, int index, int fallback) {
+		return args.length > index ? Integer.parseInt(args[index]) : fallback;
+	}
+
+	/**
+	 * check(boolean, String)
+	 * Fails the benchmark when a result is wrong.
+	 *
+	 * @param condition The condition that must hold
+	 * @param message   What went wrong if it does not
+	 * @throws AssertionError Thrown when the condition does not hold
+	 */
+	static void check(boolean condition, String message) throws AssertionError {
+		if (!condition) throw new AssertionError(message);
+	}
+
+	/**
+	 * millis(long)
+	 * Gets the time elapsed since a System.nanoTime() reading.
+	 *
+	 * @param start The reading
+	 * @return The elapsed time, in milliseconds
+	 */
+	static double millis(long start) {
+		return (System.nanoTime() - start) / 1e6;
+	}
+
+	/**
+	 * percentile(long[], double)
+	 * Sorts a sample and picks a percentile from it.
+	 *
+	 * @param samples The sample; it is sorted in place
+	 * @param p       The percentile, from 0 to 100
+	 * @return The value at that percentile
+	 */
+	static long percentile(long[] samples, double p) {
+		Arrays.sort(samples);
+		return samples[(int) Math.min(samples.length - 1, (long) (samples.length * p / 100))];
+	}
+
+	/**
+	 * usedHeap()
+	 * Gets the heap in use after collecting garbage, for measuring what a structure retains.
+	 *
+	 * @return The used heap, in bytes
+	 */
+	static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+}
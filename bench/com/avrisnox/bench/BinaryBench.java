@@ -0,0 +1,189 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.util.doc_storage.BinaryBuffer;
+import com.avrisnox.util.doc_storage.FileFactory;
+import com.avrisnox.util.doc_storage.interfaces.StorableAsBinary;
+import com.avrisnox.util.doc_storage.interfaces.StorableAsFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**BinaryBench
+ * Compares FileFactory's binary route (putBinary and getBinary through a pooled BinaryBuffer) with its String route (putObject and getObject) on a numeric-heavy object: time per object, size per object, and heap allocated per object.
+ * The same object implements both StorableAsFile and StorableAsBinary, so both routes carry the same fields. Allocation is read from the JVM's per-thread allocation counter where it has one, which is what shows whether the binary hot path is really allocation-free.
+ * Both routes are also timed through a file, with putObjectToHere and getObjectFromHere against putBinaryToHere and getBinaryFromHere.
+ * Every object is checked to come back equal to the original by both routes before anything is timed.
+ * Arguments: objects (default 100000), rounds (default 5), file round trips (default 2000).
+ */
+public class BinaryBench {
+	/* A reading from some sensor, mostly numbers - due to its private nature, it has been left undocumented. */
+	private static final class Reading implements StorableAsFile, StorableAsBinary {
+		private long id;
+		private long time;
+		private int count;
+		private String name = "";
+		private final double[] values = new double[16];
+
+		@Override
+		public String toFile() {
+			StringBuilder text = new StringBuilder(256);
+			text.append(id).append(',').append(time).append(',').append(count).append(',').append(name);
+			for (double value : values)
+				text.append(',').append(value);
+			return text.toString();
+		}
+
+		@Override
+		public void fromFile(String filestring) {
+			String[] parts = filestring.split(",");
+			id = Long.parseLong(parts[0]);
+			time = Long.parseLong(parts[1]);
+			count = Integer.parseInt(parts[2]);
+			name = parts[3];
+			for (int i = 0; i < values.length; i++)
+				values[i] = Double.parseDouble(parts[4 + i]);
+		}
+
+		@Override
+		public void toBinary(BinaryBuffer output) {
+			output.putVarLong(id).putVarLong(time).putSignedVarInt(count).putString(name);
+			for (double value : values)
+				output.putDouble(value);
+		}
+
+		@Override
+		public void fromBinary(BinaryBuffer input) {
+			id = input.getVarLong();
+			time = input.getVarLong();
+			count = input.getSignedVarInt();
+			name = input.getString();
+			for (int i = 0; i < values.length; i++)
+				values[i] = input.getDouble();
+		}
+
+		public boolean same(Reading other) {
+			return id == other.id && time == other.time && count == other.count && name.equals(other.name) && Arrays.equals(values, other.values);
+		}
+	}
+
+	private static final FileFactory FILES = FileFactory.getInstance();
+
+	public static void main(String[] args) throws IOException {
+		int n = Bench.arg(args, 0, 100_000);
+		int rounds = Bench.arg(args, 1, 5);
+		int fileTrips = Bench.arg(args, 2, 2000);
+		Reading[] readings = new Reading[n];
+		SplittableRandom random = new SplittableRandom(4);
+		for (int i = 0; i < n; i++) {
+			Reading reading = readings[i] = new Reading();
+			reading.id = i;
+			reading.time = 1_700_000_000_000L + random.nextInt(1 << 30);
+			reading.count = random.nextInt(2000) - 1000;
+			reading.name = "sensor-" + random.nextInt(100);
+			for (int v = 0; v < reading.values.length; v++)
+				reading.values[v] = random.nextDouble() * 1000;
+		}
+
+		String[] texts = new String[n];
+		long textBytes = 0;
+		for (int i = 0; i < n; i++) {
+			texts[i] = FILES.putObject(readings[i]);
+			textBytes += texts[i].length();
+		}
+		ByteBuffer frames = ByteBuffer.allocate(256 * n);
+		for (Reading reading : readings)
+			FILES.putBinary(reading, frames);
+		long binaryBytes = frames.position();
+		frames.flip();
+		Reading back = new Reading();
+		for (int i = 0; i < n; i++) {
+			FILES.getObject(back, texts[i]);
+			Bench.check(back.same(readings[i]), "The String route changed reading " + i + ".");
+			FILES.getBinary(back, frames);
+			Bench.check(back.same(readings[i]), "The binary route changed reading " + i + ".");
+		}
+		Bench.check(!frames.hasRemaining(), "The binary route left bytes unread.");
+
+		double textPut = Double.MAX_VALUE;
+		double textGet = Double.MAX_VALUE;
+		double binaryPut = Double.MAX_VALUE;
+		double binaryGet = Double.MAX_VALUE;
+		long textPutAllocated = 0;
+		long textGetAllocated = 0;
+		long binaryPutAllocated = 0;
+		long binaryGetAllocated = 0;
+		for (int round = 0; round < rounds; round++) {
+			long allocated = allocated();
+			long start = System.nanoTime();
+			for (int i = 0; i < n; i++)
+				texts[i] = FILES.putObject(readings[i]);
+			textPut = Math.min(textPut, Bench.millis(start));
+			textPutAllocated = allocated() - allocated;
+
+			allocated = allocated();
+			start = System.nanoTime();
+			for (String text : texts)
+				FILES.getObject(back, text);
+			textGet = Math.min(textGet, Bench.millis(start));
+			textGetAllocated = allocated() - allocated;
+
+			frames.clear();
+			allocated = allocated();
+			start = System.nanoTime();
+			for (Reading reading : readings)
+				FILES.putBinary(reading, frames);
+			binaryPut = Math.min(binaryPut, Bench.millis(start));
+			binaryPutAllocated = allocated() - allocated;
+
+			frames.flip();
+			allocated = allocated();
+			start = System.nanoTime();
+			for (int i = 0; i < n; i++)
+				FILES.getBinary(back, frames);
+			binaryGet = Math.min(binaryGet, Bench.millis(start));
+			binaryGetAllocated = allocated() - allocated;
+		}
+		System.out.printf("String route: %6.1f bytes/object; put %6.1f ns (%6.1f bytes allocated), get %6.1f ns (%6.1f bytes allocated)%n", (double) textBytes / n,
+			textPut * 1e6 / n, (double) textPutAllocated / n, textGet * 1e6 / n, (double) textGetAllocated / n);
+		System.out.printf("binary route: %6.1f bytes/object; put %6.1f ns (%6.1f bytes allocated), get %6.1f ns (%6.1f bytes allocated)%n", (double) binaryBytes / n,
+			binaryPut * 1e6 / n, (double) binaryPutAllocated / n, binaryGet * 1e6 / n, (double) binaryGetAllocated / n);
+
+		Path directory = Files.createTempDirectory("binary-bench");
+		String textFile = directory.resolve("reading.txt").toString();
+		String binaryFile = directory.resolve("reading.bin").toString();
+		double textTrip = Double.MAX_VALUE;
+		double binaryTrip = Double.MAX_VALUE;
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < fileTrips; i++) {
+				FILES.putObjectToHere(readings[i % n], textFile);
+				FILES.getObjectFromHere(back, textFile);
+			}
+			textTrip = Math.min(textTrip, Bench.millis(start));
+			Bench.check(back.same(readings[(fileTrips - 1) % n]), "The String file route changed a reading.");
+			start = System.nanoTime();
+			for (int i = 0; i < fileTrips; i++) {
+				FILES.putBinaryToHere(readings[i % n], binaryFile);
+				FILES.getBinaryFromHere(back, binaryFile);
+			}
+			binaryTrip = Math.min(binaryTrip, Bench.millis(start));
+			Bench.check(back.same(readings[(fileTrips - 1) % n]), "The binary file route changed a reading.");
+		}
+		Files.delete(directory.resolve("reading.txt"));
+		Files.delete(directory.resolve("reading.bin"));
+		Files.delete(directory);
+		System.out.printf("through a file: String route %6.1f us, binary route %6.1f us per write and read back%n", textTrip * 1e3 / fileTrips, binaryTrip * 1e3 / fileTrips);
+	}
+
+	/* The bytes this thread has allocated so far, or 0 where the JVM does not count them. */
+	private static long allocated() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return 0;
+	}
+}
@@ -0,0 +1,130 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.util.graph.machines.StateAutomata;
+import com.avrisnox.util.graph.machines.StateMachine;
+import com.avrisnox.util.graph.misc.MachineDeterminator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**DfaBench
+ * Measures how fast a StateMachine compiled by MachineDeterminator runs over a large log, in MB/s, with java.util.regex on the same job for comparison.
+ * The log is made of generated lines, about one in a hundred holding "ERROR <number> ". The machine for ".*ERROR [0-9]+ .*" is run over the whole log as a String, a heap ByteBuffer and a direct ByteBuffer, and over each line to count the matching ones; a second machine tokenizes the log with longestMatch into words, numbers, spaces and single other chars.
+ * Before timing, the line count is checked against both regex and the number of error lines generated, the whole-log runs must all end in the same accepting state, and the tokens must cover the log exactly.
+ * Arguments: log size in MB (default 64), rounds (default 5).
+ */
+public class DfaBench {
+	/* Keeps the runs' results alive so the JIT cannot drop them. */
+	private static volatile long sink;
+
+	public static void main(String[] args) {
+		int megabytes = Bench.arg(args, 0, 64);
+		int rounds = Bench.arg(args, 1, 5);
+
+		StringBuilder builder = new StringBuilder(megabytes << 20);
+		SplittableRandom random = new SplittableRandom(1);
+		int errors = 0;
+		while (builder.length() < megabytes << 20) {
+			builder.append("2026-10-18 12:00:").append(10 + random.nextInt(50)).append(" INFO request id=").append(random.nextInt(1 << 30));
+			if (random.nextInt(100) == 0) {
+				builder.append(" ERROR ").append(random.nextInt(1000)).append(" upstream timed out");
+				errors++;
+			} else builder.append(" ok in ").append(random.nextInt(500)).append("ms");
+			builder.append('\n');
+		}
+		String text = builder.toString();
+		byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer heap = ByteBuffer.wrap(bytes);
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		double mb = bytes.length / 1e6;
+
+		long start = System.nanoTime();
+		StateAutomata any = StateAutomata.star(StateAutomata.range('\0', Character.MAX_VALUE));
+		StateAutomata digits = StateAutomata.concat(StateAutomata.range('0', '9'), StateAutomata.star(StateAutomata.range('0', '9')));
+		StateMachine error = MachineDeterminator.compile(StateAutomata.concat(any, StateAutomata.literal("ERROR "), digits, StateAutomata.literal(" "), any));
+		StateAutomata letters = StateAutomata.union(StateAutomata.range('a', 'z'), StateAutomata.range('A', 'Z'));
+		StateMachine tokens = MachineDeterminator.compile(StateAutomata.union(
+			StateAutomata.concat(letters, StateAutomata.star(letters)),
+			digits,
+			StateAutomata.concat(StateAutomata.literal(" "), StateAutomata.star(StateAutomata.literal(" "))),
+			StateAutomata.range('\0', Character.MAX_VALUE)));
+		System.out.printf("compiled in %.1f ms: error machine %s, %d table bytes; token machine %s, %d table bytes%n", Bench.millis(start),
+			error, error.getTableBytes(), tokens, tokens.getTableBytes());
+		System.out.printf("log: %.1f MB, %d error lines%n", mb, errors);
+
+		Pattern pattern = Pattern.compile("ERROR [0-9]+ ");
+		Bench.check(countLines(error, text) == errors, "The machine matched the wrong number of lines.");
+		Bench.check(countRegex(pattern, text) == errors, "The regex matched the wrong number of lines.");
+		int end = error.run(error.getStart(), text, 0, text.length());
+		Bench.check(error.isAccepting(end) && end == error.run(error.getStart(), heap) && end == error.run(error.getStart(), direct), "The whole-log runs disagree.");
+		Bench.check(tokenize(tokens, text) > 0, "The tokens do not cover the log.");
+
+		double string = Double.MAX_VALUE;
+		double heapRun = Double.MAX_VALUE;
+		double directRun = Double.MAX_VALUE;
+		double lines = Double.MAX_VALUE;
+		double regex = Double.MAX_VALUE;
+		double tokenizing = Double.MAX_VALUE;
+		long ended = 0;
+		for (int round = 0; round < rounds; round++) {
+			start = System.nanoTime();
+			ended += error.run(error.getStart(), text, 0, text.length());
+			string = Math.min(string, Bench.millis(start));
+			start = System.nanoTime();
+			ended += error.run(error.getStart(), heap);
+			heapRun = Math.min(heapRun, Bench.millis(start));
+			start = System.nanoTime();
+			ended += error.run(error.getStart(), direct);
+			directRun = Math.min(directRun, Bench.millis(start));
+			start = System.nanoTime();
+			ended += countLines(error, text);
+			lines = Math.min(lines, Bench.millis(start));
+			start = System.nanoTime();
+			ended += countRegex(pattern, text);
+			regex = Math.min(regex, Bench.millis(start));
+			start = System.nanoTime();
+			ended += tokenize(tokens, text);
+			tokenizing = Math.min(tokenizing, Bench.millis(start));
+		}
+		sink = ended;
+		System.out.printf("whole log: String %.0f MB/s, heap ByteBuffer %.0f MB/s, direct ByteBuffer %.0f MB/s%n", mb / string * 1e3, mb / heapRun * 1e3, mb / directRun * 1e3);
+		System.out.printf("per line:  machine %.0f MB/s, java.util.regex find %.0f MB/s (%.1fx)%n", mb / lines * 1e3, mb / regex * 1e3, regex / lines);
+		System.out.printf("tokenize:  longestMatch %.0f MB/s, %d tokens%n", mb / tokenizing * 1e3, tokenize(tokens, text));
+	}
+
+	/* Counts the lines the machine accepts. */
+	private static int countLines(StateMachine machine, String text) {
+		int count = 0;
+		for (int from = 0, to; from < text.length(); from = to + 1) {
+			to = text.indexOf('\n', from);
+			if (machine.isAccepting(machine.run(machine.getStart(), text, from, to))) count++;
+		}
+		return count;
+	}
+
+	/* Counts the lines the regex finds a match in. */
+	private static int countRegex(Pattern pattern, String text) {
+		int count = 0;
+		Matcher matcher = pattern.matcher(text);
+		for (int from = 0, to; from < text.length(); from = to + 1) {
+			to = text.indexOf('\n', from);
+			if (matcher.region(from, to).find()) count++;
+		}
+		return count;
+	}
+
+	/* Splits the text into longest tokens; gives the token count, or 0 if some stretch matched no token. */
+	private static int tokenize(StateMachine machine, String text) {
+		int count = 0;
+		for (int at = 0; at < text.length(); count++) {
+			int next = machine.longestMatch(text, at);
+			if (next <= at) return 0;
+			at = next;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,146 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.concurrent.collections.ConcDualMap;
+import com.avrisnox.util.graph.collections.DualMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**DualBench
+ * Compares DualMap and ConcDualMap with a pair of HashMaps for id to label lookups both ways: memory per entry and time per lookup.
+ * Memory is the heap each structure retains once built, measured after collecting garbage; the keys and values themselves exist beforehand and are not counted. The maps' own getBytesPerEntry() estimates are printed alongside.
+ * Every structure is checked to answer every lookup correctly in both directions, and again after half its entries are removed.
+ * Arguments: entries (default 1000000), lookup rounds (default 10). Give the JVM room for the largest structure, e.g. -Xmx2g.
+ */
+public class DualBench {
+	/* The operations being compared, over whichever structure - due to its private nature, it has been left undocumented. */
+	private interface Subject {
+		String right(Integer left);
+
+		Integer left(String right);
+
+		void removeLeft(Integer left);
+
+		String estimate();
+	}
+
+	private static Integer[] ids;
+	private static String[] labels;
+	private static int[] order;
+	/* Keeps the lookups' results alive so the JIT cannot drop them. */
+	private static volatile long sink;
+
+	public static void main(String[] args) {
+		int n = Bench.arg(args, 0, 1_000_000);
+		int rounds = Bench.arg(args, 1, 10);
+		ids = new Integer[n];
+		labels = new String[n];
+		for (int i = 0; i < n; i++) {
+			ids[i] = i;
+			labels[i] = "label-" + i;
+		}
+		order = new int[n];
+		for (int i = 0; i < n; i++) order[i] = i;
+		SplittableRandom random = new SplittableRandom(3);
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+
+		run("HashMap pair", rounds, () -> {
+			Map<Integer, String> forward = new HashMap<>();
+			Map<String, Integer> backward = new HashMap<>();
+			for (int i = 0; i < ids.length; i++) {
+				forward.put(ids[i], labels[i]);
+				backward.put(labels[i], ids[i]);
+			}
+			return new Subject() {
+				@Override
+				public String right(Integer left) {
+					return forward.get(left);
+				}
+
+				@Override
+				public Integer left(String right) {
+					return backward.get(right);
+				}
+
+				@Override
+				public void removeLeft(Integer left) {
+					backward.remove(forward.remove(left));
+				}
+
+				@Override
+				public String estimate() {
+					return "";
+				}
+			};
+		});
+		run("DualMap", rounds, () -> {
+			DualMap<Integer, String> map = new DualMap<>();
+			for (int i = 0; i < ids.length; i++) map.put(ids[i], labels[i]);
+			return subject(map::getRight, map::getLeft, map::removeLeft, map.getBytesPerEntry());
+		});
+		run("ConcDualMap", rounds, () -> {
+			ConcDualMap<Integer, String> map = new ConcDualMap<>();
+			for (int i = 0; i < ids.length; i++) map.put(ids[i], labels[i]);
+			return subject(map::getRight, map::getLeft, map::removeLeft, map.getBytesPerEntry());
+		});
+	}
+
+	private static Subject subject(Function<Object, String> right, Function<Object, Integer> left, Function<Object, String> removeLeft, double bytesPerEntry) {
+		return new Subject() {
+			@Override
+			public String right(Integer key) {
+				return right.apply(key);
+			}
+
+			@Override
+			public Integer left(String key) {
+				return left.apply(key);
+			}
+
+			@Override
+			public void removeLeft(Integer key) {
+				removeLeft.apply(key);
+			}
+
+			@Override
+			public String estimate() {
+				return String.format(" (own estimate %.1f)", bytesPerEntry);
+			}
+		};
+	}
+
+	/* Builds one structure, measures it, checks it, and lets it go before the next is built. */
+	private static void run(String name, int rounds, Supplier<Subject> build) {
+		int n = ids.length;
+		long before = Bench.usedHeap();
+		Subject subject = build.get();
+		double bytes = (double) (Bench.usedHeap() - before) / n;
+
+		for (int i = 0; i < n; i++) {
+			Bench.check(labels[i].equals(subject.right(ids[i])), name + " maps " + i + " to the wrong label.");
+			Bench.check(ids[i].equals(subject.left(labels[i])), name + " maps " + labels[i] + " to the wrong id.");
+		}
+		double best = Double.MAX_VALUE;
+		long sum = 0;
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			for (int i : order) sum += subject.right(ids[i]).length() + subject.left(labels[i]);
+			best = Math.min(best, (System.nanoTime() - start) / (2.0 * n));
+		}
+		sink = sum;
+		for (int i = 0; i < n; i += 2) subject.removeLeft(ids[i]);
+		for (int i = 0; i < n; i++) {
+			boolean kept = (i & 1) == 1;
+			Bench.check(kept == (subject.right(ids[i]) != null) && kept == (subject.left(labels[i]) != null), name + " kept the wrong entries after removal at " + i + ".");
+		}
+		System.out.printf("%-12s %d entries: %6.1f bytes/entry%s, %5.1f ns/lookup%n", name, n, bytes, subject.estimate(), best);
+	}
+}
@@ -0,0 +1,49 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.util.network.ReceiveGram;
+import com.avrisnox.util.network.SendGram;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**GramBench
+ * Measures SendGram and ReceiveGram over loopback: packets per second and the drop rate, by payload size.
+ * One sender offers datagrams as fast as its queue takes them; datagrams it had no room for count as dropped at the sender, and datagrams sent but never received count as lost.
+ * Every handled datagram is checked for its length and contents, so a pooled buffer handed out twice or recycled too early shows up as a failure.
+ * Arguments: datagrams per payload size (default 300000), receiver workers (default 2).
+ */
+public class GramBench {
+	private static final int[] PAYLOADS = {16, 256, 1024, 1472};
+	private static final long SETTLE_MILLIS = 300;
+
+	public static void main(String[] args) throws Exception {
+		int count = Bench.arg(args, 0, 300_000);
+		int workers = Bench.arg(args, 1, 2);
+		for (int payload : PAYLOADS) {
+			AtomicLong corrupt = new AtomicLong();
+			ReceiveGram receiver = new ReceiveGram(new InetSocketAddress("127.0.0.1", 0), (buffer, from) -> {
+				if (buffer.remaining() != payload || buffer.get(buffer.position()) != (byte) payload || buffer.get(buffer.limit() - 1) != (byte) ~payload) corrupt.incrementAndGet();
+			}, workers, 1472, 8192);
+			SendGram sender = new SendGram(receiver.getLocalAddress());
+			ByteBuffer data = ByteBuffer.allocate(payload);
+			data.put(0, (byte) payload).put(payload - 1, (byte) ~payload);
+
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++)
+				if (!sender.send(data)) Thread.yield();
+			sender.close();
+			double seconds = Bench.millis(start) / 1e3;
+			Thread.sleep(SETTLE_MILLIS);
+			receiver.close();
+
+			long sent = sender.getSent();
+			long received = receiver.getReceived();
+			Bench.check(corrupt.get() == 0, corrupt.get() + " corrupt datagrams at payload " + payload + ".");
+			Bench.check(receiver.getHandled() == received, "Received " + received + " but handled " + receiver.getHandled() + ".");
+			System.out.printf("payload %4d B: sent %7.0f/s (%.1f per batch), received %7.0f/s (%.1f per batch), dropped at sender %5.2f%%, lost in flight %5.2f%%%n",
+				payload, sent / seconds, (double) sent / Math.max(1, sender.getBatches()), received / seconds, (double) received / Math.max(1, receiver.getBatches()),
+				100.0 * sender.getDropped() / count, 100.0 * (sent - received) / Math.max(1, sent));
+		}
+	}
+}
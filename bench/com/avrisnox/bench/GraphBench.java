@@ -0,0 +1,160 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.util.graph.collections.Graph;
+import com.avrisnox.util.graph.components.Edge;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**GraphBench
+ * Measures what a Graph costs against the CSR layout its documentation promises, and how fast its edges can be walked.
+ * Memory is measured, not taken from the graph: the heap the graph retains after collecting garbage, and the direct buffer memory it holds outside the heap. The documented layout is 4 bytes per edge plus 4 per vertex, and 8 more per edge when weighted; getBytesPerEdge() is printed alongside.
+ * Traversal is a sweep over every edge with the int-based methods, with forEachNeighbour and with the flyweight Edge views, plus a breadth-first search from vertex 0, each reported in millions of edges per second.
+ * Before reporting, it checks each graph holds exactly the edges it was built from, that every traversal sees the same edges, and that the off-heap weights match the heap ones.
+ * Arguments: vertices (default 1000000), out-degree (default 8), rounds (default 5). Give the JVM room to build the largest graph, e.g. -Xmx1g.
+ */
+public class GraphBench {
+	private static final long SEED = 11;
+
+	/* Keeps the traversals' results alive so the JIT cannot drop them. */
+	private static volatile double sink;
+	private static double neighbourSum;
+	/* What the last graph built retains, on the heap and in direct buffers. */
+	private static long heapBytes;
+	private static long directBytes;
+
+	public static void main(String[] args) {
+		int n = Bench.arg(args, 0, 1_000_000);
+		int degree = Bench.arg(args, 1, 8);
+		int rounds = Bench.arg(args, 2, 5);
+
+		double[] expected = new double[2];
+		Graph<Object> plain = build(n, degree, false, false, expected);
+		run("unweighted", plain, 0, degree, rounds, expected[0], 0);
+		plain = null;
+		Graph<Object> heap = build(n, degree, true, false, expected);
+		run("weighted heap", heap, 8, degree, rounds, expected[0], expected[1]);
+		Graph<Object> offHeap = build(n, degree, true, true, expected);
+		for (int e = 0; e < heap.getEdgeCount(); e++)
+			Bench.check(heap.getTarget(e) == offHeap.getTarget(e) && heap.getWeight(e) == offHeap.getWeight(e), "Off-heap graph differs from the heap one at edge " + e + ".");
+		heap = null;
+		run("weighted off-heap", offHeap, 8, degree, rounds, expected[0], expected[1]);
+	}
+
+	/* Builds a random graph, measuring what it retains, and records the sum of its targets and weights in expected. */
+	private static Graph<Object> build(int n, int degree, boolean weighted, boolean offHeap, double[] expected) {
+		// Measured from before the builder exists, since build() lets go of the builder's own arrays
+		long before = Bench.usedHeap();
+		long directBefore = direct();
+		SplittableRandom random = new SplittableRandom(SEED);
+		Graph.Builder<Object> builder = new Graph.Builder<>(n, n * degree);
+		builder.addVertices(n);
+		if (weighted) builder.weighted();
+		builder.offHeap(offHeap);
+		double targets = 0;
+		double weights = 0;
+		for (int v = 0; v < n; v++)
+			for (int i = 0; i < degree; i++) {
+				int to = random.nextInt(n);
+				targets += to;
+				if (weighted) {
+					double weight = 1 + random.nextInt(100);
+					weights += weight;
+					builder.addEdge(v, to, weight);
+				} else builder.addEdge(v, to);
+			}
+		expected[0] = targets;
+		expected[1] = weights;
+		Graph<Object> graph = builder.build();
+		builder = null;
+		heapBytes = Bench.usedHeap() - before;
+		directBytes = direct() - directBefore;
+		return graph;
+	}
+
+	/* Gets the memory held by direct buffers. */
+	private static long direct() {
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+			if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+		return 0;
+	}
+
+	/* Checks a graph, then reports its measured footprint and the best time of each traversal. */
+	private static void run(String name, Graph<Object> graph, int weightBytes, int degree, int rounds, double targets, double weights) {
+		int n = graph.getVertexCount();
+		long m = graph.getEdgeCount();
+		Bench.check(m == (long) n * degree, name + " has " + m + " edges instead of " + (long) n * degree + ".");
+		for (int v = 0; v < n; v++)
+			for (int e = graph.getEdgeStart(v) + 1; e < graph.getEdgeEnd(v); e++)
+				Bench.check(graph.getTarget(e - 1) <= graph.getTarget(e), name + " has unsorted edges at vertex " + v + ".");
+
+		double sweep = Double.MAX_VALUE;
+		double neighbours = Double.MAX_VALUE;
+		double views = Double.MAX_VALUE;
+		double search = Double.MAX_VALUE;
+		long reached = 0;
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			double targetSum = 0;
+			double weightSum = 0;
+			for (int v = 0; v < n; v++)
+				for (int e = graph.getEdgeStart(v), end = graph.getEdgeEnd(v); e < end; e++) {
+					targetSum += graph.getTarget(e);
+					if (weightBytes > 0) weightSum += graph.getWeight(e);
+				}
+			sweep = Math.min(sweep, Bench.millis(start));
+			Bench.check(targetSum == targets && weightSum == weights, name + " sweep saw the wrong edges.");
+
+			start = System.nanoTime();
+			neighbourSum = 0;
+			for (int v = 0; v < n; v++)
+				graph.forEachNeighbour(v, to -> neighbourSum += to);
+			neighbours = Math.min(neighbours, Bench.millis(start));
+			Bench.check(neighbourSum == targets, name + " forEachNeighbour saw the wrong edges.");
+
+			start = System.nanoTime();
+			double viewSum = 0;
+			for (int v = 0; v < n; v++)
+				for (Edge<Object> edge : graph.getEdges(v))
+					viewSum += edge.getTarget();
+			views = Math.min(views, Bench.millis(start));
+			Bench.check(viewSum == targets, name + " Edge views saw the wrong edges.");
+
+			start = System.nanoTime();
+			long seen = bfs(graph);
+			search = Math.min(search, Bench.millis(start));
+			Bench.check(reached == 0 || reached == seen, name + " search reached " + seen + " vertices, then " + reached + ".");
+			reached = seen;
+			sink = targetSum + weightSum + neighbourSum + viewSum;
+		}
+
+		double documented = (4.0 * (n + 1) + (4.0 + weightBytes) * m) / m;
+		System.out.printf("%-17s %d vertices, %d edges: heap %5.2f + off-heap %5.2f = %5.2f bytes/edge (documented %5.2f, getBytesPerEdge %5.2f)%n", name, n, m,
+			(double) heapBytes / m, (double) directBytes / m, (double) (heapBytes + directBytes) / m, documented, graph.getBytesPerEdge());
+		System.out.printf("%-17s sweep %6.1f, forEachNeighbour %6.1f, Edge views %6.1f M edges/s; BFS from 0 reached %d vertices at %6.1f M edges/s%n", name,
+			m / sweep / 1e3, m / neighbours / 1e3, m / views / 1e3, reached, m / search / 1e3);
+	}
+
+	/* A plain breadth-first search from vertex 0 over the int-based methods; returns the number of vertices reached. */
+	private static long bfs(Graph<Object> graph) {
+		int n = graph.getVertexCount();
+		boolean[] seen = new boolean[n];
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		seen[0] = true;
+		queue[tail++] = 0;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int e = graph.getEdgeStart(v), end = graph.getEdgeEnd(v); e < end; e++) {
+				int to = graph.getTarget(e);
+				if (!seen[to]) {
+					seen[to] = true;
+					queue[tail++] = to;
+				}
+			}
+		}
+		return tail;
+	}
+}
@@ -0,0 +1,93 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.util.graph.collections.Graph;
+import com.avrisnox.util.graph.misc.RandomGen;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+/**GraphGenBench
+ * Measures RandomGen on each of its models, building Graphs in memory and streaming edge files, by thread count, and produces the graph data the other graph benchmarks can load.
+ * Before reporting, it checks what makes the generator reproducible: every thread count builds the same graph and writes the same file for a seed, another seed builds a different graph (except for the torus, which has no randomness), and readEdges reads each file back into the same graph.
+ * Arguments: largest thread count (default the number of processors), R-MAT scale (default 20), and a directory; when the directory is given the edge files are left there as <model>.edges, to be read with RandomGen.readEdges.
+ */
+public class GraphGenBench {
+	private static final long SEED = 42;
+
+	public static void main(String[] args) throws IOException {
+		int maxThreads = Bench.arg(args, 0, Runtime.getRuntime().availableProcessors());
+		int scale = Bench.arg(args, 1, 20);
+		Path keep = args.length > 2 ? Paths.get(args[2]) : null;
+		Path directory = keep != null ? Files.createDirectories(keep) : Files.createTempDirectory("graph-bench");
+
+		String[] names = {"erdos-renyi", "barabasi-albert", "rmat", "torus"};
+		RandomGen.Model[] models = {
+			RandomGen.erdosRenyi(1 << scale >> 2, 8.0 / (1 << scale >> 2)),
+			RandomGen.barabasiAlbert(1 << scale, 4),
+			RandomGen.rmat(scale, 8L << scale),
+			RandomGen.grid(1 << (scale >> 1), 1 << (scale - (scale >> 1)), true)
+		};
+		for (int m = 0; m < models.length; m++) {
+			RandomGen.Model model = models[m];
+			// A run with another seed warms up the generator before anything is timed, and shows the seed is used.
+			long other = digest(model.toGraph(SEED + 1));
+			Path scratch = directory.resolve(names[m] + ".scratch");
+			model.toFile(scratch, SEED + 1);
+			Files.delete(scratch);
+			Graph<Object> reference = null;
+			long digest = 0;
+			long checksum = 0;
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				long start = System.nanoTime();
+				Graph<Object> graph = model.toGraph(SEED, pool);
+				double build = Bench.millis(start);
+				Path file = directory.resolve(names[m] + (threads == 1 ? ".edges" : "." + threads + ".edges"));
+				start = System.nanoTime();
+				long edges = model.toFile(file, SEED, pool);
+				double write = Bench.millis(start);
+				pool.shutdown();
+
+				if (reference == null) {
+					reference = graph;
+					digest = digest(graph);
+					checksum = checksum(file);
+					Bench.check(edges == graph.getEdgeCount(), names[m] + " wrote " + edges + " edges but built " + graph.getEdgeCount() + ".");
+					Bench.check(digest(RandomGen.readEdges(file)) == digest, names[m] + " file does not read back as the graph.");
+					Bench.check(names[m].equals("torus") || other != digest, names[m] + " ignores its seed.");
+				} else {
+					Bench.check(digest(graph) == digest, names[m] + " differs on " + threads + " threads.");
+					Bench.check(checksum(file) == checksum, names[m] + " file differs on " + threads + " threads.");
+					Files.delete(file);
+				}
+				System.out.printf("%-15s %2d threads: %8d vertices, %9d edges; toGraph %7.1f ms (%5.1f M edges/s), toFile %7.1f ms (%5.1f MB/s)%n", names[m], threads,
+					graph.getVertexCount(), graph.getEdgeCount(), build, graph.getEdgeCount() / build / 1e3, write, Files.size(directory.resolve(names[m] + ".edges")) / write / 1e3);
+			}
+			if (keep == null) Files.delete(directory.resolve(names[m] + ".edges"));
+		}
+		if (keep == null) Files.delete(directory);
+	}
+
+	/* Hashes the vertex count and every edge in order, including weights. */
+	private static long digest(Graph<?> graph) {
+		long hash = graph.getVertexCount();
+		for (int v = 0; v < graph.getVertexCount(); v++)
+			for (int e = graph.getEdgeStart(v); e < graph.getEdgeEnd(v); e++)
+				hash = hash * 31 + (long) graph.getTarget(e) * 7 + v + (graph.isWeighted() ? Double.doubleToLongBits(graph.getWeight(e)) : 0);
+		return hash;
+	}
+
+	private static long checksum(Path file) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[1 << 16];
+		try (InputStream in = Files.newInputStream(file)) {
+			for (int read; (read = in.read(buffer)) > 0; ) crc.update(buffer, 0, read);
+		}
+		return crc.getValue();
+	}
+}
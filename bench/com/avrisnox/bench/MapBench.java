@@ -0,0 +1,226 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.concurrent.collections.ConcHashMap;
+import com.avrisnox.concurrent.collections.ConcLongHashMap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**MapBench
+ * Compares ConcHashMap and its long-keyed ConcLongHashMap with ConcurrentHashMap and a synchronized HashMap under mixed read and write loads, by thread count.
+ * Each thread runs a fixed number of operations on random keys from a shared key space kept about half full: gets, with the rest split evenly between puts and removes. Boxed keys are made up front, so only ConcLongHashMap's saving on boxing is left to show.
+ * Before timing, every map is checked against a HashMap over a random single-threaded run, and then with threads writing disjoint keys at once and removing half of them again.
+ * Arguments: largest thread count (default the number of processors), operations per thread (default 2000000), key space (default 65536).
+ */
+public class MapBench {
+	private static final int[] READ_PERCENTS = {90, 50};
+	private static final int ROUNDS = 3;
+
+	/* The operations being compared, over whichever map - due to its private nature, it has been left undocumented. */
+	private interface Subject {
+		Long get(long key, Long boxed);
+
+		Long put(long key, Long boxed, Long value);
+
+		Long remove(long key, Long boxed);
+
+		int size();
+	}
+
+	/* Makes a fresh, empty subject - due to its private nature, it has been left undocumented. */
+	private interface Maker {
+		Subject make();
+	}
+
+	/* The work one thread does - due to its private nature, it has been left undocumented. */
+	private interface Work {
+		void run(int thread);
+	}
+
+	private static Long[] boxed;
+	/* Keeps the lookups' results alive so the JIT cannot drop them. */
+	private static volatile long sink;
+
+	public static void main(String[] args) throws InterruptedException {
+		int maxThreads = Bench.arg(args, 0, Runtime.getRuntime().availableProcessors());
+		int operations = Bench.arg(args, 1, 2_000_000);
+		int keys = Bench.arg(args, 2, 1 << 16);
+		boxed = new Long[Math.max(keys, 1 << 16)];
+		for (int i = 0; i < boxed.length; i++)
+			boxed[i] = (long) i;
+
+		String[] names = {"ConcurrentHashMap", "synchronizedMap", "ConcHashMap", "ConcLongHashMap"};
+		Maker[] makers = makers();
+		for (int s = 0; s < makers.length; s++) {
+			check(names[s], makers[s].make());
+			checkConcurrent(names[s], makers[s], Math.max(maxThreads, 4));
+		}
+		for (int reads : READ_PERCENTS)
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				StringBuilder line = new StringBuilder(String.format("%d%% reads, %2d threads:", reads, threads));
+				for (int s = 0; s < makers.length; s++)
+					line.append(String.format(" %s %6.2f", names[s], throughput(makers[s].make(), threads, operations, keys, reads)));
+				System.out.println(line.append(" M ops/s"));
+			}
+	}
+
+	private static Maker[] makers() {
+		return new Maker[]{
+			() -> boxedSubject(new ConcurrentHashMap<>()),
+			() -> boxedSubject(Collections.synchronizedMap(new HashMap<>())),
+			() -> boxedSubject(new ConcHashMap<>()),
+			() -> {
+				ConcLongHashMap<Long> map = new ConcLongHashMap<>();
+				return new Subject() {
+					@Override
+					public Long get(long key, Long boxed) {
+						return map.get(key);
+					}
+
+					@Override
+					public Long put(long key, Long boxed, Long value) {
+						return map.put(key, value);
+					}
+
+					@Override
+					public Long remove(long key, Long boxed) {
+						return map.remove(key);
+					}
+
+					@Override
+					public int size() {
+						return map.size();
+					}
+				};
+			}
+		};
+	}
+
+	private static Subject boxedSubject(Map<Long, Long> map) {
+		return new Subject() {
+			@Override
+			public Long get(long key, Long boxed) {
+				return map.get(boxed);
+			}
+
+			@Override
+			public Long put(long key, Long boxed, Long value) {
+				return map.put(boxed, value);
+			}
+
+			@Override
+			public Long remove(long key, Long boxed) {
+				return map.remove(boxed);
+			}
+
+			@Override
+			public int size() {
+				return map.size();
+			}
+		};
+	}
+
+	/* Replays a random run against a HashMap, comparing every answer. */
+	private static void check(String name, Subject subject) {
+		Map<Long, Long> model = new HashMap<>();
+		SplittableRandom random = new SplittableRandom(5);
+		for (int i = 0; i < 200_000; i++) {
+			int key = random.nextInt(4096);
+			Long value = (long) random.nextInt();
+			switch (random.nextInt(3)) {
+				case 0:
+					Bench.check(same(model.put(boxed[key], value), subject.put(key, boxed[key], value)), name + " put " + key + " returned the wrong value.");
+					break;
+				case 1:
+					Bench.check(same(model.remove(boxed[key]), subject.remove(key, boxed[key])), name + " remove " + key + " returned the wrong value.");
+					break;
+				default:
+					Bench.check(same(model.get(boxed[key]), subject.get(key, boxed[key])), name + " get " + key + " returned the wrong value.");
+			}
+		}
+		Bench.check(model.size() == subject.size(), name + " has " + subject.size() + " entries instead of " + model.size() + ".");
+	}
+
+	private static boolean same(Long a, Long b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/* Has each thread put its own stripe of keys at once, then remove every other one, and checks what is left. */
+	private static void checkConcurrent(String name, Maker maker, int threads) throws InterruptedException {
+		Subject subject = maker.make();
+		int perThread = boxed.length / threads;
+		run(threads, t -> {
+			for (int i = t * perThread; i < (t + 1) * perThread; i++)
+				subject.put(i, boxed[i], boxed[i]);
+			for (int i = t * perThread; i < (t + 1) * perThread; i += 2)
+				subject.remove(i, boxed[i]);
+		});
+		for (int i = 0; i < threads * perThread; i++)
+			Bench.check(same((i & 1) == 1 ? boxed[i] : null, subject.get(i, boxed[i])), name + " lost or kept key " + i + " under " + threads + " threads.");
+		Bench.check(subject.size() == threads * perThread / 2, name + " has " + subject.size() + " entries after concurrent writes.");
+	}
+
+	/* Fills half the key space, then has every thread run the mix; gives the best of a few rounds in millions of operations per second. */
+	private static double throughput(Subject subject, int threads, int operations, int keys, int reads) throws InterruptedException {
+		for (int i = 0; i < keys; i += 2)
+			subject.put(i, boxed[i], boxed[i]);
+		// Each thread's keys and choices are drawn beforehand, so the timed loop is only map calls
+		int[][] plans = new int[threads][operations];
+		for (int t = 0; t < threads; t++) {
+			SplittableRandom random = new SplittableRandom(t);
+			for (int i = 0; i < operations; i++) {
+				int roll = random.nextInt(100);
+				int kind = roll < reads ? 0 : (roll - reads) * 2 < 100 - reads ? 1 : 2;
+				plans[t][i] = random.nextInt(keys) << 2 | kind;
+			}
+		}
+		double best = Double.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			best = Math.min(best, run(threads, t -> {
+				long found = 0;
+				for (int plan : plans[t]) {
+					int key = plan >>> 2;
+					switch (plan & 3) {
+						case 0:
+							found += subject.get(key, boxed[key]) != null ? 1 : 0;
+							break;
+						case 1:
+							subject.put(key, boxed[key], boxed[key]);
+							break;
+						default:
+							subject.remove(key, boxed[key]);
+					}
+				}
+				sink += found;
+			}));
+		}
+		return (double) threads * operations / best / 1e3;
+	}
+
+	/* Starts the threads together and waits for all of them; gives the time from the start to the last one finishing, in milliseconds. */
+	private static double run(int threads, Work work) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			workers[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				work.run(thread);
+			});
+			workers[t].start();
+		}
+		long began = System.nanoTime();
+		start.countDown();
+		for (Thread worker : workers)
+			worker.join();
+		return Bench.millis(began);
+	}
+}
@@ -0,0 +1,60 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.util.graph.machines.NeuralNet;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**NeuralNetBench
+ * Measures NeuralNet inference and training in samples per second, by batch size and thread count, on a 784-512-256-10 network.
+ * Before timing it checks that a small network learns XOR, and that a pooled forward pass gives the same outputs as the sequential one.
+ * Arguments: largest thread count (default the number of processors), milliseconds per measurement (default 1000).
+ */
+public class NeuralNetBench {
+	private static final int[] BATCHES = {1, 16, 64, 256, 1024};
+
+	public static void main(String[] args) {
+		int maxThreads = Bench.arg(args, 0, Runtime.getRuntime().availableProcessors());
+		long window = Bench.arg(args, 1, 1000) * 1_000_000L;
+
+		NeuralNet xor = new NeuralNet(NeuralNet.Activation.TANH, NeuralNet.Activation.SIGMOID, 1, 2, 8, 1);
+		float[] inputs = {0, 0, 0, 1, 1, 0, 1, 1};
+		float[] targets = {0, 1, 1, 0};
+		for (int epoch = 0; epoch < 5000; epoch++) xor.train(inputs, targets, 4, 0.5f);
+		float[] learned = xor.predict(inputs, 4);
+		for (int i = 0; i < 4; i++)
+			Bench.check(Math.abs(learned[i] - targets[i]) < 0.2f, "XOR not learned: sample " + i + " gave " + learned[i] + ".");
+
+		NeuralNet net = new NeuralNet(784, 512, 256, 10);
+		Random random = new Random(1);
+		float[] data = new float[784 * BATCHES[BATCHES.length - 1]];
+		for (int i = 0; i < data.length; i++) data[i] = random.nextFloat();
+		float[] labels = new float[10 * BATCHES[BATCHES.length - 1]];
+
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+			float[] expected = net.predict(data, 256);
+			float[] actual = net.predict(data, 256, pool);
+			for (int i = 0; i < expected.length; i++)
+				Bench.check(Math.abs(expected[i] - actual[i]) < 1e-5f, "Pooled output " + i + " differs on " + threads + " threads.");
+			for (int batch : BATCHES) {
+				long samples = 0;
+				long start = System.nanoTime();
+				while (System.nanoTime() - start < window) {
+					net.predict(data, batch, pool);
+					samples += batch;
+				}
+				double infer = samples / (Bench.millis(start) / 1e3);
+				samples = 0;
+				start = System.nanoTime();
+				while (System.nanoTime() - start < window) {
+					net.train(data, labels, batch, 0.0001f, pool);
+					samples += batch;
+				}
+				double train = samples / (Bench.millis(start) / 1e3);
+				System.out.printf("threads %2d batch %4d: infer %9.0f samples/s, train %8.0f samples/s%n", threads, batch, infer, train);
+			}
+			if (pool != null) pool.shutdown();
+		}
+	}
+}
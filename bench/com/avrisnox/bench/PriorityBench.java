@@ -0,0 +1,215 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.concurrent.collections.ConcPriorityQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**PriorityBench
+ * Compares ConcPriorityQueue with PriorityBlockingQueue under contention, by thread count: every thread offers and polls against one shared queue kept at a steady size, the way timer and search-frontier threads use it.
+ * ConcPriorityQueue is run three ways: one element at a time, with each element moved once to a lower priority through its Handle before it is polled (decrease-key, which PriorityBlockingQueue cannot do without a remove and re-add), and in batches through offerAll and pollAll.
+ * Before timing, a single-threaded run is checked against java.util.PriorityQueue, including updates and removals through handles, and threads offering and then polling at once must get every element back exactly once.
+ * Arguments: largest thread count (default the number of processors), operations per thread (default 1000000), queue size (default 10000).
+ */
+public class PriorityBench {
+	private static final int ROUNDS = 3;
+	private static final int BATCH = 16;
+
+	/* The element type PriorityBlockingQueue orders by itself - due to its private nature, it has been left undocumented. */
+	private static final class Item implements Comparable<Item> {
+		private final double priority;
+		private final int id;
+
+		public Item(double priority, int id) {
+			this.priority = priority;
+			this.id = id;
+		}
+
+		@Override
+		public int compareTo(Item other) {
+			return Double.compare(priority, other.priority);
+		}
+	}
+
+	/* One thread's share of the work - due to its private nature, it has been left undocumented. */
+	private interface Work {
+		void run(int thread, double[] priorities);
+	}
+
+	/* Keeps the polled elements alive so the JIT cannot drop them. */
+	private static volatile long sink;
+
+	public static void main(String[] args) throws InterruptedException {
+		int maxThreads = Bench.arg(args, 0, Runtime.getRuntime().availableProcessors());
+		int operations = Bench.arg(args, 1, 1_000_000);
+		int size = Bench.arg(args, 2, 10_000);
+		check();
+		checkConcurrent(Math.max(maxThreads, 4));
+
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			PriorityBlockingQueue<Item> blocking = new PriorityBlockingQueue<>();
+			fill(size, (id, priority) -> blocking.offer(new Item(priority, id)));
+			double pbq = best(threads, operations, (thread, priorities) -> {
+				long sum = 0;
+				for (int i = 0; i < priorities.length; i++) {
+					blocking.offer(new Item(priorities[i], i));
+					sum += blocking.poll().id;
+				}
+				sink += sum;
+			});
+
+			ConcPriorityQueue<Integer> queue = new ConcPriorityQueue<>();
+			fill(size, queue::offer);
+			double single = best(threads, operations, (thread, priorities) -> {
+				long sum = 0;
+				for (int i = 0; i < priorities.length; i++) {
+					queue.offer(i, priorities[i]);
+					sum += queue.poll();
+				}
+				sink += sum;
+			});
+
+			ConcPriorityQueue<Integer> keyed = new ConcPriorityQueue<>();
+			fill(size, keyed::offer);
+			double decrease = best(threads, operations, (thread, priorities) -> {
+				long sum = 0;
+				for (int i = 0; i < priorities.length; i++) {
+					ConcPriorityQueue.Handle<Integer> handle = keyed.insert(i, priorities[i] + 1);
+					keyed.update(handle, priorities[i]);
+					sum += keyed.poll();
+				}
+				sink += sum;
+			});
+
+			ConcPriorityQueue<Integer> batched = new ConcPriorityQueue<>();
+			fill(size, batched::offer);
+			double batch = best(threads, operations, (thread, priorities) -> {
+				List<Integer> elements = new ArrayList<>(BATCH);
+				long[] sum = new long[1];
+				for (int i = 0; i + BATCH <= priorities.length; i += BATCH) {
+					elements.clear();
+					for (int b = i; b < i + BATCH; b++)
+						elements.add(b);
+					batched.offerAll(elements, element -> priorities[element]);
+					batched.pollAll(entry -> sum[0] += entry.getElement(), BATCH);
+				}
+				sink += sum[0];
+			});
+			Bench.check(blocking.size() == size && queue.size() == size && keyed.size() == size && batched.size() == size, "A queue did not keep its size through an offer and poll each.");
+			System.out.printf("%2d threads: PriorityBlockingQueue %5.2f, ConcPriorityQueue %5.2f, with decrease-key %5.2f, batched %5.2f M offer+poll pairs/s%n", threads,
+				threads * operations / pbq / 1e3, threads * operations / single / 1e3, threads * operations / decrease / 1e3, threads * operations / batch / 1e3);
+		}
+	}
+
+	/* Adds an element and its priority to whichever queue - due to its private nature, it has been left undocumented. */
+	private interface Filler {
+		void add(Integer id, double priority);
+	}
+
+	private static void fill(int size, Filler filler) {
+		SplittableRandom random = new SplittableRandom(1);
+		for (int i = 0; i < size; i++)
+			filler.add(i, random.nextDouble());
+	}
+
+	/* Replays random offers, polls, updates and removals against a PriorityQueue of the same priorities. */
+	private static void check() {
+		ConcPriorityQueue<Integer> queue = new ConcPriorityQueue<>();
+		PriorityQueue<Item> model = new PriorityQueue<>();
+		List<ConcPriorityQueue.Handle<Integer>> handles = new ArrayList<>();
+		SplittableRandom random = new SplittableRandom(9);
+		for (int i = 0; i < 20_000; i++) {
+			int roll = random.nextInt(10);
+			if (roll < 4) {
+				// Distinct priorities, so both queues have only one right answer
+				double priority = random.nextDouble();
+				handles.add(queue.insert(handles.size(), priority));
+				model.add(new Item(priority, handles.size() - 1));
+			} else if (roll < 6 && !handles.isEmpty()) {
+				ConcPriorityQueue.Handle<Integer> handle = handles.get(random.nextInt(handles.size()));
+				double priority = random.nextDouble();
+				boolean queued = handle.isQueued();
+				boolean removed = model.removeIf(item -> item.id == handle.getElement());
+				Bench.check(queued == removed, "ConcPriorityQueue handle " + handle.getElement() + " is wrong about being queued.");
+				Bench.check(queue.update(handle, priority) == queued, "ConcPriorityQueue updated handle " + handle.getElement() + " wrongly.");
+				if (queued) model.add(new Item(priority, handle.getElement()));
+			} else if (roll < 7 && !handles.isEmpty()) {
+				ConcPriorityQueue.Handle<Integer> handle = handles.get(random.nextInt(handles.size()));
+				boolean removed = model.removeIf(item -> item.id == handle.getElement());
+				Bench.check(queue.remove(handle) == removed, "ConcPriorityQueue removed handle " + handle.getElement() + " wrongly.");
+			} else {
+				Item expected = model.poll();
+				ConcPriorityQueue.Entry<Integer> entry = queue.pollEntry();
+				Bench.check(expected == null ? entry == null : entry != null && entry.getElement() == expected.id && entry.getPriority() == expected.priority,
+					"ConcPriorityQueue polled the wrong element at step " + i + ".");
+			}
+		}
+		Bench.check(queue.size() == model.size(), "ConcPriorityQueue has " + queue.size() + " elements instead of " + model.size() + ".");
+	}
+
+	/* Has every thread offer its own elements and then poll as many, and checks each element came out exactly once. */
+	private static void checkConcurrent(int threads) throws InterruptedException {
+		ConcPriorityQueue<Integer> queue = new ConcPriorityQueue<>();
+		int perThread = 50_000;
+		boolean[][] polled = new boolean[threads][threads * perThread];
+		run(threads, perThread, (thread, priorities) -> {
+			for (int i = 0; i < priorities.length; i++)
+				queue.offer(thread * perThread + i, priorities[i]);
+			for (int i = 0; i < priorities.length; i++) {
+				Integer element = queue.poll();
+				// Another thread may still be offering, so an empty queue is not the end
+				while (element == null) {
+					Thread.yield();
+					element = queue.poll();
+				}
+				polled[thread][element] = true;
+			}
+		});
+		for (int element = 0; element < threads * perThread; element++) {
+			int times = 0;
+			for (int t = 0; t < threads; t++)
+				times += polled[t][element] ? 1 : 0;
+			Bench.check(times == 1, "ConcPriorityQueue gave element " + element + " out " + times + " times under " + threads + " threads.");
+		}
+		Bench.check(queue.isEmpty(), "ConcPriorityQueue is not empty after every element was polled.");
+	}
+
+	/* Runs the work a few times and gives the best time, in milliseconds. */
+	private static double best(int threads, int operations, Work work) throws InterruptedException {
+		double best = Double.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++)
+			best = Math.min(best, run(threads, operations, work));
+		return best;
+	}
+
+	/* Gives each thread its own random priorities, starts the threads together and waits for all of them; gives the time taken in milliseconds. */
+	private static double run(int threads, int operations, Work work) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			SplittableRandom random = new SplittableRandom(100 + t);
+			double[] priorities = new double[operations];
+			for (int i = 0; i < operations; i++)
+				priorities[i] = random.nextDouble();
+			workers[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				work.run(thread, priorities);
+			});
+			workers[t].start();
+		}
+		long began = System.nanoTime();
+		start.countDown();
+		for (Thread worker : workers)
+			worker.join();
+		return Bench.millis(began);
+	}
+}
@@ -0,0 +1,205 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.concurrent.collections.ConcQueue;
+import com.avrisnox.concurrent.control.Channel;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**QueueBench
+ * Compares ConcQueue and Channel with ArrayBlockingQueue for handing elements between producer and consumer threads: throughput, then latency at p50, p99 and p99.9.
+ * ArrayBlockingQueue and Channel block when full or empty; ConcQueue never blocks, so its threads yield and retry. Channel is also run with consumers draining in batches through receiveAll.
+ * Throughput is measured with the producers flat out. Latency is measured separately at half that rate, since at saturation it only measures how long the queue is; each element is timed from when it was due to be sent, so a producer falling behind schedule counts against the latency too.
+ * Every run checks that each element arrives exactly once, and that every consumer sees each producer's elements in the order they were sent.
+ * Arguments: largest number of producer and consumer pairs (default 2), elements (default 1000000), capacity (default 1024).
+ */
+public class QueueBench {
+	private static final int ROUNDS = 3;
+
+	/* The operations being compared, over whichever queue - due to its private nature, it has been left undocumented. */
+	private interface Pipe {
+		void put(Integer element) throws InterruptedException;
+
+		/* Takes up to max elements, at least one, into the buffer; returns how many. */
+		int take(Integer[] buffer, int max) throws InterruptedException;
+	}
+
+	/* Makes a fresh, empty pipe - due to its private nature, it has been left undocumented. */
+	private interface Maker {
+		Pipe make(int capacity);
+	}
+
+	private static Integer[] elements;
+	/* When each element was sent, and how long it took to arrive, in nanoseconds. */
+	private static long[] sent;
+	private static long[] latency;
+
+	public static void main(String[] args) throws InterruptedException {
+		int maxPairs = Bench.arg(args, 0, 2);
+		int count = Bench.arg(args, 1, 1_000_000);
+		int capacity = Bench.arg(args, 2, 1024);
+		elements = new Integer[count];
+		for (int i = 0; i < count; i++)
+			elements[i] = i;
+		sent = new long[count];
+		latency = new long[count];
+
+		String[] names = {"ArrayBlockingQueue", "ConcQueue", "Channel", "Channel batched"};
+		Maker[] makers = {
+			QueueBench::arrayBlocking,
+			QueueBench::concQueue,
+			size -> channel(size, 1),
+			size -> channel(size, 64)
+		};
+		for (int pairs = 1; pairs <= maxPairs; pairs *= 2)
+			for (int s = 0; s < makers.length; s++) {
+				// Whole shares only, so every consumer knows how many elements to take
+				int total = count / pairs * pairs;
+				double best = Double.MAX_VALUE;
+				for (int round = 0; round < ROUNDS; round++)
+					best = Math.min(best, run(names[s], makers[s].make(capacity), pairs, total, 0));
+				double rate = total / best * 1e3;
+				long interval = (long) (2e9 / rate) * pairs;
+				run(names[s], makers[s].make(capacity), pairs, total, interval);
+				long[] sample = Arrays.copyOf(latency, total);
+				System.out.printf("%-18s %d:%d, capacity %d: %6.2f M elements/s; at half that, latency p50 %7.1f us, p99 %7.1f us, p99.9 %8.1f us%n", names[s], pairs, pairs, capacity,
+					rate / 1e6, Bench.percentile(sample, 50) / 1e3, Bench.percentile(sample, 99) / 1e3, Bench.percentile(sample, 99.9) / 1e3);
+			}
+	}
+
+	private static Pipe arrayBlocking(int capacity) {
+		ArrayBlockingQueue<Integer> queue = new ArrayBlockingQueue<>(capacity);
+		return new Pipe() {
+			@Override
+			public void put(Integer element) throws InterruptedException {
+				queue.put(element);
+			}
+
+			@Override
+			public int take(Integer[] buffer, int max) throws InterruptedException {
+				buffer[0] = queue.take();
+				return 1;
+			}
+		};
+	}
+
+	private static Pipe concQueue(int capacity) {
+		ConcQueue<Integer> queue = new ConcQueue<>(capacity);
+		return new Pipe() {
+			@Override
+			public void put(Integer element) {
+				while (!queue.offer(element))
+					Thread.yield();
+			}
+
+			@Override
+			public int take(Integer[] buffer, int max) {
+				Integer element;
+				while ((element = queue.poll()) == null)
+					Thread.yield();
+				buffer[0] = element;
+				return 1;
+			}
+		};
+	}
+
+	private static Pipe channel(int capacity, int batch) {
+		Channel<Integer> channel = new Channel<>(capacity);
+		return new Pipe() {
+			@Override
+			public void put(Integer element) throws InterruptedException {
+				channel.send(element);
+			}
+
+			@Override
+			public int take(Integer[] buffer, int max) throws InterruptedException {
+				if (batch > 1) {
+					int[] count = new int[1];
+					channel.receiveAll(element -> buffer[count[0]++] = element, Math.min(max, batch));
+					if (count[0] > 0) return count[0];
+				}
+				buffer[0] = channel.receive();
+				return 1;
+			}
+		};
+	}
+
+	/* Runs the producers and consumers once, flat out if interval is 0 and otherwise each producer sending every interval nanoseconds; gives the time taken in milliseconds. */
+	private static double run(String name, Pipe pipe, int pairs, int total, long interval) throws InterruptedException {
+		int share = total / pairs;
+		// Each consumer marks what it got in its own array, so checking adds no contention of its own
+		boolean[][] seen = new boolean[pairs][total];
+		int[] disordered = new int[pairs];
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[2 * pairs];
+		long[] begin = new long[1];
+		for (int p = 0; p < pairs; p++) {
+			int producer = p;
+			threads[p] = new Thread(() -> {
+				await(start);
+				try {
+					// Producer p sends elements p, p + pairs, p + 2 * pairs and so on, so its own elements rise
+					for (int i = producer, k = 0; i < total; i += pairs, k++) {
+						long due = begin[0] + k * interval;
+						if (interval > 0)
+							while (System.nanoTime() < due) LockSupport.parkNanos(due - System.nanoTime());
+						sent[i] = (interval > 0 ? due : System.nanoTime());
+						pipe.put(elements[i]);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			int consumer = p;
+			threads[pairs + p] = new Thread(() -> {
+				await(start);
+				Integer[] buffer = new Integer[64];
+				int[] last = new int[pairs];
+				Arrays.fill(last, -1);
+				try {
+					for (int taken = 0; taken < share; ) {
+						int got = pipe.take(buffer, share - taken);
+						long now = System.nanoTime();
+						for (int b = 0; b < got; b++) {
+							int i = buffer[b];
+							latency[i] = now - sent[i];
+							seen[consumer][i] = true;
+							if (i < last[i % pairs]) disordered[consumer]++;
+							last[i % pairs] = i;
+						}
+						taken += got;
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		begin[0] = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads)
+			thread.join();
+		double millis = Bench.millis(begin[0]);
+		for (int p = 0; p < pairs; p++)
+			Bench.check(disordered[p] == 0, name + " reordered " + disordered[p] + " elements from one producer.");
+		// Consumers take exactly total elements between them, so if each one arrived at most once, each arrived exactly once
+		for (int i = 0; i < total; i++) {
+			int arrivals = 0;
+			for (int p = 0; p < pairs; p++)
+				arrivals += seen[p][i] ? 1 : 0;
+			Bench.check(arrivals == 1, name + " delivered element " + i + " " + arrivals + " times.");
+		}
+		return millis;
+	}
+
+	private static void await(CountDownLatch start) {
+		try {
+			start.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.concurrent.Searches;
+import com.avrisnox.util.graph.collections.Graph;
+import com.avrisnox.util.graph.misc.RandomGen;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**SearchBench
+ * Measures how the parallel searches of com.avrisnox.concurrent.Searches scale with thread count on synthetic power-law graphs, against the sequential ones of com.avrisnox.util.graph.Searches.
+ * Two graphs are searched, an R-MAT graph and a Barabasi-Albert graph, both weighted uniformly from 1 to 100, from their highest-out-degree vertex: breadth-first search for hop counts and parent trees, and shortest paths by Dijkstra and by delta-stepping with a delta of the mean weight.
+ * Rates are in millions of traversed edges per second, counting the edges leaving every vertex the search reached.
+ * Every parallel result is checked to be identical to the sequential one on every thread count before it is timed, which is what makes them deterministic.
+ * Arguments: largest thread count (default the number of processors), R-MAT scale (default 18), edges per vertex (default 16).
+ */
+public class SearchBench {
+	private static final long SEED = 42;
+	private static final int ROUNDS = 3;
+
+	public static void main(String[] args) {
+		int maxThreads = Bench.arg(args, 0, Runtime.getRuntime().availableProcessors());
+		int scale = Bench.arg(args, 1, 18);
+		int degree = Bench.arg(args, 2, 16);
+		String[] names = {"rmat", "barabasi-albert"};
+		RandomGen.Model[] models = {
+			RandomGen.rmat(scale, (long) degree << scale),
+			RandomGen.barabasiAlbert(1 << scale, degree / 2)
+		};
+		for (int m = 0; m < models.length; m++) {
+			Graph<Object> graph = models[m].toGraph(SEED, 1, 100, ForkJoinPool.commonPool());
+			// Ties go to the newest vertex: Barabasi-Albert edges point from newer vertices to older ones, so the oldest reach nothing
+			int source = 0;
+			for (int v = 1; v < graph.getVertexCount(); v++)
+				if (graph.getOutDegree(v) >= graph.getOutDegree(source)) source = v;
+			int from = source;
+
+			int[] hops = com.avrisnox.util.graph.Searches.bfs(graph, from);
+			int[] tree = com.avrisnox.util.graph.Searches.bfsTree(graph, from);
+			double[] distance = com.avrisnox.util.graph.Searches.dijkstra(graph, from);
+			long traversed = 0;
+			int reached = 0;
+			for (int v = 0; v < graph.getVertexCount(); v++)
+				if (hops[v] >= 0) {
+					reached++;
+					traversed += graph.getOutDegree(v);
+				}
+			Bench.check(reached > 1, names[m] + " search from " + from + " reached nothing.");
+			System.out.printf("%s: %d vertices, %d edges, source %d (out-degree %d) reaches %d vertices and %d edges%n", names[m], graph.getVertexCount(), graph.getEdgeCount(),
+				from, graph.getOutDegree(from), reached, traversed);
+			double bfs = best(() -> com.avrisnox.util.graph.Searches.bfs(graph, from));
+			double dijkstra = best(() -> com.avrisnox.util.graph.Searches.dijkstra(graph, from));
+			System.out.printf("  sequential:  bfs %7.1f ms (%6.1f M edges/s), dijkstra %7.1f ms (%6.1f M edges/s)%n", bfs, traversed / bfs / 1e3, dijkstra, traversed / dijkstra / 1e3);
+
+			double delta = graph.getMeanWeight();
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				Bench.check(Arrays.equals(hops, Searches.bfs(graph, from, pool)), names[m] + " parallel bfs differs on " + threads + " threads.");
+				Bench.check(Arrays.equals(tree, Searches.bfsTree(graph, from, pool)), names[m] + " parallel bfsTree differs on " + threads + " threads.");
+				Bench.check(Arrays.equals(distance, Searches.deltaStepping(graph, from, delta, pool)), names[m] + " delta-stepping differs from Dijkstra on " + threads + " threads.");
+				double parallelBfs = best(() -> Searches.bfs(graph, from, pool));
+				double stepping = best(() -> Searches.deltaStepping(graph, from, delta, pool));
+				pool.shutdown();
+				System.out.printf("  %2d threads:  bfs %7.1f ms (%6.1f M edges/s, %.2fx), delta-stepping %7.1f ms (%6.1f M edges/s, %.2fx)%n", threads,
+					parallelBfs, traversed / parallelBfs / 1e3, bfs / parallelBfs, stepping, traversed / stepping / 1e3, dijkstra / stepping);
+			}
+		}
+	}
+
+	/* Runs a search a few times and gives the best time, in milliseconds. */
+	private static double best(Supplier<Object> search) {
+		double best = Double.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			Bench.check(search.get() != null, "A search returned nothing.");
+			best = Math.min(best, Bench.millis(start));
+		}
+		return best;
+	}
+}
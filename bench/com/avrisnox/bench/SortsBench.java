@@ -0,0 +1,70 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.util.graph.Sorts;
+import com.avrisnox.util.graph.collections.Graph;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**SortsBench
+ * Compares the sequential and parallel orderings of Sorts on a random DAG, by thread count.
+ * Every parallel result is checked against the sequential one and the topological order against every edge before anything is timed.
+ * Arguments: vertex count (default 2000000), edges per vertex (default 4), largest thread count (default the number of processors).
+ */
+public class SortsBench {
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		int n = Bench.arg(args, 0, 2_000_000);
+		int degree = Bench.arg(args, 1, 4);
+		int maxThreads = Bench.arg(args, 2, Runtime.getRuntime().availableProcessors());
+		Graph<Object> graph = randomDag(n, degree, 7);
+		System.out.printf("DAG: %d vertices, %d edges, %d levels%n", graph.getVertexCount(), graph.getEdgeCount(), Sorts.levelSchedule(graph).length);
+
+		int[] order = Sorts.topologicalOrder(graph);
+		int[] position = new int[n];
+		for (int i = 0; i < n; i++) position[order[i]] = i;
+		for (int v = 0; v < n; v++)
+			for (int e = graph.getEdgeStart(v); e < graph.getEdgeEnd(v); e++)
+				Bench.check(position[v] < position[graph.getTarget(e)], "Edge " + v + " -> " + graph.getTarget(e) + " out of order.");
+		int[] levels = Sorts.levels(graph);
+
+		double sequential = best(() -> Sorts.topologicalOrder(graph));
+		System.out.printf("topologicalOrder sequential: %8.1f ms%n", sequential);
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			Bench.check(Arrays.equals(order, Sorts.topologicalOrder(graph, pool)), "Parallel order differs on " + threads + " threads.");
+			Bench.check(Arrays.equals(levels, Sorts.levels(graph, pool)), "Parallel levels differ on " + threads + " threads.");
+			double parallel = best(() -> Sorts.topologicalOrder(graph, pool));
+			System.out.printf("topologicalOrder %2d threads: %8.1f ms (%.2fx)%n", threads, parallel, sequential / parallel);
+			pool.shutdown();
+		}
+		System.out.printf("levelSchedule sequential:    %8.1f ms%n", best(() -> Sorts.levelSchedule(graph)));
+		System.out.printf("stronglyConnectedComponents: %8.1f ms%n", best(() -> Sorts.stronglyConnectedComponents(graph)));
+	}
+
+	/* Edges only ever point from a lower vertex to a higher one, so the graph has no cycle. */
+	private static Graph<Object> randomDag(int n, int degree, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Graph.Builder<Object> builder = new Graph.Builder<>(n, (int) Math.min(Integer.MAX_VALUE, (long) n * degree));
+		builder.addVertices(n);
+		for (long i = 0; i < (long) n * degree; i++) {
+			int a = random.nextInt(n);
+			int b = random.nextInt(n);
+			if (a != b) builder.addEdge(Math.min(a, b), Math.max(a, b));
+		}
+		return builder.build();
+	}
+
+	/* Runs the work a few times and keeps the fastest, so the JIT and the pool have warmed up. */
+	private static double best(Runnable run) {
+		double best = Double.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			run.run();
+			best = Math.min(best, Bench.millis(start));
+		}
+		return best;
+	}
+}
@@ -0,0 +1,177 @@
+package com.avrisnox.bench;
+
+import com.avrisnox.util.doc_storage.interfaces.StorableAsFile;
+import com.avrisnox.util.network.ReceiveStream;
+import com.avrisnox.util.network.SendStream;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**StreamBench
+ * Measures SendStream and ReceiveStream over loopback with many concurrent connections: object throughput, then latency from send to delivery at p50, p99 and p99.9.
+ * Throughput is measured with the senders flat out. Latency is measured separately at half that rate, since at saturation it only measures how long the queues are; each object is timed from when it was due to be sent, so a sender falling behind schedule counts against the latency too.
+ * Each object carries its connection, sequence number and send time; the receiver checks that every connection's objects arrive complete and in order.
+ * It then checks a raw byte frame against its checksum and a file sent with transferTo against the original, timing the file transfer.
+ * Arguments: connections (default 64), objects per connection (default 2000), sending threads (default 4), receiver loops (default 2), file size in MB (default 50).
+ */
+public class StreamBench {
+	private static final long TIMEOUT_MILLIS = 30_000;
+
+	/* A small object that records when and by which connection it was sent - due to its private nature, it has been left undocumented. */
+	private static class Stamp implements StorableAsFile {
+		private int connection;
+		private int sequence;
+		private long sentAt;
+
+		@Override
+		public String toFile() {
+			return connection + ":" + sequence + ":" + sentAt + ":payload-of-some-modest-size";
+		}
+
+		@Override
+		public void fromFile(String filestring) {
+			String[] parts = filestring.split(":");
+			connection = Integer.parseInt(parts[0]);
+			sequence = Integer.parseInt(parts[1]);
+			sentAt = Long.parseLong(parts[2]);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int connections = Bench.arg(args, 0, 64);
+		int perConnection = Bench.arg(args, 1, 2000);
+		int threads = Bench.arg(args, 2, 4);
+		int loops = Bench.arg(args, 3, 2);
+		int fileMegabytes = Bench.arg(args, 4, 50);
+		Path directory = Files.createTempDirectory("stream-bench");
+
+		int total = connections * perConnection;
+		long[] latency = new long[total];
+		AtomicInteger timed = new AtomicInteger();
+		int[] nextSequence = new int[connections];
+		AtomicInteger delivered = new AtomicInteger();
+		AtomicInteger misordered = new AtomicInteger();
+		AtomicLong byteSum = new AtomicLong();
+		AtomicReference<Path> received = new AtomicReference<>();
+		ReceiveStream.Listener objects = ReceiveStream.objects(Stamp::new, (Stamp stamp, SocketAddress from) -> {
+			long now = System.nanoTime();
+			// Each connection is read by one loop thread only, so its slot in nextSequence is never written concurrently.
+			if (nextSequence[stamp.connection]++ != stamp.sequence) misordered.incrementAndGet();
+			delivered.incrementAndGet();
+			if (stamp.sequence >= perConnection) {
+				int index = timed.getAndIncrement();
+				if (index < total) latency[index] = now - stamp.sentAt;
+			}
+		});
+		ReceiveStream receiver = new ReceiveStream(new InetSocketAddress("127.0.0.1", 0), new ReceiveStream.Listener() {
+			@Override
+			public void onObject(String contents, SocketAddress from) {
+				objects.onObject(contents, from);
+			}
+
+			@Override
+			public void onBytes(ByteBuffer payload, SocketAddress from) {
+				long sum = 0;
+				while (payload.hasRemaining()) sum += payload.get() & 0xFF;
+				byteSum.addAndGet(sum);
+			}
+
+			@Override
+			public void onFile(Path file, SocketAddress from) {
+				received.set(file);
+			}
+		}, directory, loops);
+
+		SendStream[] senders = new SendStream[connections];
+		for (int i = 0; i < connections; i++) senders[i] = new SendStream(receiver.getLocalAddress());
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (receiver.getConnectionCount() < connections && System.currentTimeMillis() < deadline) Thread.sleep(5);
+		Bench.check(receiver.getConnectionCount() == connections, "Only " + receiver.getConnectionCount() + " of " + connections + " connections accepted.");
+
+		long start = System.nanoTime();
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			int first = t;
+			// Each connection is fed by exactly one thread, so its sequence numbers are sent in order.
+			workers[t] = new Thread(() -> {
+				for (int sequence = 0; sequence < perConnection; sequence++)
+					for (int connection = first; connection < connections; connection += threads) {
+						Stamp stamp = new Stamp();
+						stamp.connection = connection;
+						stamp.sequence = sequence;
+						stamp.sentAt = System.nanoTime();
+						senders[connection].send(stamp);
+					}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers) worker.join();
+		while (delivered.get() < total && System.currentTimeMillis() < deadline) Thread.sleep(1);
+		double millis = Bench.millis(start);
+		Bench.check(delivered.get() == total, "Only " + delivered.get() + " of " + total + " objects delivered.");
+		Bench.check(misordered.get() == 0, misordered.get() + " objects arrived out of order.");
+		long frames = 0;
+		long writes = 0;
+		for (SendStream sender : senders) {
+			frames += sender.getFramesSent();
+			writes += sender.getWrites();
+		}
+		double rate = total / (millis / 1e3);
+		System.out.printf("%d connections, %d objects in %.1f ms: %.0f objects/s, %.1f frames per write%n", connections, total, millis, rate, (double) frames / writes);
+
+		// One thread sends on a fixed schedule, round robin over the connections, so each connection's sequence stays in order.
+		long interval = (long) (2e9 / rate);
+		deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		long begin = System.nanoTime();
+		for (int i = 0; i < total; i++) {
+			long due = begin + i * interval;
+			while (System.nanoTime() < due) LockSupport.parkNanos(due - System.nanoTime());
+			Stamp stamp = new Stamp();
+			stamp.connection = i % connections;
+			stamp.sequence = perConnection + i / connections;
+			stamp.sentAt = due;
+			senders[stamp.connection].send(stamp);
+		}
+		while (timed.get() < total && System.currentTimeMillis() < deadline) Thread.sleep(1);
+		Bench.check(timed.get() == total, "Only " + timed.get() + " of " + total + " paced objects delivered.");
+		Bench.check(misordered.get() == 0, misordered.get() + " paced objects arrived out of order.");
+		System.out.printf("at %.0f objects/s: latency p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n", 1e9 / interval,
+			Bench.percentile(latency, 50) / 1e3, Bench.percentile(latency, 99) / 1e3, Bench.percentile(latency, 99.9) / 1e3, latency[total - 1] / 1e3);
+
+		byte[] bytes = new byte[3_000_000];
+		new Random(1).nextBytes(bytes);
+		long expected = 0;
+		for (byte b : bytes) expected += b & 0xFF;
+		senders[0].send(ByteBuffer.wrap(bytes));
+		senders[0].flush();
+		while (byteSum.get() < expected && System.currentTimeMillis() < deadline) Thread.sleep(5);
+		Bench.check(byteSum.get() == expected, "Byte frame checksum " + byteSum.get() + " instead of " + expected + ".");
+
+		Path source = Files.createTempFile("stream-bench", ".bin");
+		byte[] contents = new byte[fileMegabytes << 20];
+		new Random(2).nextBytes(contents);
+		Files.write(source, contents);
+		start = System.nanoTime();
+		senders[1 % connections].send(source);
+		senders[1 % connections].flush();
+		while (received.get() == null && System.currentTimeMillis() < deadline) Thread.sleep(1);
+		millis = Bench.millis(start);
+		Bench.check(received.get() != null && Arrays.equals(contents, Files.readAllBytes(received.get())), "File arrived damaged or not at all.");
+		System.out.printf("file of %d MB in %.1f ms: %.0f MB/s%n", fileMegabytes, millis, fileMegabytes / (millis / 1e3));
+
+		for (SendStream sender : senders) sender.close();
+		receiver.close();
+		Files.delete(received.get());
+		Files.delete(source);
+		Files.delete(directory);
+	}
+}
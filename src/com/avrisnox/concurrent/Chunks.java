@@ -0,0 +1,60 @@
+package com.avrisnox.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**Chunks
+ * Runs numbered chunks of work on a ForkJoinPool, the way the parallel graph algorithms split their loops.
+ * The range of chunk numbers is halved recursively until each task holds one chunk, so idle threads steal large halves first and the pool stays balanced without a shared counter.
+ * Callers decide what a chunk is; count(ForkJoinPool, long, long) gives the usual number of chunks for an amount of work.
+ */
+public final class Chunks extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	private final int low;
+	private final int high;
+	private final IntConsumer body;
+
+	private Chunks(int low, int high, IntConsumer body) {
+		this.low = low;
+		this.high = high;
+		this.body = body;
+	}
+
+	@Override
+	protected void compute() {
+		if (high - low == 1) body.accept(low);
+		else {
+			int middle = (low + high) >>> 1;
+			invokeAll(new Chunks(low, middle, body), new Chunks(middle, high, body));
+		}
+	}
+
+	/**
+	 * count(ForkJoinPool, long, long)
+	 * Gets the number of chunks to split work into: enough to keep every thread of the pool busy, but none much smaller than the grain.
+	 *
+	 * @param pool  The pool that will run the chunks
+	 * @param work  The amount of work, in whatever unit the grain is measured in
+	 * @param grain The least work worth a chunk of its own
+	 * @return The number of chunks, at least 1
+	 */
+	public static int count(ForkJoinPool pool, long work, long grain) {
+		return (int) Math.max(1, Math.min(pool.getParallelism() * 4L, work / grain));
+	}
+
+	/**
+	 * run(ForkJoinPool, int, IntConsumer)
+	 * Runs body once for each chunk number in [0, chunks) and waits for all of them.
+	 * A single chunk runs on the calling thread without touching the pool, and no chunks do nothing.
+	 *
+	 * @param pool   The pool to run the chunks on
+	 * @param chunks The number of chunks
+	 * @param body   The work, given the number of the chunk to do
+	 */
+	public static void run(ForkJoinPool pool, int chunks, IntConsumer body) {
+		if (chunks == 1) body.accept(0);
+		else if (chunks > 1) pool.invoke(new Chunks(0, chunks, body));
+	}
+}
@@ -1,4 +1,313 @@
 package com.avrisnox.concurrent;
 
+import com.avrisnox.util.graph.collections.Graph;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**Searches
+ * Parallel graph searches over a Graph, run on a ForkJoinPool: level-synchronous breadth-first search and delta-stepping shortest paths.
+ * Each step of a search splits its work (the frontier, or the vertices) into chunks that run in parallel and collect their results separately; the chunks' results are then combined in chunk order.
+ * Results are deterministic and identical to those of com.avrisnox.util.graph.Searches: distances do not depend on which thread got where first, and parents are chosen by the same lowest-numbered rule.
+ * For single point-to-point queries, the sequential A* in com.avrisnox.util.graph.Searches usually beats any parallel search and should be used instead.
+ */
 public class Searches {
+	private static final int ALPHA = 14;
+	private static final int BETA = 24;
+	private static final int GRAIN = 2048;
+
+	private Searches() {
+	}
+
+	/* A growable int array - due to its private nature, it has been left undocumented. */
+	private static class IntList {
+		private int[] values = new int[16];
+		private int size = 0;
+
+		public void add(int value) {
+			if (size == values.length) values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+	}
+
+	/* Relaxation requests gathered by one chunk: a vertex and the distance it could have - due to its private nature, it has been left undocumented. */
+	private static class Requests {
+		private int[] vertices = new int[16];
+		private double[] distances = new double[16];
+		private int size = 0;
+
+		public void add(int vertex, double distance) {
+			if (size == vertices.length) {
+				vertices = Arrays.copyOf(vertices, size * 2);
+				distances = Arrays.copyOf(distances, size * 2);
+			}
+			vertices[size] = vertex;
+			distances[size++] = distance;
+		}
+	}
+
+	private static void checkVertex(Graph<?> graph, int vertex) {
+		if (vertex < 0 || vertex >= graph.getVertexCount()) throw new IndexOutOfBoundsException("Vertex " + vertex + " not valid for Graph of " + graph.getVertexCount() + " vertices.");
+	}
+
+	/**
+	 * bfs(Graph, int)
+	 * Finds the number of edges on the shortest path from the source to every vertex, in parallel on the common pool.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @return The distance of each vertex from the source, or -1 for vertices it cannot reach
+	 */
+	public static int[] bfs(Graph<?> graph, int source) {
+		return bfs(graph, source, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * bfs(Graph, int, ForkJoinPool)
+	 * Finds the number of edges on the shortest path from the source to every vertex, one level at a time with each level expanded in parallel.
+	 * Like the sequential search it is direction-optimizing: small frontiers push along out-edges, claiming vertices with a compare-and-set, while large frontiers are handled by every unvisited vertex checking its in-edges, which needs no atomics at all.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @param pool   The pool to run on
+	 * @return The distance of each vertex from the source, or -1 for vertices it cannot reach
+	 */
+	public static int[] bfs(Graph<?> graph, int source, ForkJoinPool pool) {
+		checkVertex(graph, source);
+		int n = graph.getVertexCount();
+		int[] initial = new int[n];
+		Arrays.fill(initial, -1);
+		initial[source] = 0;
+		AtomicIntegerArray distance = new AtomicIntegerArray(initial);
+		int[] frontier = {source};
+		long unexplored = graph.getEdgeCount();
+		boolean bottomUp = false;
+		Graph<?> reverse = null;
+		long[] inFrontier = null;
+
+		for (int level = 0; frontier.length > 0; level++) {
+			long frontierEdges = 0;
+			for (int u : frontier)
+				frontierEdges += graph.getOutDegree(u);
+			if (!bottomUp && frontierEdges > unexplored / ALPHA) bottomUp = true;
+			else if (bottomUp && frontier.length < n / BETA) bottomUp = false;
+			unexplored -= frontierEdges;
+
+			int depth = level + 1;
+			IntList[] found;
+			if (bottomUp) {
+				if (reverse == null) {
+					reverse = graph.reverse();
+					inFrontier = new long[(n + 63) >>> 6];
+				} else Arrays.fill(inFrontier, 0);
+				for (int u : frontier)
+					inFrontier[u >>> 6] |= 1L << u;
+				Graph<?> in = reverse;
+				long[] bits = inFrontier;
+				int chunks = Chunks.count(pool, n, GRAIN);
+				found = new IntList[chunks];
+				Chunks.run(pool, chunks, chunk -> {
+					IntList mine = found[chunk] = new IntList();
+					for (int v = (int) ((long) chunk * n / chunks), end = (int) ((long) (chunk + 1) * n / chunks); v < end; v++) {
+						if (distance.get(v) >= 0) continue;
+						for (int edge = in.getEdgeStart(v), last = in.getEdgeEnd(v); edge < last; edge++) {
+							int u = in.getTarget(edge);
+							if ((bits[u >>> 6] & (1L << u)) != 0) {
+								distance.set(v, depth);
+								mine.add(v);
+								break;
+							}
+						}
+					}
+				});
+			} else {
+				int[] current = frontier;
+				int chunks = Chunks.count(pool, frontierEdges + current.length, GRAIN);
+				found = new IntList[chunks];
+				Chunks.run(pool, chunks, chunk -> {
+					IntList mine = found[chunk] = new IntList();
+					for (int i = (int) ((long) chunk * current.length / chunks), end = (int) ((long) (chunk + 1) * current.length / chunks); i < end; i++) {
+						int u = current[i];
+						for (int edge = graph.getEdgeStart(u), last = graph.getEdgeEnd(u); edge < last; edge++) {
+							int v = graph.getTarget(edge);
+							if (distance.get(v) < 0 && distance.compareAndSet(v, -1, depth)) mine.add(v);
+						}
+					}
+				});
+			}
+			int total = 0;
+			for (IntList list : found)
+				total += list.size;
+			frontier = new int[total];
+			int at = 0;
+			for (IntList list : found) {
+				System.arraycopy(list.values, 0, frontier, at, list.size);
+				at += list.size;
+			}
+		}
+		int[] result = new int[n];
+		for (int v = 0; v < n; v++)
+			result[v] = distance.get(v);
+		return result;
+	}
+
+	/**
+	 * bfsTree(Graph, int)
+	 * Finds a breadth-first search tree from the source, in parallel on the common pool.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @return The parent of each vertex, or -1 for the source and for vertices it cannot reach
+	 */
+	public static int[] bfsTree(Graph<?> graph, int source) {
+		return bfsTree(graph, source, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * bfsTree(Graph, int, ForkJoinPool)
+	 * Finds a breadth-first search tree from the source, in parallel.
+	 * Each reached vertex's parent is the lowest-numbered vertex one step closer to the source with an edge to it, exactly as in the sequential version.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @param pool   The pool to run on
+	 * @return The parent of each vertex, or -1 for the source and for vertices it cannot reach
+	 */
+	public static int[] bfsTree(Graph<?> graph, int source, ForkJoinPool pool) {
+		int[] distance = bfs(graph, source, pool);
+		Graph<?> reverse = graph.reverse();
+		int n = distance.length;
+		int[] parent = new int[n];
+		int chunks = Chunks.count(pool, n, GRAIN);
+		Chunks.run(pool, chunks, chunk -> {
+			for (int v = (int) ((long) chunk * n / chunks), end = (int) ((long) (chunk + 1) * n / chunks); v < end; v++) {
+				parent[v] = -1;
+				if (distance[v] <= 0) continue;
+				for (int edge = reverse.getEdgeStart(v), last = reverse.getEdgeEnd(v); edge < last; edge++) {
+					int u = reverse.getTarget(edge);
+					if (distance[u] == distance[v] - 1) {
+						parent[v] = u;
+						break;
+					}
+				}
+			}
+		});
+		return parent;
+	}
+
+	/**
+	 * dijkstra(Graph, int)
+	 * Finds the length of the shortest path from the source to every vertex, in parallel on the common pool, with delta-stepping and a delta of the mean edge weight.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @return The distance of each vertex from the source, or positive infinity for vertices it cannot reach
+	 * @throws IllegalArgumentException Thrown when an edge has a negative or NaN weight
+	 */
+	public static double[] dijkstra(Graph<?> graph, int source) throws IllegalArgumentException {
+		return deltaStepping(graph, source, meanWeight(graph), ForkJoinPool.commonPool());
+	}
+
+	/* The graph works its mean weight out once when it is made; a mean of 0 or infinity is no use as a bucket width. */
+	private static double meanWeight(Graph<?> graph) {
+		double mean = graph.getMeanWeight();
+		return (mean > 0 && !Double.isInfinite(mean) ? mean : 1);
+	}
+
+	/**
+	 * deltaStepping(Graph, int, double, ForkJoinPool)
+	 * Finds the length of the shortest path from the source to every vertex with Meyer and Sanders' delta-stepping.
+	 * Vertices are kept in buckets of width delta by tentative distance. The lowest bucket is emptied in rounds: the light edges (weight at most delta) of all its vertices are relaxed in parallel, which may refill the bucket, and once it stays empty the heavy edges of everything it held are relaxed too.
+	 * Relaxations are gathered in parallel and applied in chunk order, so the run is the same on any number of threads. A small delta behaves like Dijkstra (little wasted work, little parallelism); a large one like Bellman-Ford.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @param delta  The bucket width
+	 * @param pool   The pool to run on
+	 * @return The distance of each vertex from the source, or positive infinity for vertices it cannot reach
+	 * @throws IllegalArgumentException Thrown when delta is not positive, or an edge has a negative or NaN weight
+	 */
+	public static double[] deltaStepping(Graph<?> graph, int source, double delta, ForkJoinPool pool) throws IllegalArgumentException {
+		checkVertex(graph, source);
+		if (!(delta > 0)) throw new IllegalArgumentException("Delta " + delta + " not valid for delta-stepping.");
+		if (!graph.hasNonNegativeWeights()) throw new IllegalArgumentException("Negative or NaN edge weights not valid for shortest paths.");
+		int n = graph.getVertexCount();
+		double[] distance = new double[n];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		distance[source] = 0;
+		int[] mark = new int[n];
+		int phase = 0;
+		TreeMap<Long, IntList> buckets = new TreeMap<>();
+		IntList start = new IntList();
+		start.add(source);
+		buckets.put(0L, start);
+
+		while (!buckets.isEmpty()) {
+			Map.Entry<Long, IntList> lowest = buckets.pollFirstEntry();
+			long index = lowest.getKey();
+			IntList settled = new IntList();
+			IntList bucket = lowest.getValue();
+			while (bucket != null) {
+				phase++;
+				IntList current = new IntList();
+				for (int i = 0; i < bucket.size; i++) {
+					int v = bucket.values[i];
+					if (mark[v] != phase && (long) (distance[v] / delta) == index) {
+						mark[v] = phase;
+						current.add(v);
+						settled.add(v);
+					}
+				}
+				relax(graph, pool, current, distance, delta, true, buckets);
+				bucket = buckets.remove(index);
+			}
+			phase++;
+			IntList unique = new IntList();
+			for (int i = 0; i < settled.size; i++) {
+				int v = settled.values[i];
+				if (mark[v] != phase) {
+					mark[v] = phase;
+					unique.add(v);
+				}
+			}
+			relax(graph, pool, unique, distance, delta, false, buckets);
+		}
+		return distance;
+	}
+
+	/* Gathers the relaxations of the light or heavy edges of the given vertices in parallel, then applies them in chunk order. */
+	private static void relax(Graph<?> graph, ForkJoinPool pool, IntList vertices, double[] distance, double delta, boolean light, TreeMap<Long, IntList> buckets) {
+		if (vertices.size == 0) return;
+		long work = vertices.size;
+		for (int i = 0; i < vertices.size; i++)
+			work += graph.getOutDegree(vertices.values[i]);
+		int chunks = Chunks.count(pool, work, GRAIN);
+		Requests[] requests = new Requests[chunks];
+		Chunks.run(pool, chunks, chunk -> {
+			Requests mine = requests[chunk] = new Requests();
+			for (int i = (int) ((long) chunk * vertices.size / chunks), end = (int) ((long) (chunk + 1) * vertices.size / chunks); i < end; i++) {
+				int u = vertices.values[i];
+				double base = distance[u];
+				for (int edge = graph.getEdgeStart(u), last = graph.getEdgeEnd(u); edge < last; edge++) {
+					double weight = graph.getWeight(edge);
+					if ((weight <= delta) != light) continue;
+					int v = graph.getTarget(edge);
+					double candidate = base + weight;
+					if (candidate < distance[v]) mine.add(v, candidate);
+				}
+			}
+		});
+		for (Requests mine : requests)
+			for (int i = 0; i < mine.size; i++) {
+				int v = mine.vertices[i];
+				double candidate = mine.distances[i];
+				if (candidate < distance[v]) {
+					distance[v] = candidate;
+					buckets.computeIfAbsent((long) (candidate / delta), key -> new IntList()).add(v);
+				}
+			}
+	}
 }
@@ -1,4 +1,432 @@
 package com.avrisnox.concurrent.collections;
 
-public class ConcDualList {
+import com.avrisnox.util.graph.collections.DualIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**ConcDualList
+ * A DualList that many threads can read and write at once: a list of pairs that looks up in both directions, where a value may appear in any number of pairs, kept in packed arrays with no object per pair.
+ * Each side has an open-addressing index of longs from a key to the first pair holding it, and the pairs holding the same key are chained through int arrays, as in DualList.
+ * Lookups take no lock: they run against the arrays as they stand and check the StampedLock stamp afterwards, retrying under the read lock only if a writer got in between. Every position read is bounds checked and every chain walk is capped, as in ConcDualMap, so a lookup racing a writer is thrown away rather than failing.
+ * Writers take the write lock one at a time. Null values are not allowed.
+ *
+ * @param <A> The type of the left values
+ * @param <B> The type of the right values
+ */
+public class ConcDualList<A, B> {
+	/* One side's values, index and chains; the arrays are replaced when they grow and otherwise changed in place, under the write lock - due to its private nature, it has been left undocumented. */
+	private static final class Side {
+		private volatile Object[] values;
+		private volatile int[] next;
+		private volatile int[] previous;
+		private volatile long[] index;
+		private int keys = 0;
+		private int threshold;
+
+		public Side(int capacity) {
+			values = new Object[capacity];
+			next = new int[capacity];
+			previous = new int[capacity];
+			index = new long[DualIndex.tableFor(capacity)];
+			threshold = DualIndex.threshold(index.length);
+		}
+
+		public void grow(int length) {
+			values = Arrays.copyOf(values, length);
+			next = Arrays.copyOf(next, length);
+			previous = Arrays.copyOf(previous, length);
+		}
+
+		public void link(int position, Object key, int hash) {
+			values[position] = key;
+			int head = DualIndex.find(index, values, 1, 0, key, hash);
+			if (head < 0) {
+				if (keys + 1 > threshold) {
+					index = DualIndex.rehash(index, index.length * 2);
+					threshold = DualIndex.threshold(index.length);
+				}
+				DualIndex.insert(index, DualIndex.slot(hash, position));
+				keys++;
+				next[position] = position;
+				previous[position] = position;
+			} else {
+				int tail = previous[head];
+				next[tail] = position;
+				previous[position] = tail;
+				next[position] = head;
+				previous[head] = position;
+			}
+		}
+
+		public void unlink(int position) {
+			int hash = DualIndex.hash(values[position]);
+			int slot = DualIndex.slotOf(index, hash, position);
+			if (next[position] == position) {
+				DualIndex.delete(index, slot);
+				keys--;
+				return;
+			}
+			int after = next[position];
+			int before = previous[position];
+			next[before] = after;
+			previous[after] = before;
+			if (slot >= 0) index[slot] = DualIndex.slot(hash, after);
+		}
+
+		public void move(int from, int to) {
+			Object key = values[from];
+			values[to] = key;
+			values[from] = null;
+			if (next[from] == from) {
+				next[to] = to;
+				previous[to] = to;
+			} else {
+				int after = next[from];
+				int before = previous[from];
+				next[to] = after;
+				previous[to] = before;
+				next[before] = to;
+				previous[after] = to;
+			}
+			int hash = DualIndex.hash(key);
+			int slot = DualIndex.slotOf(index, hash, from);
+			if (slot >= 0) index[slot] = DualIndex.slot(hash, to);
+		}
+
+		public int head(Object key) {
+			return DualIndex.find(index, values, 1, 0, key, DualIndex.hash(key));
+		}
+
+		public long bytes() {
+			return 4 * 16L + 4L * values.length + 8L * next.length + 8L * index.length;
+		}
+	}
+
+	private final StampedLock lock = new StampedLock();
+	private final LongAdder lockedReads = new LongAdder();
+	private final Side left;
+	private final Side right;
+	private volatile int size = 0;
+
+	/**
+	 * ConcDualList()
+	 * Creates an empty list.
+	 */
+	public ConcDualList() {
+		this(16);
+	}
+
+	/**
+	 * ConcDualList(int)
+	 * Creates an empty list with room for the given number of pairs before it has to grow.
+	 *
+	 * @param expectedSize The number of pairs expected
+	 * @throws IllegalArgumentException Thrown when the size is negative
+	 */
+	public ConcDualList(int expectedSize) throws IllegalArgumentException {
+		if (expectedSize < 0) throw new IllegalArgumentException("Size of " + expectedSize + " not valid for ConcDualList.");
+		left = new Side(Math.max(expectedSize, 4));
+		right = new Side(Math.max(expectedSize, 4));
+	}
+
+	/* Runs a lookup without locking, and again under the read lock if a writer got in the way. */
+	private <R> R read(Supplier<R> lookup) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				R result = lookup.get();
+				if (lock.validate(stamp)) return result;
+			} catch (RuntimeException e) {
+				/* An equals method tripped over a value a writer had not finished publishing; the read lock below settles it. */
+			}
+		}
+		lockedReads.increment();
+		stamp = lock.readLock();
+		try {
+			return lookup.get();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/* Collects the other side's values along one side's chain for a key; stops early rather than fail on arrays a writer is changing. */
+	private static List<Object> walk(Side side, Side other, Object key) {
+		Object[] values = side.values;
+		int[] next = side.next;
+		Object[] others = other.values;
+		int head = DualIndex.find(side.index, values, 1, 0, key, DualIndex.hash(key));
+		if (head < 0) return Collections.emptyList();
+		List<Object> result = new ArrayList<>();
+		int position = head;
+		for (int steps = 0; steps < next.length; steps++) {
+			if (position < 0 || position >= next.length || position >= others.length) break;
+			result.add(others[position]);
+			position = next[position];
+			if (position == head) break;
+		}
+		return result;
+	}
+
+	/**
+	 * add(Object, Object)
+	 * Adds a pair.
+	 *
+	 * @param leftValue  The left value
+	 * @param rightValue The right value
+	 * @throws NullPointerException Thrown when either value is null
+	 */
+	public void add(A leftValue, B rightValue) throws NullPointerException {
+		if (leftValue == null || rightValue == null) throw new NullPointerException("ConcDualList does not allow null values.");
+		int leftHash = DualIndex.hash(leftValue);
+		int rightHash = DualIndex.hash(rightValue);
+		long stamp = lock.writeLock();
+		try {
+			int position = size;
+			if (position == left.values.length) {
+				int length = (int) Math.min(position * 2L, Integer.MAX_VALUE - 8);
+				if (length == position) throw new IllegalStateException("ConcDualList is full at " + position + " pairs.");
+				left.grow(length);
+				right.grow(length);
+			}
+			left.link(position, leftValue, leftHash);
+			right.link(position, rightValue, rightHash);
+			size = position + 1;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * containsLeft(Object)
+	 * Checks whether any pair holds a left value, without locking unless a writer is active.
+	 *
+	 * @param leftValue The left value
+	 * @return True iff some pair holds it
+	 */
+	public boolean containsLeft(Object leftValue) {
+		return leftValue != null && read(() -> left.head(leftValue) >= 0);
+	}
+
+	/**
+	 * containsRight(Object)
+	 * Checks whether any pair holds a right value, without locking unless a writer is active.
+	 *
+	 * @param rightValue The right value
+	 * @return True iff some pair holds it
+	 */
+	public boolean containsRight(Object rightValue) {
+		return rightValue != null && read(() -> right.head(rightValue) >= 0);
+	}
+
+	/**
+	 * contains(Object, Object)
+	 * Checks whether the list holds a pair, without locking unless a writer is active.
+	 *
+	 * @param leftValue  The left value
+	 * @param rightValue The right value
+	 * @return True iff the pair is in the list
+	 */
+	public boolean contains(Object leftValue, Object rightValue) {
+		if (leftValue == null || rightValue == null) return false;
+		return read(() -> walk(left, right, leftValue).contains(rightValue));
+	}
+
+	/**
+	 * getRights(Object)
+	 * Gets every right value paired with a left value, in the order the pairs were added, without locking unless a writer is active.
+	 *
+	 * @param leftValue The left value
+	 * @return A list of the right values, empty if the left value is in no pair
+	 */
+	@SuppressWarnings("unchecked")
+	public List<B> getRights(Object leftValue) {
+		if (leftValue == null) return Collections.emptyList();
+		return (List<B>) read(() -> walk(left, right, leftValue));
+	}
+
+	/**
+	 * getLefts(Object)
+	 * Gets every left value paired with a right value, in the order the pairs were added, without locking unless a writer is active.
+	 *
+	 * @param rightValue The right value
+	 * @return A list of the left values, empty if the right value is in no pair
+	 */
+	@SuppressWarnings("unchecked")
+	public List<A> getLefts(Object rightValue) {
+		if (rightValue == null) return Collections.emptyList();
+		return (List<A>) read(() -> walk(right, left, rightValue));
+	}
+
+	/* Removes the pair at a position, moving the last pair into its place; write lock held. */
+	private void removeAt(int position) {
+		left.unlink(position);
+		right.unlink(position);
+		int last = size - 1;
+		if (position != last) {
+			left.move(last, position);
+			right.move(last, position);
+		} else {
+			left.values[last] = null;
+			right.values[last] = null;
+		}
+		size = last;
+	}
+
+	/**
+	 * remove(Object, Object)
+	 * Removes one pair equal to the given one.
+	 *
+	 * @param leftValue  The left value
+	 * @param rightValue The right value
+	 * @return True iff a pair was removed
+	 */
+	public boolean remove(Object leftValue, Object rightValue) {
+		if (leftValue == null || rightValue == null) return false;
+		long stamp = lock.writeLock();
+		try {
+			int head = left.head(leftValue);
+			if (head < 0) return false;
+			int position = head;
+			do {
+				if (rightValue.equals(right.values[position])) {
+					removeAt(position);
+					return true;
+				}
+				position = left.next[position];
+			} while (position != head);
+			return false;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/* Removes every pair holding a key on one side. */
+	private int removeAll(Side side, Object key) {
+		if (key == null) return 0;
+		long stamp = lock.writeLock();
+		try {
+			int removed = 0;
+			for (int head; (head = side.head(key)) >= 0; removed++)
+				removeAt(head);
+			return removed;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * removeLeft(Object)
+	 * Removes every pair holding a left value.
+	 *
+	 * @param leftValue The left value
+	 * @return The number of pairs removed
+	 */
+	public int removeLeft(Object leftValue) {
+		return removeAll(left, leftValue);
+	}
+
+	/**
+	 * removeRight(Object)
+	 * Removes every pair holding a right value.
+	 *
+	 * @param rightValue The right value
+	 * @return The number of pairs removed
+	 */
+	public int removeRight(Object rightValue) {
+		return removeAll(right, rightValue);
+	}
+
+	/**
+	 * size()
+	 * Gets the number of pairs.
+	 *
+	 * @return The number of pairs
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the list has no pairs.
+	 *
+	 * @return True iff the list has no pairs
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * clear()
+	 * Removes every pair, keeping the arrays at their current size.
+	 */
+	public void clear() {
+		long stamp = lock.writeLock();
+		try {
+			Arrays.fill(left.values, 0, size, null);
+			Arrays.fill(right.values, 0, size, null);
+			Arrays.fill(left.index, 0);
+			Arrays.fill(right.index, 0);
+			left.keys = 0;
+			right.keys = 0;
+			size = 0;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * forEach(BiConsumer)
+	 * Visits every pair under the read lock, so writers wait until the walk is done; the consumer must not change the list.
+	 *
+	 * @param consumer Receives each left value and its right value
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super A, ? super B> consumer) {
+		long stamp = lock.readLock();
+		try {
+			for (int i = 0; i < size; i++)
+				consumer.accept((A) left.values[i], (B) right.values[i]);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * getLockedReads()
+	 * Gets the number of lookups that had to retry under the read lock because a writer was active.
+	 *
+	 * @return The number of locked reads
+	 */
+	public long getLockedReads() {
+		return lockedReads.sum();
+	}
+
+	/**
+	 * getHeapBytes()
+	 * Estimates the memory the list's arrays take on the Java heap, assuming compressed references and leaving out the values themselves.
+	 *
+	 * @return The estimated heap footprint in bytes
+	 */
+	public long getHeapBytes() {
+		return left.bytes() + right.bytes();
+	}
+
+	/**
+	 * getBytesPerEntry()
+	 * Gets the heap footprint divided by the number of pairs.
+	 *
+	 * @return The bytes per pair, or 0 if there are no pairs
+	 */
+	public double getBytesPerEntry() {
+		int pairs = size;
+		return (pairs == 0 ? 0 : (double) getHeapBytes() / pairs);
+	}
 }
@@ -1,4 +1,388 @@
 package com.avrisnox.concurrent.collections;
 
-public class ConcDualMap {
+import com.avrisnox.util.graph.collections.DualIndex;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+
+/**ConcDualMap
+ * A DualMap that many threads can read and write at once: a one-to-one map that looks up in both directions, with the same packed pair array and open-addressing indexes of longs, and no object per pair.
+ * Lookups take no lock. A reader notes the map's StampedLock stamp, probes the index, and checks the stamp again; only if a writer got in between does it retry under the read lock. Probes never trust what they read - every position is bounds checked and every probe run is capped - so a reader racing a writer gets a wrong answer that the stamp check throws away, never an endless loop.
+ * Writers take the write lock one at a time, which suits the lookup-heavy use this is for; getLockedReads() shows how often readers were held up by them.
+ * Null values are not allowed.
+ *
+ * @param <A> The type of the left values
+ * @param <B> The type of the right values
+ */
+public class ConcDualMap<A, B> {
+	/* The pair array and both indexes, replaced together whenever one of them grows so a reader always sees arrays of matching sizes - due to its private nature, it has been left undocumented. */
+	private static final class Table {
+		private final Object[] pairs;
+		private final long[] leftIndex;
+		private final long[] rightIndex;
+
+		public Table(Object[] pairs, long[] leftIndex, long[] rightIndex) {
+			this.pairs = pairs;
+			this.leftIndex = leftIndex;
+			this.rightIndex = rightIndex;
+		}
+	}
+
+	private final StampedLock lock = new StampedLock();
+	private final LongAdder lockedReads = new LongAdder();
+	private volatile Table table;
+	private volatile int size = 0;
+	private int threshold;
+
+	/**
+	 * ConcDualMap()
+	 * Creates an empty map.
+	 */
+	public ConcDualMap() {
+		this(16);
+	}
+
+	/**
+	 * ConcDualMap(int)
+	 * Creates an empty map with room for the given number of pairs before it has to grow.
+	 *
+	 * @param expectedSize The number of pairs expected
+	 * @throws IllegalArgumentException Thrown when the size is negative
+	 */
+	public ConcDualMap(int expectedSize) throws IllegalArgumentException {
+		if (expectedSize < 0) throw new IllegalArgumentException("Size of " + expectedSize + " not valid for ConcDualMap.");
+		int capacity = Math.max(expectedSize, 4);
+		int index = DualIndex.tableFor(expectedSize);
+		table = new Table(new Object[2 * capacity], new long[index], new long[index]);
+		threshold = DualIndex.threshold(index);
+	}
+
+	/* Looks a key up on one side and returns the value paired with it, optimistically first and under the read lock if a writer got in the way. */
+	private Object lookup(Object key, boolean fromLeft) {
+		if (key == null) return null;
+		int hash = DualIndex.hash(key);
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				Object found = other(table, key, hash, fromLeft);
+				if (lock.validate(stamp)) return found;
+			} catch (RuntimeException e) {
+				/* An equals method tripped over a value a writer had not finished publishing; the read lock below settles it. */
+			}
+		}
+		lockedReads.increment();
+		stamp = lock.readLock();
+		try {
+			return other(table, key, hash, fromLeft);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private static Object other(Table t, Object key, int hash, boolean fromLeft) {
+		int side = (fromLeft ? 0 : 1);
+		int position = DualIndex.find(fromLeft ? t.leftIndex : t.rightIndex, t.pairs, 2, side, key, hash);
+		return (position < 0 ? null : t.pairs[2 * position + 1 - side]);
+	}
+
+	/**
+	 * getRight(Object)
+	 * Looks up the right value paired with a left one, without locking unless a writer is active.
+	 *
+	 * @param left The left value
+	 * @return The right value, or null if the left one is not paired
+	 */
+	@SuppressWarnings("unchecked")
+	public B getRight(Object left) {
+		return (B) lookup(left, true);
+	}
+
+	/**
+	 * getLeft(Object)
+	 * Looks up the left value paired with a right one, without locking unless a writer is active.
+	 *
+	 * @param right The right value
+	 * @return The left value, or null if the right one is not paired
+	 */
+	@SuppressWarnings("unchecked")
+	public A getLeft(Object right) {
+		return (A) lookup(right, false);
+	}
+
+	/**
+	 * containsLeft(Object)
+	 * Checks whether a left value is paired, without locking unless a writer is active.
+	 *
+	 * @param left The left value
+	 * @return True iff it is paired
+	 */
+	public boolean containsLeft(Object left) {
+		return lookup(left, true) != null;
+	}
+
+	/**
+	 * containsRight(Object)
+	 * Checks whether a right value is paired, without locking unless a writer is active.
+	 *
+	 * @param right The right value
+	 * @return True iff it is paired
+	 */
+	public boolean containsRight(Object right) {
+		return lookup(right, false) != null;
+	}
+
+	private void checkNotNull(Object left, Object right) {
+		if (left == null || right == null) throw new NullPointerException("ConcDualMap does not allow null values.");
+	}
+
+	/* Makes room for one more pair, publishing a new table if anything has to grow; write lock held. */
+	private Table ensureRoom() {
+		Table t = table;
+		boolean fullArrays = 2 * size == t.pairs.length;
+		boolean fullIndex = size + 1 > threshold;
+		if (!fullArrays && !fullIndex) return t;
+		Object[] pairs = t.pairs;
+		long[] leftIndex = t.leftIndex;
+		long[] rightIndex = t.rightIndex;
+		if (fullArrays) {
+			int length = (int) Math.min(pairs.length * 2L, Integer.MAX_VALUE - 9) & ~1;
+			if (length == 2 * size) throw new IllegalStateException("ConcDualMap is full at " + size + " pairs.");
+			pairs = Arrays.copyOf(pairs, length);
+		}
+		if (fullIndex) {
+			leftIndex = DualIndex.rehash(leftIndex, leftIndex.length * 2);
+			rightIndex = DualIndex.rehash(rightIndex, rightIndex.length * 2);
+			threshold = DualIndex.threshold(leftIndex.length);
+		}
+		table = t = new Table(pairs, leftIndex, rightIndex);
+		return t;
+	}
+
+	/* Removes the pair at a position, moving the last pair into its place; write lock held. */
+	private void removeAt(Table t, int position) {
+		DualIndex.delete(t.leftIndex, DualIndex.slotOf(t.leftIndex, DualIndex.hash(t.pairs[2 * position]), position));
+		DualIndex.delete(t.rightIndex, DualIndex.slotOf(t.rightIndex, DualIndex.hash(t.pairs[2 * position + 1]), position));
+		int last = size - 1;
+		if (position != last) {
+			int leftHash = DualIndex.hash(t.pairs[2 * last]);
+			int rightHash = DualIndex.hash(t.pairs[2 * last + 1]);
+			t.pairs[2 * position] = t.pairs[2 * last];
+			t.pairs[2 * position + 1] = t.pairs[2 * last + 1];
+			t.leftIndex[DualIndex.slotOf(t.leftIndex, leftHash, last)] = DualIndex.slot(leftHash, position);
+			t.rightIndex[DualIndex.slotOf(t.rightIndex, rightHash, last)] = DualIndex.slot(rightHash, position);
+		}
+		t.pairs[2 * last] = null;
+		t.pairs[2 * last + 1] = null;
+		size = last;
+	}
+
+	/**
+	 * put(Object, Object)
+	 * Pairs two values, first breaking up any pair either of them is already in.
+	 *
+	 * @param left  The left value
+	 * @param right The right value
+	 * @return The right value the left one was paired with before, or null if it was not paired
+	 * @throws NullPointerException Thrown when either value is null
+	 */
+	@SuppressWarnings("unchecked")
+	public B put(A left, B right) throws NullPointerException {
+		checkNotNull(left, right);
+		int leftHash = DualIndex.hash(left);
+		int rightHash = DualIndex.hash(right);
+		long stamp = lock.writeLock();
+		try {
+			Table t = table;
+			int atLeft = DualIndex.find(t.leftIndex, t.pairs, 2, 0, left, leftHash);
+			int atRight = DualIndex.find(t.rightIndex, t.pairs, 2, 1, right, rightHash);
+			if (atLeft >= 0 && atLeft == atRight) return (B) t.pairs[2 * atLeft + 1];
+			if (atLeft < 0 && atRight < 0) {
+				t = ensureRoom();
+				t.pairs[2 * size] = left;
+				t.pairs[2 * size + 1] = right;
+				DualIndex.insert(t.leftIndex, DualIndex.slot(leftHash, size));
+				DualIndex.insert(t.rightIndex, DualIndex.slot(rightHash, size));
+				size++;
+				return null;
+			}
+			if (atLeft < 0) {
+				DualIndex.delete(t.leftIndex, DualIndex.slotOf(t.leftIndex, DualIndex.hash(t.pairs[2 * atRight]), atRight));
+				t.pairs[2 * atRight] = left;
+				DualIndex.insert(t.leftIndex, DualIndex.slot(leftHash, atRight));
+				return null;
+			}
+			if (atRight >= 0) {
+				int last = size - 1;
+				removeAt(t, atRight);
+				if (atLeft == last) atLeft = atRight;
+			}
+			B previous = (B) t.pairs[2 * atLeft + 1];
+			DualIndex.delete(t.rightIndex, DualIndex.slotOf(t.rightIndex, DualIndex.hash(previous), atLeft));
+			t.pairs[2 * atLeft + 1] = right;
+			DualIndex.insert(t.rightIndex, DualIndex.slot(rightHash, atLeft));
+			return previous;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * putIfAbsent(Object, Object)
+	 * Pairs two values only if neither of them is already paired.
+	 *
+	 * @param left  The left value
+	 * @param right The right value
+	 * @return True iff the pair was added
+	 * @throws NullPointerException Thrown when either value is null
+	 */
+	public boolean putIfAbsent(A left, B right) throws NullPointerException {
+		checkNotNull(left, right);
+		int leftHash = DualIndex.hash(left);
+		int rightHash = DualIndex.hash(right);
+		long stamp = lock.writeLock();
+		try {
+			Table t = table;
+			if (DualIndex.find(t.leftIndex, t.pairs, 2, 0, left, leftHash) >= 0 || DualIndex.find(t.rightIndex, t.pairs, 2, 1, right, rightHash) >= 0) return false;
+			t = ensureRoom();
+			t.pairs[2 * size] = left;
+			t.pairs[2 * size + 1] = right;
+			DualIndex.insert(t.leftIndex, DualIndex.slot(leftHash, size));
+			DualIndex.insert(t.rightIndex, DualIndex.slot(rightHash, size));
+			size++;
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/* Removes the pair holding a key on one side and returns the value paired with it. */
+	private Object remove(Object key, boolean fromLeft) {
+		if (key == null) return null;
+		int hash = DualIndex.hash(key);
+		long stamp = lock.writeLock();
+		try {
+			Table t = table;
+			int side = (fromLeft ? 0 : 1);
+			int position = DualIndex.find(fromLeft ? t.leftIndex : t.rightIndex, t.pairs, 2, side, key, hash);
+			if (position < 0) return null;
+			Object other = t.pairs[2 * position + 1 - side];
+			removeAt(t, position);
+			return other;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * removeLeft(Object)
+	 * Removes the pair holding a left value.
+	 *
+	 * @param left The left value
+	 * @return The right value it was paired with, or null if it was not paired
+	 */
+	@SuppressWarnings("unchecked")
+	public B removeLeft(Object left) {
+		return (B) remove(left, true);
+	}
+
+	/**
+	 * removeRight(Object)
+	 * Removes the pair holding a right value.
+	 *
+	 * @param right The right value
+	 * @return The left value it was paired with, or null if it was not paired
+	 */
+	@SuppressWarnings("unchecked")
+	public A removeRight(Object right) {
+		return (A) remove(right, false);
+	}
+
+	/**
+	 * size()
+	 * Gets the number of pairs.
+	 *
+	 * @return The number of pairs
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the map has no pairs.
+	 *
+	 * @return True iff the map has no pairs
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * clear()
+	 * Removes every pair, keeping the arrays at their current size.
+	 */
+	public void clear() {
+		long stamp = lock.writeLock();
+		try {
+			Table t = table;
+			Arrays.fill(t.pairs, 0, 2 * size, null);
+			Arrays.fill(t.leftIndex, 0);
+			Arrays.fill(t.rightIndex, 0);
+			size = 0;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * forEach(BiConsumer)
+	 * Visits every pair under the read lock, so writers wait until the walk is done; the consumer must not change the map.
+	 *
+	 * @param consumer Receives each left value and its right value
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super A, ? super B> consumer) {
+		long stamp = lock.readLock();
+		try {
+			Table t = table;
+			for (int i = 0; i < size; i++)
+				consumer.accept((A) t.pairs[2 * i], (B) t.pairs[2 * i + 1]);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * getLockedReads()
+	 * Gets the number of lookups that had to retry under the read lock because a writer was active.
+	 *
+	 * @return The number of locked reads
+	 */
+	public long getLockedReads() {
+		return lockedReads.sum();
+	}
+
+	/**
+	 * getHeapBytes()
+	 * Estimates the memory the map's arrays take on the Java heap, assuming compressed references and leaving out the values themselves.
+	 *
+	 * @return The estimated heap footprint in bytes
+	 */
+	public long getHeapBytes() {
+		Table t = table;
+		return 3 * 16L + 4L * t.pairs.length + 8L * (t.leftIndex.length + t.rightIndex.length);
+	}
+
+	/**
+	 * getBytesPerEntry()
+	 * Gets the heap footprint divided by the number of pairs.
+	 *
+	 * @return The bytes per pair, or 0 if there are no pairs
+	 */
+	public double getBytesPerEntry() {
+		int pairs = size;
+		return (pairs == 0 ? 0 : (double) getHeapBytes() / pairs);
+	}
 }
@@ -1,4 +1,486 @@
 package com.avrisnox.concurrent.collections;
 
-public class ConcGraph {
+import com.avrisnox.util.graph.collections.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**ConcGraph
+ * A directed graph that writers change while many readers traverse it, built from copy-on-write immutable snapshots.
+ * Each version of the graph is a frozen Graph in CSR form. A reader takes the current Snapshot with one volatile read and traverses it for as long as it likes without locking; writers never touch a published snapshot, so a reader always sees one consistent version however long it runs.
+ * Writers gather changes in a Batch and publish it, which merges the batch into the current graph in one linear pass and swaps the new version in; every change in a batch becomes visible at once or not at all.
+ * Copying the graph is the price of lock-free reads, so changes should be batched. Writers publishing at the same time do not each pay for a copy either: whichever writer gets to merge first takes every batch waiting at that moment and publishes them together as one new version, in the order they were published.
+ * Old snapshots stay alive only while some reader still holds them. Snapshot.getNewBytes() gives the memory each version added.
+ *
+ * @param <T> The type of the data attached to vertices
+ */
+public class ConcGraph<T> {
+	/**Snapshot
+	 * One published version of the graph.
+	 *
+	 * @param <T> The type of the data attached to vertices
+	 */
+	public static final class Snapshot<T> {
+		private final Graph<T> graph;
+		private final long version;
+		private final int batches;
+		private final long newBytes;
+
+		private Snapshot(Graph<T> graph, long version, int batches, long newBytes) {
+			this.graph = graph;
+			this.version = version;
+			this.batches = batches;
+			this.newBytes = newBytes;
+		}
+
+		/**
+		 * getGraph()
+		 * Gets the graph as it was at this version; it never changes.
+		 *
+		 * @return The graph
+		 */
+		public Graph<T> getGraph() {
+			return graph;
+		}
+
+		/**
+		 * getVersion()
+		 * Gets the number of this version, counting up from 0 for the graph the ConcGraph started with.
+		 *
+		 * @return The version number
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * getBatchCount()
+		 * Gets the number of batches published together to make this version.
+		 *
+		 * @return The number of batches
+		 */
+		public int getBatchCount() {
+			return batches;
+		}
+
+		/**
+		 * getBytes()
+		 * Estimates the whole footprint of this version, on and off the heap, counting arrays it shares with other versions.
+		 *
+		 * @return The footprint in bytes
+		 */
+		public long getBytes() {
+			return graph.getHeapBytes() + graph.getOffHeapBytes();
+		}
+
+		/**
+		 * getNewBytes()
+		 * Estimates the memory this version allocated that the version before it does not share, which is what keeping this version alive costs on top of its predecessor.
+		 *
+		 * @return The per-snapshot overhead in bytes
+		 */
+		public long getNewBytes() {
+			return newBytes;
+		}
+
+		@Override
+		public String toString() {
+			return "Snapshot " + version + " (" + graph.getVertexCount() + " vertices, " + graph.getEdgeCount() + " edges, " + newBytes + " new bytes)";
+		}
+	}
+
+	/**Batch
+	 * A set of changes to publish to a ConcGraph all at once.
+	 * Within a batch, edge removals apply to the graph as it was before the batch, and then the batch's edges are added; across batches, each batch sees every batch published before it.
+	 * A batch is used by one thread and cannot be changed once it has been published.
+	 *
+	 * @param <T> The type of the data attached to vertices
+	 */
+	public static final class Batch<T> {
+		private final ConcGraph<T> owner;
+		private int highestVertex = -1;
+		private int addCount = 0;
+		private int[] addFrom = new int[16];
+		private int[] addTo = new int[16];
+		private double[] addWeights = null;
+		private int removeCount = 0;
+		private int[] removeFrom = new int[0];
+		private int[] removeTo = new int[0];
+		private int dataCount = 0;
+		private int[] dataVertices = new int[0];
+		private Object[] dataValues = new Object[0];
+		private boolean published = false;
+		private volatile Snapshot<T> snapshot = null;
+		private volatile Throwable failure = null;
+
+		private Batch(ConcGraph<T> owner) {
+			this.owner = owner;
+		}
+
+		private void checkOpen() {
+			if (published) throw new IllegalStateException("ConcGraph.Batch has already been published.");
+		}
+
+		private void checkVertex(int vertex) {
+			int count = owner.reserved.get();
+			if (vertex < 0 || vertex >= count) throw new IndexOutOfBoundsException("Vertex " + vertex + " not valid for ConcGraph of " + count + " vertices.");
+			if (vertex > highestVertex) highestVertex = vertex;
+		}
+
+		/**
+		 * addVertex()
+		 * Adds a vertex without data.
+		 * Its number is reserved straight away, so it can be used in edges of this batch. Other batches may reserve numbers too; a vertex whose batch has not been published yet shows up in newer snapshots as a vertex with no edges and no data.
+		 *
+		 * @return The number of the new vertex
+		 */
+		public int addVertex() {
+			checkOpen();
+			int vertex = owner.reserved.getAndIncrement();
+			if (vertex > highestVertex) highestVertex = vertex;
+			return vertex;
+		}
+
+		/**
+		 * addVertex(Object)
+		 * Adds a vertex with data attached.
+		 *
+		 * @param value The data to attach
+		 * @return The number of the new vertex
+		 */
+		public int addVertex(T value) {
+			int vertex = addVertex();
+			setData(vertex, value);
+			return vertex;
+		}
+
+		/**
+		 * setData(int, Object)
+		 * Replaces the data attached to a vertex.
+		 *
+		 * @param vertex The vertex
+		 * @param value  The data to attach, or null to attach none
+		 */
+		public void setData(int vertex, T value) {
+			checkOpen();
+			checkVertex(vertex);
+			if (dataCount == dataVertices.length) {
+				dataVertices = Arrays.copyOf(dataVertices, Math.max(dataCount * 2, 4));
+				dataValues = Arrays.copyOf(dataValues, dataVertices.length);
+			}
+			dataVertices[dataCount] = vertex;
+			dataValues[dataCount++] = value;
+		}
+
+		/**
+		 * addEdge(int, int)
+		 * Adds an edge; if the graph is weighted, the edge weighs 1.
+		 *
+		 * @param from The vertex the edge leaves
+		 * @param to   The vertex the edge enters
+		 */
+		public void addEdge(int from, int to) {
+			checkOpen();
+			checkVertex(from);
+			checkVertex(to);
+			if (addCount == addFrom.length) {
+				addFrom = Arrays.copyOf(addFrom, addCount * 2);
+				addTo = Arrays.copyOf(addTo, addFrom.length);
+				if (addWeights != null) addWeights = Arrays.copyOf(addWeights, addFrom.length);
+			}
+			addFrom[addCount] = from;
+			addTo[addCount] = to;
+			if (addWeights != null) addWeights[addCount] = 1;
+			addCount++;
+		}
+
+		/**
+		 * addEdge(int, int, double)
+		 * Adds a weighted edge; the first weighted edge makes the whole graph weighted, with every other edge weighing 1.
+		 *
+		 * @param from   The vertex the edge leaves
+		 * @param to     The vertex the edge enters
+		 * @param weight The weight of the edge
+		 */
+		public void addEdge(int from, int to, double weight) {
+			if (addWeights == null && weight != 1) {
+				addWeights = new double[addFrom.length];
+				Arrays.fill(addWeights, 0, addCount, 1);
+			}
+			addEdge(from, to);
+			if (addWeights != null) addWeights[addCount - 1] = weight;
+		}
+
+		/**
+		 * removeEdge(int, int)
+		 * Removes every edge from one vertex to another that exists before this batch; edges this batch adds are kept.
+		 *
+		 * @param from The vertex the edges leave
+		 * @param to   The vertex the edges enter
+		 */
+		public void removeEdge(int from, int to) {
+			checkOpen();
+			checkVertex(from);
+			checkVertex(to);
+			if (removeCount == removeFrom.length) {
+				removeFrom = Arrays.copyOf(removeFrom, Math.max(removeCount * 2, 4));
+				removeTo = Arrays.copyOf(removeTo, removeFrom.length);
+			}
+			removeFrom[removeCount] = from;
+			removeTo[removeCount++] = to;
+		}
+
+		/**
+		 * isEmpty()
+		 * Checks whether the batch holds no changes.
+		 *
+		 * @return True iff nothing has been added, removed or set
+		 */
+		public boolean isEmpty() {
+			return highestVertex < 0 && addCount == 0 && removeCount == 0 && dataCount == 0;
+		}
+
+		/**
+		 * getSnapshot()
+		 * Gets the snapshot that first contained this batch's changes.
+		 *
+		 * @return The snapshot, or null if the batch has not been published yet or its merge failed
+		 */
+		public Snapshot<T> getSnapshot() {
+			return snapshot;
+		}
+	}
+
+	private final AtomicReference<Snapshot<T>> current;
+	private final AtomicInteger reserved;
+	private final ConcurrentLinkedQueue<Batch<T>> pending = new ConcurrentLinkedQueue<>();
+	private final ReentrantLock merging = new ReentrantLock();
+	private final boolean offHeap;
+	private Object[] data;
+
+	/**
+	 * ConcGraph()
+	 * Creates an empty graph.
+	 */
+	public ConcGraph() {
+		this(new Graph.Builder<T>().build());
+	}
+
+	/**
+	 * ConcGraph(Graph)
+	 * Creates a graph starting from an existing one; newer versions keep its weights on or off the heap as it does.
+	 *
+	 * @param initial The graph to start from, which becomes version 0
+	 */
+	public ConcGraph(Graph<T> initial) {
+		int n = initial.getVertexCount();
+		for (int v = 0; v < n && data == null; v++)
+			if (initial.getData(v) != null) data = new Object[n];
+		if (data != null)
+			for (int v = 0; v < n; v++)
+				data[v] = initial.getData(v);
+		offHeap = initial.isOffHeap();
+		reserved = new AtomicInteger(n);
+		current = new AtomicReference<>(new Snapshot<>(initial, 0, 0, initial.getHeapBytes() + initial.getOffHeapBytes()));
+	}
+
+	/**
+	 * snapshot()
+	 * Gets the latest published version, without locking.
+	 *
+	 * @return The current snapshot
+	 */
+	public Snapshot<T> snapshot() {
+		return current.get();
+	}
+
+	/**
+	 * getGraph()
+	 * Gets the graph as of the latest published version, without locking.
+	 *
+	 * @return The current graph
+	 */
+	public Graph<T> getGraph() {
+		return current.get().getGraph();
+	}
+
+	/**
+	 * getVersion()
+	 * Gets the number of the latest published version.
+	 *
+	 * @return The current version
+	 */
+	public long getVersion() {
+		return current.get().getVersion();
+	}
+
+	/**
+	 * batch()
+	 * Starts a new batch of changes.
+	 *
+	 * @return An empty batch
+	 */
+	public Batch<T> batch() {
+		return new Batch<>(this);
+	}
+
+	/**
+	 * publish(Batch)
+	 * Publishes a batch, so that every snapshot taken once this returns contains all of its changes.
+	 * Batches waiting when the merge starts are published along with it, as one new version.
+	 * If building the new version fails, no batch merged with this one is applied: the thread that ran the merge rethrows the failure, and every other publisher in the merge gets an IllegalStateException caused by it.
+	 *
+	 * @param batch The batch to publish
+	 * @return The first snapshot containing the batch
+	 * @throws IllegalArgumentException Thrown when the batch belongs to another ConcGraph
+	 * @throws IllegalStateException    Thrown when the batch has already been published, or when another publisher's merge of it failed
+	 */
+	public Snapshot<T> publish(Batch<T> batch) throws IllegalArgumentException, IllegalStateException {
+		if (batch.owner != this) throw new IllegalArgumentException("ConcGraph.Batch not valid for this ConcGraph.");
+		batch.checkOpen();
+		batch.published = true;
+		pending.add(batch);
+		merging.lock();
+		try {
+			if (batch.snapshot == null && batch.failure == null) {
+				List<Batch<T>> batches = new ArrayList<>();
+				for (Batch<T> next; (next = pending.poll()) != null; )
+					batches.add(next);
+				Snapshot<T> published;
+				try {
+					published = merge(batches);
+				} catch (RuntimeException | Error e) {
+					// The batches have left pending, so their publishers learn of the failure here rather than waiting on a merge that will never come
+					for (Batch<T> failed : batches)
+						failed.failure = e;
+					throw e;
+				}
+				current.set(published);
+				for (Batch<T> done : batches)
+					done.snapshot = published;
+			}
+			if (batch.snapshot == null) throw new IllegalStateException("ConcGraph.Batch could not be published.", batch.failure);
+			return batch.snapshot;
+		} finally {
+			merging.unlock();
+		}
+	}
+
+	/* Builds the next version from the current one and the batches, in one pass over each vertex's edges. */
+	private Snapshot<T> merge(List<Batch<T>> batches) {
+		Snapshot<T> previous = current.get();
+		Graph<T> graph = previous.getGraph();
+		int oldN = graph.getVertexCount();
+		int n = oldN;
+		int adds = 0;
+		int removes = 0;
+		boolean weighted = graph.isWeighted();
+		boolean dataChanged = false;
+		for (Batch<T> batch : batches) {
+			n = Math.max(n, batch.highestVertex + 1);
+			adds += batch.addCount;
+			removes += batch.removeCount;
+			weighted |= (batch.addWeights != null);
+			dataChanged |= (batch.dataCount > 0);
+		}
+		if (adds == 0 && removes == 0 && n == oldN && !dataChanged) return previous;
+
+		// Added edges, bucketed by source and sorted by target; the batch number breaks ties so removals can tell which edges came before them.
+		int[] addStart = new int[n + 1];
+		int[] removeStart = new int[n + 1];
+		for (Batch<T> batch : batches) {
+			for (int i = 0; i < batch.addCount; i++)
+				addStart[batch.addFrom[i] + 1]++;
+			for (int i = 0; i < batch.removeCount; i++)
+				removeStart[batch.removeFrom[i] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			addStart[v + 1] += addStart[v];
+			removeStart[v + 1] += removeStart[v];
+		}
+		long[] added = new long[adds];
+		int[] addBatch = new int[adds];
+		double[] addedWeights = (weighted ? new double[adds] : null);
+		long[] removed = new long[removes];
+		int[] addNext = Arrays.copyOf(addStart, n);
+		int[] removeNext = Arrays.copyOf(removeStart, n);
+		for (int b = 0; b < batches.size(); b++) {
+			Batch<T> batch = batches.get(b);
+			for (int i = 0; i < batch.addCount; i++) {
+				int slot = addNext[batch.addFrom[i]]++;
+				added[slot] = ((long) batch.addTo[i] << 32) | slot;
+				addBatch[slot] = b;
+				if (addedWeights != null) addedWeights[slot] = (batch.addWeights != null ? batch.addWeights[i] : 1);
+			}
+			for (int i = 0; i < batch.removeCount; i++)
+				removed[removeNext[batch.removeFrom[i]]++] = ((long) batch.removeTo[i] << 32) | b;
+		}
+		for (int v = 0; v < n; v++) {
+			Arrays.sort(added, addStart[v], addStart[v + 1]);
+			Arrays.sort(removed, removeStart[v], removeStart[v + 1]);
+		}
+
+		int[] offsets = new int[n + 1];
+		int[] targets = new int[graph.getEdgeCount() + adds];
+		double[] weights = (weighted ? new double[targets.length] : null);
+		int size = 0;
+		for (int v = 0; v < n; v++) {
+			offsets[v] = size;
+			int oldEdge = (v < oldN ? graph.getEdgeStart(v) : 0);
+			int oldEnd = (v < oldN ? graph.getEdgeEnd(v) : 0);
+			int add = addStart[v];
+			int addEnd = addStart[v + 1];
+			int remove = removeStart[v];
+			int removeEnd = removeStart[v + 1];
+			while (oldEdge < oldEnd || add < addEnd) {
+				int target;
+				int batch;
+				double weight;
+				if (add == addEnd || (oldEdge < oldEnd && graph.getTarget(oldEdge) <= (int) (added[add] >>> 32))) {
+					target = graph.getTarget(oldEdge);
+					batch = -1;
+					weight = graph.getWeight(oldEdge++);
+				} else {
+					int slot = (int) added[add];
+					target = (int) (added[add++] >>> 32);
+					batch = addBatch[slot];
+					weight = (addedWeights != null ? addedWeights[slot] : 1);
+				}
+				while (remove < removeEnd && (int) (removed[remove] >>> 32) < target)
+					remove++;
+				int last = remove;
+				while (last + 1 < removeEnd && (int) (removed[last + 1] >>> 32) == target)
+					last++;
+				if (remove < removeEnd && (int) (removed[last] >>> 32) == target && (int) removed[last] > batch) continue;
+				targets[size] = target;
+				if (weights != null) weights[size] = weight;
+				size++;
+			}
+		}
+		offsets[n] = size;
+		if (size < targets.length) {
+			targets = Arrays.copyOf(targets, size);
+			if (weights != null) weights = Arrays.copyOf(weights, size);
+		}
+
+		long dataBytes = 0;
+		Object[] values = data;
+		if (dataChanged || (n > oldN && values != null)) {
+			values = (values != null ? Arrays.copyOf(values, n) : new Object[n]);
+			for (Batch<T> batch : batches)
+				for (int i = 0; i < batch.dataCount; i++)
+					values[batch.dataVertices[i]] = batch.dataValues[i];
+			dataBytes = 16 + 4L * n;
+		}
+		Graph<T> next = Graph.fromArrays(offsets, targets, weights, values, offHeap);
+		// Only kept once the version is built, so a failed merge leaves no trace of its batches
+		data = values;
+		long newBytes = 16 + 4L * offsets.length + 16 + 4L * targets.length + (weights != null ? (offHeap ? 8L * weights.length : 16 + 8L * weights.length) : 0) + dataBytes;
+		return new Snapshot<>(next, previous.getVersion() + 1, batches.size(), newBytes);
+	}
 }
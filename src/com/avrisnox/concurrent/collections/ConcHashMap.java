@@ -1,4 +1,237 @@
 package com.avrisnox.concurrent.collections;
 
-public class ConcHashMap {
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**ConcHashMap
+ * A hash map that many threads can read and write at once.
+ * The table is split into independently locked segments: writers only lock the segment their key hashes to, and readers never lock at all.
+ * Each segment grows on its own, so a resize only holds up writers to that one segment while readers carry on against the old table. The table itself is a SegmentedTable, shared with ConcLongHashMap.
+ * Null keys and values are not allowed. Iteration is weakly consistent - it never throws ConcurrentModificationException, but may or may not see changes made while it runs.
+ * Entries handed out by iteration are snapshots; setValue on one writes through to the map, as put would.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class ConcHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+	/* A single mapping with an object key - due to its private nature, it has been left undocumented. */
+	private static final class KeyNode<K, V> extends SegmentedTable.Node<KeyNode<K, V>, V> {
+		private final K key;
+
+		public KeyNode(int hash, K key, V value, KeyNode<K, V> next) {
+			super(hash, value, next);
+			this.key = key;
+		}
+
+		@Override
+		KeyNode<K, V> copy(KeyNode<K, V> next) {
+			return new KeyNode<>(hash, key, value, next);
+		}
+	}
+
+	/* The table, keyed by object; the long form of each key is unused - due to its private nature, it has been left undocumented. */
+	private static final class Table<K, V> extends SegmentedTable<KeyNode<K, V>, V> {
+		public Table(int initialCapacity, int concurrencyLevel) {
+			super(initialCapacity, concurrencyLevel);
+		}
+
+		@Override
+		boolean matches(KeyNode<K, V> node, int hash, Object key, long primitive) {
+			return node.hash == hash && key.equals(node.key);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		KeyNode<K, V> create(int hash, Object key, long primitive, V value, KeyNode<K, V> next) {
+			return new KeyNode<>(hash, (K) key, value, next);
+		}
+	}
+
+	/* An entry handed out by iteration; setValue writes through to the map - due to its private nature, it has been left undocumented. */
+	private final class WriteThroughEntry extends AbstractMap.SimpleEntry<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		public WriteThroughEntry(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			if (value == null) throw new NullPointerException("ConcHashMap does not allow null values.");
+			V old = super.setValue(value);
+			put(getKey(), value);
+			return old;
+		}
+	}
+
+	private final Table<K, V> table;
+	private transient Set<Map.Entry<K, V>> entrySet;
+
+	/**
+	 * ConcHashMap()
+	 * Creates an empty map sized for a moderate number of entries and writer threads.
+	 */
+	public ConcHashMap() {
+		this(16, 16);
+	}
+
+	/**
+	 * ConcHashMap(int, int)
+	 * Creates an empty map.
+	 *
+	 * @param initialCapacity  The number of entries the map should hold before any segment needs to grow
+	 * @param concurrencyLevel The number of threads expected to write at once; this sets the number of segments
+	 */
+	public ConcHashMap(int initialCapacity, int concurrencyLevel) {
+		table = new Table<>(initialCapacity, concurrencyLevel);
+	}
+
+	/* Spreads the bits of a hash code so that both the segment (top bits) and the bin (bottom bits) are well mixed. */
+	private static int spread(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	@Override
+	public V get(Object key) {
+		int hash = spread(key.hashCode());
+		KeyNode<K, V> node = table.find(hash, key, 0);
+		return (node != null ? node.value : null);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		int hash = spread(key.hashCode());
+		return table.find(hash, key, 0) != null;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		if (value == null) throw new NullPointerException("ConcHashMap does not allow null values.");
+		int hash = spread(key.hashCode());
+		return table.put(hash, key, 0, value, false);
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		if (value == null) throw new NullPointerException("ConcHashMap does not allow null values.");
+		int hash = spread(key.hashCode());
+		return table.put(hash, key, 0, value, true);
+	}
+
+	@Override
+	public V remove(Object key) {
+		int hash = spread(key.hashCode());
+		return table.remove(hash, key, 0, null);
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		if (value == null) return false;
+		int hash = spread(key.hashCode());
+		return table.remove(hash, key, 0, value) != null;
+	}
+
+	@Override
+	public V replace(K key, V value) {
+		if (value == null) throw new NullPointerException("ConcHashMap does not allow null values.");
+		int hash = spread(key.hashCode());
+		return table.replace(hash, key, 0, null, value);
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		if (oldValue == null || newValue == null) throw new NullPointerException("ConcHashMap does not allow null values.");
+		int hash = spread(key.hashCode());
+		return table.replace(hash, key, 0, oldValue, newValue) != null;
+	}
+
+	/**
+	 * size()
+	 * Gets the number of entries; while writers are active this is only an estimate.
+	 *
+	 * @return The number of entries, capped at Integer.MAX_VALUE
+	 */
+	@Override
+	public int size() {
+		return table.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return table.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		table.clear();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Map.Entry<K, V>>() {
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return new EntryIterator();
+				}
+
+				@Override
+				public int size() {
+					return ConcHashMap.this.size();
+				}
+
+				@Override
+				public void clear() {
+					ConcHashMap.this.clear();
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	/* Walks the segments and their tables as they are when reached - due to its private nature, it has been left undocumented. */
+	private class EntryIterator implements Iterator<Map.Entry<K, V>> {
+		private int segment = 0;
+		private AtomicReferenceArray<KeyNode<K, V>> bins = null;
+		private int bin = 0;
+		private KeyNode<K, V> next = null;
+		private KeyNode<K, V> last = null;
+
+		public EntryIterator() {
+			advance();
+		}
+
+		private void advance() {
+			if (next != null) next = next.next;
+			while (next == null) {
+				if (bins != null && bin < bins.length()) next = bins.get(bin++);
+				else if (segment < table.getSegmentCount()) {
+					bins = table.getBins(segment++);
+					bin = 0;
+				} else return;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (next == null) throw new NoSuchElementException();
+			last = next;
+			advance();
+			return new WriteThroughEntry(last.key, last.value);
+		}
+
+		@Override
+		public void remove() {
+			if (last == null) throw new IllegalStateException();
+			ConcHashMap.this.remove(last.key);
+			last = null;
+		}
+	}
 }
@@ -0,0 +1,179 @@
+package com.avrisnox.concurrent.collections;
+
+/**ConcIntHashMap
+ * A ConcHashMap specialized for int keys, so keys are never boxed on the way in or out.
+ * Keys are widened to long and stored in a ConcLongHashMap. Widening never allocates, but each entry takes a long-keyed node: 32 bytes with compressed references, where a dedicated int node could fit in 24. That is the price of sharing one implementation.
+ * Null values are not allowed.
+ *
+ * @param <V> The type of the values
+ */
+public class ConcIntHashMap<V> {
+	/**Visitor
+	 * Receives each entry of the map in turn, without boxing its key.
+	 *
+	 * @param <V> The type of the values
+	 */
+	public interface Visitor<V> {
+		/**
+		 * visit(int, Object)
+		 * Called once for each entry.
+		 *
+		 * @param key   The key of the entry
+		 * @param value The value of the entry
+		 */
+		void visit(int key, V value);
+	}
+
+	private final ConcLongHashMap<V> map;
+
+	/**
+	 * ConcIntHashMap()
+	 * Creates an empty map sized for a moderate number of entries and writer threads.
+	 */
+	public ConcIntHashMap() {
+		map = new ConcLongHashMap<>();
+	}
+
+	/**
+	 * ConcIntHashMap(int, int)
+	 * Creates an empty map.
+	 *
+	 * @param initialCapacity  The number of entries the map should hold before any segment needs to grow
+	 * @param concurrencyLevel The number of threads expected to write at once; this sets the number of segments
+	 */
+	public ConcIntHashMap(int initialCapacity, int concurrencyLevel) {
+		map = new ConcLongHashMap<>(initialCapacity, concurrencyLevel);
+	}
+
+	/**
+	 * get(int)
+	 * Gets the value mapped to a key, without locking.
+	 *
+	 * @param key The key to look up
+	 * @return The value, or null if the key is not mapped
+	 */
+	public V get(int key) {
+		return map.get(key);
+	}
+
+	/**
+	 * containsKey(int)
+	 * Checks whether a key is mapped, without locking.
+	 *
+	 * @param key The key to look up
+	 * @return True iff the key is mapped
+	 */
+	public boolean containsKey(int key) {
+		return map.containsKey(key);
+	}
+
+	/**
+	 * put(int, Object)
+	 * Maps a key to a value, replacing any previous value.
+	 *
+	 * @param key   The key to map
+	 * @param value The value to map it to
+	 * @return The previous value, or null if the key was not mapped
+	 */
+	public V put(int key, V value) {
+		return map.put(key, value);
+	}
+
+	/**
+	 * putIfAbsent(int, Object)
+	 * Maps a key to a value only if the key is not already mapped.
+	 *
+	 * @param key   The key to map
+	 * @param value The value to map it to
+	 * @return The current value, or null if the key was not mapped and now maps to value
+	 */
+	public V putIfAbsent(int key, V value) {
+		return map.putIfAbsent(key, value);
+	}
+
+	/**
+	 * replace(int, Object)
+	 * Changes the value of a key only if the key is already mapped.
+	 *
+	 * @param key   The key to change
+	 * @param value The new value
+	 * @return The previous value, or null if the key was not mapped
+	 */
+	public V replace(int key, V value) {
+		return map.replace(key, value);
+	}
+
+	/**
+	 * replace(int, Object, Object)
+	 * Changes the value of a key only if it is currently mapped to the expected value.
+	 *
+	 * @param key      The key to change
+	 * @param oldValue The value the key is expected to map to
+	 * @param newValue The new value
+	 * @return True iff the value was changed
+	 */
+	public boolean replace(int key, V oldValue, V newValue) {
+		return map.replace(key, oldValue, newValue);
+	}
+
+	/**
+	 * remove(int)
+	 * Removes the mapping for a key.
+	 *
+	 * @param key The key to remove
+	 * @return The previous value, or null if the key was not mapped
+	 */
+	public V remove(int key) {
+		return map.remove(key);
+	}
+
+	/**
+	 * remove(int, Object)
+	 * Removes the mapping for a key only if it is currently mapped to the expected value.
+	 *
+	 * @param key   The key to remove
+	 * @param value The value the key is expected to map to
+	 * @return True iff the mapping was removed
+	 */
+	public boolean remove(int key, Object value) {
+		return map.remove(key, value);
+	}
+
+	/**
+	 * size()
+	 * Gets the number of entries; while writers are active this is only an estimate.
+	 *
+	 * @return The number of entries
+	 */
+	public int size() {
+		return map.size();
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the map has no entries.
+	 *
+	 * @return True iff the map has no entries
+	 */
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	/**
+	 * clear()
+	 * Removes every entry, one segment at a time.
+	 */
+	public void clear() {
+		map.clear();
+	}
+
+	/**
+	 * forEach(Visitor)
+	 * Visits every entry without locking; entries changed during the walk may or may not be seen.
+	 *
+	 * @param visitor Receives each entry
+	 */
+	public void forEach(Visitor<? super V> visitor) {
+		map.forEach((key, value) -> visitor.visit((int) key, value));
+	}
+}
@@ -0,0 +1,238 @@
+package com.avrisnox.concurrent.collections;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**ConcLongHashMap
+ * A ConcHashMap specialized for long keys, so keys are never boxed on the way in or out.
+ * It is built on the same SegmentedTable: independently locked segments that grow on their own, with lock-free reads.
+ * Null values are not allowed.
+ *
+ * @param <V> The type of the values
+ */
+public class ConcLongHashMap<V> {
+	/**Visitor
+	 * Receives each entry of the map in turn, without boxing its key.
+	 *
+	 * @param <V> The type of the values
+	 */
+	public interface Visitor<V> {
+		/**
+		 * visit(long, Object)
+		 * Called once for each entry.
+		 *
+		 * @param key   The key of the entry
+		 * @param value The value of the entry
+		 */
+		void visit(long key, V value);
+	}
+
+	/* A single mapping with a long key - due to its private nature, it has been left undocumented. */
+	private static final class LongNode<V> extends SegmentedTable.Node<LongNode<V>, V> {
+		private final long key;
+
+		public LongNode(int hash, long key, V value, LongNode<V> next) {
+			super(hash, value, next);
+			this.key = key;
+		}
+
+		@Override
+		LongNode<V> copy(LongNode<V> next) {
+			return new LongNode<>(hash, key, value, next);
+		}
+	}
+
+	/* The table, keyed by long; the object form of each key is unused and always null - due to its private nature, it has been left undocumented. */
+	private static final class Table<V> extends SegmentedTable<LongNode<V>, V> {
+		public Table(int initialCapacity, int concurrencyLevel) {
+			super(initialCapacity, concurrencyLevel);
+		}
+
+		@Override
+		boolean matches(LongNode<V> node, int hash, Object key, long primitive) {
+			return node.key == primitive;
+		}
+
+		@Override
+		LongNode<V> create(int hash, Object key, long primitive, V value, LongNode<V> next) {
+			return new LongNode<>(hash, primitive, value, next);
+		}
+	}
+
+	private final Table<V> table;
+
+	/**
+	 * ConcLongHashMap()
+	 * Creates an empty map sized for a moderate number of entries and writer threads.
+	 */
+	public ConcLongHashMap() {
+		this(16, 16);
+	}
+
+	/**
+	 * ConcLongHashMap(int, int)
+	 * Creates an empty map.
+	 *
+	 * @param initialCapacity  The number of entries the map should hold before any segment needs to grow
+	 * @param concurrencyLevel The number of threads expected to write at once; this sets the number of segments
+	 */
+	public ConcLongHashMap(int initialCapacity, int concurrencyLevel) {
+		table = new Table<>(initialCapacity, concurrencyLevel);
+	}
+
+	/* Mixes all 64 bits of the key into a well spread 32 bit hash. */
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+
+	/**
+	 * get(long)
+	 * Gets the value mapped to a key, without locking.
+	 *
+	 * @param key The key to look up
+	 * @return The value, or null if the key is not mapped
+	 */
+	public V get(long key) {
+		int hash = hash(key);
+		LongNode<V> node = table.find(hash, null, key);
+		return (node != null ? node.value : null);
+	}
+
+	/**
+	 * containsKey(long)
+	 * Checks whether a key is mapped, without locking.
+	 *
+	 * @param key The key to look up
+	 * @return True iff the key is mapped
+	 */
+	public boolean containsKey(long key) {
+		int hash = hash(key);
+		return table.find(hash, null, key) != null;
+	}
+
+	/**
+	 * put(long, Object)
+	 * Maps a key to a value, replacing any previous value.
+	 *
+	 * @param key   The key to map
+	 * @param value The value to map it to
+	 * @return The previous value, or null if the key was not mapped
+	 */
+	public V put(long key, V value) {
+		if (value == null) throw new NullPointerException("ConcLongHashMap does not allow null values.");
+		int hash = hash(key);
+		return table.put(hash, null, key, value, false);
+	}
+
+	/**
+	 * putIfAbsent(long, Object)
+	 * Maps a key to a value only if the key is not already mapped.
+	 *
+	 * @param key   The key to map
+	 * @param value The value to map it to
+	 * @return The current value, or null if the key was not mapped and now maps to value
+	 */
+	public V putIfAbsent(long key, V value) {
+		if (value == null) throw new NullPointerException("ConcLongHashMap does not allow null values.");
+		int hash = hash(key);
+		return table.put(hash, null, key, value, true);
+	}
+
+	/**
+	 * replace(long, Object)
+	 * Changes the value of a key only if the key is already mapped.
+	 *
+	 * @param key   The key to change
+	 * @param value The new value
+	 * @return The previous value, or null if the key was not mapped
+	 */
+	public V replace(long key, V value) {
+		if (value == null) throw new NullPointerException("ConcLongHashMap does not allow null values.");
+		int hash = hash(key);
+		return table.replace(hash, null, key, null, value);
+	}
+
+	/**
+	 * replace(long, Object, Object)
+	 * Changes the value of a key only if it is currently mapped to the expected value.
+	 *
+	 * @param key      The key to change
+	 * @param oldValue The value the key is expected to map to
+	 * @param newValue The new value
+	 * @return True iff the value was changed
+	 */
+	public boolean replace(long key, V oldValue, V newValue) {
+		if (oldValue == null || newValue == null) throw new NullPointerException("ConcLongHashMap does not allow null values.");
+		int hash = hash(key);
+		return table.replace(hash, null, key, oldValue, newValue) != null;
+	}
+
+	/**
+	 * remove(long)
+	 * Removes the mapping for a key.
+	 *
+	 * @param key The key to remove
+	 * @return The previous value, or null if the key was not mapped
+	 */
+	public V remove(long key) {
+		int hash = hash(key);
+		return table.remove(hash, null, key, null);
+	}
+
+	/**
+	 * remove(long, Object)
+	 * Removes the mapping for a key only if it is currently mapped to the expected value.
+	 *
+	 * @param key   The key to remove
+	 * @param value The value the key is expected to map to
+	 * @return True iff the mapping was removed
+	 */
+	public boolean remove(long key, Object value) {
+		if (value == null) return false;
+		int hash = hash(key);
+		return table.remove(hash, null, key, value) != null;
+	}
+
+	/**
+	 * size()
+	 * Gets the number of entries; while writers are active this is only an estimate.
+	 *
+	 * @return The number of entries, capped at Integer.MAX_VALUE
+	 */
+	public int size() {
+		return table.size();
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the map has no entries.
+	 *
+	 * @return True iff no segment holds an entry
+	 */
+	public boolean isEmpty() {
+		return table.isEmpty();
+	}
+
+	/**
+	 * clear()
+	 * Removes every entry, one segment at a time.
+	 */
+	public void clear() {
+		table.clear();
+	}
+
+	/**
+	 * forEach(Visitor)
+	 * Visits every entry without locking; like ConcHashMap iteration, entries changed during the walk may or may not be seen.
+	 *
+	 * @param visitor Receives each entry
+	 */
+	public void forEach(Visitor<? super V> visitor) {
+		for (int segment = 0; segment < table.getSegmentCount(); segment++) {
+			AtomicReferenceArray<LongNode<V>> tab = table.getBins(segment);
+			for (int i = 0; i < tab.length(); i++)
+				for (LongNode<V> node = tab.get(i); node != null; node = node.next)
+					visitor.visit(node.key, node.value);
+		}
+	}
+}
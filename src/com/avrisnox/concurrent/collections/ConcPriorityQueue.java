@@ -1,4 +1,336 @@
 package com.avrisnox.concurrent.collections;
 
-public class ConcPriorityQueue {
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**ConcPriorityQueue
+ * A priority queue that many threads can offer to and poll from at once, lowest priority value first.
+ * It is backed by a lock-free skip list, so threads only contend when they touch the same few nodes instead of queueing up on one lock the way PriorityBlockingQueue does.
+ * Elements of equal priority come out roughly in the order they went in. To keep threads from fighting over one tie-breaking counter, each thread reserves sequence numbers in blocks, so among equal priorities the order is only first-in first-out per thread.
+ * Elements offered with insert(Object, double) come with a Handle that can later move them to a new priority or take them out of the queue, which is what timers and graph searches need for decrease-key.
+ * Null elements are not allowed; priorities may be any double except NaN.
+ *
+ * @param <E> The type of the elements
+ */
+public class ConcPriorityQueue<E> {
+	private static final int SEQUENCE_BLOCK = 1024;
+
+	/**Entry
+	 * An element in the queue together with its priority.
+	 *
+	 * @param <E> The type of the element
+	 */
+	public static final class Entry<E> implements Comparable<Entry<E>> {
+		private final double priority;
+		private final long sequence;
+		private final E element;
+		private final Handle<E> handle;
+
+		private Entry(double priority, long sequence, E element, Handle<E> handle) {
+			this.priority = priority;
+			this.sequence = sequence;
+			this.element = element;
+			this.handle = handle;
+		}
+
+		/**
+		 * getPriority()
+		 * Gets the priority the element had when it was polled.
+		 *
+		 * @return The priority
+		 */
+		public double getPriority() {
+			return priority;
+		}
+
+		/**
+		 * getElement()
+		 * Gets the element.
+		 *
+		 * @return The element
+		 */
+		public E getElement() {
+			return element;
+		}
+
+		@Override
+		public int compareTo(Entry<E> other) {
+			int order = Double.compare(priority, other.priority);
+			return (order != 0 ? order : Long.compare(sequence, other.sequence));
+		}
+	}
+
+	/**Handle
+	 * A reference to an element offered with insert(Object, double), through which its priority can be changed or it can be removed.
+	 *
+	 * @param <E> The type of the element
+	 */
+	public static final class Handle<E> {
+		private final E element;
+		private volatile Entry<E> entry = null;
+
+		private Handle(E element) {
+			this.element = element;
+		}
+
+		/**
+		 * getElement()
+		 * Gets the element this handle refers to.
+		 *
+		 * @return The element
+		 */
+		public E getElement() {
+			return element;
+		}
+
+		/**
+		 * getPriority()
+		 * Gets the current priority of the element.
+		 *
+		 * @return The priority, or NaN if the element is no longer queued
+		 */
+		public double getPriority() {
+			Entry<E> current = entry;
+			return (current != null ? current.priority : Double.NaN);
+		}
+
+		/**
+		 * isQueued()
+		 * Checks whether the element is still in the queue.
+		 *
+		 * @return True iff the element has been neither polled nor removed
+		 */
+		public boolean isQueued() {
+			return entry != null;
+		}
+	}
+
+	private final ConcurrentSkipListSet<Entry<E>> entries = new ConcurrentSkipListSet<>();
+	private final LongAdder size = new LongAdder();
+	private final AtomicLong sequences = new AtomicLong();
+	private final ThreadLocal<long[]> reserved = ThreadLocal.withInitial(() -> new long[]{0, 0});
+
+	/* Hands out the next sequence number from this thread's reserved block, reserving a new block when it runs out. */
+	private long nextSequence() {
+		long[] block = reserved.get();
+		if (block[0] == block[1]) {
+			block[0] = sequences.getAndAdd(SEQUENCE_BLOCK);
+			block[1] = block[0] + SEQUENCE_BLOCK;
+		}
+		return block[0]++;
+	}
+
+	private static void check(Object element, double priority) {
+		if (element == null) throw new NullPointerException("ConcPriorityQueue does not allow null elements.");
+		if (Double.isNaN(priority)) throw new IllegalArgumentException("NaN is not a valid priority for ConcPriorityQueue.");
+	}
+
+	/**
+	 * offer(Object, double)
+	 * Adds an element to the queue.
+	 *
+	 * @param element  The element to add
+	 * @param priority The priority of the element; lower values are polled first
+	 * @throws IllegalArgumentException Thrown when the priority is NaN
+	 */
+	public void offer(E element, double priority) throws IllegalArgumentException {
+		check(element, priority);
+		entries.add(new Entry<>(priority, nextSequence(), element, null));
+		size.increment();
+	}
+
+	/**
+	 * insert(Object, double)
+	 * Adds an element to the queue and returns a handle through which its priority can be changed later.
+	 *
+	 * @param element  The element to add
+	 * @param priority The priority of the element; lower values are polled first
+	 * @return A handle to the queued element
+	 * @throws IllegalArgumentException Thrown when the priority is NaN
+	 */
+	public Handle<E> insert(E element, double priority) throws IllegalArgumentException {
+		check(element, priority);
+		Handle<E> handle = new Handle<>(element);
+		Entry<E> entry = new Entry<>(priority, nextSequence(), element, handle);
+		handle.entry = entry;
+		entries.add(entry);
+		size.increment();
+		return handle;
+	}
+
+	/**
+	 * offerAll(Collection, ToDoubleFunction)
+	 * Adds many elements to the queue, reserving their sequence numbers in one go.
+	 *
+	 * @param elements The elements to add
+	 * @param priority Gives the priority of each element
+	 * @throws IllegalArgumentException Thrown when a priority is NaN; elements before it have already been added
+	 */
+	public void offerAll(Collection<? extends E> elements, ToDoubleFunction<? super E> priority) throws IllegalArgumentException {
+		long sequence = sequences.getAndAdd(elements.size());
+		int added = 0;
+		try {
+			for (E element : elements) {
+				double value = priority.applyAsDouble(element);
+				check(element, value);
+				entries.add(new Entry<>(value, sequence++, element, null));
+				added++;
+			}
+		} finally {
+			size.add(added);
+		}
+	}
+
+	/**
+	 * update(Handle, double)
+	 * Moves a queued element to a new priority; lowering it is the classic decrease-key, but raising it works too.
+	 *
+	 * @param handle   The handle returned when the element was inserted
+	 * @param priority The new priority of the element
+	 * @return True iff the element was still queued and has been moved; false if it had already been polled or removed
+	 * @throws IllegalArgumentException Thrown when the priority is NaN
+	 */
+	public boolean update(Handle<E> handle, double priority) throws IllegalArgumentException {
+		check(handle.element, priority);
+		synchronized (handle) {
+			Entry<E> old = handle.entry;
+			if (old == null || !entries.remove(old)) return false;
+			Entry<E> moved = new Entry<>(priority, old.sequence, handle.element, handle);
+			handle.entry = moved;
+			entries.add(moved);
+			return true;
+		}
+	}
+
+	/**
+	 * remove(Handle)
+	 * Takes a queued element out of the queue.
+	 *
+	 * @param handle The handle returned when the element was inserted
+	 * @return True iff the element was still queued and has been removed
+	 */
+	public boolean remove(Handle<E> handle) {
+		synchronized (handle) {
+			Entry<E> old = handle.entry;
+			if (old == null || !entries.remove(old)) return false;
+			handle.entry = null;
+			size.decrement();
+			return true;
+		}
+	}
+
+	/* Finishes taking an entry that has just been removed from the skip list. */
+	private Entry<E> taken(Entry<E> entry) {
+		if (entry != null) {
+			if (entry.handle != null) entry.handle.entry = null;
+			size.decrement();
+		}
+		return entry;
+	}
+
+	/**
+	 * pollEntry()
+	 * Removes the element with the lowest priority value, along with that priority.
+	 *
+	 * @return The removed entry, or null if the queue was empty
+	 */
+	public Entry<E> pollEntry() {
+		return taken(entries.pollFirst());
+	}
+
+	/**
+	 * poll()
+	 * Removes the element with the lowest priority value.
+	 *
+	 * @return The removed element, or null if the queue was empty
+	 */
+	public E poll() {
+		Entry<E> entry = pollEntry();
+		return (entry != null ? entry.element : null);
+	}
+
+	/**
+	 * pollUntil(double)
+	 * Removes the element with the lowest priority value, but only if that value is at most the given limit; timers use this to take only what is due.
+	 *
+	 * @param limit The highest priority value that may be removed
+	 * @return The removed entry, or null if the queue was empty or its first element is above the limit
+	 */
+	public Entry<E> pollUntil(double limit) {
+		while (true) {
+			Entry<E> first;
+			try {
+				first = entries.first();
+			} catch (NoSuchElementException e) {
+				return null;
+			}
+			if (first.priority > limit) return null;
+			if (entries.remove(first)) return taken(first);
+		}
+	}
+
+	/**
+	 * pollAll(Consumer, int)
+	 * Removes up to max elements, lowest priority values first, and hands each entry to the consumer in order.
+	 *
+	 * @param consumer Receives each removed entry
+	 * @param max      The most elements to remove
+	 * @return The number of elements removed
+	 */
+	public int pollAll(Consumer<? super Entry<E>> consumer, int max) {
+		int polled = 0;
+		Entry<E> entry;
+		while (polled < max && (entry = pollEntry()) != null) {
+			consumer.accept(entry);
+			polled++;
+		}
+		return polled;
+	}
+
+	/**
+	 * peek()
+	 * Gets the entry with the lowest priority value without removing it.
+	 *
+	 * @return The first entry, or null if the queue was empty
+	 */
+	public Entry<E> peek() {
+		try {
+			return entries.first();
+		} catch (NoSuchElementException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * size()
+	 * Gets the number of elements in the queue; while other threads are active this is only an estimate.
+	 *
+	 * @return The number of elements in the queue
+	 */
+	public int size() {
+		return (int) Math.max(0, Math.min(size.sum(), Integer.MAX_VALUE));
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the queue has no elements.
+	 *
+	 * @return True iff the queue looked empty
+	 */
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * clear()
+	 * Removes every element; handles to removed elements report them as no longer queued.
+	 */
+	public void clear() {
+		while (pollEntry() != null) ;
+	}
 }
@@ -1,4 +1,170 @@
 package com.avrisnox.concurrent.collections;
 
-public class ConcQueue {
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**ConcQueue
+ * A bounded, lock-free queue that any number of threads may offer to and poll from at once.
+ * Elements live in a preallocated ring; every slot carries a sequence number that tells producers when it is free and consumers when it is filled, so threads only ever race on a single compare-and-set of the head or tail counter.
+ * The head and tail counters are padded onto their own cache lines so producers and consumers do not slow each other down through false sharing.
+ * Slots are handed over with a full volatile store, so a thread that parks after seeing the queue full or empty can always be woken by whoever changes it.
+ * Null elements are not allowed. Operations never block; see Channel for blocking sends and receives.
+ *
+ * @param <E> The type of the elements
+ */
+public class ConcQueue<E> {
+	/* A counter padded out to keep it alone on its cache line - due to its private nature, it has been left undocumented. */
+	@SuppressWarnings("unused")
+	private static class PaddedCounter {
+		private static final AtomicLongFieldUpdater<PaddedCounter> UPDATER = AtomicLongFieldUpdater.newUpdater(PaddedCounter.class, "value");
+		private long p1, p2, p3, p4, p5, p6, p7;
+		private volatile long value = 0;
+		private long q1, q2, q3, q4, q5, q6, q7;
+
+		public boolean compareAndSet(long expected, long update) {
+			return UPDATER.compareAndSet(this, expected, update);
+		}
+	}
+
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final PaddedCounter head = new PaddedCounter();
+	private final PaddedCounter tail = new PaddedCounter();
+
+	/**
+	 * ConcQueue(int)
+	 * Creates an empty queue.
+	 *
+	 * @param capacity The number of elements the queue can hold; rounded up to the next power of two, and at least 2 so a slot's free and filled sequence numbers never coincide
+	 */
+	public ConcQueue(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("ConcQueue capacity must be between 1 and 2^30.");
+		int size = Math.max(Integer.highestOneBit(capacity), 2);
+		if (size < capacity) size <<= 1;
+		elements = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		mask = size - 1;
+		for (int i = 0; i < size; i++)
+			sequences.lazySet(i, i);
+	}
+
+	/**
+	 * offer(Object)
+	 * Adds an element to the tail of the queue if there is room.
+	 *
+	 * @param element The element to add
+	 * @return True iff the element was added; false if the queue was full
+	 */
+	public boolean offer(E element) {
+		if (element == null) throw new NullPointerException("ConcQueue does not allow null elements.");
+		long position = tail.value;
+		while (true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					elements.lazySet(index, element);
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = tail.value;
+			} else if (difference < 0) return false;
+			else position = tail.value;
+		}
+	}
+
+	/**
+	 * poll()
+	 * Removes the element at the head of the queue if there is one.
+	 *
+	 * @return The removed element, or null if the queue was empty
+	 */
+	public E poll() {
+		long position = head.value;
+		while (true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (head.compareAndSet(position, position + 1)) return take(index, position);
+				position = head.value;
+			} else if (difference < 0) return null;
+			else position = head.value;
+		}
+	}
+
+	private E take(int index, long position) {
+		E element = elements.get(index);
+		elements.lazySet(index, null);
+		sequences.set(index, position + mask + 1);
+		return element;
+	}
+
+	/**
+	 * drain(Consumer, int)
+	 * Removes up to max elements from the head of the queue in one go and hands each to the consumer, in order.
+	 * The whole run of elements is claimed with a single compare-and-set, so this is much cheaper than polling them one at a time.
+	 *
+	 * @param consumer Receives each removed element
+	 * @param max      The most elements to remove
+	 * @return The number of elements removed
+	 */
+	public int drain(Consumer<? super E> consumer, int max) {
+		while (max > 0) {
+			long position = head.value;
+			int ready = 0;
+			while (ready < max && sequences.get((int) (position + ready) & mask) == position + ready + 1)
+				ready++;
+			if (ready == 0) return 0;
+			if (head.compareAndSet(position, position + ready)) {
+				int i = 0;
+				try {
+					for (; i < ready; i++)
+						consumer.accept(take((int) (position + i) & mask, position + i));
+				} finally {
+					// The run is already claimed, so a throwing consumer must still free the slots it never got to
+					for (i++; i < ready; i++)
+						take((int) (position + i) & mask, position + i);
+				}
+				return ready;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * size()
+	 * Gets the number of elements in the queue; while other threads are active this is only an estimate.
+	 *
+	 * @return The number of elements in the queue
+	 */
+	public int size() {
+		while (true) {
+			long before = head.value;
+			long end = tail.value;
+			if (head.value == before) return (int) Math.max(0, Math.min(end - before, mask + 1));
+		}
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the queue has no elements; while other threads are active this is only an estimate.
+	 *
+	 * @return True iff the queue looked empty
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * capacity()
+	 * Gets the number of elements the queue can hold.
+	 *
+	 * @return The capacity of the queue
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
 }
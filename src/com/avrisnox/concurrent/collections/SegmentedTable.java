@@ -0,0 +1,303 @@
+package com.avrisnox.concurrent.collections;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**SegmentedTable
+ * The hash table shared by ConcHashMap and ConcLongHashMap: independently locked segments of chained bins, where writers lock only the segment their key hashes to and readers never lock at all.
+ * Each segment grows on its own, copying its nodes into a table twice the size; readers keep using the old table until the new one is published whole.
+ * The maps differ only in how a node holds its key. Each map supplies a subclass that tests and creates its own nodes; every key is passed both as an object and as a long, and each map reads only the one it stores, so the long-keyed map never boxes.
+ *
+ * @param <N> The type of the nodes
+ * @param <V> The type of the values
+ */
+abstract class SegmentedTable<N extends SegmentedTable.Node<N, V>, V> {
+	private static final int MAX_SEGMENTS = 1 << 16;
+	private static final int MIN_SEGMENT_TABLE = 2;
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/**Node
+	 * A single mapping; the hash never changes, and value and next are read without locking.
+	 *
+	 * @param <N> The type of the nodes
+	 * @param <V> The type of the values
+	 */
+	abstract static class Node<N extends Node<N, V>, V> {
+		final int hash;
+		volatile V value;
+		volatile N next;
+
+		/**
+		 * Node(int, Object, Node)
+		 * Creates a node at the head of a chain.
+		 *
+		 * @param hash  The spread hash of the key
+		 * @param value The value
+		 * @param next  The rest of the chain
+		 */
+		Node(int hash, V value, N next) {
+			this.hash = hash;
+			this.value = value;
+			this.next = next;
+		}
+
+		/**
+		 * copy(Node)
+		 * Creates a node with the same key and value at the head of another chain, for a grown table.
+		 *
+		 * @param next The rest of the chain
+		 * @return The copy
+		 */
+		abstract N copy(N next);
+	}
+
+	/* One independently locked part of the table - due to its private nature, it has been left undocumented. */
+	private static final class Segment<N extends Node<N, V>, V> extends ReentrantLock {
+		private static final long serialVersionUID = 1L;
+
+		private volatile AtomicReferenceArray<N> table;
+		private volatile int count = 0;
+		private int threshold;
+
+		public Segment(int capacity) {
+			table = new AtomicReferenceArray<>(capacity);
+			threshold = (int) (capacity * LOAD_FACTOR);
+		}
+	}
+
+	private final Segment<N, V>[] segments;
+	private final int segmentShift;
+
+	/**
+	 * SegmentedTable(int, int)
+	 * Creates an empty table.
+	 *
+	 * @param initialCapacity  The number of entries the table should hold before any segment needs to grow
+	 * @param concurrencyLevel The number of threads expected to write at once; this sets the number of segments
+	 */
+	@SuppressWarnings("unchecked")
+	SegmentedTable(int initialCapacity, int concurrencyLevel) {
+		int count = 1;
+		int shift = 0;
+		while (count < Math.min(Math.max(concurrencyLevel, 1), MAX_SEGMENTS)) {
+			count <<= 1;
+			shift++;
+		}
+		segmentShift = 32 - shift;
+		segments = (Segment<N, V>[]) new Segment<?, ?>[count];
+		int perSegment = MIN_SEGMENT_TABLE;
+		while (perSegment * LOAD_FACTOR * count < initialCapacity) perSegment <<= 1;
+		for (int i = 0; i < count; i++)
+			segments[i] = new Segment<>(perSegment);
+	}
+
+	/**
+	 * matches(Node, int, Object, long)
+	 * Checks whether a node holds the given key.
+	 *
+	 * @param node      The node
+	 * @param hash      The spread hash of the key
+	 * @param key       The key, for maps with object keys
+	 * @param primitive The key, for maps with long keys
+	 * @return True iff the node holds the key
+	 */
+	abstract boolean matches(N node, int hash, Object key, long primitive);
+
+	/**
+	 * create(int, Object, long, Object, Node)
+	 * Creates a node for a new mapping.
+	 *
+	 * @param hash      The spread hash of the key
+	 * @param key       The key, for maps with object keys
+	 * @param primitive The key, for maps with long keys
+	 * @param value     The value
+	 * @param next      The rest of the chain
+	 * @return The node
+	 */
+	abstract N create(int hash, Object key, long primitive, V value, N next);
+
+	private Segment<N, V> segmentFor(int hash) {
+		return segments[segmentShift == 32 ? 0 : hash >>> segmentShift];
+	}
+
+	/**
+	 * find(int, Object, long)
+	 * Finds the node holding a key, without locking.
+	 *
+	 * @param hash      The spread hash of the key
+	 * @param key       The key, for maps with object keys
+	 * @param primitive The key, for maps with long keys
+	 * @return The node, or null if the key is not mapped
+	 */
+	final N find(int hash, Object key, long primitive) {
+		AtomicReferenceArray<N> tab = segmentFor(hash).table;
+		for (N node = tab.get(hash & (tab.length() - 1)); node != null; node = node.next)
+			if (matches(node, hash, key, primitive)) return node;
+		return null;
+	}
+
+	/**
+	 * put(int, Object, long, Object, boolean)
+	 * Maps a key to a value under its segment's lock.
+	 *
+	 * @param hash         The spread hash of the key
+	 * @param key          The key, for maps with object keys
+	 * @param primitive    The key, for maps with long keys
+	 * @param value        The value
+	 * @param onlyIfAbsent True to leave a mapped key as it is
+	 * @return The previous value, or null if the key was not mapped
+	 */
+	final V put(int hash, Object key, long primitive, V value, boolean onlyIfAbsent) {
+		Segment<N, V> segment = segmentFor(hash);
+		segment.lock();
+		try {
+			N found = find(hash, key, primitive);
+			if (found != null) {
+				V old = found.value;
+				if (!onlyIfAbsent) found.value = value;
+				return old;
+			}
+			if (segment.count + 1 > segment.threshold) grow(segment);
+			AtomicReferenceArray<N> tab = segment.table;
+			int index = hash & (tab.length() - 1);
+			tab.set(index, create(hash, key, primitive, value, tab.get(index)));
+			segment.count++;
+			return null;
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/**
+	 * replace(int, Object, long, Object, Object)
+	 * Changes the value of a mapped key under its segment's lock.
+	 *
+	 * @param hash      The spread hash of the key
+	 * @param key       The key, for maps with object keys
+	 * @param primitive The key, for maps with long keys
+	 * @param expected  The value the key must map to, or null to change any value
+	 * @param value     The new value
+	 * @return The previous value, or null if nothing was changed
+	 */
+	final V replace(int hash, Object key, long primitive, Object expected, V value) {
+		Segment<N, V> segment = segmentFor(hash);
+		segment.lock();
+		try {
+			N found = find(hash, key, primitive);
+			if (found == null || (expected != null && !expected.equals(found.value))) return null;
+			V old = found.value;
+			found.value = value;
+			return old;
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/**
+	 * remove(int, Object, long, Object)
+	 * Removes the mapping for a key under its segment's lock.
+	 *
+	 * @param hash      The spread hash of the key
+	 * @param key       The key, for maps with object keys
+	 * @param primitive The key, for maps with long keys
+	 * @param expected  The value the key must map to, or null to remove any value
+	 * @return The removed value, or null if nothing was removed
+	 */
+	final V remove(int hash, Object key, long primitive, Object expected) {
+		Segment<N, V> segment = segmentFor(hash);
+		segment.lock();
+		try {
+			AtomicReferenceArray<N> tab = segment.table;
+			int index = hash & (tab.length() - 1);
+			N previous = null;
+			for (N node = tab.get(index); node != null; previous = node, node = node.next) {
+				if (!matches(node, hash, key, primitive)) continue;
+				if (expected != null && !expected.equals(node.value)) return null;
+				if (previous == null) tab.set(index, node.next);
+				else previous.next = node.next;
+				segment.count--;
+				return node.value;
+			}
+			return null;
+		} finally {
+			segment.unlock();
+		}
+	}
+
+	/* Copies every node into a table twice the size; readers keep using the old table until the new one is published whole. */
+	private void grow(Segment<N, V> segment) {
+		AtomicReferenceArray<N> old = segment.table;
+		AtomicReferenceArray<N> bigger = new AtomicReferenceArray<>(old.length() * 2);
+		int mask = bigger.length() - 1;
+		for (int i = 0; i < old.length(); i++)
+			for (N node = old.get(i); node != null; node = node.next) {
+				int index = node.hash & mask;
+				bigger.lazySet(index, node.copy(bigger.get(index)));
+			}
+		segment.table = bigger;
+		segment.threshold = (int) (bigger.length() * LOAD_FACTOR);
+	}
+
+	/**
+	 * size()
+	 * Gets the number of entries; while writers are active this is only an estimate.
+	 *
+	 * @return The number of entries, capped at Integer.MAX_VALUE
+	 */
+	final int size() {
+		long total = 0;
+		for (Segment<N, V> segment : segments)
+			total += segment.count;
+		return (int) Math.min(total, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the table has no entries.
+	 *
+	 * @return True iff no segment holds an entry
+	 */
+	final boolean isEmpty() {
+		for (Segment<N, V> segment : segments)
+			if (segment.count != 0) return false;
+		return true;
+	}
+
+	/**
+	 * clear()
+	 * Removes every entry, one segment at a time.
+	 */
+	final void clear() {
+		for (Segment<N, V> segment : segments) {
+			segment.lock();
+			try {
+				segment.table = new AtomicReferenceArray<>(MIN_SEGMENT_TABLE);
+				segment.threshold = (int) (MIN_SEGMENT_TABLE * LOAD_FACTOR);
+				segment.count = 0;
+			} finally {
+				segment.unlock();
+			}
+		}
+	}
+
+	/**
+	 * getSegmentCount()
+	 * Gets the number of segments.
+	 *
+	 * @return The number of segments
+	 */
+	final int getSegmentCount() {
+		return segments.length;
+	}
+
+	/**
+	 * getBins(int)
+	 * Gets a segment's current table, for walking its bins without locking.
+	 *
+	 * @param segment The index of the segment
+	 * @return The segment's table as it is now
+	 */
+	final AtomicReferenceArray<N> getBins(int segment) {
+		return segments[segment].table;
+	}
+}
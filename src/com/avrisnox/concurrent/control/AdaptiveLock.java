@@ -0,0 +1,111 @@
+package com.avrisnox.concurrent.control;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
+
+/**AdaptiveLock
+ * Wraps a Lock so that contended acquisitions spin for a while before parking, and records every acquisition in a LockStats.
+ * The spin budget adapts the way HotSpot's does for monitors: it doubles each time spinning wins the lock and halves each time it does not, so locks held briefly are taken without a context switch while locks held for long stop wasting processor time.
+ * On a single processor spinning can never help, so the budget stays at zero.
+ * The wrapped lock must barge (tryLock must succeed whenever the lock is free), as the non-fair java.util.concurrent locks do.
+ * Where the wrapped lock's own lock() would queue behind waiting threads rather than barge, as a ReentrantReadWriteLock's read lock does behind a waiting writer, a check for that is given too; while it holds, acquisitions neither try nor spin but go straight to the wrapped lock, so spinning readers cannot starve writers.
+ */
+class AdaptiveLock implements Lock {
+	static final int MAX_SPINS = (Runtime.getRuntime().availableProcessors() > 1 ? 1 << 10 : 0);
+	private static final int MIN_SPINS = (MAX_SPINS > 0 ? 16 : 0);
+
+	private final Lock delegate;
+	private final BooleanSupplier mustQueue;
+	private final LockStats stats = new LockStats();
+	private volatile int spinLimit = MIN_SPINS;
+
+	AdaptiveLock(Lock delegate) {
+		this(delegate, () -> false);
+	}
+
+	AdaptiveLock(Lock delegate, BooleanSupplier mustQueue) {
+		this.delegate = delegate;
+		this.mustQueue = mustQueue;
+	}
+
+	/* Takes the lock if it is free and no waiting thread should get it first. */
+	private boolean tryFirst() {
+		return !mustQueue.getAsBoolean() && delegate.tryLock();
+	}
+
+	LockStats stats() {
+		return stats;
+	}
+
+	/* Retries tryLock up to the current budget, then adapts the budget to how that went; gives up at once if a waiting thread should get the lock first. */
+	private boolean spin() {
+		int limit = spinLimit;
+		for (int i = 0; i < limit; i++) {
+			if (mustQueue.getAsBoolean()) return false;
+			if (delegate.tryLock()) {
+				if (limit < MAX_SPINS) spinLimit = limit << 1;
+				return true;
+			}
+		}
+		if (limit > MIN_SPINS) spinLimit = limit >> 1;
+		return false;
+	}
+
+	@Override
+	public void lock() {
+		if (tryFirst()) {
+			stats.uncontended();
+			return;
+		}
+		long start = System.nanoTime();
+		boolean spun = spin();
+		if (!spun) delegate.lock();
+		stats.contended(System.nanoTime() - start, spun);
+	}
+
+	@Override
+	public void lockInterruptibly() throws InterruptedException {
+		if (Thread.interrupted()) throw new InterruptedException();
+		if (tryFirst()) {
+			stats.uncontended();
+			return;
+		}
+		long start = System.nanoTime();
+		boolean spun = spin();
+		if (!spun) delegate.lockInterruptibly();
+		stats.contended(System.nanoTime() - start, spun);
+	}
+
+	@Override
+	public boolean tryLock() {
+		if (!delegate.tryLock()) return false;
+		stats.uncontended();
+		return true;
+	}
+
+	@Override
+	public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+		if (Thread.interrupted()) throw new InterruptedException();
+		if (tryFirst()) {
+			stats.uncontended();
+			return true;
+		}
+		long start = System.nanoTime();
+		boolean spun = spin();
+		if (!spun && !delegate.tryLock(unit.toNanos(time) - (System.nanoTime() - start), TimeUnit.NANOSECONDS)) return false;
+		stats.contended(System.nanoTime() - start, spun);
+		return true;
+	}
+
+	@Override
+	public void unlock() {
+		delegate.unlock();
+	}
+
+	@Override
+	public Condition newCondition() {
+		return delegate.newCondition();
+	}
+}
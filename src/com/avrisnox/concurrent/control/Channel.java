@@ -1,4 +1,345 @@
 package com.avrisnox.concurrent.control;
 
-public class Channel {
+import com.avrisnox.concurrent.collections.ConcQueue;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**Channel
+ * A bounded pipe for handing elements from one group of threads to another, built on a ConcQueue.
+ * Sends block while the channel is full and receives block while it is empty; both also come in non-blocking and timed forms, and select(Channel...) waits on several channels at once.
+ * A thread that has to wait spins briefly and then parks until a thread on the other side wakes it, so an idle channel costs nothing.
+ * Each send or receive wakes only the longest-waiting thread on the other side; a waiter that leaves while there is still work for its side wakes the next one, so one element never stirs up a whole crowd of waiters.
+ * Once closed, a channel refuses new elements but still hands out those already in it; receives then return null once it is empty.
+ * Null elements are not allowed.
+ *
+ * @param <E> The type of the elements
+ */
+public class Channel<E> {
+	/* Spinning only pays off when the thread that will unblock us can run at the same time. */
+	private static final int SPINS = (Runtime.getRuntime().availableProcessors() > 1 ? 32 : 0);
+
+	/**Selection
+	 * An element received by select, along with which channel it came from.
+	 *
+	 * @param <E> The type of the element
+	 */
+	public static class Selection<E> {
+		private final int index;
+		private final E value;
+
+		private Selection(int index, E value) {
+			this.index = index;
+			this.value = value;
+		}
+
+		/**
+		 * getIndex()
+		 * Gets the position of the channel the element came from, in the list passed to select.
+		 *
+		 * @return The index of the channel
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * getValue()
+		 * Gets the element that was received.
+		 *
+		 * @return The element
+		 */
+		public E getValue() {
+			return value;
+		}
+	}
+
+	private final ConcQueue<E> queue;
+	private final ConcurrentLinkedQueue<Thread> receivers = new ConcurrentLinkedQueue<>();
+	private final ConcurrentLinkedQueue<Thread> senders = new ConcurrentLinkedQueue<>();
+	private volatile boolean closed = false;
+
+	/**
+	 * Channel(int)
+	 * Creates an empty, open channel.
+	 *
+	 * @param capacity The number of elements the channel can hold before sends block; rounded up to the next power of two, and at least 2
+	 */
+	public Channel(int capacity) {
+		queue = new ConcQueue<>(capacity);
+	}
+
+	/* Wakes the longest-waiting thread on one side of the channel; it rechecks for itself whether it can go on, and passes the signal on when it leaves. */
+	private static void wake(ConcurrentLinkedQueue<Thread> waiters) {
+		Thread waiter = waiters.peek();
+		if (waiter != null) LockSupport.unpark(waiter);
+	}
+
+	/* Wakes every thread parked on one side of the channel, for when the channel closes. */
+	private static void wakeAll(ConcurrentLinkedQueue<Thread> waiters) {
+		for (Thread waiter : waiters)
+			LockSupport.unpark(waiter);
+	}
+
+	/* Parks until woken, interrupted or past the deadline; returns false once the deadline has passed. */
+	private static boolean park(Object blocker, boolean timed, long deadline) throws InterruptedException {
+		if (timed) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) return false;
+			LockSupport.parkNanos(blocker, remaining);
+		} else LockSupport.park(blocker);
+		if (Thread.interrupted()) throw new InterruptedException();
+		return true;
+	}
+
+	/**
+	 * trySend(Object)
+	 * Adds an element to the channel if there is room, without waiting.
+	 *
+	 * @param element The element to add
+	 * @return True iff the element was added; false if the channel was full
+	 * @throws IllegalStateException Thrown when the channel has been closed
+	 */
+	public boolean trySend(E element) throws IllegalStateException {
+		if (closed) throw new IllegalStateException("Cannot send on a closed channel.");
+		if (!queue.offer(element)) return false;
+		wake(receivers);
+		return true;
+	}
+
+	/**
+	 * send(Object)
+	 * Adds an element to the channel, waiting for room if it is full.
+	 *
+	 * @param element The element to add
+	 * @throws InterruptedException  Thrown when the thread is interrupted while waiting
+	 * @throws IllegalStateException Thrown when the channel is closed before the element could be added
+	 */
+	public void send(E element) throws InterruptedException, IllegalStateException {
+		sendUntil(element, false, 0);
+	}
+
+	/**
+	 * send(Object, long, TimeUnit)
+	 * Adds an element to the channel, waiting up to the given time for room if it is full.
+	 *
+	 * @param element The element to add
+	 * @param timeout The longest time to wait
+	 * @param unit    The unit of the timeout
+	 * @return True iff the element was added; false if the time ran out first
+	 * @throws InterruptedException  Thrown when the thread is interrupted while waiting
+	 * @throws IllegalStateException Thrown when the channel is closed before the element could be added
+	 */
+	public boolean send(E element, long timeout, TimeUnit unit) throws InterruptedException, IllegalStateException {
+		return sendUntil(element, true, System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	private boolean sendUntil(E element, boolean timed, long deadline) throws InterruptedException {
+		for (int spin = 0; spin < SPINS; spin++)
+			if (trySend(element)) return true;
+		Thread self = Thread.currentThread();
+		senders.add(self);
+		try {
+			while (!trySend(element))
+				if (!park(this, timed, deadline)) return false;
+			return true;
+		} finally {
+			senders.remove(self);
+			// We may have taken a wake-up meant for whoever can use the room that is left
+			if (queue.size() < queue.capacity()) wake(senders);
+		}
+	}
+
+	/**
+	 * tryReceive()
+	 * Removes the oldest element from the channel if there is one, without waiting.
+	 *
+	 * @return The removed element, or null if the channel was empty
+	 */
+	public E tryReceive() {
+		E element = queue.poll();
+		if (element != null) wake(senders);
+		return element;
+	}
+
+	/**
+	 * receive()
+	 * Removes the oldest element from the channel, waiting for one if it is empty.
+	 *
+	 * @return The removed element, or null if the channel is closed and empty
+	 * @throws InterruptedException Thrown when the thread is interrupted while waiting
+	 */
+	public E receive() throws InterruptedException {
+		return receiveUntil(false, 0);
+	}
+
+	/**
+	 * receive(long, TimeUnit)
+	 * Removes the oldest element from the channel, waiting up to the given time for one if it is empty.
+	 *
+	 * @param timeout The longest time to wait
+	 * @param unit    The unit of the timeout
+	 * @return The removed element, or null if the time ran out or the channel is closed and empty
+	 * @throws InterruptedException Thrown when the thread is interrupted while waiting
+	 */
+	public E receive(long timeout, TimeUnit unit) throws InterruptedException {
+		return receiveUntil(true, System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	private E receiveUntil(boolean timed, long deadline) throws InterruptedException {
+		E element;
+		for (int spin = 0; spin < SPINS; spin++)
+			if ((element = tryReceive()) != null) return element;
+		Thread self = Thread.currentThread();
+		receivers.add(self);
+		try {
+			while ((element = tryReceive()) == null) {
+				if (closed) return tryReceive();
+				if (!park(this, timed, deadline)) return null;
+			}
+			return element;
+		} finally {
+			receivers.remove(self);
+			// We may have taken a wake-up meant for whoever can use the elements that are left
+			if (!queue.isEmpty()) wake(receivers);
+		}
+	}
+
+	/**
+	 * receiveAll(Consumer, int)
+	 * Removes up to max elements that are already in the channel and hands each to the consumer, in order, without waiting.
+	 *
+	 * @param consumer Receives each removed element
+	 * @param max      The most elements to remove
+	 * @return The number of elements removed
+	 */
+	public int receiveAll(Consumer<? super E> consumer, int max) {
+		int drained = queue.drain(consumer, max);
+		if (drained > 0) wake(senders);
+		return drained;
+	}
+
+	/**
+	 * trySelect(Channel...)
+	 * Removes an element from whichever of the channels has one, without waiting.
+	 * Channels are tried starting from a random one, so no channel is starved by those listed before it.
+	 *
+	 * @param channels The channels to receive from
+	 * @param <E>      The type of the elements
+	 * @return The element and the index of its channel, or null if every channel was empty
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <E> Selection<E> trySelect(Channel<? extends E>... channels) {
+		return poll(channels);
+	}
+
+	private static <E> Selection<E> poll(Channel<? extends E>[] channels) {
+		int start = (channels.length > 1 ? ThreadLocalRandom.current().nextInt(channels.length) : 0);
+		for (int i = 0; i < channels.length; i++) {
+			int index = (start + i) % channels.length;
+			E element = channels[index].tryReceive();
+			if (element != null) return new Selection<>(index, element);
+		}
+		return null;
+	}
+
+	/**
+	 * select(Channel...)
+	 * Removes an element from whichever of the channels has one first, waiting if they are all empty.
+	 *
+	 * @param channels The channels to receive from
+	 * @param <E>      The type of the elements
+	 * @return The element and the index of its channel, or null if every channel is closed and empty
+	 * @throws InterruptedException Thrown when the thread is interrupted while waiting
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <E> Selection<E> select(Channel<? extends E>... channels) throws InterruptedException {
+		return selectUntil(false, 0, channels);
+	}
+
+	/**
+	 * select(long, TimeUnit, Channel...)
+	 * Removes an element from whichever of the channels has one first, waiting up to the given time if they are all empty.
+	 *
+	 * @param timeout  The longest time to wait
+	 * @param unit     The unit of the timeout
+	 * @param channels The channels to receive from
+	 * @param <E>      The type of the elements
+	 * @return The element and the index of its channel, or null if the time ran out or every channel is closed and empty
+	 * @throws InterruptedException Thrown when the thread is interrupted while waiting
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public static <E> Selection<E> select(long timeout, TimeUnit unit, Channel<? extends E>... channels) throws InterruptedException {
+		return selectUntil(true, System.nanoTime() + unit.toNanos(timeout), channels);
+	}
+
+	private static <E> Selection<E> selectUntil(boolean timed, long deadline, Channel<? extends E>[] channels) throws InterruptedException {
+		Selection<E> selection;
+		for (int spin = 0; spin < SPINS; spin++)
+			if ((selection = poll(channels)) != null) return selection;
+		Thread self = Thread.currentThread();
+		for (Channel<? extends E> channel : channels)
+			channel.receivers.add(self);
+		try {
+			while ((selection = poll(channels)) == null) {
+				boolean allClosed = true;
+				for (Channel<? extends E> channel : channels)
+					allClosed &= channel.closed;
+				if (allClosed) return poll(channels);
+				if (!park(Channel.class, timed, deadline)) return null;
+			}
+			return selection;
+		} finally {
+			for (Channel<? extends E> channel : channels) {
+				channel.receivers.remove(self);
+				if (!channel.queue.isEmpty()) wake(channel.receivers);
+			}
+		}
+	}
+
+	/**
+	 * close()
+	 * Closes the channel: further sends fail, and waiting receivers are woken to drain what is left.
+	 */
+	public void close() {
+		closed = true;
+		wakeAll(receivers);
+		wakeAll(senders);
+	}
+
+	/**
+	 * isClosed()
+	 * Checks whether the channel has been closed.
+	 *
+	 * @return True iff close() has been called
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * size()
+	 * Gets the number of elements waiting in the channel; while other threads are active this is only an estimate.
+	 *
+	 * @return The number of elements in the channel
+	 */
+	public int size() {
+		return queue.size();
+	}
+
+	/**
+	 * capacity()
+	 * Gets the number of elements the channel can hold before sends block.
+	 *
+	 * @return The capacity of the channel
+	 */
+	public int capacity() {
+		return queue.capacity();
+	}
 }
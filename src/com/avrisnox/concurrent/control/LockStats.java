@@ -0,0 +1,144 @@
+package com.avrisnox.concurrent.control;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**LockStats
+ * Contention figures for one Mutex, Semaphore or Monitor, gathered cheaply enough to leave on in production.
+ * Every acquisition is counted; those that could not succeed at once are also timed from their first failed attempt until they succeeded, and the wait is added to a histogram with one bucket per power of two nanoseconds.
+ * The figures are updated without locking, so a reading taken while threads are busy may be a few acquisitions out of step across fields.
+ */
+public class LockStats {
+	private static final int BUCKETS = 64;
+
+	private final LongAdder acquires = new LongAdder();
+	private final LongAdder contended = new LongAdder();
+	private final LongAdder spinAcquires = new LongAdder();
+	private final LongAdder totalWait = new LongAdder();
+	private final AtomicLong maxWait = new AtomicLong();
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+	void uncontended() {
+		acquires.increment();
+	}
+
+	void contended(long waitNanos, boolean spun) {
+		acquires.increment();
+		contended.increment();
+		if (spun) spinAcquires.increment();
+		totalWait.add(waitNanos);
+		histogram.incrementAndGet(bucket(waitNanos));
+		long max = maxWait.get();
+		while (waitNanos > max && !maxWait.compareAndSet(max, waitNanos))
+			max = maxWait.get();
+	}
+
+	private static int bucket(long nanos) {
+		return (nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	/**
+	 * getAcquires()
+	 * Gets the number of successful acquisitions.
+	 *
+	 * @return The number of acquisitions
+	 */
+	public long getAcquires() {
+		return acquires.sum();
+	}
+
+	/**
+	 * getContended()
+	 * Gets the number of acquisitions that had to wait.
+	 *
+	 * @return The number of contended acquisitions
+	 */
+	public long getContended() {
+		return contended.sum();
+	}
+
+	/**
+	 * getSpinAcquires()
+	 * Gets the number of contended acquisitions that succeeded while spinning, without having to park.
+	 *
+	 * @return The number of acquisitions won by spinning
+	 */
+	public long getSpinAcquires() {
+		return spinAcquires.sum();
+	}
+
+	/**
+	 * getTotalWait()
+	 * Gets the time spent waiting, summed over all contended acquisitions.
+	 *
+	 * @return The total wait in nanoseconds
+	 */
+	public long getTotalWait() {
+		return totalWait.sum();
+	}
+
+	/**
+	 * getMaxWait()
+	 * Gets the longest single wait.
+	 *
+	 * @return The longest wait in nanoseconds
+	 */
+	public long getMaxWait() {
+		return maxWait.get();
+	}
+
+	/**
+	 * getWaitHistogram()
+	 * Gets the wait histogram of contended acquisitions: bucket i counts waits of at least 2^i and under 2^(i+1) nanoseconds (bucket 0 also counts waits under 1ns).
+	 *
+	 * @return A copy of the 64 buckets
+	 */
+	public long[] getWaitHistogram() {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			copy[i] = histogram.get(i);
+		return copy;
+	}
+
+	/**
+	 * getWaitPercentile(double)
+	 * Estimates a percentile of the wait of contended acquisitions from the histogram.
+	 *
+	 * @param percentile The percentile, from 0 to 100
+	 * @return The upper bound in nanoseconds of the bucket holding the percentile, or 0 if nothing has waited
+	 */
+	public long getWaitPercentile(double percentile) {
+		long[] buckets = getWaitHistogram();
+		long total = 0;
+		for (long count : buckets)
+			total += count;
+		if (total == 0) return 0;
+		long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets[i];
+			if (seen >= Math.max(rank, 1)) return (i == 63 ? Long.MAX_VALUE : (2L << i) - 1);
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * reset()
+	 * Sets every figure back to zero.
+	 */
+	public void reset() {
+		acquires.reset();
+		contended.reset();
+		spinAcquires.reset();
+		totalWait.reset();
+		maxWait.set(0);
+		for (int i = 0; i < BUCKETS; i++)
+			histogram.set(i, 0);
+	}
+
+	@Override
+	public String toString() {
+		return "acquires=" + getAcquires() + " contended=" + getContended() + " spun=" + getSpinAcquires() + " p50<=" + getWaitPercentile(50) + "ns p99<=" + getWaitPercentile(99) + "ns max=" + getMaxWait() + "ns";
+	}
+}
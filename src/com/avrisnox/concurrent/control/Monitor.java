@@ -1,4 +1,144 @@
 package com.avrisnox.concurrent.control;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**Monitor
+ * A monitor in the sense of synchronized/wait/notify: a reentrant Mutex plus one condition that threads can wait on while inside.
+ * It is built on Mutex and a Condition rather than on synchronized, so it gets the adaptive spinning and contention statistics of Mutex and never pins a carrier thread on runtimes with virtual threads.
+ * Besides the raw enter/await/signal/exit calls, run, call and awaitUntil cover the usual patterns without the try/finally boilerplate.
+ */
 public class Monitor {
+	private final Mutex mutex = new Mutex();
+	private final Condition condition = mutex.newCondition();
+
+	/**
+	 * enter()
+	 * Enters the monitor, waiting until no other thread is inside.
+	 */
+	public void enter() {
+		mutex.lock();
+	}
+
+	/**
+	 * exit()
+	 * Leaves the monitor; a thread that entered several times must leave as many times.
+	 *
+	 * @throws IllegalMonitorStateException Thrown when the calling thread is not inside the monitor
+	 */
+	public void exit() throws IllegalMonitorStateException {
+		mutex.unlock();
+	}
+
+	/**
+	 * await()
+	 * Leaves the monitor until another thread signals, then enters it again; like wait(), it may also return spuriously.
+	 *
+	 * @throws InterruptedException         Thrown when the thread is interrupted while waiting
+	 * @throws IllegalMonitorStateException Thrown when the calling thread is not inside the monitor
+	 */
+	public void await() throws InterruptedException, IllegalMonitorStateException {
+		condition.await();
+	}
+
+	/**
+	 * await(long, TimeUnit)
+	 * Leaves the monitor until another thread signals or the time runs out, then enters it again.
+	 *
+	 * @param timeout The longest time to wait
+	 * @param unit    The unit of the timeout
+	 * @return False iff the time ran out
+	 * @throws InterruptedException         Thrown when the thread is interrupted while waiting
+	 * @throws IllegalMonitorStateException Thrown when the calling thread is not inside the monitor
+	 */
+	public boolean await(long timeout, TimeUnit unit) throws InterruptedException, IllegalMonitorStateException {
+		return condition.await(timeout, unit);
+	}
+
+	/**
+	 * awaitUntil(BooleanSupplier)
+	 * Waits inside the monitor until the condition holds, rechecking it every time the monitor is signalled.
+	 *
+	 * @param ready The condition to wait for; it is checked while inside the monitor
+	 * @throws InterruptedException         Thrown when the thread is interrupted while waiting
+	 * @throws IllegalMonitorStateException Thrown when the calling thread is not inside the monitor
+	 */
+	public void awaitUntil(BooleanSupplier ready) throws InterruptedException, IllegalMonitorStateException {
+		while (!ready.getAsBoolean())
+			condition.await();
+	}
+
+	/**
+	 * signal()
+	 * Wakes one thread waiting in the monitor.
+	 *
+	 * @throws IllegalMonitorStateException Thrown when the calling thread is not inside the monitor
+	 */
+	public void signal() throws IllegalMonitorStateException {
+		condition.signal();
+	}
+
+	/**
+	 * signalAll()
+	 * Wakes every thread waiting in the monitor.
+	 *
+	 * @throws IllegalMonitorStateException Thrown when the calling thread is not inside the monitor
+	 */
+	public void signalAll() throws IllegalMonitorStateException {
+		condition.signalAll();
+	}
+
+	/**
+	 * run(Runnable)
+	 * Runs an action inside the monitor.
+	 *
+	 * @param action The action to run
+	 */
+	public void run(Runnable action) {
+		mutex.lock();
+		try {
+			action.run();
+		} finally {
+			mutex.unlock();
+		}
+	}
+
+	/**
+	 * call(Supplier)
+	 * Runs an action inside the monitor and returns its result.
+	 *
+	 * @param action The action to run
+	 * @param <T>    The type of the result
+	 * @return The result of the action
+	 */
+	public <T> T call(Supplier<T> action) {
+		mutex.lock();
+		try {
+			return action.get();
+		} finally {
+			mutex.unlock();
+		}
+	}
+
+	/**
+	 * getOwner()
+	 * Gets the thread inside the monitor.
+	 *
+	 * @return The thread inside, or null if the monitor is free
+	 */
+	public Thread getOwner() {
+		return mutex.getOwner();
+	}
+
+	/**
+	 * getStats()
+	 * Gets the contention statistics of entering the monitor; re-entering on the way out of await is not counted.
+	 *
+	 * @return The monitor statistics
+	 */
+	public LockStats getStats() {
+		return mutex.getStats();
+	}
 }
@@ -1,4 +1,164 @@
 package com.avrisnox.concurrent.control;
 
+import java.util.concurrent.TimeUnit;
+
+/**Semaphore
+ * A counting semaphore that spins adaptively before parking and keeps contention statistics.
+ * It behaves like a non-fair java.util.concurrent.Semaphore: acquiring takes permits, waiting until enough are available, and releasing gives them back.
+ * Like Mutex, a thread that finds too few permits retries for an adaptive number of spins (see AdaptiveLock) before it parks; it does not spin while other threads are already parked waiting, so spinners cannot keep taking permits from under them.
+ * Permits are not owned by threads, so unlike Mutex there is no owner to report; getStats() shows how often and how long threads waited.
+ */
 public class Semaphore {
+	private static final int MIN_SPINS = (AdaptiveLock.MAX_SPINS > 0 ? 16 : 0);
+
+	private final java.util.concurrent.Semaphore permits;
+	private final LockStats stats = new LockStats();
+	private volatile int spinLimit = MIN_SPINS;
+
+	/**
+	 * Semaphore(int)
+	 * Creates a semaphore.
+	 *
+	 * @param permits The number of permits available at first (may be negative, in which case releases must come first)
+	 */
+	public Semaphore(int permits) {
+		this.permits = new java.util.concurrent.Semaphore(permits);
+	}
+
+	/* Retries up to the current budget, then adapts the budget to how that went; see AdaptiveLock. Gives up at once while threads are parked waiting. */
+	private boolean spin(int count) {
+		int limit = spinLimit;
+		for (int i = 0; i < limit; i++) {
+			if (permits.hasQueuedThreads()) return false;
+			if (permits.tryAcquire(count)) {
+				if (limit < AdaptiveLock.MAX_SPINS) spinLimit = limit << 1;
+				return true;
+			}
+		}
+		if (limit > MIN_SPINS) spinLimit = limit >> 1;
+		return false;
+	}
+
+	/**
+	 * acquire()
+	 * Takes one permit, waiting until one is available.
+	 *
+	 * @throws InterruptedException Thrown when the thread is interrupted while waiting
+	 */
+	public void acquire() throws InterruptedException {
+		acquire(1);
+	}
+
+	/**
+	 * acquire(int)
+	 * Takes the given number of permits, waiting until that many are available.
+	 *
+	 * @param count The number of permits to take
+	 * @throws InterruptedException Thrown when the thread is interrupted while waiting
+	 */
+	public void acquire(int count) throws InterruptedException {
+		if (Thread.interrupted()) throw new InterruptedException();
+		if (permits.tryAcquire(count)) {
+			stats.uncontended();
+			return;
+		}
+		long start = System.nanoTime();
+		boolean spun = spin(count);
+		if (!spun) permits.acquire(count);
+		stats.contended(System.nanoTime() - start, spun);
+	}
+
+	/**
+	 * tryAcquire()
+	 * Takes one permit if one is available, without waiting.
+	 *
+	 * @return True iff a permit was taken
+	 */
+	public boolean tryAcquire() {
+		return tryAcquire(1);
+	}
+
+	/**
+	 * tryAcquire(int)
+	 * Takes the given number of permits if that many are available, without waiting.
+	 *
+	 * @param count The number of permits to take
+	 * @return True iff the permits were taken
+	 */
+	public boolean tryAcquire(int count) {
+		if (!permits.tryAcquire(count)) return false;
+		stats.uncontended();
+		return true;
+	}
+
+	/**
+	 * tryAcquire(int, long, TimeUnit)
+	 * Takes the given number of permits, waiting up to the given time for that many to become available.
+	 *
+	 * @param count   The number of permits to take
+	 * @param timeout The longest time to wait
+	 * @param unit    The unit of the timeout
+	 * @return True iff the permits were taken
+	 * @throws InterruptedException Thrown when the thread is interrupted while waiting
+	 */
+	public boolean tryAcquire(int count, long timeout, TimeUnit unit) throws InterruptedException {
+		if (Thread.interrupted()) throw new InterruptedException();
+		if (permits.tryAcquire(count)) {
+			stats.uncontended();
+			return true;
+		}
+		long start = System.nanoTime();
+		boolean spun = spin(count);
+		if (!spun && !permits.tryAcquire(count, unit.toNanos(timeout) - (System.nanoTime() - start), TimeUnit.NANOSECONDS)) return false;
+		stats.contended(System.nanoTime() - start, spun);
+		return true;
+	}
+
+	/**
+	 * release()
+	 * Gives back one permit.
+	 */
+	public void release() {
+		permits.release();
+	}
+
+	/**
+	 * release(int)
+	 * Gives back the given number of permits.
+	 *
+	 * @param count The number of permits to give back
+	 */
+	public void release(int count) {
+		permits.release(count);
+	}
+
+	/**
+	 * availablePermits()
+	 * Gets the number of permits available right now.
+	 *
+	 * @return The number of available permits
+	 */
+	public int availablePermits() {
+		return permits.availablePermits();
+	}
+
+	/**
+	 * getQueueLength()
+	 * Estimates the number of threads parked waiting for permits.
+	 *
+	 * @return The number of waiting threads
+	 */
+	public int getQueueLength() {
+		return permits.getQueueLength();
+	}
+
+	/**
+	 * getStats()
+	 * Gets the contention statistics of the semaphore.
+	 *
+	 * @return The semaphore statistics
+	 */
+	public LockStats getStats() {
+		return stats;
+	}
 }
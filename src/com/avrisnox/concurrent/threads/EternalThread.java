@@ -1,4 +1,46 @@
 package com.avrisnox.concurrent.threads;
 
-public class EternalThread {
+/**EternalThread
+ * A thread that runs one long-lived loop until it is halted, such as a listener, a poller or a housekeeping job.
+ * The body is run over and over; if one pass throws, the failure is reported on stderr and the next pass starts, so a single bad pass never silently kills the loop.
+ * The body should return regularly (or check isHalted()) so that halt() can take effect; halt() also interrupts the thread to break it out of blocking calls.
+ */
+public class EternalThread extends GenericThread {
+	private final Runnable body;
+
+	/**
+	 * EternalThread(String, Runnable)
+	 * Creates a loop thread that belongs to no system; it is not started.
+	 *
+	 * @param name The name of the thread
+	 * @param body One pass of the loop
+	 */
+	public EternalThread(String name, Runnable body) {
+		this(null, name, body);
+	}
+
+	EternalThread(SystemThread system, String name, Runnable body) {
+		super(system, name);
+		this.body = body;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!isHalted())
+				runTask(body);
+		} finally {
+			if (getSystem() != null) getSystem().eternalExited(this);
+		}
+	}
+
+	/**
+	 * halt()
+	 * Asks the loop to stop after the current pass, interrupting the thread in case the pass is blocked.
+	 */
+	@Override
+	public void halt() {
+		super.halt();
+		interrupt();
+	}
 }
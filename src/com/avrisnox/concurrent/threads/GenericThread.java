@@ -1,4 +1,81 @@
 package com.avrisnox.concurrent.threads;
 
-public class GenericThread {
+import java.util.concurrent.locks.LockSupport;
+
+/**GenericThread
+ * The base of every thread in the concurrent.threads hierarchy.
+ * It runs tasks so that one failing task is reported on stderr rather than killing the thread, counts the tasks it has run, and can be asked to halt.
+ * Threads that belong to a SystemThread are created and started by it; only EternalThread is meant to be created directly as well.
+ */
+public abstract class GenericThread extends Thread {
+	private final SystemThread system;
+	private volatile boolean halted = false;
+	private volatile long tasksRun = 0;
+
+	/**
+	 * GenericThread(SystemThread, String)
+	 * Creates a daemon thread; it is not started.
+	 *
+	 * @param system The system the thread works for (null if it stands alone)
+	 * @param name   The name of the thread
+	 */
+	protected GenericThread(SystemThread system, String name) {
+		super(name);
+		this.system = system;
+		setDaemon(true);
+	}
+
+	/**
+	 * runTask(Runnable)
+	 * Runs a task on this thread, reporting rather than propagating anything it throws.
+	 *
+	 * @param task The task to run
+	 */
+	protected void runTask(Runnable task) {
+		try {
+			task.run();
+		} catch (Throwable t) {
+			System.err.println("Task on '" + getName() + "' failed: " + t);
+		}
+		tasksRun++;
+	}
+
+	/**
+	 * getSystem()
+	 * Gets the system this thread works for.
+	 *
+	 * @return The system, or null if the thread stands alone
+	 */
+	public SystemThread getSystem() {
+		return system;
+	}
+
+	/**
+	 * halt()
+	 * Asks the thread to stop once it has finished what it is doing, and wakes it if it is idle.
+	 */
+	public void halt() {
+		halted = true;
+		LockSupport.unpark(this);
+	}
+
+	/**
+	 * isHalted()
+	 * Checks whether halt() has been called.
+	 *
+	 * @return True iff the thread has been asked to stop
+	 */
+	public boolean isHalted() {
+		return halted;
+	}
+
+	/**
+	 * getTasksRun()
+	 * Gets the number of tasks this thread has run, whether or not they completed normally.
+	 *
+	 * @return The number of tasks run
+	 */
+	public long getTasksRun() {
+		return tasksRun;
+	}
 }
@@ -1,4 +1,51 @@
 package com.avrisnox.concurrent.threads;
 
-public class InterruptThread {
+import java.util.concurrent.TimeUnit;
+
+/**InterruptThread
+ * A worker of a SystemThread for tasks that block, such as I/O.
+ * Blocking tasks get their own lane of threads that grows on demand (up to the system's limit) and shrinks again when idle, so a task waiting on a socket never holds up the minions.
+ * A blocking task submitted through SystemThread.submitBlocking can be cancelled by interrupting the thread running it, which is where the name comes from; the interrupt is cleared before the thread moves on to its next task.
+ */
+public class InterruptThread extends GenericThread {
+	private final long keepAlive;
+
+	InterruptThread(SystemThread system, int index, long keepAlive) {
+		super(system, "Interrupt-" + index);
+		this.keepAlive = keepAlive;
+	}
+
+	@Override
+	public void run() {
+		SystemThread system = getSystem();
+		try {
+			while (true) {
+				Runnable task;
+				system.idleBlocking.incrementAndGet();
+				try {
+					task = system.blocking.poll(keepAlive, TimeUnit.NANOSECONDS);
+				} catch (InterruptedException e) {
+					task = null;
+				} finally {
+					system.idleBlocking.decrementAndGet();
+				}
+				// A task offered as we took ours may have counted us as idle
+				if (task != null) system.growBlocking();
+				if (task == SystemThread.STOP) {
+					system.blocking.offer(SystemThread.STOP);
+					// Tasks submitted by the system's own threads while shutting down may be queued behind the marker
+					if (system.blocking.peek() != SystemThread.STOP) continue;
+					return;
+				}
+				if (task == null) {
+					if (system.blocking.isEmpty()) return;
+					continue;
+				}
+				runTask(task);
+				Thread.interrupted();
+			}
+		} finally {
+			system.blockingExited(this);
+		}
+	}
 }
@@ -1,4 +1,80 @@
 package com.avrisnox.concurrent.threads;
 
-public class MinionThread {
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**MinionThread
+ * A worker of a SystemThread for short, non-blocking tasks.
+ * Each minion owns a WorkDeque: tasks submitted from inside a task go onto the submitting minion's own deque, and a minion with nothing left takes from the system's shared queue and then steals from the other minions.
+ * A minion that finds no work anywhere parks until a new task wakes it.
+ * NOTE: Tasks that block (on I/O, locks or other tasks) hold a minion hostage; hand those to SystemThread.executeBlocking instead, or wait on other tasks with SystemThread.join.
+ */
+public class MinionThread extends GenericThread {
+	private final WorkDeque deque = new WorkDeque();
+	private final int index;
+	private volatile long steals = 0;
+
+	MinionThread(SystemThread system, int index) {
+		super(system, "Minion-" + index);
+		this.index = index;
+	}
+
+	@Override
+	public void run() {
+		SystemThread system = getSystem();
+		while (true) {
+			Runnable task = findTask();
+			if (task == null) {
+				system.idleMinions.add(this);
+				task = findTask();
+				if (task == null && !isHalted()) LockSupport.park(system);
+				system.idleMinions.remove(this);
+				if (task == null && isHalted() && (task = findTask()) == null) return;
+			}
+			if (task != null) runTask(task);
+		}
+	}
+
+	/* Looks for work: own deque first (newest first), then the shared queue, then the other minions (oldest first). */
+	Runnable findTask() {
+		Runnable task = deque.pop();
+		if (task != null) return task;
+		if ((task = getSystem().shared.poll()) != null) return task;
+		MinionThread[] minions = getSystem().minions;
+		int start = ThreadLocalRandom.current().nextInt(minions.length);
+		for (int i = 0; i < minions.length; i++) {
+			MinionThread victim = minions[(start + i) % minions.length];
+			if (victim == this) continue;
+			if ((task = victim.deque.steal()) != null) {
+				steals++;
+				return task;
+			}
+		}
+		return null;
+	}
+
+	/* Called only from this thread, while it is running a task. */
+	void fork(Runnable task) {
+		deque.push(task);
+	}
+
+	/**
+	 * getIndex()
+	 * Gets the position of this minion in its system.
+	 *
+	 * @return The index of the minion
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * getSteals()
+	 * Gets the number of tasks this minion has taken from other minions' deques.
+	 *
+	 * @return The number of steals
+	 */
+	public long getSteals() {
+		return steals;
+	}
 }
@@ -1,4 +1,30 @@
 package com.avrisnox.concurrent.threads;
 
-public class PriorityThread {
+import java.util.concurrent.locks.LockSupport;
+
+/**PriorityThread
+ * A worker of a SystemThread that serves its priority lanes.
+ * Each lane is a first-in first-out queue; a priority thread always takes from the highest non-empty lane, so lower lanes only run when nothing more urgent is waiting.
+ * Priority threads are separate from the minions, so a flood of ordinary tasks never delays prioritized ones, and vice versa.
+ */
+public class PriorityThread extends GenericThread {
+	PriorityThread(SystemThread system, int index) {
+		super(system, "Priority-" + index);
+	}
+
+	@Override
+	public void run() {
+		SystemThread system = getSystem();
+		while (true) {
+			Runnable task = system.pollPriority();
+			if (task == null) {
+				system.idlePriority.add(this);
+				task = system.pollPriority();
+				if (task == null && !isHalted()) LockSupport.park(system);
+				system.idlePriority.remove(this);
+				if (task == null && isHalted() && (task = system.pollPriority()) == null) return;
+			}
+			if (task != null) runTask(task);
+		}
+	}
 }
@@ -1,4 +1,393 @@
 package com.avrisnox.concurrent.threads;
 
-public class SystemThread {
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**SystemThread
+ * The thread system: a work-stealing pool of MinionThreads for short tasks, PriorityThreads serving priority lanes, an elastic lane of InterruptThreads for blocking tasks, and any number of EternalThreads running long-lived loops.
+ * Tasks submitted from outside go onto a shared queue; tasks submitted from a minion go onto that minion's own deque, where idle minions can steal them. This makes fan-out (a task splitting itself into many subtasks) cheap and keeps it local.
+ * A task that needs the results of its subtasks should wait with join(CompletableFuture), which runs other tasks while it waits instead of blocking the minion.
+ * Tasks that throw are reported on stderr; use submit to get the failure back through the future instead.
+ * NOTE: Java 8 has no virtual threads, so blocking work goes to the InterruptThread lane instead; those are ordinary threads, created as needed up to a limit and retired after a minute idle.
+ */
+public class SystemThread implements Executor {
+	static final Runnable STOP = () -> {
+	};
+	private static final long KEEP_ALIVE = TimeUnit.SECONDS.toNanos(60);
+
+	final MinionThread[] minions;
+	final ConcurrentLinkedQueue<Runnable> shared = new ConcurrentLinkedQueue<>();
+	final ConcurrentLinkedQueue<MinionThread> idleMinions = new ConcurrentLinkedQueue<>();
+
+	private final PriorityThread[] priorityThreads;
+	private final ConcurrentLinkedQueue<Runnable>[] lanes;
+	final ConcurrentLinkedQueue<PriorityThread> idlePriority = new ConcurrentLinkedQueue<>();
+
+	final LinkedBlockingQueue<Runnable> blocking = new LinkedBlockingQueue<>();
+	final AtomicInteger idleBlocking = new AtomicInteger();
+	private final AtomicInteger liveBlocking = new AtomicInteger();
+	private final AtomicInteger blockingCreated = new AtomicInteger();
+	private final int maxBlocking;
+
+	private final ConcurrentLinkedQueue<GenericThread> transients = new ConcurrentLinkedQueue<>();
+	private volatile boolean shutdown = false;
+
+	/**
+	 * SystemThread()
+	 * Creates and starts a system with one minion per processor, one priority thread serving three lanes, and up to 256 blocking threads.
+	 */
+	public SystemThread() {
+		this(Runtime.getRuntime().availableProcessors(), 1, 3, 256);
+	}
+
+	/**
+	 * SystemThread(int, int, int, int)
+	 * Creates and starts a system.
+	 *
+	 * @param minionCount    The number of minions; usually the number of processors
+	 * @param priorityCount  The number of priority threads (0 if priority lanes are not needed)
+	 * @param priorityLevels The number of priority lanes; priorities run from 0 (lowest) to priorityLevels - 1
+	 * @param maxBlocking    The most blocking threads that may exist at once
+	 * @throws IllegalArgumentException Thrown when there are no minions or no blocking threads, or priority threads without lanes
+	 */
+	@SuppressWarnings("unchecked")
+	public SystemThread(int minionCount, int priorityCount, int priorityLevels, int maxBlocking) throws IllegalArgumentException {
+		if (minionCount < 1 || maxBlocking < 1 || priorityCount < 0 || (priorityCount > 0 && priorityLevels < 1))
+			throw new IllegalArgumentException("Thread counts not valid for SystemThread.");
+		this.maxBlocking = maxBlocking;
+		minions = new MinionThread[minionCount];
+		for (int i = 0; i < minionCount; i++)
+			minions[i] = new MinionThread(this, i);
+		priorityThreads = new PriorityThread[priorityCount];
+		for (int i = 0; i < priorityCount; i++)
+			priorityThreads[i] = new PriorityThread(this, i);
+		lanes = (ConcurrentLinkedQueue<Runnable>[]) new ConcurrentLinkedQueue<?>[priorityCount > 0 ? priorityLevels : 0];
+		for (int i = 0; i < lanes.length; i++)
+			lanes[i] = new ConcurrentLinkedQueue<>();
+		for (MinionThread minion : minions)
+			minion.start();
+		for (PriorityThread thread : priorityThreads)
+			thread.start();
+	}
+
+	/* Wakes one parked thread from the given idle list, if there is one. */
+	private static void wakeOne(ConcurrentLinkedQueue<? extends Thread> idle) {
+		Thread thread = idle.poll();
+		if (thread != null) LockSupport.unpark(thread);
+	}
+
+	/* Once shut down, only the system's own threads may submit: their tasks are part of the work shutdown drains. */
+	private void checkOpen() {
+		if (shutdown && !isOwnThread()) throw new RejectedExecutionException("SystemThread has been shut down.");
+	}
+
+	private boolean isOwnThread() {
+		Thread current = Thread.currentThread();
+		return current instanceof GenericThread && ((GenericThread) current).getSystem() == this;
+	}
+
+	/* Called after queueing a task: once shutting down, the queue's threads may already have exited, so the task is taken back and either handed to the blocking lane, which starts threads as needed, or rejected. */
+	private void recheck(Queue<Runnable> queue, Runnable task) {
+		if (!shutdown || !queue.remove(task)) return;
+		if (!isOwnThread()) throw new RejectedExecutionException("SystemThread has been shut down.");
+		blocking.offer(task);
+		growBlocking();
+	}
+
+	private MinionThread currentMinion() {
+		Thread current = Thread.currentThread();
+		if (current instanceof MinionThread && ((MinionThread) current).getSystem() == this) return (MinionThread) current;
+		return null;
+	}
+
+	/**
+	 * execute(Runnable)
+	 * Runs a short, non-blocking task on a minion.
+	 * Called from a minion, the task goes onto that minion's own deque; otherwise it goes onto the shared queue.
+	 *
+	 * @param task The task to run
+	 * @throws RejectedExecutionException Thrown when the system has been shut down and the caller is not one of its threads
+	 */
+	@Override
+	public void execute(Runnable task) throws RejectedExecutionException {
+		if (task == null) throw new NullPointerException("SystemThread cannot run a null task.");
+		checkOpen();
+		MinionThread minion = currentMinion();
+		if (minion != null) minion.fork(task);
+		else {
+			shared.offer(task);
+			recheck(shared, task);
+		}
+		wakeOne(idleMinions);
+	}
+
+	/**
+	 * submit(Callable)
+	 * Runs a short, non-blocking task on a minion and hands back its result.
+	 *
+	 * @param task The task to run
+	 * @param <T>  The type of the result
+	 * @return A future completed with the task's result, or exceptionally with what it threw
+	 * @throws RejectedExecutionException Thrown when the system has been shut down and the caller is not one of its threads
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> task) throws RejectedExecutionException {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		execute(complete(future, task));
+		return future;
+	}
+
+	private static <T> Runnable complete(CompletableFuture<T> future, Callable<T> task) {
+		return () -> {
+			try {
+				future.complete(task.call());
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		};
+	}
+
+	/**
+	 * join(CompletableFuture)
+	 * Waits for a future and returns its result.
+	 * Called from a minion, the minion keeps running other tasks (its own first, then stolen ones) until the future is done, so a task can wait on its own subtasks without tying up the minion or deadlocking the system.
+	 * When there is nothing else to run, the minion parks until either a new task arrives or the future completes, rather than spinning.
+	 *
+	 * @param future The future to wait for
+	 * @param <T>    The type of the result
+	 * @return The result of the future
+	 * @throws CompletionException   Thrown when the future completed exceptionally
+	 * @throws CancellationException Thrown when the future was cancelled
+	 */
+	public <T> T join(CompletableFuture<T> future) throws CompletionException, CancellationException {
+		MinionThread minion = currentMinion();
+		if (minion != null) {
+			boolean hooked = false;
+			while (!future.isDone()) {
+				Runnable task = minion.findTask();
+				if (task == null) {
+					if (!hooked) {
+						future.whenComplete((result, failure) -> LockSupport.unpark(minion));
+						hooked = true;
+					}
+					// Parks like an idle minion, so a new task wakes it just as the future completing does
+					idleMinions.add(minion);
+					task = minion.findTask();
+					if (task == null && !future.isDone()) LockSupport.park(this);
+					idleMinions.remove(minion);
+				}
+				if (task != null) minion.runTask(task);
+			}
+		}
+		return future.join();
+	}
+
+	/**
+	 * execute(Runnable, int)
+	 * Runs a task on a priority thread, after any waiting tasks of a higher priority.
+	 *
+	 * @param task     The task to run
+	 * @param priority The priority of the task, from 0 (lowest) to the number of lanes - 1
+	 * @throws IllegalArgumentException   Thrown when the priority is out of range, or the system has no priority threads
+	 * @throws RejectedExecutionException Thrown when the system has been shut down and the caller is not one of its threads
+	 */
+	public void execute(Runnable task, int priority) throws IllegalArgumentException, RejectedExecutionException {
+		if (task == null) throw new NullPointerException("SystemThread cannot run a null task.");
+		if (priority < 0 || priority >= lanes.length) throw new IllegalArgumentException("Priority " + priority + " not valid for SystemThread.");
+		checkOpen();
+		lanes[priority].offer(task);
+		recheck(lanes[priority], task);
+		wakeOne(idlePriority);
+	}
+
+	/**
+	 * submit(Callable, int)
+	 * Runs a task on a priority thread and hands back its result.
+	 *
+	 * @param task     The task to run
+	 * @param priority The priority of the task, from 0 (lowest) to the number of lanes - 1
+	 * @param <T>      The type of the result
+	 * @return A future completed with the task's result, or exceptionally with what it threw
+	 * @throws IllegalArgumentException   Thrown when the priority is out of range, or the system has no priority threads
+	 * @throws RejectedExecutionException Thrown when the system has been shut down and the caller is not one of its threads
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> task, int priority) throws IllegalArgumentException, RejectedExecutionException {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		execute(complete(future, task), priority);
+		return future;
+	}
+
+	Runnable pollPriority() {
+		for (int i = lanes.length - 1; i >= 0; i--) {
+			Runnable task = lanes[i].poll();
+			if (task != null) return task;
+		}
+		return null;
+	}
+
+	/**
+	 * executeBlocking(Runnable)
+	 * Runs a task that may block, such as I/O, on the blocking lane.
+	 * A thread is added whenever more tasks are waiting than there are idle threads to take them, so a burst of blocking tasks never queues up behind one thread.
+	 *
+	 * @param task The task to run
+	 * @throws RejectedExecutionException Thrown when the system has been shut down and the caller is not one of its threads
+	 */
+	public void executeBlocking(Runnable task) throws RejectedExecutionException {
+		if (task == null) throw new NullPointerException("SystemThread cannot run a null task.");
+		checkOpen();
+		blocking.offer(task);
+		growBlocking();
+	}
+
+	/**
+	 * submitBlocking(Callable)
+	 * Runs a task that may block on the blocking lane and hands back its result.
+	 * Cancelling the future with cancel(true) interrupts the task if it is running.
+	 *
+	 * @param task The task to run
+	 * @param <T>  The type of the result
+	 * @return A future for the task's result
+	 * @throws RejectedExecutionException Thrown when the system has been shut down and the caller is not one of its threads
+	 */
+	public <T> Future<T> submitBlocking(Callable<T> task) throws RejectedExecutionException {
+		FutureTask<T> future = new FutureTask<>(task);
+		executeBlocking(future);
+		return future;
+	}
+
+	/* Adds a blocking thread if more tasks are waiting than there are idle threads to take them; after shutdown the STOP marker waits in the queue too, and is not counted. */
+	void growBlocking() {
+		if (blocking.isEmpty()) return;
+		if (blocking.size() - (shutdown ? 1 : 0) > idleBlocking.get()) addBlockingThread();
+	}
+
+	private void addBlockingThread() {
+		while (true) {
+			int live = liveBlocking.get();
+			if (live >= maxBlocking) return;
+			if (liveBlocking.compareAndSet(live, live + 1)) break;
+		}
+		InterruptThread thread = new InterruptThread(this, blockingCreated.getAndIncrement(), KEEP_ALIVE);
+		transients.add(thread);
+		thread.start();
+	}
+
+	/* A blocking thread retired; if work arrived as it left and no one else can take it, start a replacement. */
+	void blockingExited(InterruptThread thread) {
+		transients.remove(thread);
+		liveBlocking.decrementAndGet();
+		growBlocking();
+	}
+
+	/**
+	 * startEternal(String, Runnable)
+	 * Starts a thread that runs a long-lived loop until it or the system is halted.
+	 *
+	 * @param name The name of the thread
+	 * @param body One pass of the loop; it is run over and over
+	 * @return The started thread, already halted if the system is shutting down
+	 * @throws RejectedExecutionException Thrown when the system has been shut down and the caller is not one of its threads
+	 */
+	public EternalThread startEternal(String name, Runnable body) throws RejectedExecutionException {
+		checkOpen();
+		EternalThread thread = new EternalThread(this, name, body);
+		transients.add(thread);
+		thread.start();
+		// shutdown() may have halted the eternal threads before this one was added
+		if (shutdown) thread.halt();
+		return thread;
+	}
+
+	void eternalExited(EternalThread thread) {
+		transients.remove(thread);
+	}
+
+	/**
+	 * shutdown()
+	 * Stops accepting tasks from outside. Tasks already submitted still run, after which the minions, priority and blocking threads exit; eternal loops are halted.
+	 * Tasks running on the system's own threads may still submit more, so work that fans out is drained too. A minion's subtasks stay on its own deque; anything else submitted while shutting down runs on the blocking lane, as the threads of its own lane may already have exited.
+	 */
+	public void shutdown() {
+		if (shutdown) return;
+		shutdown = true;
+		for (MinionThread minion : minions)
+			minion.halt();
+		for (PriorityThread thread : priorityThreads)
+			thread.halt();
+		blocking.offer(STOP);
+		growBlocking();
+		for (GenericThread thread : transients)
+			if (thread instanceof EternalThread) thread.halt();
+	}
+
+	/**
+	 * isShutdown()
+	 * Checks whether shutdown() has been called.
+	 *
+	 * @return True iff the system no longer accepts tasks
+	 */
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	/**
+	 * awaitTermination(long, TimeUnit)
+	 * Waits for every thread of the system to exit after shutdown().
+	 *
+	 * @param timeout The longest time to wait
+	 * @param unit    The unit of the timeout
+	 * @return True iff every thread exited in time
+	 * @throws InterruptedException Thrown when the calling thread is interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (GenericThread[] group : new GenericThread[][]{minions, priorityThreads, transients.toArray(new GenericThread[0])})
+			for (GenericThread thread : group) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) return false;
+				TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+				if (thread.isAlive()) return false;
+			}
+		return transients.isEmpty();
+	}
+
+	/**
+	 * getMinionCount()
+	 * Gets the number of minions.
+	 *
+	 * @return The number of minions
+	 */
+	public int getMinionCount() {
+		return minions.length;
+	}
+
+	/**
+	 * getSteals()
+	 * Gets the number of tasks minions have taken from each other's deques.
+	 *
+	 * @return The total number of steals
+	 */
+	public long getSteals() {
+		long steals = 0;
+		for (MinionThread minion : minions)
+			steals += minion.getSteals();
+		return steals;
+	}
+
+	/**
+	 * getTasksRun()
+	 * Gets the number of tasks the minions and priority threads have run; blocking and eternal threads are not counted.
+	 *
+	 * @return The total number of tasks run
+	 */
+	public long getTasksRun() {
+		long run = 0;
+		for (MinionThread minion : minions)
+			run += minion.getTasksRun();
+		for (PriorityThread thread : priorityThreads)
+			run += thread.getTasksRun();
+		return run;
+	}
 }
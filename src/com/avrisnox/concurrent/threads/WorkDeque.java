@@ -0,0 +1,97 @@
+package com.avrisnox.concurrent.threads;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**WorkDeque
+ * The task deque each MinionThread owns, after Chase and Lev.
+ * The owner pushes and pops at the bottom without ever taking a lock or a compare-and-set (except when fighting over the very last task); other workers steal from the top with a single compare-and-set.
+ * The owner therefore works newest-first, which keeps forked subtasks hot in its cache, while thieves take the oldest and usually largest tasks.
+ * The ring grows as needed and never shrinks. Thieves leave their slot as it is, since a thief that stalls could otherwise clear a slot the owner has since refilled; a stolen task is only held until the owner wraps around to it.
+ */
+class WorkDeque {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private volatile AtomicReferenceArray<Runnable> tasks = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+	private volatile long bottom = 0;
+	private final AtomicLong top = new AtomicLong();
+
+	/**
+	 * push(Runnable)
+	 * Adds a task at the bottom; only the owning thread may call this.
+	 *
+	 * @param task The task to add
+	 */
+	void push(Runnable task) {
+		long b = bottom;
+		long t = top.get();
+		AtomicReferenceArray<Runnable> array = tasks;
+		if (b - t >= array.length() - 1) array = grow(array, t, b);
+		array.lazySet((int) b & (array.length() - 1), task);
+		bottom = b + 1;
+	}
+
+	/* Copies the live tasks into a ring twice the size; thieves still holding the old ring read the same tasks from it. */
+	private AtomicReferenceArray<Runnable> grow(AtomicReferenceArray<Runnable> old, long t, long b) {
+		AtomicReferenceArray<Runnable> bigger = new AtomicReferenceArray<>(old.length() * 2);
+		for (long i = t; i < b; i++)
+			bigger.lazySet((int) i & (bigger.length() - 1), old.get((int) i & (old.length() - 1)));
+		tasks = bigger;
+		return bigger;
+	}
+
+	/**
+	 * pop()
+	 * Removes the newest task from the bottom; only the owning thread may call this.
+	 *
+	 * @return The removed task, or null if the deque was empty or a thief took the last task first
+	 */
+	Runnable pop() {
+		long b = bottom - 1;
+		AtomicReferenceArray<Runnable> array = tasks;
+		bottom = b;
+		long t = top.get();
+		if (t > b) {
+			bottom = t;
+			return null;
+		}
+		int index = (int) b & (array.length() - 1);
+		Runnable task = array.get(index);
+		if (t < b) {
+			array.lazySet(index, null);
+			return task;
+		}
+		boolean won = top.compareAndSet(t, t + 1);
+		bottom = t + 1;
+		if (!won) return null;
+		array.compareAndSet(index, task, null);
+		return task;
+	}
+
+	/**
+	 * steal()
+	 * Removes the oldest task from the top; any thread may call this.
+	 *
+	 * @return The removed task, or null if the deque was empty or another thread took the task first
+	 */
+	Runnable steal() {
+		long t = top.get();
+		long b = bottom;
+		if (t >= b) return null;
+		AtomicReferenceArray<Runnable> array = tasks;
+		int index = (int) t & (array.length() - 1);
+		Runnable task = array.get(index);
+		if (task == null || !top.compareAndSet(t, t + 1)) return null;
+		return task;
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the deque looked empty; while other threads are active this is only an estimate.
+	 *
+	 * @return True iff no tasks were seen
+	 */
+	boolean isEmpty() {
+		return top.get() >= bottom;
+	}
+}
@@ -0,0 +1,498 @@
+package com.avrisnox.util.doc_storage;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**BinaryBuffer
+ * A reusable, growable buffer that StorableAsBinary objects write their fields into and read them back out of.
+ * Integers can be written as varints (7 bits per byte, zigzag encoded for the signed variants) and strings and byte arrays are length-prefixed, so numeric-heavy objects stay small without any text encoding.
+ * None of the put methods allocate unless the buffer has to grow, and neither do the get methods other than getBytes() and getString().
+ */
+public class BinaryBuffer {
+	private ByteBuffer buffer;
+
+	/**
+	 * BinaryBuffer(int)
+	 * Creates an empty heap buffer.
+	 *
+	 * @param capacity The initial capacity in bytes; the buffer grows as needed
+	 */
+	public BinaryBuffer(int capacity) {
+		this(ByteBuffer.allocate(Math.max(capacity, 16)));
+	}
+
+	/**
+	 * BinaryBuffer(ByteBuffer)
+	 * Creates a buffer backed by the given ByteBuffer, starting at its current position.
+	 * The buffer is replaced by a larger copy if more room is needed, so the original may stop seeing writes.
+	 *
+	 * @param buffer The bytes to read from or write to
+	 */
+	public BinaryBuffer(ByteBuffer buffer) {
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * buffer()
+	 * Gets the ByteBuffer currently backing this buffer; its position is the next byte to read or write.
+	 *
+	 * @return The backing ByteBuffer
+	 */
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * wrap(ByteBuffer)
+	 * Points this buffer at different bytes, so a single instance can be reused for many reads and writes.
+	 *
+	 * @param buffer The bytes to read from or write to
+	 * @return This buffer
+	 */
+	public BinaryBuffer wrap(ByteBuffer buffer) {
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return this;
+	}
+
+	/**
+	 * clear()
+	 * Empties the buffer so it can be written to again from the start.
+	 *
+	 * @return This buffer
+	 */
+	public BinaryBuffer clear() {
+		buffer.clear();
+		return this;
+	}
+
+	/**
+	 * ensure(int)
+	 * Makes sure at least the given number of bytes can be written without the buffer growing again.
+	 *
+	 * @param bytes The number of bytes about to be written
+	 * @return This buffer
+	 */
+	public BinaryBuffer ensure(int bytes) {
+		if (buffer.remaining() < bytes) {
+			long wanted = Math.max((long) buffer.position() + bytes, (long) buffer.capacity() * 2);
+			if (wanted > Integer.MAX_VALUE - 8)
+				throw new IllegalStateException("BinaryBuffer cannot grow past 2GB.");
+			ByteBuffer bigger = (buffer.isDirect() ? ByteBuffer.allocateDirect((int) wanted) : ByteBuffer.allocate((int) wanted));
+			buffer.flip();
+			bigger.put(buffer);
+			buffer = bigger.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return this;
+	}
+
+	/**
+	 * varIntSize(long)
+	 * Gets the number of bytes an unsigned varint takes up.
+	 *
+	 * @param value The value to measure
+	 * @return The number of bytes (1 to 10) putVarLong would write for it
+	 */
+	public static int varIntSize(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * putBoolean(boolean)
+	 * Writes a boolean as a single byte.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putBoolean(boolean value) {
+		return putByte(value ? 1 : 0);
+	}
+
+	/**
+	 * putByte(int)
+	 * Writes the low 8 bits of value as a single byte.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putByte(int value) {
+		ensure(1);
+		buffer.put((byte) value);
+		return this;
+	}
+
+	/**
+	 * putInt(int)
+	 * Writes a fixed-width, little-endian int.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putInt(int value) {
+		ensure(4);
+		buffer.putInt(value);
+		return this;
+	}
+
+	/**
+	 * putLong(long)
+	 * Writes a fixed-width, little-endian long.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putLong(long value) {
+		ensure(8);
+		buffer.putLong(value);
+		return this;
+	}
+
+	/**
+	 * putFloat(float)
+	 * Writes a fixed-width, little-endian float.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putFloat(float value) {
+		ensure(4);
+		buffer.putFloat(value);
+		return this;
+	}
+
+	/**
+	 * putDouble(double)
+	 * Writes a fixed-width, little-endian double.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putDouble(double value) {
+		ensure(8);
+		buffer.putDouble(value);
+		return this;
+	}
+
+	/**
+	 * putVarInt(int)
+	 * Writes an int as an unsigned varint; small non-negative values take a single byte, but negative values always take five.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putVarInt(int value) {
+		return putVarLong(value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * putSignedVarInt(int)
+	 * Writes an int as a zigzag encoded varint, so values close to zero take few bytes whatever their sign.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putSignedVarInt(int value) {
+		return putVarInt((value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * putVarLong(long)
+	 * Writes a long as an unsigned varint.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putVarLong(long value) {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+		return this;
+	}
+
+	/**
+	 * putSignedVarLong(long)
+	 * Writes a long as a zigzag encoded varint.
+	 *
+	 * @param value The value to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putSignedVarLong(long value) {
+		return putVarLong((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * putBytes(byte[], int, int)
+	 * Writes a length-prefixed run of bytes.
+	 *
+	 * @param bytes  The array holding the bytes
+	 * @param offset The index of the first byte to write
+	 * @param length The number of bytes to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putBytes(byte[] bytes, int offset, int length) {
+		putVarInt(length);
+		ensure(length);
+		buffer.put(bytes, offset, length);
+		return this;
+	}
+
+	/**
+	 * putBytes(byte[])
+	 * Writes a length-prefixed byte array.
+	 *
+	 * @param bytes The bytes to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putBytes(byte[] bytes) {
+		return putBytes(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * putString(CharSequence)
+	 * Writes a length-prefixed UTF-8 string, encoding it straight into the buffer.
+	 *
+	 * @param value The string to write
+	 * @return This buffer
+	 */
+	public BinaryBuffer putString(CharSequence value) {
+		int length = value.length();
+		int bytes = 0;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) bytes++;
+			else if (c < 0x800) bytes += 2;
+			else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				bytes += 4;
+				i++;
+			} else bytes += 3;
+		}
+
+		putVarInt(bytes);
+		ensure(bytes);
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) buffer.put((byte) c);
+			else if (c < 0x800) {
+				buffer.put((byte) (0xC0 | (c >> 6)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int code = Character.toCodePoint(c, value.charAt(++i));
+				buffer.put((byte) (0xF0 | (code >> 18)));
+				buffer.put((byte) (0x80 | ((code >> 12) & 0x3F)));
+				buffer.put((byte) (0x80 | ((code >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (code & 0x3F)));
+			} else {
+				if (Character.isSurrogate(c)) c = '?';
+				buffer.put((byte) (0xE0 | (c >> 12)));
+				buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				buffer.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * getBoolean()
+	 * Reads a boolean written by putBoolean(boolean).
+	 *
+	 * @return The value read
+	 */
+	public boolean getBoolean() {
+		return buffer.get() != 0;
+	}
+
+	/**
+	 * getByte()
+	 * Reads a single byte.
+	 *
+	 * @return The value read
+	 */
+	public byte getByte() {
+		return buffer.get();
+	}
+
+	/**
+	 * getInt()
+	 * Reads a fixed-width, little-endian int.
+	 *
+	 * @return The value read
+	 */
+	public int getInt() {
+		return buffer.getInt();
+	}
+
+	/**
+	 * getLong()
+	 * Reads a fixed-width, little-endian long.
+	 *
+	 * @return The value read
+	 */
+	public long getLong() {
+		return buffer.getLong();
+	}
+
+	/**
+	 * getFloat()
+	 * Reads a fixed-width, little-endian float.
+	 *
+	 * @return The value read
+	 */
+	public float getFloat() {
+		return buffer.getFloat();
+	}
+
+	/**
+	 * getDouble()
+	 * Reads a fixed-width, little-endian double.
+	 *
+	 * @return The value read
+	 */
+	public double getDouble() {
+		return buffer.getDouble();
+	}
+
+	/**
+	 * getVarInt()
+	 * Reads an int written by putVarInt(int).
+	 *
+	 * @return The value read
+	 */
+	public int getVarInt() {
+		return (int) getVarLong();
+	}
+
+	/**
+	 * getSignedVarInt()
+	 * Reads an int written by putSignedVarInt(int).
+	 *
+	 * @return The value read
+	 */
+	public int getSignedVarInt() {
+		int raw = getVarInt();
+		return (raw >>> 1) ^ -(raw & 1);
+	}
+
+	/**
+	 * getVarLong()
+	 * Reads a long written by putVarLong(long).
+	 *
+	 * @return The value read
+	 * @throws IllegalArgumentException Thrown when the varint is longer than 10 bytes
+	 */
+	public long getVarLong() throws IllegalArgumentException {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+		throw new IllegalArgumentException("Malformed varint in binary contents.");
+	}
+
+	/**
+	 * getSignedVarLong()
+	 * Reads a long written by putSignedVarLong(long).
+	 *
+	 * @return The value read
+	 */
+	public long getSignedVarLong() {
+		long raw = getVarLong();
+		return (raw >>> 1) ^ -(raw & 1);
+	}
+
+	/**
+	 * getBytes(byte[], int)
+	 * Reads a length-prefixed run of bytes into an existing array.
+	 *
+	 * @param bytes  The array to read into; it must have room for the whole run
+	 * @param offset The index to start writing into bytes at
+	 * @return The number of bytes read
+	 */
+	public int getBytes(byte[] bytes, int offset) {
+		int length = getLength();
+		buffer.get(bytes, offset, length);
+		return length;
+	}
+
+	/**
+	 * getBytes()
+	 * Reads a length-prefixed byte array into a new array.
+	 *
+	 * @return The value read
+	 */
+	public byte[] getBytes() {
+		byte[] bytes = new byte[getLength()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * getString(Appendable)
+	 * Reads a length-prefixed UTF-8 string, decoding it straight into the given destination.
+	 *
+	 * @param output Where to append the decoded characters (e.g. a reused StringBuilder)
+	 * @param <A>    The type of the destination
+	 * @return The destination
+	 * @throws IOException              Thrown when the destination fails
+	 * @throws IllegalArgumentException Thrown when the string is not valid UTF-8, including overlong forms, surrogates, code points past U+10FFFF and characters cut off by the end of the string
+	 */
+	public <A extends Appendable> A getString(A output) throws IOException, IllegalArgumentException {
+		int end = getLength() + buffer.position();
+		while (buffer.position() < end) {
+			int b = buffer.get() & 0xFF;
+			if (b < 0x80) {
+				output.append((char) b);
+				continue;
+			}
+			// 0xC0 and 0xC1 can only start overlong forms, and nothing from 0xF5 up is below 0x110000
+			int n = (b < 0xC2 ? 0 : b < 0xE0 ? 1 : b < 0xF0 ? 2 : b < 0xF5 ? 3 : 0);
+			if (n == 0 || buffer.position() + n > end)
+				throw new IllegalArgumentException("Malformed UTF-8 in binary contents.");
+			int code = b & (0x3F >> n);
+			for (int i = 0; i < n; i++)
+				code = (code << 6) | continuation();
+			if (n == 2 && (code < 0x800 || (code >= Character.MIN_SURROGATE && code <= Character.MAX_SURROGATE)) || n == 3 && (code < 0x10000 || code > Character.MAX_CODE_POINT))
+				throw new IllegalArgumentException("Malformed UTF-8 in binary contents.");
+			if (n == 3) output.append(Character.highSurrogate(code)).append(Character.lowSurrogate(code));
+			else output.append((char) code);
+		}
+		return output;
+	}
+
+	/**
+	 * getString()
+	 * Reads a length-prefixed UTF-8 string into a new String.
+	 *
+	 * @return The value read
+	 */
+	public String getString() {
+		try {
+			return getString(new StringBuilder()).toString();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private int continuation() {
+		int b = buffer.get() & 0xFF;
+		if ((b & 0xC0) != 0x80)
+			throw new IllegalArgumentException("Malformed UTF-8 in binary contents.");
+		return b & 0x3F;
+	}
+
+	private int getLength() {
+		int length = getVarInt();
+		if (length < 0 || length > buffer.remaining())
+			throw new BufferUnderflowException();
+		return length;
+	}
+}
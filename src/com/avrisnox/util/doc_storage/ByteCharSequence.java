@@ -0,0 +1,99 @@
+package com.avrisnox.util.doc_storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**ByteCharSequence
+ * A read-only CharSequence over a ByteBuffer of ASCII text, where every byte is a single character.
+ * Characters are only decoded when asked for, and subsequences share the same underlying buffer, so this can sit over a memory-mapped file without copying it.
+ * Only ASCII is viewed this way, since ASCII is the part of UTF-8 where one byte is one character; the constructor rejects anything else. Use of(ByteBuffer) for bytes that may hold any UTF-8 text: it gives a view when the bytes are ASCII and decodes them otherwise.
+ */
+public class ByteCharSequence implements CharSequence {
+	private final ByteBuffer buffer;
+	private final int offset;
+	private final int length;
+
+	/**
+	 * ByteCharSequence(ByteBuffer)
+	 * Creates a character view over the remaining bytes of the buffer; the buffer's position and limit are left untouched.
+	 *
+	 * @param buffer The ASCII bytes to view as characters
+	 * @throws IllegalArgumentException Thrown when a byte is outside of ASCII
+	 */
+	public ByteCharSequence(ByteBuffer buffer) throws IllegalArgumentException {
+		this(buffer, buffer.position(), buffer.remaining());
+		int at = firstNonAscii(buffer, offset, length);
+		if (at >= 0)
+			throw new IllegalArgumentException("Byte 0x" + Integer.toHexString(buffer.get(at) & 0xFF) + " at " + at + " not valid for ByteCharSequence.");
+	}
+
+	private ByteCharSequence(ByteBuffer buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * of(ByteBuffer)
+	 * Gives the remaining bytes of a buffer as UTF-8 text: a ByteCharSequence view when they are all ASCII, or else a copy decoded as UTF-8, with malformed input replaced. The buffer's position and limit are left untouched.
+	 *
+	 * @param buffer The UTF-8 bytes to read as characters
+	 * @return The characters
+	 */
+	public static CharSequence of(ByteBuffer buffer) {
+		if (firstNonAscii(buffer, buffer.position(), buffer.remaining()) < 0)
+			return new ByteCharSequence(buffer, buffer.position(), buffer.remaining());
+		return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+	}
+
+	/* The index in the buffer of the first byte from 0x80 up in the given range, or -1. */
+	private static int firstNonAscii(ByteBuffer buffer, int offset, int length) {
+		for (int i = offset; i < offset + length; i++)
+			if (buffer.get(i) < 0) return i;
+		return -1;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException("Index " + index + " out of range for length " + length + ".");
+		return (char) buffer.get(offset + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end)
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of range for length " + length + ".");
+		return new ByteCharSequence(buffer, offset + start, end - start);
+	}
+
+	/**
+	 * indexOf(char, int)
+	 * Finds the next occurrence of a character without decoding anything around it.
+	 *
+	 * @param c    The character to look for; only ASCII characters can be found
+	 * @param from The index to start looking from
+	 * @return The index of the next occurrence of c, or -1 if there is none
+	 */
+	public int indexOf(char c, int from) {
+		if (c > 0x7F) return -1;
+		byte b = (byte) c;
+		for (int i = Math.max(from, 0); i < length; i++)
+			if (buffer.get(offset + i) == b) return i;
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.limit(offset + length).position(offset);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+}
@@ -3,14 +3,20 @@ package com.avrisnox.util.doc_storage;
 import java.io.*;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 /**FileAccessoryFactory
  * Offers a small selection of functions to call on a file, collection of files, or directory; currently includes:
  * 	zipping
+ * 	parallel zipping
+ * 	incremental zipping
  */
 public class FileAccessoryFactory {
-	private FileAccessoryFactory instance = new FileAccessoryFactory();
+	private static final FileAccessoryFactory instance = new FileAccessoryFactory();
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final long INLINE_LIMIT = 4L << 20;
 
 	/* This class is required for directory traversal - due to its private nature, it has been left undocumented. */
 	private class ZipDir extends SimpleFileVisitor<Path> {
@@ -28,8 +34,7 @@ public class FileAccessoryFactory {
 				Path target = source.relativize(file);
 				zos.putNextEntry(new ZipEntry(target.toString()));
 
-				byte[] bytes = Files.readAllBytes(file);
-				zos.write(bytes, 0, bytes.length);
+				Files.copy(file, zos);
 				zos.closeEntry();
 			} catch (IOException e) {
 				System.err.println("Zipstream error: IO exception.");
@@ -39,6 +44,46 @@ public class FileAccessoryFactory {
 		}
 	}
 
+	/* A file waiting to be added to an archive - due to its private nature, it has been left undocumented. */
+	private static class Source {
+		private String name;
+		private Path file;
+		private long size;
+		private long modified;
+
+		public Source(String name, Path file, BasicFileAttributes attributes) {
+			this.name = name;
+			this.file = file;
+			this.size = attributes.size();
+			this.modified = attributes.lastModifiedTime().toMillis();
+		}
+	}
+
+	/* The result of deflating a source on a worker thread - due to its private nature, it has been left undocumented. */
+	private static class Deflated {
+		private byte[] data;
+		private int length;
+		private long crc;
+		private long size;
+	}
+
+	/* Collects every regular file under a directory - due to its private nature, it has been left undocumented. */
+	private static class ListDir extends SimpleFileVisitor<Path> {
+		private Path source;
+		private List<Source> found = new ArrayList<>();
+
+		public ListDir(Path source) {
+			this.source = source;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+			if (attributes.isRegularFile())
+				found.add(new Source(source.relativize(file).toString().replace(File.separatorChar, '/'), file, attributes));
+			return FileVisitResult.CONTINUE;
+		}
+	}
+
 	private FileAccessoryFactory() {
 	}
 
@@ -48,7 +93,7 @@ public class FileAccessoryFactory {
 	 *
 	 * @return The factory instance
 	 */
-	public FileAccessoryFactory getInstance() {
+	public static FileAccessoryFactory getInstance() {
 		return instance;
 	}
 
@@ -108,4 +153,219 @@ public class FileAccessoryFactory {
 			System.err.println("Zipstream error: IO exception.");
 		}
 	}
+
+	/**parallelDirectoryZip(String)
+	 * Compresses and zips an entire directory and its contents, using every available core.
+	 * @param direcpath The path to and name of the directory to zip
+	 */
+	public void parallelDirectoryZip(String direcpath) {
+		parallelDirectoryZip(direcpath, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**parallelDirectoryZip(String, int)
+	 * Compresses and zips an entire directory and its contents, deflating several files at once on a bounded pool.
+	 * Entries are always written in order of their relative path, so the archive is the same no matter how many threads are used.
+	 * Files are read in fixed-size buffers; anything over 4MB is compressed straight into the archive instead of being handed to the pool, so memory stays bounded by the pool size.
+	 * @param direcpath The path to and name of the directory to zip
+	 * @param threads The number of threads to deflate on
+	 */
+	public void parallelDirectoryZip(String direcpath, int threads) {
+		Path source = Paths.get(direcpath);
+		ListDir lister = new ListDir(source);
+		try {
+			Files.walkFileTree(source, lister);
+		} catch (IOException e) {
+			System.err.println("Cannot read from " + direcpath + ": IO exception.");
+			return;
+		}
+		lister.found.sort(Comparator.comparing(found -> found.name));
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(threads, 1));
+		try (RawZipWriter zip = new RawZipWriter(new FileOutputStream(direcpath.concat(".zip")))) {
+			writeParallel(zip, lister.found, pool, Math.max(threads, 1) * 2);
+		} catch (FileNotFoundException e) {
+			System.err.println("Cannot write to zipfile : FileNotFound exception.");
+		} catch (IOException e) {
+			System.err.println("Zipstream error: IO exception.");
+		} catch (InterruptedException e) {
+			System.err.println("Zipstream error: Interrupted.");
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/* Keeps up to window small sources deflating on the pool while the calling thread writes finished entries in order. */
+	private void writeParallel(RawZipWriter zip, List<Source> sources, ExecutorService pool, int window) throws IOException, InterruptedException {
+		Queue<Future<Deflated>> pending = new LinkedList<>();
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		byte[] input = new byte[BUFFER_SIZE];
+		byte[] output = new byte[BUFFER_SIZE];
+		int next = 0;
+		try {
+			for (int i = 0; i < sources.size(); i++) {
+				for (; next < sources.size() && pending.size() < window; next++) {
+					Source ahead = sources.get(next);
+					pending.add(ahead.size <= INLINE_LIMIT ? pool.submit(() -> deflate(ahead)) : null);
+				}
+
+				Source current = sources.get(i);
+				Future<Deflated> job = pending.poll();
+				if (job == null) {
+					try (InputStream in = Files.newInputStream(current.file)) {
+						zip.deflateEntry(current.name, RawZipWriter.dosTime(current.modified), in, current.size, deflater, input, output);
+					}
+					continue;
+				}
+				try {
+					Deflated done = job.get();
+					zip.writeEntry(current.name, RawZipWriter.dosTime(current.modified), ZipEntry.DEFLATED, done.crc, done.size, done.data, done.length);
+				} catch (ExecutionException e) {
+					System.err.println("Cannot read from " + current.file + ": IO exception.");
+				}
+			}
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/* Runs on the pool; reads a whole (small) source through a fixed-size buffer and deflates it into memory. */
+	private static Deflated deflate(Source source) throws IOException {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		CRC32 crc = new CRC32();
+		Deflated result = new Deflated();
+		result.data = new byte[(int) Math.min(source.size + (source.size >> 8) + 64, Integer.MAX_VALUE - 8)];
+		byte[] input = new byte[BUFFER_SIZE];
+		try (InputStream in = Files.newInputStream(source.file)) {
+			int inc;
+			while ((inc = in.read(input)) != -1) {
+				crc.update(input, 0, inc);
+				result.size += inc;
+				deflater.setInput(input, 0, inc);
+				while (!deflater.needsInput())
+					result.length = deflateInto(deflater, result);
+			}
+			deflater.finish();
+			while (!deflater.finished())
+				result.length = deflateInto(deflater, result);
+		} finally {
+			deflater.end();
+		}
+		result.crc = crc.getValue();
+		return result;
+	}
+
+	private static int deflateInto(Deflater deflater, Deflated result) {
+		if (result.length == result.data.length)
+			result.data = Arrays.copyOf(result.data, result.data.length * 2);
+		return result.length + deflater.deflate(result.data, result.length, result.data.length - result.length);
+	}
+
+	/**incrementalMultiZip(String...)
+	 * Zips an array of files like multiZip, but reuses whatever is still current in the archive left behind by the last incremental zip.
+	 * See incrementalDirectoryZip(String) for how entries are reused.
+	 * @param filepaths The paths to and names of the files to zip together
+	 */
+	public void incrementalMultiZip(String... filepaths) {
+		List<Source> sources = new ArrayList<>();
+		for (String filepath : filepaths) {
+			try {
+				Path file = Paths.get(filepath);
+				sources.add(new Source(file.getFileName().toString(), file, Files.readAttributes(file, BasicFileAttributes.class)));
+			} catch (IOException e) {
+				System.err.println("Cannot read from " + filepath + ": IO exception.");
+			}
+		}
+		incrementalZip(new File(filepaths[0]).getName().concat(".zip"), sources);
+	}
+
+	/**incrementalDirectoryZip(String)
+	 * Zips an entire directory and its contents, reusing whatever is still current in the archive left behind by the last incremental zip.
+	 * A manifest of each entry's size, modification time and CRC-32 is kept next to the archive (as "name.zip.manifest").
+	 * Entries whose file has the same size and modification time are copied across still compressed; if only the modification time changed, the file is checksummed and copied across if its contents are unchanged.
+	 * Only new and modified files are compressed. The new archive replaces the old one once it is complete, so a failed run leaves the old archive in place.
+	 * @param direcpath The path to and name of the directory to zip
+	 */
+	public void incrementalDirectoryZip(String direcpath) {
+		Path source = Paths.get(direcpath);
+		ListDir lister = new ListDir(source);
+		try {
+			Files.walkFileTree(source, lister);
+		} catch (IOException e) {
+			System.err.println("Cannot read from " + direcpath + ": IO exception.");
+			return;
+		}
+		lister.found.sort(Comparator.comparing(found -> found.name));
+		incrementalZip(direcpath.concat(".zip"), lister.found);
+	}
+
+	/* Builds zipFile from sources, copying entries across from the previous archive where its manifest says they are still current. */
+	private void incrementalZip(String zipFile, List<Source> sources) {
+		Path archive = Paths.get(zipFile);
+		Path temp = Paths.get(zipFile.concat(".tmp"));
+		String manifestFile = zipFile.concat(".manifest");
+
+		ZipManifest previous = new ZipManifest();
+		RawZipReader old = null;
+		if (Files.exists(archive) && Files.exists(Paths.get(manifestFile))) {
+			try {
+				FileFactory.getInstance().getObjectFromHere(previous, manifestFile);
+				old = new RawZipReader(archive);
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Cannot reuse " + zipFile + ": rebuilding from scratch.");
+				previous = new ZipManifest();
+			}
+		}
+
+		ZipManifest current = new ZipManifest();
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		byte[] input = new byte[BUFFER_SIZE];
+		byte[] output = new byte[BUFFER_SIZE];
+		try {
+			try (RawZipReader reuse = old; RawZipWriter zip = new RawZipWriter(new FileOutputStream(temp.toFile()))) {
+				for (Source source : sources) {
+					long dosTime = RawZipWriter.dosTime(source.modified);
+					ZipManifest.Record record = previous.get(source.name);
+					RawZipReader.Entry entry = (reuse != null ? reuse.get(source.name) : null);
+					if (record != null && entry != null && record.size == source.size && entry.size == source.size && entry.crc == record.crc
+							&& (record.modified == source.modified || checksum(source.file, input) == record.crc)) {
+						try (InputStream in = reuse.open(entry)) {
+							zip.copyEntry(source.name, dosTime, entry.method, entry.crc, entry.compressed, entry.size, in, input);
+						}
+						current.put(source.name, source.size, source.modified, entry.crc);
+						continue;
+					}
+
+					try (InputStream in = Files.newInputStream(source.file)) {
+						long crc = zip.deflateEntry(source.name, dosTime, in, source.size, deflater, input, output);
+						current.put(source.name, source.size, source.modified, crc);
+					}
+				}
+			}
+			Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			FileFactory.getInstance().putObjectToHere(current, manifestFile);
+		} catch (FileNotFoundException e) {
+			System.err.println("Cannot write to zipfile : FileNotFound exception.");
+		} catch (IOException e) {
+			System.err.println("Zipstream error: IO exception.");
+		} finally {
+			deflater.end();
+			try {
+				Files.deleteIfExists(temp);
+			} catch (IOException e) {
+				System.err.println("Cannot delete " + temp + ": IO exception.");
+			}
+		}
+	}
+
+	/* Computes the CRC-32 of a file's contents through a fixed-size buffer. */
+	private static long checksum(Path file, byte[] buffer) throws IOException {
+		CRC32 crc = new CRC32();
+		try (InputStream in = Files.newInputStream(file)) {
+			int inc;
+			while ((inc = in.read(buffer)) != -1)
+				crc.update(buffer, 0, inc);
+		}
+		return crc.getValue();
+	}
 }
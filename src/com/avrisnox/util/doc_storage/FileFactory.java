@@ -1,18 +1,96 @@
 package com.avrisnox.util.doc_storage;
 
-import com.avrisnox.util.doc_storage.interfaces.Refactor;
-import com.avrisnox.util.doc_storage.interfaces.StorableAsFile;
-import com.avrisnox.util.doc_storage.interfaces.ValidateAndRefactor;
-import com.avrisnox.util.doc_storage.interfaces.Validator;
+import com.avrisnox.util.doc_storage.interfaces.*;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
 
 /**FileFactory
  * Allows for converting a writing a class to a file and reading a file back into a class.
  * Objects that want to use this factory must implement the "StorableAsFile" interface.
  */
 public class FileFactory {
-	private FileFactory instance = new FileFactory();
+	private static final FileFactory instance = new FileFactory();
+	private static final int BUFFER_SIZE = 8192;
+	/* Each thread's pooled buffers are taken out while in use, so a toBinary or fromBinary that calls back in for a nested object gets a fresh buffer rather than the one its caller is still using. */
+	private static final ThreadLocal<BinaryBuffer> binaryWriters = ThreadLocal.withInitial(FileFactory::newWriter);
+	private static final ThreadLocal<BinaryBuffer> binaryReaders = ThreadLocal.withInitial(FileFactory::newReader);
+	private static final ThreadLocal<ByteBuffer> binaryHeaders = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(5));
+
+	private static BinaryBuffer newWriter() {
+		return new BinaryBuffer(ByteBuffer.allocateDirect(BUFFER_SIZE));
+	}
+
+	private static BinaryBuffer newReader() {
+		return new BinaryBuffer(ByteBuffer.allocate(0));
+	}
+
+	/* Takes this thread's pooled buffer, or makes a fresh one if an outer call on this thread already has it; hand it back with pool.set once done. */
+	private static BinaryBuffer take(ThreadLocal<BinaryBuffer> pool, boolean writer) {
+		BinaryBuffer pooled = pool.get();
+		if (pooled == null) return (writer ? newWriter() : newReader());
+		pool.set(null);
+		return pooled;
+	}
+
+	/* Checks each chunk that passes through it against a StreamValidator - due to its private nature, it has been left undocumented. */
+	private static class ValidatingReader extends FilterReader {
+		private StreamValidator validator;
+		private boolean completed = false;
+
+		public ValidatingReader(Reader in, StreamValidator validator) {
+			super(in);
+			this.validator = validator;
+		}
+
+		@Override
+		public int read() throws IOException {
+			char[] single = new char[1];
+			return (read(single, 0, 1) == -1 ? -1 : single[0]);
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			int count = in.read(buffer, offset, length);
+			if (count == -1) {
+				if (!completed) {
+					completed = true;
+					if (!validator.complete())
+						throw new IllegalArgumentException("Content stream not valid for Stream->Object.");
+				}
+			} else if (count > 0 && !validator.validate(buffer, offset, count))
+				throw new IllegalArgumentException("Content stream not valid for Stream->Object.");
+			return count;
+		}
+
+		@Override
+		public long skip(long count) throws IOException {
+			char[] buffer = new char[(int) Math.min(count, BUFFER_SIZE)];
+			long skipped = 0;
+			int inc;
+			while (skipped < count && (inc = read(buffer, 0, (int) Math.min(count - skipped, buffer.length))) != -1)
+				skipped += inc;
+			return skipped;
+		}
+
+		public void drain() throws IOException {
+			char[] buffer = new char[BUFFER_SIZE];
+			while (read(buffer, 0, buffer.length) != -1) ;
+		}
+	}
 
 	private FileFactory() {
 	}
@@ -23,7 +101,7 @@ public class FileFactory {
 	 *
 	 * @return The factory instance
 	 */
-	public FileFactory getInstance() {
+	public static FileFactory getInstance() {
 		return instance;
 	}
 
@@ -146,8 +224,12 @@ public class FileFactory {
 	 * @throws IOException Thrown when the file could not be found or there was a generic IO error (see stderr for more info)
 	 */
 	public <T extends StorableAsFile> void putObjectToHere(T object, Refactor refactor, String filepath) throws IOException {
-		String contents = putObject(object, refactor);
-		try (FileWriter out = new FileWriter(filepath)) {
+		putContentsToHere(putObject(object, refactor), filepath);
+	}
+
+	/* Writes an already converted object string to a file; shared with WriteBehind so queued saves behave exactly like putObjectToHere. */
+	void putContentsToHere(String contents, String filepath) throws IOException {
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(filepath), StandardCharsets.UTF_8)) {
 			out.write(contents);
 		} catch (FileNotFoundException e) {
 			System.err.println("Cannot write to '" + filepath + "': File not found.");
@@ -226,11 +308,12 @@ public class FileFactory {
 	 */
 	public <T extends StorableAsFile> void getObjectFromHere(T object, Validator validator, Refactor refactor, String filepath) throws IOException {
 		String contents;
-		try (BufferedReader in = new BufferedReader(new FileReader(filepath))) {
+		try (Reader in = new InputStreamReader(new FileInputStream(filepath), StandardCharsets.UTF_8)) {
 			StringBuilder str = new StringBuilder();
-			String inc;
-			while ((inc = in.readLine()) != null)
-				str.append(inc);
+			char[] buffer = new char[BUFFER_SIZE];
+			int inc;
+			while ((inc = in.read(buffer)) != -1)
+				str.append(buffer, 0, inc);
 			contents = str.toString();
 		} catch (FileNotFoundException e) {
 			System.err.println("Cannot read from '" + filepath + "': File not found.");
@@ -244,4 +327,545 @@ public class FileFactory {
 			throw new IllegalArgumentException("Content string not valid for String->Object.");
 		object.fromFile(refactor != null ? refactor.run(contents) : contents);
 	}
+
+	/**
+	 * putObjectToStream(StorableAsStream, Writer)
+	 * Writes an object to the given writer without refactoring its contents.
+	 *
+	 * @param object The object to store
+	 * @param output The writer to store the object in - this is flushed but not closed
+	 * @param <T>    The type of the object to store
+	 * @throws IOException Thrown when the writer fails
+	 */
+	public <T extends StorableAsStream> void putObjectToStream(T object, Writer output) throws IOException {
+		putObjectToStream(object, null, output);
+	}
+
+	/**
+	 * putObjectToStream(StorableAsStream, StreamRefactor, Writer)
+	 * Writes an object to the given writer, refactoring its contents as they are written.
+	 *
+	 * @param object   The object to store
+	 * @param refactor The refactor to run on the object contents (null if no refactor is desired)
+	 * @param output   The writer to store the object in - this is flushed but not closed
+	 * @param <T>      The type of the object to store
+	 * @throws IOException Thrown when the writer fails
+	 */
+	public <T extends StorableAsStream> void putObjectToStream(T object, StreamRefactor refactor, Writer output) throws IOException {
+		Writer out = (refactor != null ? refactor.run(output) : output);
+		object.toStream(out);
+		out.flush();
+	}
+
+	/**
+	 * getObjectFromStream(StorableAsStream, Reader)
+	 * Rebuilds an object from the given reader without refactoring or validating the contents.
+	 *
+	 * @param object The object to rebuild in - this may have its variables overwritten
+	 * @param input  The reader to pull the object from - this is not closed
+	 * @param <T>    The type of the object to rebuild
+	 * @throws IOException Thrown when the reader fails
+	 */
+	public <T extends StorableAsStream> void getObjectFromStream(T object, Reader input) throws IOException {
+		getObjectFromStream(object, null, null, input);
+	}
+
+	/**
+	 * getObjectFromStream(StorableAsStream, ValidateAndRefactorStream, Reader)
+	 * Rebuilds an object from the given reader, validating and refactoring the contents as they are read.
+	 * Uses a single object to perform both validation and refactorization.
+	 *
+	 * @param object The object to rebuild in - this may have its variables overwritten
+	 * @param valref A single object that implements both StreamValidator and StreamRefactor methods (null if no validation AND no refactorization is desired)
+	 * @param input  The reader to pull the object from - this is not closed
+	 * @param <T>    The type of the object to rebuild
+	 * @throws IOException Thrown when the reader fails
+	 */
+	public <T extends StorableAsStream> void getObjectFromStream(T object, ValidateAndRefactorStream valref, Reader input) throws IOException {
+		getObjectFromStream(object, valref, valref, input);
+	}
+
+	/**
+	 * getObjectFromStream(StorableAsStream, StreamValidator, StreamRefactor, Reader)
+	 * Rebuilds an object from the given reader, validating and refactoring the contents as they are read.
+	 * NOTE: Validation happens while the object is being rebuilt, so an object that fails validation may already have had some of its variables overwritten.
+	 * Anything the object leaves unread is still passed through the validator before returning.
+	 *
+	 * @param object    The object to rebuild in - this may have its variables overwritten
+	 * @param validator The validator to run on the object contents (null if no validation is desired)
+	 * @param refactor  The refactor to run on the object contents (null if no refactor is desired)
+	 * @param input     The reader to pull the object from - this is not closed
+	 * @param <T>       The type of the object to rebuild
+	 * @throws IOException              Thrown when the reader fails
+	 * @throws IllegalArgumentException Thrown when validator detects invalid contents
+	 */
+	public <T extends StorableAsStream> void getObjectFromStream(T object, StreamValidator validator, StreamRefactor refactor, Reader input) throws IOException, IllegalArgumentException {
+		ValidatingReader checked = (validator != null ? new ValidatingReader(input, validator) : null);
+		Reader in = (checked != null ? checked : input);
+		object.fromStream(refactor != null ? refactor.run(in) : in);
+		if (checked != null) checked.drain();
+	}
+
+	/**
+	 * putObjectToChannel(StorableAsStream, StreamRefactor, WritableByteChannel)
+	 * Writes an object to the given channel as UTF-8, refactoring its contents as they are written.
+	 *
+	 * @param object   The object to store
+	 * @param refactor The refactor to run on the object contents (null if no refactor is desired)
+	 * @param output   The channel to store the object in - this is not closed
+	 * @param <T>      The type of the object to store
+	 * @throws IOException Thrown when the channel fails
+	 */
+	public <T extends StorableAsStream> void putObjectToChannel(T object, StreamRefactor refactor, WritableByteChannel output) throws IOException {
+		putObjectToStream(object, refactor, Channels.newWriter(output, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE));
+	}
+
+	/**
+	 * getObjectFromChannel(StorableAsStream, StreamValidator, StreamRefactor, ReadableByteChannel)
+	 * Rebuilds an object from the UTF-8 contents of the given channel, validating and refactoring the contents as they are read.
+	 *
+	 * @param object    The object to rebuild in - this may have its variables overwritten
+	 * @param validator The validator to run on the object contents (null if no validation is desired)
+	 * @param refactor  The refactor to run on the object contents (null if no refactor is desired)
+	 * @param input     The channel to pull the object from - this is not closed
+	 * @param <T>       The type of the object to rebuild
+	 * @throws IOException              Thrown when the channel fails
+	 * @throws IllegalArgumentException Thrown when validator detects invalid contents
+	 */
+	public <T extends StorableAsStream> void getObjectFromChannel(T object, StreamValidator validator, StreamRefactor refactor, ReadableByteChannel input) throws IOException, IllegalArgumentException {
+		getObjectFromStream(object, validator, refactor, Channels.newReader(input, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE));
+	}
+
+	/**
+	 * streamObjectToHere(StorableAsStream, String)
+	 * Streams an object into the given file as UTF-8 without refactoring its contents.
+	 *
+	 * @param object   The object to store
+	 * @param filepath The path to and name of the file to store the object in
+	 * @param <T>      The type of the object to store
+	 * @throws IOException Thrown when the file could not be found or there was a generic IO error (see stderr for more info)
+	 */
+	public <T extends StorableAsStream> void streamObjectToHere(T object, String filepath) throws IOException {
+		streamObjectToHere(object, null, filepath);
+	}
+
+	/**
+	 * streamObjectToHere(StorableAsStream, StreamRefactor, String)
+	 * Streams an object into the given file as UTF-8, refactoring its contents as they are written.
+	 * Only a fixed-size buffer is held in memory, regardless of how large the object's contents are.
+	 *
+	 * @param object   The object to store
+	 * @param refactor The refactor to run on the object contents (null if no refactor is desired)
+	 * @param filepath The path to and name of the file to store the object in
+	 * @param <T>      The type of the object to store
+	 * @throws IOException Thrown when the file could not be found or there was a generic IO error (see stderr for more info)
+	 */
+	public <T extends StorableAsStream> void streamObjectToHere(T object, StreamRefactor refactor, String filepath) throws IOException {
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filepath), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			putObjectToStream(object, refactor, out);
+		} catch (FileNotFoundException e) {
+			System.err.println("Cannot write to '" + filepath + "': File not found.");
+			throw e;
+		} catch (IOException e) {
+			System.err.println("Cannot write to '" + filepath + "': IO error.");
+			throw e;
+		}
+	}
+
+	/**
+	 * streamObjectFromHere(StorableAsStream, String)
+	 * Rebuilds an object from the UTF-8 contents of a file without refactoring or validating the contents.
+	 *
+	 * @param object   The object to rebuild in - this may have its variables overwritten
+	 * @param filepath The path to and name of the file to pull the object from
+	 * @param <T>      The type of the object to rebuild
+	 * @throws IOException Thrown when the file could not be found or there was a generic IO error (see stderr for more info)
+	 */
+	public <T extends StorableAsStream> void streamObjectFromHere(T object, String filepath) throws IOException {
+		streamObjectFromHere(object, null, null, filepath);
+	}
+
+	/**
+	 * streamObjectFromHere(StorableAsStream, ValidateAndRefactorStream, String)
+	 * Rebuilds an object from the UTF-8 contents of a file, validating and refactoring the contents as they are read.
+	 * Uses a single object to perform both validation and refactorization.
+	 *
+	 * @param object   The object to rebuild in - this may have its variables overwritten
+	 * @param valref   A single object that implements both StreamValidator and StreamRefactor methods (null if no validation AND no refactorization is desired)
+	 * @param filepath The path to and name of the file to pull the object from
+	 * @param <T>      The type of the object to rebuild
+	 * @throws IOException Thrown when the file could not be found or there was a generic IO error (see stderr for more info)
+	 */
+	public <T extends StorableAsStream> void streamObjectFromHere(T object, ValidateAndRefactorStream valref, String filepath) throws IOException {
+		streamObjectFromHere(object, valref, valref, filepath);
+	}
+
+	/**
+	 * streamObjectFromHere(StorableAsStream, StreamValidator, StreamRefactor, String)
+	 * Rebuilds an object from the UTF-8 contents of a file, validating and refactoring the contents as they are read.
+	 * Only a fixed-size buffer is held in memory, regardless of how large the file is.
+	 *
+	 * @param object    The object to rebuild in - this may have its variables overwritten
+	 * @param validator The validator to run on the object contents (null if no validation is desired)
+	 * @param refactor  The refactor to run on the object contents (null if no refactor is desired)
+	 * @param filepath  The path to and name of the file to pull the object from
+	 * @param <T>       The type of the object to rebuild
+	 * @throws IOException              Thrown when the file could not be found or there was a generic IO error (see stderr for more info)
+	 * @throws IllegalArgumentException Thrown when validator detects invalid contents
+	 */
+	public <T extends StorableAsStream> void streamObjectFromHere(T object, StreamValidator validator, StreamRefactor refactor, String filepath) throws IOException, IllegalArgumentException {
+		try (Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(filepath), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			getObjectFromStream(object, validator, refactor, in);
+		} catch (FileNotFoundException e) {
+			System.err.println("Cannot read from '" + filepath + "': File not found.");
+			throw e;
+		} catch (IOException e) {
+			System.err.println("Cannot read from '" + filepath + "': IO error.");
+			throw e;
+		}
+	}
+
+	/**
+	 * mapObjectFromHere(StorableAsMapped, String)
+	 * Rebuilds an object from a memory-mapped view of a file without validating the contents.
+	 *
+	 * @param object   The object to rebuild in - this may have its variables overwritten
+	 * @param filepath The path to and name of the file to pull the object from
+	 * @param <T>      The type of the object to rebuild
+	 * @throws IOException Thrown when the file could not be found, is too large to map, or there was a generic IO error (see stderr for more info)
+	 */
+	public <T extends StorableAsMapped> void mapObjectFromHere(T object, String filepath) throws IOException {
+		mapObjectFromHere(object, null, 0, filepath);
+	}
+
+	/**
+	 * mapObjectFromHere(StorableAsMapped, MappedValidator, int, String)
+	 * Rebuilds an object from a memory-mapped view of a file after validating the header of the file.
+	 * The file is mapped read-only and never copied onto the heap; only the pages that the validator and the object actually read are loaded.
+	 * NOTE: Refactoring is not supported on this path, as it would require a copy of the contents.
+	 *
+	 * @param object       The object to rebuild in - this may have its variables overwritten
+	 * @param validator    The validator to run on the header of the file (null if no validation is desired)
+	 * @param headerLength The number of bytes at the start of the file to show the validator
+	 * @param filepath     The path to and name of the file to pull the object from
+	 * @param <T>          The type of the object to rebuild
+	 * @throws IOException              Thrown when the file could not be found, is too large to map, or there was a generic IO error (see stderr for more info)
+	 * @throws IllegalArgumentException Thrown when validator detects an invalid header
+	 */
+	public <T extends StorableAsMapped> void mapObjectFromHere(T object, MappedValidator validator, int headerLength, String filepath) throws IOException, IllegalArgumentException {
+		ByteBuffer contents;
+		try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+			long size = channel.size();
+			contents = (size <= Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asReadOnlyBuffer() : null);
+		} catch (NoSuchFileException e) {
+			System.err.println("Cannot read from '" + filepath + "': File not found.");
+			throw e;
+		} catch (IOException e) {
+			System.err.println("Cannot read from '" + filepath + "': IO error.");
+			throw e;
+		}
+		if (contents == null) {
+			System.err.println("Cannot read from '" + filepath + "': File larger than 2GB.");
+			throw new IOException("File too large to map: " + filepath);
+		}
+
+		if (validator != null) {
+			ByteBuffer header = contents.duplicate();
+			header.limit(Math.min(Math.max(headerLength, 0), header.capacity()));
+			if (!validator.validate(header.slice()))
+				throw new IllegalArgumentException("File header not valid for Mapped->Object.");
+		}
+		object.fromMapped(contents);
+	}
+
+	/* Writes the varint length that frames every binary object. */
+	private static void putFrameLength(ByteBuffer output, int length) {
+		while ((length & ~0x7F) != 0) {
+			output.put((byte) ((length & 0x7F) | 0x80));
+			length >>>= 7;
+		}
+		output.put((byte) length);
+	}
+
+	/* Reads the varint length that frames every binary object. */
+	private static int getFrameLength(ByteBuffer input) {
+		int length = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = input.get();
+			length |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				if (length < 0 || length > input.remaining())
+					throw new IllegalArgumentException("Binary contents not valid for Binary->Object.");
+				return length;
+			}
+		}
+		throw new IllegalArgumentException("Binary contents not valid for Binary->Object.");
+	}
+
+	/**
+	 * putBinary(StorableAsBinary, ByteBuffer)
+	 * Writes an object into the given buffer as a single length-prefixed binary frame.
+	 * The object is written through a per-thread pooled buffer, so nothing is allocated once the pool has grown to fit; a toBinary that itself calls putBinary for a nested object is given a buffer of its own.
+	 *
+	 * @param object The object to store
+	 * @param output The buffer to store the object in, starting at its position
+	 * @param <T>    The type of the object to store
+	 * @throws java.nio.BufferOverflowException Thrown when output does not have room for the frame
+	 */
+	public <T extends StorableAsBinary> void putBinary(T object, ByteBuffer output) {
+		BinaryBuffer pooled = take(binaryWriters, true).clear();
+		try {
+			object.toBinary(pooled);
+			ByteBuffer payload = pooled.buffer();
+			payload.flip();
+			putFrameLength(output, payload.remaining());
+			output.put(payload);
+		} finally {
+			binaryWriters.set(pooled);
+		}
+	}
+
+	/**
+	 * getBinary(StorableAsBinary, ByteBuffer)
+	 * Rebuilds an object from a single length-prefixed binary frame, leaving the buffer positioned just past it.
+	 *
+	 * @param object The object to rebuild in - this may have its variables overwritten
+	 * @param input  The buffer holding the frame, starting at its position
+	 * @param <T>    The type of the object to rebuild
+	 * @throws IllegalArgumentException Thrown when the frame is malformed or the object reads past the end of it
+	 */
+	public <T extends StorableAsBinary> void getBinary(T object, ByteBuffer input) throws IllegalArgumentException {
+		ByteOrder order = input.order();
+		int limit = input.limit();
+		BinaryBuffer reader = take(binaryReaders, false);
+		try {
+			int end = getFrameLength(input) + input.position();
+			input.limit(end);
+			object.fromBinary(reader.wrap(input));
+			input.position(end);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Binary contents not valid for Binary->Object.");
+		} finally {
+			input.limit(limit);
+			input.order(order);
+			binaryReaders.set(reader);
+		}
+	}
+
+	/**
+	 * putBinaryToHere(StorableAsBinary, String)
+	 * Writes an object into the given file as a single length-prefixed binary frame.
+	 *
+	 * @param object   The object to store
+	 * @param filepath The path to and name of the file to store the object in
+	 * @param <T>      The type of the object to store
+	 * @throws IOException Thrown when the file could not be found or there was a generic IO error (see stderr for more info)
+	 */
+	public <T extends StorableAsBinary> void putBinaryToHere(T object, String filepath) throws IOException {
+		BinaryBuffer pooled = take(binaryWriters, true).clear();
+		try {
+			object.toBinary(pooled);
+			ByteBuffer payload = pooled.buffer();
+			payload.flip();
+			ByteBuffer header = binaryHeaders.get();
+			header.clear();
+			putFrameLength(header, payload.remaining());
+			header.flip();
+
+			try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (header.hasRemaining()) channel.write(header);
+				while (payload.hasRemaining()) channel.write(payload);
+			} catch (NoSuchFileException e) {
+				System.err.println("Cannot write to '" + filepath + "': File not found.");
+				throw e;
+			} catch (IOException e) {
+				System.err.println("Cannot write to '" + filepath + "': IO error.");
+				throw e;
+			}
+		} finally {
+			binaryWriters.set(pooled);
+		}
+	}
+
+	/**
+	 * getBinaryFromHere(StorableAsBinary, String)
+	 * Rebuilds an object from a file holding a single length-prefixed binary frame.
+	 *
+	 * @param object   The object to rebuild in - this may have its variables overwritten
+	 * @param filepath The path to and name of the file to pull the object from
+	 * @param <T>      The type of the object to rebuild
+	 * @throws IOException              Thrown when the file could not be found or there was a generic IO error (see stderr for more info)
+	 * @throws IllegalArgumentException Thrown when the file does not hold exactly one well-formed frame
+	 */
+	public <T extends StorableAsBinary> void getBinaryFromHere(T object, String filepath) throws IOException, IllegalArgumentException {
+		BinaryBuffer pooled = take(binaryWriters, true).clear();
+		try {
+			ByteBuffer contents;
+			try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+				long size = channel.size();
+				if (size > Integer.MAX_VALUE - 8)
+					throw new IllegalArgumentException("Binary contents not valid for Binary->Object.");
+				contents = pooled.ensure((int) size).buffer();
+				contents.limit((int) size);
+				while (contents.hasRemaining() && channel.read(contents) != -1) ;
+			} catch (NoSuchFileException e) {
+				System.err.println("Cannot read from '" + filepath + "': File not found.");
+				throw e;
+			} catch (IOException e) {
+				System.err.println("Cannot read from '" + filepath + "': IO error.");
+				throw e;
+			}
+
+			contents.flip();
+			getBinary(object, contents);
+			if (contents.hasRemaining())
+				throw new IllegalArgumentException("Binary contents not valid for Binary->Object.");
+		} finally {
+			binaryWriters.set(pooled);
+		}
+	}
+
+	/**
+	 * putObjectToHereAsync(StorableAsFile, String)
+	 * Converts an object to a string and stores it in the given file without blocking and without refactoring the string.
+	 *
+	 * @param object   The object to store
+	 * @param filepath The path to and name of the file to store the object in
+	 * @param <T>      The type of the object to store
+	 * @return A future that completes once the file has been written
+	 */
+	public <T extends StorableAsFile> CompletableFuture<Void> putObjectToHereAsync(T object, String filepath) {
+		return putObjectToHereAsync(object, null, filepath);
+	}
+
+	/**
+	 * putObjectToHereAsync(StorableAsFile, Refactor, String)
+	 * Converts an object to a string on the calling thread, then stores it in the given file without blocking.
+	 * The file is written the same way as putObjectToHere, so either can read back what the other wrote.
+	 *
+	 * @param object   The object to store
+	 * @param refactor The refactor to run on the object string (null if no refactor is desired)
+	 * @param filepath The path to and name of the file to store the object in
+	 * @param <T>      The type of the object to store
+	 * @return A future that completes once the file has been written, or completes exceptionally with the IOException that stopped it
+	 */
+	public <T extends StorableAsFile> CompletableFuture<Void> putObjectToHereAsync(T object, Refactor refactor, String filepath) {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		ByteBuffer contents = ByteBuffer.wrap(putObject(object, refactor).getBytes(StandardCharsets.UTF_8));
+		AsynchronousFileChannel channel;
+		try {
+			channel = AsynchronousFileChannel.open(Paths.get(filepath), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
+			System.err.println("Cannot write to '" + filepath + "': IO error.");
+			result.completeExceptionally(e);
+			return result;
+		}
+
+		channel.write(contents, 0, 0L, new CompletionHandler<Integer, Long>() {
+			@Override
+			public void completed(Integer written, Long position) {
+				if (contents.hasRemaining()) {
+					channel.write(contents, position + written, position + written, this);
+					return;
+				}
+				try {
+					channel.close();
+					result.complete(null);
+				} catch (IOException e) {
+					failed(e, position);
+				}
+			}
+
+			@Override
+			public void failed(Throwable e, Long position) {
+				System.err.println("Cannot write to '" + filepath + "': IO error.");
+				try {
+					channel.close();
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * getObjectFromHereAsync(StorableAsFile, String)
+	 * Rebuilds an object from a file without blocking and without refactoring or validating the contents.
+	 *
+	 * @param object   The object to rebuild in - this may have its variables overwritten once the read completes
+	 * @param filepath The path to and name of the file to pull the object from
+	 * @param <T>      The type of the object to rebuild
+	 * @return A future that completes with the rebuilt object
+	 */
+	public <T extends StorableAsFile> CompletableFuture<T> getObjectFromHereAsync(T object, String filepath) {
+		return getObjectFromHereAsync(object, null, null, filepath);
+	}
+
+	/**
+	 * getObjectFromHereAsync(StorableAsFile, Validator, Refactor, String)
+	 * Reads a file without blocking, then validates and refactors its contents and rebuilds the object from them on an I/O completion thread.
+	 *
+	 * @param object    The object to rebuild in - this may have its variables overwritten once the read completes
+	 * @param validator The validator to run on the object string (null if no validation is desired)
+	 * @param refactor  The refactor to run on the object string (null if no refactor is desired)
+	 * @param filepath  The path to and name of the file to pull the object from
+	 * @param <T>       The type of the object to rebuild
+	 * @return A future that completes with the rebuilt object, or completes exceptionally with the IOException or IllegalArgumentException that stopped it
+	 */
+	public <T extends StorableAsFile> CompletableFuture<T> getObjectFromHereAsync(T object, Validator validator, Refactor refactor, String filepath) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AsynchronousFileChannel channel;
+		ByteBuffer contents;
+		try {
+			channel = AsynchronousFileChannel.open(Paths.get(filepath), StandardOpenOption.READ);
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE - 8) {
+				channel.close();
+				throw new IOException("File too large to read: " + filepath);
+			}
+			contents = ByteBuffer.allocate((int) size);
+		} catch (NoSuchFileException e) {
+			System.err.println("Cannot read from '" + filepath + "': File not found.");
+			result.completeExceptionally(e);
+			return result;
+		} catch (IOException e) {
+			System.err.println("Cannot read from '" + filepath + "': IO error.");
+			result.completeExceptionally(e);
+			return result;
+		}
+
+		channel.read(contents, 0, 0L, new CompletionHandler<Integer, Long>() {
+			@Override
+			public void completed(Integer read, Long position) {
+				if (read != -1 && contents.hasRemaining()) {
+					channel.read(contents, position + read, position + read, this);
+					return;
+				}
+				try {
+					channel.close();
+					contents.flip();
+					getObject(object, validator, refactor, StandardCharsets.UTF_8.decode(contents).toString());
+					result.complete(object);
+				} catch (IOException e) {
+					failed(e, position);
+				} catch (RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public void failed(Throwable e, Long position) {
+				System.err.println("Cannot read from '" + filepath + "': IO error.");
+				try {
+					channel.close();
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
 }
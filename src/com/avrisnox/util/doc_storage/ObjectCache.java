@@ -0,0 +1,208 @@
+package com.avrisnox.util.doc_storage;
+
+import com.avrisnox.util.doc_storage.interfaces.Refactor;
+import com.avrisnox.util.doc_storage.interfaces.StorableAsFile;
+import com.avrisnox.util.doc_storage.interfaces.Validator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**ObjectCache
+ * Keeps recently loaded objects in memory so that reloading an unchanged file costs a single stat instead of a read, validation, refactor and rebuild.
+ * Each entry remembers the modification time and size its file had when it was loaded; if either has changed on disk, the entry is dropped and the file is loaded again.
+ * Entries are weighed by the size of their file, and the least recently used entries are evicted once the total weight passes the limit.
+ * NOTE: Every caller asking for the same file gets the same object back, so cached objects should be treated as read-only.
+ * NOTE: A file rewritten with the same size within the file system's timestamp resolution is not noticed; call invalidate(String) after such writes.
+ *
+ * @param <T> The type of the objects in the cache
+ */
+public class ObjectCache<T extends StorableAsFile> {
+	/* A loaded object and what its file looked like when it was loaded - due to its private nature, it has been left undocumented. */
+	private static class Cached<T> {
+		private T object;
+		private long modified;
+		private long size;
+
+		public Cached(T object, long modified, long size) {
+			this.object = object;
+			this.modified = modified;
+			this.size = size;
+		}
+	}
+
+	private final LinkedHashMap<String, Cached<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Supplier<T> factory;
+	private final Validator validator;
+	private final Refactor refactor;
+	private final long maxWeight;
+	private long weight = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long invalidations = 0;
+
+	/**
+	 * ObjectCache(Supplier, long)
+	 * Creates a cache that loads objects without validating or refactoring them.
+	 *
+	 * @param factory   Creates the empty objects that files are loaded into
+	 * @param maxWeight The total size in bytes of the files whose objects may be cached at once
+	 */
+	public ObjectCache(Supplier<T> factory, long maxWeight) {
+		this(factory, null, null, maxWeight);
+	}
+
+	/**
+	 * ObjectCache(Supplier, Validator, Refactor, long)
+	 * Creates a cache that validates and refactors the contents of each file as it is loaded.
+	 *
+	 * @param factory   Creates the empty objects that files are loaded into
+	 * @param validator The validator to run on each object string (null if no validation is desired)
+	 * @param refactor  The refactor to run on each object string (null if no refactor is desired)
+	 * @param maxWeight The total size in bytes of the files whose objects may be cached at once
+	 */
+	public ObjectCache(Supplier<T> factory, Validator validator, Refactor refactor, long maxWeight) {
+		this.factory = factory;
+		this.validator = validator;
+		this.refactor = refactor;
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * get(String)
+	 * Gets the object stored in the given file, loading it through FileFactory if it is not cached or its file has changed.
+	 *
+	 * @param filepath The path to and name of the file to pull the object from
+	 * @return The object stored in the file
+	 * @throws IOException              Thrown when the file could not be found or there was a generic IO error (see stderr for more info)
+	 * @throws IllegalArgumentException Thrown when the validator detects an invalid content string
+	 */
+	public T get(String filepath) throws IOException, IllegalArgumentException {
+		BasicFileAttributes before = Files.readAttributes(Paths.get(filepath), BasicFileAttributes.class);
+		long modified = before.lastModifiedTime().toMillis();
+		synchronized (this) {
+			Cached<T> cached = entries.get(filepath);
+			if (cached != null) {
+				if (cached.modified == modified && cached.size == before.size()) {
+					hits++;
+					return cached.object;
+				}
+				remove(filepath);
+				invalidations++;
+			}
+			misses++;
+		}
+
+		T object = factory.get();
+		FileFactory.getInstance().getObjectFromHere(object, validator, refactor, filepath);
+
+		BasicFileAttributes after = Files.readAttributes(Paths.get(filepath), BasicFileAttributes.class);
+		if (after.lastModifiedTime().toMillis() != modified || after.size() != before.size() || before.size() > maxWeight)
+			return object;
+		synchronized (this) {
+			Cached<T> replaced = entries.put(filepath, new Cached<>(object, modified, before.size()));
+			if (replaced != null) weight -= replaced.size;
+			weight += before.size();
+			Iterator<Map.Entry<String, Cached<T>>> eldest = entries.entrySet().iterator();
+			while (weight > maxWeight && eldest.hasNext()) {
+				weight -= eldest.next().getValue().size;
+				eldest.remove();
+				evictions++;
+			}
+		}
+		return object;
+	}
+
+	private void remove(String filepath) {
+		Cached<T> removed = entries.remove(filepath);
+		if (removed != null) weight -= removed.size;
+	}
+
+	/**
+	 * invalidate(String)
+	 * Drops the cached object for a file, so the next get(String) loads it again.
+	 *
+	 * @param filepath The path to and name of the file to drop
+	 */
+	public synchronized void invalidate(String filepath) {
+		if (entries.containsKey(filepath)) {
+			remove(filepath);
+			invalidations++;
+		}
+	}
+
+	/**
+	 * clear()
+	 * Drops every cached object; the counters are left as they are.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 * size()
+	 * Gets the number of cached objects.
+	 *
+	 * @return The number of cached objects
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * weight()
+	 * Gets the total size in bytes of the files whose objects are cached.
+	 *
+	 * @return The current weight of the cache
+	 */
+	public synchronized long weight() {
+		return weight;
+	}
+
+	/**
+	 * hits()
+	 * Gets the number of calls to get(String) that were answered from the cache.
+	 *
+	 * @return The number of hits
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * misses()
+	 * Gets the number of calls to get(String) that had to load the file.
+	 *
+	 * @return The number of misses
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * evictions()
+	 * Gets the number of objects dropped to keep the cache under its weight limit.
+	 *
+	 * @return The number of evictions
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * invalidations()
+	 * Gets the number of objects dropped because their file changed on disk or invalidate(String) was called.
+	 *
+	 * @return The number of invalidations
+	 */
+	public synchronized long invalidations() {
+		return invalidations;
+	}
+}
@@ -0,0 +1,451 @@
+package com.avrisnox.util.doc_storage;
+
+import com.avrisnox.util.doc_storage.interfaces.Refactor;
+import com.avrisnox.util.doc_storage.interfaces.StorableAsFile;
+import com.avrisnox.util.doc_storage.interfaces.ValidateAndRefactor;
+import com.avrisnox.util.doc_storage.interfaces.Validator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**ObjectContainer
+ * Stores many StorableAsFile objects in a single file, each under its own key.
+ * Objects are buffered and appended in batches, and an index of every key's offset is kept at the end of the file, so any single object can be read back with one positioned read.
+ * The file is only ever appended to: a flush writes the batch and a new index after the old index, forces them to disk, and only then writes the trailer that points at the new index. A crash part way through a flush leaves the old trailer as the last valid one, and opening the container discards whatever was written after it.
+ * Replacing or removing an object, and every index a flush leaves behind, wastes space in the file; compact() rewrites the file without it.
+ */
+public class ObjectContainer implements Closeable {
+	private static final long MAGIC = 0x4D4C4F424A435431L;
+	private static final int TRAILER = 16;
+	private static final int HEADER = 8;
+	private static final int BATCH_LIMIT = 1 << 20;
+	private static final int SCAN_CHUNK = 1 << 16;
+
+	/* Where one object lives, either in the file or in the pending batch - due to its private nature, it has been left undocumented. */
+	private static class Location {
+		private long offset;
+		private int length;
+		private boolean pending;
+
+		public Location(long offset, int length, boolean pending) {
+			this.offset = offset;
+			this.length = length;
+			this.pending = pending;
+		}
+	}
+
+	private final String filepath;
+	private FileChannel channel;
+	private Map<String, Location> index = new HashMap<>();
+	private BinaryBuffer batch = new BinaryBuffer(BATCH_LIMIT / 4);
+	private long end;
+	private long indexBytes;
+	private long wasted;
+	private boolean dirty;
+
+	/**
+	 * ObjectContainer(String)
+	 * Opens the container stored in the given file, creating an empty one if the file does not exist.
+	 *
+	 * @param filepath The path to and name of the container file
+	 * @throws IOException Thrown when the file could not be opened or is not a container (see stderr for more info)
+	 */
+	public ObjectContainer(String filepath) throws IOException {
+		this.filepath = filepath;
+		open();
+	}
+
+	private void open() throws IOException {
+		try {
+			channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+			if (channel.size() == 0) {
+				writeHeader();
+				writeIndex(HEADER);
+			} else readIndex();
+		} catch (IOException e) {
+			System.err.println("Cannot open container '" + filepath + "': IO error.");
+			if (channel != null) channel.close();
+			throw e;
+		}
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) == -1)
+				throw new IOException("Container '" + filepath + "' ended early.");
+		buffer.flip();
+	}
+
+	/* Finds the end of the last complete trailer, scanning back past an unfinished flush if there is one; -1 if there is none. */
+	private long findTrailer(long size) throws IOException {
+		if (indexAt(size) >= 0) return size;
+		ByteBuffer chunk = ByteBuffer.allocate(SCAN_CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+		for (long stop = size; stop >= HEADER + TRAILER; ) {
+			long start = Math.max(0, stop - SCAN_CHUNK);
+			chunk.clear().limit((int) (stop - start));
+			readFully(chunk, start);
+			for (int i = chunk.limit() - 4; i >= 0; i--)
+				if (chunk.getInt(i) == (int) MAGIC && indexAt(start + i + 4) >= 0) return start + i + 4;
+			// Chunks overlap by three bytes, so a magic number split across two of them is still seen
+			stop = start + 3;
+		}
+		return -1;
+	}
+
+	/* Gets the offset of the index described by a trailer ending at the given position, or -1 if there is no valid trailer there. */
+	private long indexAt(long trailerEnd) throws IOException {
+		if (trailerEnd < HEADER + TRAILER) return -1;
+		ByteBuffer trailer = ByteBuffer.allocate(TRAILER).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(trailer, trailerEnd - TRAILER);
+		long indexOffset = trailer.getLong();
+		int indexLength = trailer.getInt();
+		if (trailer.getInt() != (int) MAGIC || indexOffset < HEADER || indexLength < 8 || indexOffset + indexLength + TRAILER != trailerEnd) return -1;
+		ByteBuffer magic = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(magic, indexOffset);
+		return magic.getLong() == MAGIC ? indexOffset : -1;
+	}
+
+	private void readIndex() throws IOException {
+		long size = channel.size();
+		long trailerEnd = (size < HEADER + TRAILER ? -1 : findTrailer(size));
+		if (trailerEnd < 0) throw new IOException("Not a container: " + filepath);
+		if (trailerEnd < size) {
+			System.err.println("Container '" + filepath + "' ends in an unfinished flush; discarding its last " + (size - trailerEnd) + " bytes.");
+			channel.truncate(trailerEnd);
+			channel.force(false);
+		}
+		long indexOffset = indexAt(trailerEnd);
+		int indexLength = (int) (trailerEnd - TRAILER - indexOffset);
+
+		ByteBuffer raw = ByteBuffer.allocate(indexLength);
+		readFully(raw, indexOffset);
+		BinaryBuffer in = new BinaryBuffer(raw);
+		if (in.getLong() != MAGIC) throw new IOException("Not a container: " + filepath);
+		wasted = in.getVarLong();
+		int count = in.getVarInt();
+		for (int i = 0; i < count; i++) {
+			String key = in.getString();
+			index.put(key, new Location(in.getVarLong(), in.getVarInt(), false));
+		}
+		end = trailerEnd;
+		indexBytes = indexLength + TRAILER;
+	}
+
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN).putLong(0, MAGIC);
+		while (header.hasRemaining()) channel.write(header, header.position());
+	}
+
+	/* Writes the index at the given position and commits it: the index is forced to disk before the trailer that points at it is written. */
+	private void writeIndex(long position) throws IOException {
+		BinaryBuffer out = new BinaryBuffer(64 + index.size() * 32);
+		out.putLong(MAGIC).putVarLong(wasted).putVarInt(index.size());
+		for (Map.Entry<String, Location> entry : index.entrySet())
+			out.putString(entry.getKey()).putVarLong(entry.getValue().offset).putVarInt(entry.getValue().length);
+		ByteBuffer contents = out.buffer();
+		int indexLength = contents.position();
+		contents.flip();
+		long written = position;
+		while (contents.hasRemaining()) written += channel.write(contents, written);
+		channel.force(false);
+
+		ByteBuffer trailer = ByteBuffer.allocate(TRAILER).order(ByteOrder.LITTLE_ENDIAN).putLong(position).putInt(indexLength).putInt((int) MAGIC);
+		trailer.flip();
+		while (trailer.hasRemaining()) written += channel.write(trailer, written);
+		channel.truncate(written);
+		channel.force(false);
+		end = written;
+		indexBytes = indexLength + TRAILER;
+	}
+
+	/**
+	 * put(String, StorableAsFile)
+	 * Adds an object to the current batch without refactoring it, replacing whatever was stored under the key.
+	 *
+	 * @param key    The key to store the object under
+	 * @param object The object to store
+	 * @param <T>    The type of the object to store
+	 * @throws IOException Thrown when the batch was full and could not be flushed
+	 */
+	public <T extends StorableAsFile> void put(String key, T object) throws IOException {
+		put(key, object, null);
+	}
+
+	/**
+	 * put(String, StorableAsFile, Refactor)
+	 * Adds an object to the current batch after refactoring it, replacing whatever was stored under the key.
+	 * The batch is written out on flush(), on close(), or once it grows past 1MB.
+	 *
+	 * @param key      The key to store the object under
+	 * @param object   The object to store
+	 * @param refactor The refactor to run on the object string (null if no refactor is desired)
+	 * @param <T>      The type of the object to store
+	 * @throws IOException Thrown when the batch was full and could not be flushed
+	 */
+	public synchronized <T extends StorableAsFile> void put(String key, T object, Refactor refactor) throws IOException {
+		byte[] contents = FileFactory.getInstance().putObject(object, refactor).getBytes(StandardCharsets.UTF_8);
+		ByteBuffer pending = batch.ensure(contents.length).buffer();
+		Location previous = index.put(key, new Location(pending.position(), contents.length, true));
+		pending.put(contents);
+		if (previous != null) wasted += previous.length;
+		dirty = true;
+		if (pending.position() >= BATCH_LIMIT) flush();
+	}
+
+	/**
+	 * get(String, StorableAsFile)
+	 * Rebuilds an object from the container without refactoring or validating it.
+	 *
+	 * @param key    The key the object was stored under
+	 * @param object The object to rebuild in - this may have its variables overwritten
+	 * @param <T>    The type of the object to rebuild
+	 * @return True iff an object was stored under the key
+	 * @throws IOException Thrown when the container could not be read
+	 */
+	public <T extends StorableAsFile> boolean get(String key, T object) throws IOException {
+		return get(key, object, null, null);
+	}
+
+	/**
+	 * get(String, StorableAsFile, ValidateAndRefactor)
+	 * Rebuilds an object from the container after validating and refactoring it.
+	 * Uses a single object to perform both validation and refactorization.
+	 *
+	 * @param key    The key the object was stored under
+	 * @param object The object to rebuild in - this may have its variables overwritten
+	 * @param valref A single object that implements both Validator and Refactor methods (null if no validation AND no refactorization is desired)
+	 * @param <T>    The type of the object to rebuild
+	 * @return True iff an object was stored under the key
+	 * @throws IOException Thrown when the container could not be read
+	 */
+	public <T extends StorableAsFile> boolean get(String key, T object, ValidateAndRefactor valref) throws IOException {
+		return get(key, object, valref, valref);
+	}
+
+	/**
+	 * get(String, StorableAsFile, Validator, Refactor)
+	 * Rebuilds an object from the container after validating and refactoring it.
+	 * Objects that have already been flushed are read with a single positioned read; nothing else in the file is touched.
+	 *
+	 * @param key       The key the object was stored under
+	 * @param object    The object to rebuild in - this may have its variables overwritten
+	 * @param validator The validator to run on the object string (null if no validation is desired)
+	 * @param refactor  The refactor to run on the object string (null if no refactor is desired)
+	 * @param <T>       The type of the object to rebuild
+	 * @return True iff an object was stored under the key
+	 * @throws IOException              Thrown when the container could not be read
+	 * @throws IllegalArgumentException Thrown when validator detects an invalid content string
+	 */
+	public <T extends StorableAsFile> boolean get(String key, T object, Validator validator, Refactor refactor) throws IOException, IllegalArgumentException {
+		String contents;
+		synchronized (this) {
+			Location location = index.get(key);
+			if (location == null) return false;
+			ByteBuffer bytes = ByteBuffer.allocate(location.length);
+			if (location.pending) {
+				ByteBuffer pending = batch.buffer().duplicate();
+				pending.limit((int) location.offset + location.length).position((int) location.offset);
+				bytes.put(pending).flip();
+			} else readFully(bytes, location.offset);
+			contents = new String(bytes.array(), 0, location.length, StandardCharsets.UTF_8);
+		}
+		FileFactory.getInstance().getObject(object, validator, refactor, contents);
+		return true;
+	}
+
+	/**
+	 * contains(String)
+	 * Checks whether an object is stored under the key.
+	 *
+	 * @param key The key to look for
+	 * @return True iff an object is stored under the key, flushed or not
+	 */
+	public synchronized boolean contains(String key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * remove(String)
+	 * Removes the object stored under the key; the change is written out with the next flush.
+	 *
+	 * @param key The key to remove
+	 * @return True iff an object was stored under the key
+	 */
+	public synchronized boolean remove(String key) {
+		Location previous = index.remove(key);
+		if (previous == null) return false;
+		wasted += previous.length;
+		dirty = true;
+		return true;
+	}
+
+	/**
+	 * keys()
+	 * Gets a snapshot of every key in the container.
+	 *
+	 * @return The keys of every stored object
+	 */
+	public synchronized Set<String> keys() {
+		return new HashSet<>(index.keySet());
+	}
+
+	/**
+	 * size()
+	 * Gets the number of objects in the container.
+	 *
+	 * @return The number of stored objects
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * wasted()
+	 * Gets the number of bytes in the file taken up by objects that have since been replaced or removed, and by indexes that later flushes have superseded.
+	 *
+	 * @return The number of bytes compact() would reclaim
+	 */
+	public synchronized long wasted() {
+		return wasted;
+	}
+
+	/**
+	 * flush()
+	 * Appends the current batch and a new index to the file, and commits them once both are on disk; the old index is left behind as wasted space.
+	 * If the write fails, the batch is kept as it was, so nothing put since the last flush is lost and the flush can be tried again. Whatever was written lies past the last trailer, where it is overwritten by the next flush or discarded when the container is next opened.
+	 * Does nothing if nothing has been put or removed since the last flush.
+	 *
+	 * @throws IOException Thrown when the container could not be written to (see stderr for more info)
+	 */
+	public synchronized void flush() throws IOException {
+		if (!dirty) return;
+		ByteBuffer pending = batch.buffer();
+		int length = pending.position();
+		long oldEnd = end;
+		long oldWasted = wasted;
+		List<Location> flushed = new ArrayList<>();
+		pending.flip();
+		try {
+			long position = end;
+			while (pending.hasRemaining()) position += channel.write(pending, position);
+			for (Location location : index.values())
+				if (location.pending) {
+					location.offset += oldEnd;
+					location.pending = false;
+					flushed.add(location);
+				}
+			wasted += indexBytes;
+			writeIndex(position);
+		} catch (IOException e) {
+			System.err.println("Cannot write to container '" + filepath + "': IO error.");
+			for (Location location : flushed) {
+				location.offset -= oldEnd;
+				location.pending = true;
+			}
+			end = oldEnd;
+			wasted = oldWasted;
+			pending.clear();
+			pending.position(length);
+			throw e;
+		}
+		batch.clear();
+		dirty = false;
+	}
+
+	/**
+	 * compact()
+	 * Rewrites the container without the bytes of replaced and removed objects and of superseded indexes.
+	 * The new file is written alongside the old one and moved over it once complete; if anything fails before the move, the container carries on with the old file as if compact() had not been called.
+	 *
+	 * @throws IOException Thrown when the container could not be rewritten (see stderr for more info)
+	 */
+	public synchronized void compact() throws IOException {
+		flush();
+		Path source = Paths.get(filepath);
+		Path temp = Paths.get(filepath.concat(".compact"));
+		List<Location> live = new ArrayList<>(index.values());
+		live.sort(Comparator.comparingLong(location -> location.offset));
+		long[] offsets = new long[live.size()];
+		long oldEnd = end;
+		long oldIndexBytes = indexBytes;
+		long oldWasted = wasted;
+		FileChannel old = channel;
+		FileChannel out = null;
+		boolean swapped = false;
+		boolean moved = false;
+		try {
+			out = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			long position = HEADER;
+			for (int i = 0; i < offsets.length; i++) {
+				Location location = live.get(i);
+				long copied = 0;
+				while (copied < location.length)
+					copied += old.transferTo(location.offset + copied, location.length - copied, out.position(position + copied));
+				offsets[i] = position;
+				position += location.length;
+			}
+
+			for (int i = 0; i < offsets.length; i++) {
+				long previous = live.get(i).offset;
+				live.get(i).offset = offsets[i];
+				offsets[i] = previous;
+			}
+			swapped = true;
+			channel = out;
+			wasted = 0;
+			writeHeader();
+			writeIndex(position);
+
+			// Both files are closed before the move, as some platforms refuse to move over a file that is open
+			out.close();
+			old.close();
+			Files.move(temp, source, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			moved = true;
+			channel = FileChannel.open(source, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		} catch (IOException e) {
+			System.err.println("Cannot compact container '" + filepath + "': IO error.");
+			if (out != null) out.close();
+			if (!moved) {
+				// The old file is untouched, so go back to it and the offsets that match it
+				if (swapped)
+					for (int i = 0; i < offsets.length; i++)
+						live.get(i).offset = offsets[i];
+				end = oldEnd;
+				indexBytes = oldIndexBytes;
+				wasted = oldWasted;
+				channel = old;
+				Files.deleteIfExists(temp);
+			}
+			if (!channel.isOpen()) {
+				try {
+					channel = FileChannel.open(source, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				} catch (IOException reopen) {
+					e.addSuppressed(reopen);
+				}
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * close()
+	 * Flushes the current batch and closes the container file.
+	 *
+	 * @throws IOException Thrown when the container could not be written to
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!channel.isOpen()) return;
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
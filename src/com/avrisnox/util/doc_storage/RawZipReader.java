@@ -0,0 +1,168 @@
+package com.avrisnox.util.doc_storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**RawZipReader
+ * Reads the central directory of an existing zip archive and hands out its entries' compressed data as-is.
+ * Paired with RawZipWriter, this lets an unchanged entry move from one archive to the next without being inflated and deflated again.
+ */
+class RawZipReader implements Closeable {
+	private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+
+	/**Entry
+	 * Everything needed to copy one entry's compressed data into another archive.
+	 */
+	static class Entry {
+		int method;
+		long dosTime;
+		long crc;
+		long compressed;
+		long size;
+		private long offset;
+	}
+
+	/* Reads from the shared channel at its own position, and leaves the channel open when closed. */
+	private class EntryStream extends InputStream {
+		private long position;
+
+		public EntryStream(long position) {
+			this.position = position;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return (read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF);
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int inc = channel.read(ByteBuffer.wrap(buffer, offset, length), position);
+			if (inc > 0) position += inc;
+			return inc;
+		}
+	}
+
+	private final FileChannel channel;
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	/**
+	 * RawZipReader(Path)
+	 * Opens an archive and reads its central directory.
+	 *
+	 * @param archive The archive to read
+	 * @throws IOException Thrown when the archive could not be read or is not a zip archive
+	 */
+	RawZipReader(Path archive) throws IOException {
+		channel = FileChannel.open(archive, StandardOpenOption.READ);
+		try {
+			readDirectory();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) == -1)
+				throw new EOFException("Zip archive ended early.");
+		buffer.flip();
+		return buffer;
+	}
+
+	private void readDirectory() throws IOException {
+		long size = channel.size();
+		int tail = (int) Math.min(size, 0xFFFF + 22);
+		ByteBuffer end = read(size - tail, tail);
+		int found = -1;
+		for (int i = tail - 22; i >= 0 && found == -1; i--)
+			if (end.getInt(i) == 0x06054b50) found = i;
+		if (found == -1) throw new IOException("Not a zip archive: end of central directory missing.");
+
+		long count = end.getShort(found + 10) & 0xFFFF;
+		long start = end.getInt(found + 16) & ZIP64_LIMIT;
+		if (count == 0xFFFF || start == ZIP64_LIMIT) {
+			long locator = size - tail + found - 20;
+			ByteBuffer zip64 = read(read(locator, 20).getLong(8), 56);
+			if (zip64.getInt(0) != 0x06064b50) throw new IOException("Not a zip archive: Zip64 record missing.");
+			count = zip64.getLong(32);
+			start = zip64.getLong(48);
+		}
+
+		ByteBuffer directory = read(start, (int) (size - start));
+		for (long i = 0; i < count; i++) {
+			if (directory.getInt() != 0x02014b50) throw new IOException("Not a zip archive: bad central directory.");
+			directory.position(directory.position() + 6);
+			Entry entry = new Entry();
+			entry.method = directory.getShort() & 0xFFFF;
+			entry.dosTime = directory.getInt() & ZIP64_LIMIT;
+			entry.crc = directory.getInt() & ZIP64_LIMIT;
+			entry.compressed = directory.getInt() & ZIP64_LIMIT;
+			entry.size = directory.getInt() & ZIP64_LIMIT;
+			int nameLength = directory.getShort() & 0xFFFF;
+			int extraLength = directory.getShort() & 0xFFFF;
+			int commentLength = directory.getShort() & 0xFFFF;
+			directory.position(directory.position() + 8);
+			entry.offset = directory.getInt() & ZIP64_LIMIT;
+			byte[] name = new byte[nameLength];
+			directory.get(name);
+
+			int extraEnd = directory.position() + extraLength;
+			while (directory.position() + 4 <= extraEnd) {
+				int tag = directory.getShort() & 0xFFFF;
+				int length = directory.getShort() & 0xFFFF;
+				int next = directory.position() + length;
+				if (tag == 0x0001) {
+					if (entry.size == ZIP64_LIMIT) entry.size = directory.getLong();
+					if (entry.compressed == ZIP64_LIMIT) entry.compressed = directory.getLong();
+					if (entry.offset == ZIP64_LIMIT) entry.offset = directory.getLong();
+				}
+				directory.position(next);
+			}
+			directory.position(extraEnd + commentLength);
+			entries.put(new String(name, StandardCharsets.UTF_8), entry);
+		}
+	}
+
+	/**
+	 * get(String)
+	 * Looks up an entry by name.
+	 *
+	 * @param name The name of the entry inside the archive
+	 * @return The entry, or null if the archive has no entry by that name
+	 */
+	Entry get(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * open(Entry)
+	 * Opens the compressed data of an entry.
+	 * The stream reads from this reader's channel, so it must not outlive the reader; closing it leaves the reader open.
+	 *
+	 * @param entry An entry from this archive
+	 * @return A stream positioned at the start of the entry's compressed data
+	 * @throws IOException Thrown when the archive could not be read
+	 */
+	InputStream open(Entry entry) throws IOException {
+		ByteBuffer local = read(entry.offset, 30);
+		if (local.getInt(0) != 0x04034b50) throw new IOException("Not a zip archive: bad local header.");
+		long data = entry.offset + 30 + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+		return new EntryStream(data);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
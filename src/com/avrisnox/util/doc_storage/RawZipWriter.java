@@ -0,0 +1,283 @@
+package com.avrisnox.util.doc_storage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**RawZipWriter
+ * Writes a zip archive entry by entry from data that has already been compressed elsewhere.
+ * ZipOutputStream insists on compressing every entry itself, one at a time; this lets FileAccessoryFactory deflate entries on other threads (or reuse them from an older archive) and only serialize the final write.
+ * Zip64 records are added automatically whenever a size, offset or entry count no longer fits in the classic format.
+ */
+class RawZipWriter implements Closeable {
+	private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+	private static final int FLAG_DESCRIPTOR = 0x08;
+	private static final int FLAG_UTF8 = 0x800;
+
+	/* Everything the central directory needs to know about an entry once it has been written. */
+	private static class Written {
+		byte[] name;
+		int flags;
+		int method;
+		long dosTime;
+		long crc;
+		long compressed;
+		long size;
+		long offset;
+	}
+
+	private final DataOutputStream out;
+	private final List<Written> entries = new ArrayList<>();
+	private long offset = 0;
+
+	/**
+	 * RawZipWriter(OutputStream)
+	 * Starts a new archive on the given stream.
+	 *
+	 * @param output The stream to write the archive to - this is closed along with the writer
+	 */
+	RawZipWriter(OutputStream output) {
+		this.out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+	}
+
+	/**
+	 * dosTime(long)
+	 * Converts a time in milliseconds since the epoch to the MS-DOS date and time used by zip headers.
+	 *
+	 * @param millis The time to convert
+	 * @return The packed date (upper 16 bits) and time (lower 16 bits)
+	 */
+	static long dosTime(long millis) {
+		LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+		if (time.getYear() < 1980) return (1 << 21) | (1 << 16);
+		return ((long) (time.getYear() - 1980) << 25) | (time.getMonthValue() << 21) | (time.getDayOfMonth() << 16)
+				| (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+	}
+
+	/**
+	 * writeEntry(String, long, int, long, long, byte[], int)
+	 * Writes an entry whose data has already been produced in full.
+	 *
+	 * @param name       The name of the entry inside the archive
+	 * @param dosTime    The modification time of the entry, as produced by dosTime(long)
+	 * @param method     ZipEntry.DEFLATED for raw deflate data, or ZipEntry.STORED
+	 * @param crc        The CRC-32 of the uncompressed data
+	 * @param size       The length of the uncompressed data
+	 * @param data       The entry data, already compressed with method
+	 * @param length     The number of bytes of data to write
+	 * @throws IOException Thrown when the archive could not be written to
+	 */
+	void writeEntry(String name, long dosTime, int method, long crc, long size, byte[] data, int length) throws IOException {
+		beginEntry(name, dosTime, method, crc, length, size);
+		out.write(data, 0, length);
+		offset += length;
+	}
+
+	/**
+	 * copyEntry(String, long, int, long, long, long, InputStream, byte[])
+	 * Writes an entry by copying its compressed data from another stream without decompressing it.
+	 *
+	 * @param name       The name of the entry inside the archive
+	 * @param dosTime    The modification time of the entry, as produced by dosTime(long)
+	 * @param method     The compression method the data was written with
+	 * @param crc        The CRC-32 of the uncompressed data
+	 * @param compressed The length of the compressed data
+	 * @param size       The length of the uncompressed data
+	 * @param data       A stream positioned at the start of the compressed data
+	 * @param buffer     A scratch buffer to copy through
+	 * @throws IOException Thrown when the data could not be read or the archive could not be written to
+	 */
+	void copyEntry(String name, long dosTime, int method, long crc, long compressed, long size, InputStream data, byte[] buffer) throws IOException {
+		beginEntry(name, dosTime, method, crc, compressed, size);
+		long left = compressed;
+		while (left > 0) {
+			int inc = data.read(buffer, 0, (int) Math.min(left, buffer.length));
+			if (inc == -1) throw new EOFException("Entry '" + name + "' ended early.");
+			out.write(buffer, 0, inc);
+			left -= inc;
+		}
+		offset += compressed;
+	}
+
+	/**
+	 * deflateEntry(String, long, InputStream, long, Deflater, byte[], byte[])
+	 * Compresses an entry straight from its source into the archive, so only the two fixed-size buffers are ever held in memory.
+	 * As the sizes and CRC are not known up front, they follow the data in a data descriptor.
+	 *
+	 * @param name         The name of the entry inside the archive
+	 * @param dosTime      The modification time of the entry, as produced by dosTime(long)
+	 * @param source       The uncompressed data
+	 * @param expectedSize The expected length of the uncompressed data; used to decide whether Zip64 sizes are needed
+	 * @param deflater     A raw (nowrap) deflater, which is reset before use
+	 * @param input        A scratch buffer to read the source through
+	 * @param output       A scratch buffer to compress through
+	 * @return The CRC-32 of the uncompressed data
+	 * @throws IOException Thrown when the source could not be read or the archive could not be written to
+	 */
+	long deflateEntry(String name, long dosTime, InputStream source, long expectedSize, Deflater deflater, byte[] input, byte[] output) throws IOException {
+		Written entry = header(name, dosTime, java.util.zip.ZipEntry.DEFLATED, FLAG_DESCRIPTOR);
+		boolean zip64 = expectedSize + (expectedSize >> 8) + (1 << 16) >= ZIP64_LIMIT;
+		writeLocal(entry, zip64, 0, 0, 0);
+
+		CRC32 crc = new CRC32();
+		deflater.reset();
+		long size = 0;
+		long compressed = 0;
+		int inc;
+		while ((inc = source.read(input)) != -1) {
+			crc.update(input, 0, inc);
+			size += inc;
+			deflater.setInput(input, 0, inc);
+			while (!deflater.needsInput())
+				compressed += drain(deflater, output);
+		}
+		deflater.finish();
+		while (!deflater.finished())
+			compressed += drain(deflater, output);
+
+		entry.crc = crc.getValue();
+		entry.compressed = compressed;
+		entry.size = size;
+		if (!zip64 && (size >= ZIP64_LIMIT || compressed >= ZIP64_LIMIT))
+			throw new IOException("Entry '" + name + "' grew past the size it was opened with.");
+		out.writeInt(Integer.reverseBytes(0x08074b50));
+		out.writeInt(Integer.reverseBytes((int) entry.crc));
+		if (zip64) {
+			out.writeLong(Long.reverseBytes(compressed));
+			out.writeLong(Long.reverseBytes(size));
+			offset += 24;
+		} else {
+			out.writeInt(Integer.reverseBytes((int) compressed));
+			out.writeInt(Integer.reverseBytes((int) size));
+			offset += 16;
+		}
+		return entry.crc;
+	}
+
+	private int drain(Deflater deflater, byte[] output) throws IOException {
+		int inc = deflater.deflate(output);
+		out.write(output, 0, inc);
+		offset += inc;
+		return inc;
+	}
+
+	private Written header(String name, long dosTime, int method, int flags) {
+		Written entry = new Written();
+		entry.name = name.getBytes(StandardCharsets.UTF_8);
+		entry.flags = flags | FLAG_UTF8;
+		entry.method = method;
+		entry.dosTime = dosTime;
+		entry.offset = offset;
+		entries.add(entry);
+		return entry;
+	}
+
+	private void beginEntry(String name, long dosTime, int method, long crc, long compressed, long size) throws IOException {
+		Written entry = header(name, dosTime, method, 0);
+		entry.crc = crc;
+		entry.compressed = compressed;
+		entry.size = size;
+		writeLocal(entry, compressed >= ZIP64_LIMIT || size >= ZIP64_LIMIT, crc, compressed, size);
+	}
+
+	private void writeLocal(Written entry, boolean zip64, long crc, long compressed, long size) throws IOException {
+		out.writeInt(Integer.reverseBytes(0x04034b50));
+		out.writeShort(Short.reverseBytes((short) (zip64 ? 45 : 20)));
+		out.writeShort(Short.reverseBytes((short) entry.flags));
+		out.writeShort(Short.reverseBytes((short) entry.method));
+		out.writeInt(Integer.reverseBytes((int) entry.dosTime));
+		out.writeInt(Integer.reverseBytes((int) crc));
+		out.writeInt(Integer.reverseBytes((int) (zip64 ? ZIP64_LIMIT : compressed)));
+		out.writeInt(Integer.reverseBytes((int) (zip64 ? ZIP64_LIMIT : size)));
+		out.writeShort(Short.reverseBytes((short) entry.name.length));
+		out.writeShort(Short.reverseBytes((short) (zip64 ? 20 : 0)));
+		out.write(entry.name);
+		offset += 30 + entry.name.length;
+		if (zip64) {
+			out.writeShort(Short.reverseBytes((short) 0x0001));
+			out.writeShort(Short.reverseBytes((short) 16));
+			out.writeLong(Long.reverseBytes(size));
+			out.writeLong(Long.reverseBytes(compressed));
+			offset += 20;
+		}
+	}
+
+	/**
+	 * close()
+	 * Writes the central directory and closes the underlying stream.
+	 *
+	 * @throws IOException Thrown when the archive could not be written to
+	 */
+	@Override
+	public void close() throws IOException {
+		long start = offset;
+		for (Written entry : entries) {
+			boolean bigSize = entry.size >= ZIP64_LIMIT;
+			boolean bigCompressed = entry.compressed >= ZIP64_LIMIT;
+			boolean bigOffset = entry.offset >= ZIP64_LIMIT;
+			int extra = (bigSize ? 8 : 0) + (bigCompressed ? 8 : 0) + (bigOffset ? 8 : 0);
+			boolean zip64 = extra > 0;
+
+			out.writeInt(Integer.reverseBytes(0x02014b50));
+			out.writeShort(Short.reverseBytes((short) (zip64 ? 45 : 20)));
+			out.writeShort(Short.reverseBytes((short) (zip64 ? 45 : 20)));
+			out.writeShort(Short.reverseBytes((short) entry.flags));
+			out.writeShort(Short.reverseBytes((short) entry.method));
+			out.writeInt(Integer.reverseBytes((int) entry.dosTime));
+			out.writeInt(Integer.reverseBytes((int) entry.crc));
+			out.writeInt(Integer.reverseBytes((int) (bigCompressed ? ZIP64_LIMIT : entry.compressed)));
+			out.writeInt(Integer.reverseBytes((int) (bigSize ? ZIP64_LIMIT : entry.size)));
+			out.writeShort(Short.reverseBytes((short) entry.name.length));
+			out.writeShort(Short.reverseBytes((short) (zip64 ? extra + 4 : 0)));
+			out.writeShort(0);
+			out.writeShort(0);
+			out.writeShort(0);
+			out.writeInt(0);
+			out.writeInt(Integer.reverseBytes((int) (bigOffset ? ZIP64_LIMIT : entry.offset)));
+			out.write(entry.name);
+			offset += 46 + entry.name.length;
+			if (zip64) {
+				out.writeShort(Short.reverseBytes((short) 0x0001));
+				out.writeShort(Short.reverseBytes((short) extra));
+				if (bigSize) out.writeLong(Long.reverseBytes(entry.size));
+				if (bigCompressed) out.writeLong(Long.reverseBytes(entry.compressed));
+				if (bigOffset) out.writeLong(Long.reverseBytes(entry.offset));
+				offset += 4 + extra;
+			}
+		}
+		long length = offset - start;
+
+		if (entries.size() >= 0xFFFF || start >= ZIP64_LIMIT || length >= ZIP64_LIMIT) {
+			long record = offset;
+			out.writeInt(Integer.reverseBytes(0x06064b50));
+			out.writeLong(Long.reverseBytes(44));
+			out.writeShort(Short.reverseBytes((short) 45));
+			out.writeShort(Short.reverseBytes((short) 45));
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeLong(Long.reverseBytes(entries.size()));
+			out.writeLong(Long.reverseBytes(entries.size()));
+			out.writeLong(Long.reverseBytes(length));
+			out.writeLong(Long.reverseBytes(start));
+			out.writeInt(Integer.reverseBytes(0x07064b50));
+			out.writeInt(0);
+			out.writeLong(Long.reverseBytes(record));
+			out.writeInt(Integer.reverseBytes(1));
+		}
+		out.writeInt(Integer.reverseBytes(0x06054b50));
+		out.writeShort(0);
+		out.writeShort(0);
+		out.writeShort(Short.reverseBytes((short) Math.min(entries.size(), 0xFFFF)));
+		out.writeShort(Short.reverseBytes((short) Math.min(entries.size(), 0xFFFF)));
+		out.writeInt(Integer.reverseBytes((int) Math.min(length, ZIP64_LIMIT)));
+		out.writeInt(Integer.reverseBytes((int) Math.min(start, ZIP64_LIMIT)));
+		out.writeShort(0);
+		out.close();
+	}
+}
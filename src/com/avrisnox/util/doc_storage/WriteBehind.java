@@ -0,0 +1,226 @@
+package com.avrisnox.util.doc_storage;
+
+import com.avrisnox.util.doc_storage.interfaces.Refactor;
+import com.avrisnox.util.doc_storage.interfaces.StorableAsFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**WriteBehind
+ * A bounded queue of saves that a background thread writes out through FileFactory, so the saving thread never waits on the disk.
+ * Saving to a path that is still waiting in the queue replaces the queued contents instead of adding another write; only the latest contents are written.
+ * When the queue is full, save() blocks until there is room.
+ * NOTE: The background thread is a daemon; call flush() or close() before shutting down, or queued saves are lost.
+ */
+public class WriteBehind implements Closeable {
+	/* A save waiting in the queue - due to its private nature, it has been left undocumented. */
+	private static class Pending {
+		private String contents;
+		private CompletableFuture<Void> done = new CompletableFuture<>();
+
+		public Pending(String contents) {
+			this.contents = contents;
+		}
+	}
+
+	private final LinkedHashMap<String, Pending> queue = new LinkedHashMap<>();
+	private final int capacity;
+	private final Thread writer;
+	private boolean closed = false;
+	private long enqueued = 0;
+	private long written = 0;
+	private long coalesced = 0;
+
+	/**
+	 * WriteBehind(int)
+	 * Creates a queue and starts its background writer.
+	 *
+	 * @param capacity The number of distinct paths that may wait in the queue before save() blocks
+	 */
+	public WriteBehind(int capacity) {
+		if (capacity < 1) throw new IllegalArgumentException("WriteBehind capacity must be at least 1.");
+		this.capacity = capacity;
+		this.writer = new Thread(this::drain, "WriteBehind");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * save(StorableAsFile, String)
+	 * Queues an object to be stored in the given file without refactoring the string.
+	 *
+	 * @param object   The object to store; it is converted to a string before this returns, so it may be changed afterwards
+	 * @param filepath The path to and name of the file to store the object in
+	 * @param <T>      The type of the object to store
+	 * @return A future that completes once the file has been written
+	 * @throws InterruptedException Thrown when interrupted while waiting for room in the queue
+	 */
+	public <T extends StorableAsFile> CompletableFuture<Void> save(T object, String filepath) throws InterruptedException {
+		return save(object, null, filepath);
+	}
+
+	/**
+	 * save(StorableAsFile, Refactor, String)
+	 * Queues an object to be stored in the given file after refactoring the string, blocking while the queue is full.
+	 *
+	 * @param object   The object to store; it is converted to a string before this returns, so it may be changed afterwards
+	 * @param refactor The refactor to run on the object string (null if no refactor is desired)
+	 * @param filepath The path to and name of the file to store the object in
+	 * @param <T>      The type of the object to store
+	 * @return A future that completes once the file has been written, or completes exceptionally with the IOException that stopped it
+	 * @throws InterruptedException  Thrown when interrupted while waiting for room in the queue
+	 * @throws IllegalStateException Thrown when the queue has been closed
+	 */
+	public <T extends StorableAsFile> CompletableFuture<Void> save(T object, Refactor refactor, String filepath) throws InterruptedException, IllegalStateException {
+		return save(object, refactor, filepath, -1);
+	}
+
+	/**
+	 * trySave(StorableAsFile, Refactor, String, long, TimeUnit)
+	 * Queues an object to be stored in the given file after refactoring the string, giving up if the queue stays full for too long.
+	 *
+	 * @param object   The object to store; it is converted to a string before this returns, so it may be changed afterwards
+	 * @param refactor The refactor to run on the object string (null if no refactor is desired)
+	 * @param filepath The path to and name of the file to store the object in
+	 * @param timeout  How long to wait for room in the queue
+	 * @param unit     The unit of timeout
+	 * @param <T>      The type of the object to store
+	 * @return A future that completes once the file has been written, or null if the queue stayed full
+	 * @throws InterruptedException  Thrown when interrupted while waiting for room in the queue
+	 * @throws IllegalStateException Thrown when the queue has been closed
+	 */
+	public <T extends StorableAsFile> CompletableFuture<Void> trySave(T object, Refactor refactor, String filepath, long timeout, TimeUnit unit) throws InterruptedException, IllegalStateException {
+		return save(object, refactor, filepath, Math.max(unit.toNanos(timeout), 0));
+	}
+
+	private <T extends StorableAsFile> CompletableFuture<Void> save(T object, Refactor refactor, String filepath, long timeout) throws InterruptedException {
+		String contents = FileFactory.getInstance().putObject(object, refactor);
+		long deadline = System.nanoTime() + timeout;
+		synchronized (this) {
+			if (closed) throw new IllegalStateException("WriteBehind is closed.");
+			Pending pending = queue.get(filepath);
+			if (pending != null) {
+				pending.contents = contents;
+				coalesced++;
+				return pending.done;
+			}
+
+			while (queue.size() >= capacity && !closed) {
+				if (timeout < 0) wait();
+				else {
+					long left = deadline - System.nanoTime();
+					if (left <= 0) return null;
+					TimeUnit.NANOSECONDS.timedWait(this, left);
+				}
+				pending = queue.get(filepath);
+				if (pending != null) {
+					pending.contents = contents;
+					coalesced++;
+					return pending.done;
+				}
+			}
+			if (closed) throw new IllegalStateException("WriteBehind is closed.");
+
+			pending = new Pending(contents);
+			queue.put(filepath, pending);
+			enqueued++;
+			notifyAll();
+			return pending.done;
+		}
+	}
+
+	/* Runs on the background thread; writes the oldest queued save until the queue is closed and empty. */
+	private void drain() {
+		while (true) {
+			String filepath;
+			Pending pending;
+			synchronized (this) {
+				while (queue.isEmpty() && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// Only close() stops the writer, so that nothing queued is lost.
+					}
+				}
+				if (queue.isEmpty()) return;
+				Iterator<Map.Entry<String, Pending>> oldest = queue.entrySet().iterator();
+				Map.Entry<String, Pending> entry = oldest.next();
+				oldest.remove();
+				filepath = entry.getKey();
+				pending = entry.getValue();
+				notifyAll();
+			}
+
+			try {
+				FileFactory.getInstance().putContentsToHere(pending.contents, filepath);
+				pending.done.complete(null);
+			} catch (IOException | RuntimeException e) {
+				pending.done.completeExceptionally(e);
+			}
+
+			synchronized (this) {
+				written++;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * pending()
+	 * Gets the number of saves waiting in the queue.
+	 *
+	 * @return The number of distinct paths waiting to be written
+	 */
+	public synchronized int pending() {
+		return queue.size();
+	}
+
+	/**
+	 * coalesced()
+	 * Gets the number of saves that replaced a save still waiting in the queue instead of adding another write.
+	 *
+	 * @return The number of writes saved by coalescing
+	 */
+	public synchronized long coalesced() {
+		return coalesced;
+	}
+
+	/**
+	 * flush()
+	 * Blocks until every save queued before this call has been written (or has failed).
+	 *
+	 * @throws InterruptedException Thrown when interrupted while waiting
+	 */
+	public synchronized void flush() throws InterruptedException {
+		long target = enqueued;
+		while (written < target)
+			wait();
+	}
+
+	/**
+	 * close()
+	 * Stops accepting saves, then blocks until everything already queued has been written and the background writer has stopped.
+	 * Interrupting the closing thread does not cut this short; its interrupt status is restored once the queue is empty.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		boolean interrupted = false;
+		while (writer.isAlive()) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+}
@@ -0,0 +1,76 @@
+package com.avrisnox.util.doc_storage;
+
+import com.avrisnox.util.doc_storage.interfaces.StorableAsFile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**ZipManifest
+ * Remembers the size, modification time and CRC-32 of every file that went into an archive, so the next incremental zip can tell which entries are still current.
+ * Stored next to the archive through FileFactory, one line per entry.
+ */
+class ZipManifest implements StorableAsFile {
+	/**Record
+	 * What a single file looked like when it was last archived.
+	 */
+	static class Record {
+		long size;
+		long modified;
+		long crc;
+
+		Record(long size, long modified, long crc) {
+			this.size = size;
+			this.modified = modified;
+			this.crc = crc;
+		}
+	}
+
+	private final Map<String, Record> records = new LinkedHashMap<>();
+
+	/**
+	 * get(String)
+	 * Looks up the record for an entry.
+	 *
+	 * @param name The name of the entry inside the archive
+	 * @return The record, or null if the entry was not in the last archive
+	 */
+	Record get(String name) {
+		return records.get(name);
+	}
+
+	/**
+	 * put(String, long, long, long)
+	 * Records what an entry looked like as it was archived.
+	 *
+	 * @param name     The name of the entry inside the archive
+	 * @param size     The size of the file in bytes
+	 * @param modified The modification time of the file in milliseconds since the epoch
+	 * @param crc      The CRC-32 of the file's contents
+	 */
+	void put(String name, long size, long modified, long crc) {
+		records.put(name, new Record(size, modified, crc));
+	}
+
+	@Override
+	public String toFile() {
+		StringBuilder str = new StringBuilder();
+		for (Map.Entry<String, Record> entry : records.entrySet()) {
+			Record record = entry.getValue();
+			str.append(Long.toHexString(record.crc)).append('\t')
+					.append(record.size).append('\t')
+					.append(record.modified).append('\t')
+					.append(entry.getKey()).append('\n');
+		}
+		return str.toString();
+	}
+
+	@Override
+	public void fromFile(String filestring) {
+		records.clear();
+		for (String line : filestring.split("\n")) {
+			String[] fields = line.split("\t", 4);
+			if (fields.length == 4)
+				put(fields[3], Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[0], 16));
+		}
+	}
+}
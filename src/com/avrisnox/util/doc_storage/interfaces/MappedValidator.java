@@ -0,0 +1,18 @@
+package com.avrisnox.util.doc_storage.interfaces;
+
+import java.nio.ByteBuffer;
+
+/**MappedValidator
+ * Used to prevent invalid memory-mapped files from causing bad behavior.
+ * Only the header region of the file is handed over, so pages past it are never touched by validation.
+ */
+public interface MappedValidator {
+	/**
+	 * validate(ByteBuffer)
+	 * Runs some validation on the header of the file to ensure it is a valid file for the desired object type.
+	 *
+	 * @param header A read-only view of the first bytes of the file; this may be shorter than requested if the file is small
+	 * @return True iff the header belongs to a valid object of the desired type
+	 */
+	boolean validate(ByteBuffer header);
+}
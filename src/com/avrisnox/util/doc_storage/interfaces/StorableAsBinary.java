@@ -0,0 +1,26 @@
+package com.avrisnox.util.doc_storage.interfaces;
+
+import com.avrisnox.util.doc_storage.BinaryBuffer;
+
+/**StorableAsBinary
+ * Any object that implements this interface can make use of FileFactory to write its fields out as compact binary instead of as a string.
+ * Likewise, an object that implements this interface may rebuild itself by reading its fields back in the same order.
+ */
+public interface StorableAsBinary {
+	/**
+	 * toBinary(BinaryBuffer)
+	 * Writes the fields representing this object to the given buffer.
+	 *
+	 * @param output The buffer to write the fields to; it is reused between calls, so it should not be kept
+	 */
+	void toBinary(BinaryBuffer output);
+
+	/**
+	 * fromBinary(BinaryBuffer)
+	 * Rebuilds this object by reading its fields from the given buffer, in the order toBinary wrote them.
+	 * NOTE: Only the framing is checked; the fields themselves are not guaranteed to be valid.
+	 *
+	 * @param input The buffer to read the fields from; it is reused between calls, so it should not be kept
+	 */
+	void fromBinary(BinaryBuffer input);
+}
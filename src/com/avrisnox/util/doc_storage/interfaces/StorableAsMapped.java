@@ -0,0 +1,19 @@
+package com.avrisnox.util.doc_storage.interfaces;
+
+import java.nio.ByteBuffer;
+
+/**StorableAsMapped
+ * Any object that implements this interface can be rebuilt by FileFactory directly from a memory-mapped view of its file.
+ * Nothing is decoded or copied up front; the object decides which parts of the file to look at and when, so large read-mostly documents can be parsed lazily.
+ */
+public interface StorableAsMapped {
+	/**
+	 * fromMapped(ByteBuffer)
+	 * Rebuilds this object from a read-only view of the file's bytes.
+	 * The view stays valid after this call returns, so it may be kept and read from later; ByteCharSequence.of(ByteBuffer) gives it as characters.
+	 * NOTE: Without a validator, the contents are not guaranteed to be valid.
+	 *
+	 * @param contents A read-only view of the entire file, positioned at its start
+	 */
+	void fromMapped(ByteBuffer contents);
+}
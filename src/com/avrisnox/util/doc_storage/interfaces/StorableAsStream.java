@@ -0,0 +1,31 @@
+package com.avrisnox.util.doc_storage.interfaces;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**StorableAsStream
+ * The streaming counterpart of StorableAsFile; any object that implements this interface can make use of FileFactory to write itself out in pieces.
+ * Likewise, an object that implements this interface may rebuild itself by reading its contents in pieces, so the full document never has to exist as a single string.
+ */
+public interface StorableAsStream {
+	/**
+	 * toStream(Writer)
+	 * Writes the contents representing this object to the given writer.
+	 * NOTE: The writer is owned by the caller and should not be closed here.
+	 *
+	 * @param output The writer to send the contents of this object to
+	 * @throws IOException Thrown when the writer fails
+	 */
+	void toStream(Writer output) throws IOException;
+
+	/**
+	 * fromStream(Reader)
+	 * Rebuilds this object from the contents of the given reader.
+	 * NOTE: Without a validator, the contents are not guaranteed to be valid.
+	 *
+	 * @param input The reader holding the contents of the desired object
+	 * @throws IOException Thrown when the reader fails
+	 */
+	void fromStream(Reader input) throws IOException;
+}
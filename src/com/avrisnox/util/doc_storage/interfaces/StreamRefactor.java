@@ -0,0 +1,27 @@
+package com.avrisnox.util.doc_storage.interfaces;
+
+import java.io.Reader;
+import java.io.Writer;
+
+/**StreamRefactor
+ * Allows for a single mapping to be applied to the contents of a StorableAsStream object as they are written out and read back; the incremental counterpart of Refactor.
+ */
+public interface StreamRefactor {
+	/**
+	 * run(Writer)
+	 * Wraps the writer the object is sent to so that the mapping is applied to the contents as they are written.
+	 *
+	 * @param output The writer the mapped contents should end up in
+	 * @return A writer that maps anything written to it before passing it on to output
+	 */
+	Writer run(Writer output);
+
+	/**
+	 * run(Reader)
+	 * Wraps the reader the object is rebuilt from so that the mapping is applied to the contents as they are read.
+	 *
+	 * @param input The reader holding the contents to map
+	 * @return A reader that returns the mapped contents of input
+	 */
+	Reader run(Reader input);
+}
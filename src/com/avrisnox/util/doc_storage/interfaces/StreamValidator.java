@@ -0,0 +1,26 @@
+package com.avrisnox.util.doc_storage.interfaces;
+
+/**StreamValidator
+ * Used to prevent invalid streams from causing bad behavior; the incremental counterpart of Validator.
+ * Contents are handed over one chunk at a time, so a validator is stateful and should only be used for a single stream.
+ */
+public interface StreamValidator {
+	/**
+	 * validate(char[], int, int)
+	 * Runs some validation on the next chunk of the contents.
+	 *
+	 * @param chunk  The buffer holding the next chunk of contents
+	 * @param offset The index of the first character of the chunk within the buffer
+	 * @param length The number of characters in the chunk
+	 * @return False iff the contents seen so far can no longer represent a valid object of the desired type
+	 */
+	boolean validate(char[] chunk, int offset, int length);
+
+	/**
+	 * complete()
+	 * Called once the end of the contents has been reached.
+	 *
+	 * @return True iff the entire contents represent a valid object of the desired type
+	 */
+	boolean complete();
+}
@@ -0,0 +1,7 @@
+package com.avrisnox.util.doc_storage.interfaces;
+
+/**ValidateAndRefactorStream
+ * A simple interface that enforces both StreamValidator and StreamRefactor are implemented.
+ * This allows for a slightly simpler function call in any event where *both* are desired.
+ */
+public interface ValidateAndRefactorStream extends StreamValidator, StreamRefactor { }
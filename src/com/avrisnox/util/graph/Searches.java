@@ -1,4 +1,345 @@
 package com.avrisnox.util.graph;
 
+import com.avrisnox.util.graph.collections.Graph;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**Searches
+ * Sequential graph searches over a Graph: breadth-first search, Dijkstra and A*.
+ * Everything runs on primitive arrays sized to the graph, so a search allocates a handful of arrays up front and nothing per vertex or edge.
+ * Point-to-point searches (aStar, shortestPath) go further and reuse a per-thread workspace, stamped so it never needs clearing, so a query costs only the vertices it actually reaches; the workspace keeps about 32 bytes per vertex of the largest graph the thread has searched.
+ * Results are deterministic: ties are always broken towards the lower-numbered vertex, so the same graph and source always give the same distances, parents and paths.
+ * See com.avrisnox.concurrent.Searches for parallel versions that give identical results.
+ */
 public class Searches {
+	/* Direction-optimizing thresholds from Beamer et al.: go bottom-up once the frontier's edges pass 1/ALPHA of the unexplored edges, and back top-down once the frontier falls under 1/BETA of the vertices. */
+	private static final int ALPHA = 14;
+	private static final int BETA = 24;
+	private static final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+	private Searches() {
+	}
+
+	/* A binary min-heap of vertices keyed by distance, with decrease-key; ties go to the lower vertex - due to its private nature, it has been left undocumented. */
+	private static class VertexHeap {
+		private final int[] heap;
+		private final int[] position;
+		private final double[] key;
+		private int size = 0;
+
+		public VertexHeap(int vertices) {
+			heap = new int[vertices];
+			position = new int[vertices];
+			key = new double[vertices];
+			Arrays.fill(position, -1);
+		}
+
+		public boolean isEmpty() {
+			return size == 0;
+		}
+
+		/* Empties the heap in time proportional to what is left in it, so it can be reused without refilling position. */
+		public void clear() {
+			for (int i = 0; i < size; i++)
+				position[heap[i]] = -1;
+			size = 0;
+		}
+
+		/* Inserts the vertex, or moves it to the new key if it is already queued. */
+		public void push(int vertex, double value) {
+			key[vertex] = value;
+			int at = position[vertex];
+			if (at < 0) {
+				at = size++;
+				heap[at] = vertex;
+				position[vertex] = at;
+			}
+			up(at);
+		}
+
+		public int pop() {
+			int top = heap[0];
+			position[top] = -1;
+			int last = heap[--size];
+			if (size > 0) {
+				heap[0] = last;
+				position[last] = 0;
+				down(0);
+			}
+			return top;
+		}
+
+		private boolean less(int a, int b) {
+			return key[a] < key[b] || (key[a] == key[b] && a < b);
+		}
+
+		private void up(int at) {
+			int vertex = heap[at];
+			while (at > 0) {
+				int parent = (at - 1) >>> 1;
+				if (!less(vertex, heap[parent])) break;
+				heap[at] = heap[parent];
+				position[heap[at]] = at;
+				at = parent;
+			}
+			heap[at] = vertex;
+			position[vertex] = at;
+		}
+
+		private void down(int at) {
+			int vertex = heap[at];
+			while (true) {
+				int child = 2 * at + 1;
+				if (child >= size) break;
+				if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+				if (!less(heap[child], vertex)) break;
+				heap[at] = heap[child];
+				position[heap[at]] = at;
+				at = child;
+			}
+			heap[at] = vertex;
+			position[vertex] = at;
+		}
+	}
+
+	/* One thread's reusable search state; a vertex's distance and parent only count if its stamp matches the current search - due to its private nature, it has been left undocumented. */
+	private static class Workspace {
+		private double[] distance = new double[0];
+		private int[] parent = new int[0];
+		private int[] stamp = new int[0];
+		private VertexHeap heap = new VertexHeap(0);
+		private int current = 0;
+
+		/* Starts a new search over n vertices, growing the arrays if needed. */
+		public Workspace prepare(int n) {
+			if (stamp.length < n) {
+				distance = new double[n];
+				parent = new int[n];
+				stamp = new int[n];
+				heap = new VertexHeap(n);
+				current = 0;
+			}
+			if (++current == 0) {
+				Arrays.fill(stamp, 0);
+				current = 1;
+			}
+			return this;
+		}
+	}
+
+	private static void checkVertex(Graph<?> graph, int vertex) {
+		if (vertex < 0 || vertex >= graph.getVertexCount()) throw new IndexOutOfBoundsException("Vertex " + vertex + " not valid for Graph of " + graph.getVertexCount() + " vertices.");
+	}
+
+	/**
+	 * bfs(Graph, int)
+	 * Finds the number of edges on the shortest path from the source to every vertex.
+	 * The search is direction-optimizing: while the frontier is small it pushes outwards along out-edges, and once the frontier is large it switches to having each unvisited vertex look for a parent along its in-edges (from graph.reverse()), which skips most edges on low-diameter graphs.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @return The distance of each vertex from the source, or -1 for vertices it cannot reach
+	 */
+	public static int[] bfs(Graph<?> graph, int source) {
+		checkVertex(graph, source);
+		int n = graph.getVertexCount();
+		int[] distance = new int[n];
+		Arrays.fill(distance, -1);
+		distance[source] = 0;
+		int[] frontier = new int[n];
+		int[] next = new int[n];
+		int frontierSize = 1;
+		frontier[0] = source;
+		long unexplored = graph.getEdgeCount();
+		boolean bottomUp = false;
+		Graph<?> reverse = null;
+		long[] inFrontier = null;
+
+		for (int level = 0; frontierSize > 0; level++) {
+			long frontierEdges = 0;
+			for (int i = 0; i < frontierSize; i++)
+				frontierEdges += graph.getOutDegree(frontier[i]);
+			if (!bottomUp && frontierEdges > unexplored / ALPHA) bottomUp = true;
+			else if (bottomUp && frontierSize < n / BETA) bottomUp = false;
+			unexplored -= frontierEdges;
+
+			int nextSize = 0;
+			if (bottomUp) {
+				if (reverse == null) {
+					reverse = graph.reverse();
+					inFrontier = new long[(n + 63) >>> 6];
+				} else Arrays.fill(inFrontier, 0);
+				for (int i = 0; i < frontierSize; i++)
+					inFrontier[frontier[i] >>> 6] |= 1L << frontier[i];
+				for (int v = 0; v < n; v++) {
+					if (distance[v] >= 0) continue;
+					for (int edge = reverse.getEdgeStart(v), end = reverse.getEdgeEnd(v); edge < end; edge++) {
+						int u = reverse.getTarget(edge);
+						if ((inFrontier[u >>> 6] & (1L << u)) != 0) {
+							distance[v] = level + 1;
+							next[nextSize++] = v;
+							break;
+						}
+					}
+				}
+			} else {
+				for (int i = 0; i < frontierSize; i++) {
+					int u = frontier[i];
+					for (int edge = graph.getEdgeStart(u), end = graph.getEdgeEnd(u); edge < end; edge++) {
+						int v = graph.getTarget(edge);
+						if (distance[v] < 0) {
+							distance[v] = level + 1;
+							next[nextSize++] = v;
+						}
+					}
+				}
+			}
+			int[] swap = frontier;
+			frontier = next;
+			next = swap;
+			frontierSize = nextSize;
+		}
+		return distance;
+	}
+
+	/**
+	 * bfsTree(Graph, int)
+	 * Finds a breadth-first search tree from the source.
+	 * Each reached vertex's parent is the lowest-numbered vertex one step closer to the source with an edge to it, so the tree does not depend on the order the search ran in.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @return The parent of each vertex, or -1 for the source and for vertices it cannot reach
+	 */
+	public static int[] bfsTree(Graph<?> graph, int source) {
+		int[] distance = bfs(graph, source);
+		Graph<?> reverse = graph.reverse();
+		int[] parent = new int[distance.length];
+		for (int v = 0; v < distance.length; v++)
+			parent[v] = parentOf(reverse, distance, v);
+		return parent;
+	}
+
+	/* The lowest-numbered in-neighbour one level closer to the source; in-edges are sorted, so it is the first one found. */
+	private static int parentOf(Graph<?> reverse, int[] distance, int v) {
+		if (distance[v] <= 0) return -1;
+		for (int edge = reverse.getEdgeStart(v), end = reverse.getEdgeEnd(v); edge < end; edge++) {
+			int u = reverse.getTarget(edge);
+			if (distance[u] == distance[v] - 1) return u;
+		}
+		return -1;
+	}
+
+	/* The graph checks its weights once when it is made, so this costs nothing per query. */
+	private static void checkWeights(Graph<?> graph) {
+		if (!graph.hasNonNegativeWeights()) throw new IllegalArgumentException("Negative or NaN edge weights not valid for shortest paths.");
+	}
+
+	/**
+	 * dijkstra(Graph, int)
+	 * Finds the length of the shortest path from the source to every vertex, using the edge weights.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @return The distance of each vertex from the source, or positive infinity for vertices it cannot reach
+	 * @throws IllegalArgumentException Thrown when an edge has a negative or NaN weight
+	 */
+	public static double[] dijkstra(Graph<?> graph, int source) throws IllegalArgumentException {
+		checkVertex(graph, source);
+		checkWeights(graph);
+		int n = graph.getVertexCount();
+		double[] distance = new double[n];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		distance[source] = 0;
+		VertexHeap heap = new VertexHeap(n);
+		heap.push(source, 0);
+		while (!heap.isEmpty()) {
+			int u = heap.pop();
+			double base = distance[u];
+			for (int edge = graph.getEdgeStart(u), end = graph.getEdgeEnd(u); edge < end; edge++) {
+				int v = graph.getTarget(edge);
+				double candidate = base + graph.getWeight(edge);
+				if (candidate < distance[v]) {
+					distance[v] = candidate;
+					heap.push(v, candidate);
+				}
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * aStar(Graph, int, int, IntToDoubleFunction)
+	 * Finds a shortest path from the source to the target, exploring vertices in order of distance so far plus the heuristic's estimate of the distance left.
+	 * The heuristic must never overestimate (for example, straight-line distance on a map); a vertex reached again by a shorter path is reopened, so it need not also be consistent.
+	 *
+	 * @param graph     The graph to search
+	 * @param source    The vertex to start from
+	 * @param target    The vertex to reach
+	 * @param heuristic Estimates the distance from a vertex to the target
+	 * @return The vertices of the path from source to target inclusive, or null if the target cannot be reached
+	 * @throws IllegalArgumentException Thrown when an edge has a negative or NaN weight
+	 */
+	public static int[] aStar(Graph<?> graph, int source, int target, IntToDoubleFunction heuristic) throws IllegalArgumentException {
+		checkVertex(graph, source);
+		checkVertex(graph, target);
+		checkWeights(graph);
+		// Taken out while in use, so a heuristic that runs a search of its own gets a fresh workspace
+		Workspace workspace = workspaces.get();
+		if (workspace == null) workspace = new Workspace();
+		workspaces.set(null);
+		workspace.prepare(graph.getVertexCount());
+		double[] distance = workspace.distance;
+		int[] parent = workspace.parent;
+		int[] stamp = workspace.stamp;
+		int current = workspace.current;
+		VertexHeap heap = workspace.heap;
+		try {
+			stamp[source] = current;
+			distance[source] = 0;
+			parent[source] = -1;
+			heap.push(source, heuristic.applyAsDouble(source));
+			while (!heap.isEmpty()) {
+				int u = heap.pop();
+				if (u == target) break;
+				double base = distance[u];
+				for (int edge = graph.getEdgeStart(u), end = graph.getEdgeEnd(u); edge < end; edge++) {
+					int v = graph.getTarget(edge);
+					double candidate = base + graph.getWeight(edge);
+					if (candidate < (stamp[v] == current ? distance[v] : Double.POSITIVE_INFINITY)) {
+						stamp[v] = current;
+						distance[v] = candidate;
+						parent[v] = u;
+						heap.push(v, candidate + heuristic.applyAsDouble(v));
+					}
+				}
+			}
+			if (stamp[target] != current || distance[target] == Double.POSITIVE_INFINITY) return null;
+			int length = 1;
+			for (int v = target; v != source; v = parent[v])
+				length++;
+			int[] path = new int[length];
+			for (int v = target, i = length - 1; i >= 0; v = parent[v], i--)
+				path[i] = v;
+			return path;
+		} finally {
+			heap.clear();
+			workspaces.set(workspace);
+		}
+	}
+
+	/**
+	 * shortestPath(Graph, int, int)
+	 * Finds a shortest path from the source to the target; this is A* with no heuristic, which is Dijkstra stopping at the target.
+	 *
+	 * @param graph  The graph to search
+	 * @param source The vertex to start from
+	 * @param target The vertex to reach
+	 * @return The vertices of the path from source to target inclusive, or null if the target cannot be reached
+	 * @throws IllegalArgumentException Thrown when an edge has a negative or NaN weight
+	 */
+	public static int[] shortestPath(Graph<?> graph, int source, int target) throws IllegalArgumentException {
+		return aStar(graph, source, target, vertex -> 0);
+	}
 }
@@ -1,4 +1,326 @@
 package com.avrisnox.util.graph;
 
+import com.avrisnox.concurrent.Chunks;
+import com.avrisnox.util.graph.collections.Graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**Sorts
+ * Orderings of a Graph's vertices: topological order, level schedules for dependency graphs, and strongly connected components.
+ * Everything works on primitive arrays sized to the graph, without recursion, so graphs with millions of vertices and deep dependency chains are fine.
+ * Results are deterministic. The level of a vertex is the length of the longest path to it from a vertex with no incoming edges; the topological order lists the vertices level by level, in ascending order within a level, and the parallel versions give exactly the same results as the sequential ones.
+ * A graph with a cycle has no topological order; the methods that need one throw IllegalArgumentException as soon as the level schedule comes up empty with vertices still waiting, which is after every vertex not on or behind a cycle has been placed, so a cycle is only found once that work is done.
+ */
 public class Sorts {
+	private static final int GRAIN = 2048;
+
+	private Sorts() {
+	}
+
+	private static IllegalArgumentException cycle(int placed, int total) {
+		return new IllegalArgumentException("Graph has a cycle (" + (total - placed) + " vertices on or behind cycles); not valid for topological sort.");
+	}
+
+	/**
+	 * levelSchedule(Graph)
+	 * Groups the vertices into levels that can be processed one after another, every vertex after all the vertices with edges to it.
+	 * Vertices in the same level do not depend on each other, so each level can be processed in parallel.
+	 *
+	 * @param graph The dependency graph; an edge from a to b means a must come before b
+	 * @return The vertices of each level, in ascending order within each level
+	 * @throws IllegalArgumentException Thrown when the graph has a cycle
+	 */
+	public static int[][] levelSchedule(Graph<?> graph) throws IllegalArgumentException {
+		int n = graph.getVertexCount();
+		int[] remaining = new int[n];
+		for (int edge = 0; edge < graph.getEdgeCount(); edge++)
+			remaining[graph.getTarget(edge)]++;
+		int[] order = new int[n];
+		int size = 0;
+		for (int v = 0; v < n; v++)
+			if (remaining[v] == 0) order[size++] = v;
+		if (size == 0 && n > 0) throw cycle(0, n);
+		int[] bounds = new int[n + 1];
+		int levels = 0;
+		int start = 0;
+		while (start < size) {
+			bounds[levels++] = start;
+			int end = size;
+			for (int i = start; i < end; i++) {
+				int u = order[i];
+				for (int edge = graph.getEdgeStart(u), last = graph.getEdgeEnd(u); edge < last; edge++) {
+					int v = graph.getTarget(edge);
+					if (--remaining[v] == 0) order[size++] = v;
+				}
+			}
+			// A level with nothing in it while vertices remain means every one of them waits on a cycle
+			if (size == end && size < n) throw cycle(size, n);
+			Arrays.sort(order, end, size);
+			start = end;
+		}
+		bounds[levels] = size;
+		return split(order, bounds, levels);
+	}
+
+	private static int[][] split(int[] order, int[] bounds, int levels) {
+		int[][] schedule = new int[levels][];
+		for (int level = 0; level < levels; level++)
+			schedule[level] = Arrays.copyOfRange(order, bounds[level], bounds[level + 1]);
+		return schedule;
+	}
+
+	/**
+	 * levelSchedule(Graph, ForkJoinPool)
+	 * Groups the vertices into levels as levelSchedule(Graph) does, working on each level in parallel.
+	 * Incoming edges are counted in parallel first; a vertex with an edge to itself is reported as a cycle at that point, before any level is built. Any other cycle is reported as soon as a level comes out empty while vertices remain, as in levelSchedule(Graph).
+	 *
+	 * @param graph The dependency graph; an edge from a to b means a must come before b
+	 * @param pool  The pool to run on
+	 * @return The vertices of each level, in ascending order within each level
+	 * @throws IllegalArgumentException Thrown when the graph has a cycle
+	 */
+	public static int[][] levelSchedule(Graph<?> graph, ForkJoinPool pool) throws IllegalArgumentException {
+		int n = graph.getVertexCount();
+		AtomicIntegerArray remaining = new AtomicIntegerArray(n);
+		int[] selfLoop = {-1};
+		int counting = Chunks.count(pool, graph.getEdgeCount() + n, GRAIN);
+		Chunks.run(pool, counting, chunk -> {
+			for (int u = (int) ((long) chunk * n / counting), end = (int) ((long) (chunk + 1) * n / counting); u < end; u++)
+				for (int edge = graph.getEdgeStart(u), last = graph.getEdgeEnd(u); edge < last; edge++) {
+					int v = graph.getTarget(edge);
+					if (v == u) selfLoop[0] = u;
+					remaining.incrementAndGet(v);
+				}
+		});
+		if (selfLoop[0] >= 0) throw new IllegalArgumentException("Graph has a cycle (vertex " + selfLoop[0] + " depends on itself); not valid for topological sort.");
+
+		int[] order = new int[n];
+		int size = 0;
+		for (int v = 0; v < n; v++)
+			if (remaining.get(v) == 0) order[size++] = v;
+		if (size == 0 && n > 0) throw cycle(0, n);
+		int[] bounds = new int[n + 1];
+		int levels = 0;
+		int start = 0;
+		int[][] found = new int[0][];
+		int[] foundSizes = new int[0];
+		while (start < size) {
+			bounds[levels++] = start;
+			int from = start;
+			int end = size;
+			long work = end - from;
+			for (int i = from; i < end; i++)
+				work += graph.getOutDegree(order[i]);
+			int chunks = Chunks.count(pool, work, GRAIN);
+			if (found.length < chunks) {
+				found = new int[chunks][16];
+				foundSizes = new int[chunks];
+			}
+			int[][] lists = found;
+			int[] sizes = foundSizes;
+			int[] current = order;
+			Chunks.run(pool, chunks, chunk -> {
+				int[] mine = lists[chunk];
+				int count = 0;
+				for (int i = from + (int) ((long) chunk * (end - from) / chunks), stop = from + (int) ((long) (chunk + 1) * (end - from) / chunks); i < stop; i++) {
+					int u = current[i];
+					for (int edge = graph.getEdgeStart(u), last = graph.getEdgeEnd(u); edge < last; edge++) {
+						int v = graph.getTarget(edge);
+						if (remaining.decrementAndGet(v) == 0) {
+							if (count == mine.length) mine = lists[chunk] = Arrays.copyOf(mine, count * 2);
+							mine[count++] = v;
+						}
+					}
+				}
+				sizes[chunk] = count;
+			});
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				System.arraycopy(found[chunk], 0, order, size, foundSizes[chunk]);
+				size += foundSizes[chunk];
+			}
+			if (size == end && size < n) throw cycle(size, n);
+			if (size - end > GRAIN) Arrays.parallelSort(order, end, size);
+			else Arrays.sort(order, end, size);
+			start = end;
+		}
+		bounds[levels] = size;
+		return split(order, bounds, levels);
+	}
+
+	/**
+	 * levels(Graph)
+	 * Finds the level of every vertex: 0 for vertices with no incoming edges, otherwise one more than the highest level among the vertices with edges to it.
+	 *
+	 * @param graph The dependency graph
+	 * @return The level of each vertex
+	 * @throws IllegalArgumentException Thrown when the graph has a cycle
+	 */
+	public static int[] levels(Graph<?> graph) throws IllegalArgumentException {
+		return levelsOf(levelSchedule(graph), graph.getVertexCount());
+	}
+
+	/**
+	 * levels(Graph, ForkJoinPool)
+	 * Finds the level of every vertex as levels(Graph) does, working on each level in parallel.
+	 *
+	 * @param graph The dependency graph
+	 * @param pool  The pool to run on
+	 * @return The level of each vertex
+	 * @throws IllegalArgumentException Thrown when the graph has a cycle
+	 */
+	public static int[] levels(Graph<?> graph, ForkJoinPool pool) throws IllegalArgumentException {
+		return levelsOf(levelSchedule(graph, pool), graph.getVertexCount());
+	}
+
+	private static int[] levelsOf(int[][] schedule, int n) {
+		int[] level = new int[n];
+		for (int l = 0; l < schedule.length; l++)
+			for (int v : schedule[l])
+				level[v] = l;
+		return level;
+	}
+
+	/**
+	 * topologicalOrder(Graph)
+	 * Orders the vertices so that every edge goes from an earlier vertex to a later one: level by level, ascending within each level.
+	 *
+	 * @param graph The dependency graph
+	 * @return The vertices in topological order
+	 * @throws IllegalArgumentException Thrown when the graph has a cycle
+	 */
+	public static int[] topologicalOrder(Graph<?> graph) throws IllegalArgumentException {
+		return flatten(levelSchedule(graph), graph.getVertexCount());
+	}
+
+	/**
+	 * topologicalOrder(Graph, ForkJoinPool)
+	 * Orders the vertices as topologicalOrder(Graph) does, working on each level in parallel.
+	 *
+	 * @param graph The dependency graph
+	 * @param pool  The pool to run on
+	 * @return The vertices in topological order
+	 * @throws IllegalArgumentException Thrown when the graph has a cycle
+	 */
+	public static int[] topologicalOrder(Graph<?> graph, ForkJoinPool pool) throws IllegalArgumentException {
+		return flatten(levelSchedule(graph, pool), graph.getVertexCount());
+	}
+
+	private static int[] flatten(int[][] schedule, int n) {
+		int[] order = new int[n];
+		int at = 0;
+		for (int[] level : schedule) {
+			System.arraycopy(level, 0, order, at, level.length);
+			at += level.length;
+		}
+		return order;
+	}
+
+	/**
+	 * runInOrder(Graph, IntConsumer, ForkJoinPool)
+	 * Runs a task for every vertex, each only after the tasks of all vertices with edges to it have finished; the tasks of a level run in parallel.
+	 * The whole schedule is worked out first, so a cycle is reported before any task runs.
+	 *
+	 * @param graph The dependency graph
+	 * @param task  The task to run for each vertex
+	 * @param pool  The pool to run on
+	 * @throws IllegalArgumentException Thrown when the graph has a cycle
+	 */
+	public static void runInOrder(Graph<?> graph, IntConsumer task, ForkJoinPool pool) throws IllegalArgumentException {
+		for (int[] level : levelSchedule(graph, pool)) {
+			int chunks = (int) Math.max(1, Math.min(pool.getParallelism() * 4L, level.length));
+			Chunks.run(pool, chunks, chunk -> {
+				for (int i = (int) ((long) chunk * level.length / chunks), end = (int) ((long) (chunk + 1) * level.length / chunks); i < end; i++)
+					task.accept(level[i]);
+			});
+		}
+	}
+
+	/**
+	 * hasCycle(Graph)
+	 * Checks whether the graph has a cycle, including a vertex with an edge to itself.
+	 *
+	 * @param graph The graph to check
+	 * @return True iff the graph has a cycle
+	 */
+	public static boolean hasCycle(Graph<?> graph) {
+		int n = graph.getVertexCount();
+		int[] remaining = new int[n];
+		for (int edge = 0; edge < graph.getEdgeCount(); edge++)
+			remaining[graph.getTarget(edge)]++;
+		int[] queue = new int[n];
+		int size = 0;
+		for (int v = 0; v < n; v++)
+			if (remaining[v] == 0) queue[size++] = v;
+		for (int i = 0; i < size; i++) {
+			int u = queue[i];
+			for (int edge = graph.getEdgeStart(u), last = graph.getEdgeEnd(u); edge < last; edge++)
+				if (--remaining[graph.getTarget(edge)] == 0) queue[size++] = graph.getTarget(edge);
+		}
+		return size < n;
+	}
+
+	/**
+	 * stronglyConnectedComponents(Graph)
+	 * Splits the vertices into strongly connected components, the largest groups in which every vertex can reach every other, with Tarjan's algorithm run without recursion.
+	 * Components are numbered in the order Tarjan's algorithm completes them (starting from the lowest-numbered vertex), which is a reverse topological order of the graph of components: every edge between components goes from a higher number to a lower or equal one.
+	 *
+	 * @param graph The graph to split
+	 * @return The component number of each vertex; the number of components is the highest number plus one
+	 */
+	public static int[] stronglyConnectedComponents(Graph<?> graph) {
+		int n = graph.getVertexCount();
+		int[] index = new int[n];
+		Arrays.fill(index, -1);
+		int[] low = new int[n];
+		int[] component = new int[n];
+		Arrays.fill(component, -1);
+		int[] stack = new int[n];
+		int stackSize = 0;
+		int[] callVertex = new int[n];
+		int[] callEdge = new int[n];
+		int nextIndex = 0;
+		int nextComponent = 0;
+
+		for (int root = 0; root < n; root++) {
+			if (index[root] >= 0) continue;
+			int depth = 0;
+			callVertex[0] = root;
+			callEdge[0] = graph.getEdgeStart(root);
+			index[root] = low[root] = nextIndex++;
+			stack[stackSize++] = root;
+			while (depth >= 0) {
+				int u = callVertex[depth];
+				int edge = callEdge[depth];
+				if (edge < graph.getEdgeEnd(u)) {
+					callEdge[depth] = edge + 1;
+					int v = graph.getTarget(edge);
+					if (index[v] < 0) {
+						index[v] = low[v] = nextIndex++;
+						stack[stackSize++] = v;
+						depth++;
+						callVertex[depth] = v;
+						callEdge[depth] = graph.getEdgeStart(v);
+					} else if (component[v] < 0 && index[v] < low[u]) low[u] = index[v];
+					continue;
+				}
+				if (low[u] == index[u]) {
+					int v;
+					do {
+						v = stack[--stackSize];
+						component[v] = nextComponent;
+					} while (v != u);
+					nextComponent++;
+				}
+				depth--;
+				if (depth >= 0) {
+					int parent = callVertex[depth];
+					if (low[u] < low[parent]) low[parent] = low[u];
+				}
+			}
+		}
+		return component;
+	}
 }
@@ -0,0 +1,156 @@
+package com.avrisnox.util.graph.collections;
+
+/**DualIndex
+ * The open-addressing index of longs shared by DualMap, DualList, ConcDualMap and ConcDualList: each slot holds a key's spread hash in its high half and its position plus one in its low half, so zero means empty.
+ * Indexes are powers of two kept at most three quarters full, probed linearly; removal shifts later slots of the same probe run back, so no tombstones build up. Keys are never stored here, only looked up in the caller's own arrays, and rehashing reuses the stored hashes without calling hashCode.
+ * Lookups are safe to run while a writer changes the arrays, as the concurrent maps do: every position read is bounds checked and every probe run is capped, so a racing lookup may give a wrong answer but never fails or loops. Everything else is for writers only.
+ */
+public final class DualIndex {
+	private static final float LOAD_FACTOR = 0.75f;
+	private static final int MIN_TABLE = 8;
+
+	private DualIndex() {
+	}
+
+	/**
+	 * tableFor(int)
+	 * Gives the smallest index length that holds the given number of keys under the load factor.
+	 *
+	 * @param keys The number of keys
+	 * @return The index length, a power of two
+	 */
+	public static int tableFor(int keys) {
+		int table = MIN_TABLE;
+		while (table * LOAD_FACTOR < keys) table <<= 1;
+		return table;
+	}
+
+	/**
+	 * threshold(int)
+	 * Gives the number of keys an index of the given length may hold before it has to grow.
+	 *
+	 * @param length The index length
+	 * @return The most keys the index may hold
+	 */
+	public static int threshold(int length) {
+		return (int) (length * LOAD_FACTOR);
+	}
+
+	/**
+	 * hash(Object)
+	 * Spreads a key's hash code so that both its low bits (the home slot) and the whole value (the stored hash) are well mixed.
+	 *
+	 * @param key The key, not null
+	 * @return The spread hash
+	 */
+	public static int hash(Object key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * slot(int, int)
+	 * Packs a hash and a position into one index slot.
+	 *
+	 * @param hash     The spread hash of the key
+	 * @param position The position of the key
+	 * @return The slot, never zero
+	 */
+	public static long slot(int hash, int position) {
+		return ((long) hash << 32) | (position + 1L);
+	}
+
+	/**
+	 * find(long[], Object[], int, int, Object, int)
+	 * Finds a key's position through an index, where the key at position p is keys[p * stride + offset].
+	 *
+	 * @param index  The index
+	 * @param keys   The array holding the keys
+	 * @param stride The distance between the keys of neighbouring positions
+	 * @param offset The place of position 0's key
+	 * @param key    The key to find, not null
+	 * @param hash   The spread hash of the key
+	 * @return The key's position, or -1 if it is not in the index
+	 */
+	public static int find(long[] index, Object[] keys, int stride, int offset, Object key, int hash) {
+		int mask = index.length - 1;
+		for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+			long slot = index[i];
+			if (slot == 0) return -1;
+			if ((int) (slot >>> 32) != hash) continue;
+			int position = (int) slot - 1;
+			long at = (long) position * stride + offset;
+			if (position < 0 || at >= keys.length) continue;
+			Object found = keys[(int) at];
+			if (found != null && (found == key || key.equals(found))) return position;
+		}
+		return -1;
+	}
+
+	/**
+	 * slotOf(long[], int, int)
+	 * Finds the index slot that points at a position.
+	 *
+	 * @param index    The index
+	 * @param hash     The spread hash of the key at the position
+	 * @param position The position
+	 * @return The place of the slot in the index, or -1 if no slot points at the position
+	 */
+	public static int slotOf(long[] index, int hash, int position) {
+		int mask = index.length - 1;
+		for (int i = hash & mask; ; i = (i + 1) & mask) {
+			long slot = index[i];
+			if (slot == 0) return -1;
+			if ((int) slot == position + 1) return i;
+		}
+	}
+
+	/**
+	 * insert(long[], long)
+	 * Stores a slot in the first empty place from its home; the index must have room.
+	 *
+	 * @param index The index
+	 * @param slot  The slot
+	 */
+	public static void insert(long[] index, long slot) {
+		int mask = index.length - 1;
+		int i = (int) (slot >>> 32) & mask;
+		while (index[i] != 0) i = (i + 1) & mask;
+		index[i] = slot;
+	}
+
+	/**
+	 * delete(long[], int)
+	 * Empties an index slot, shifting back any later slots of the same probe run that would otherwise be cut off from their home.
+	 *
+	 * @param index The index
+	 * @param at    The place of the slot in the index
+	 */
+	public static void delete(long[] index, int at) {
+		int mask = index.length - 1;
+		int hole = at;
+		for (int i = (at + 1) & mask; index[i] != 0; i = (i + 1) & mask) {
+			int home = (int) (index[i] >>> 32) & mask;
+			if (((i - home) & mask) >= ((i - hole) & mask)) {
+				index[hole] = index[i];
+				hole = i;
+			}
+		}
+		index[hole] = 0;
+	}
+
+	/**
+	 * rehash(long[], int)
+	 * Builds a new index of the given length from the slots an index already holds.
+	 *
+	 * @param index  The index
+	 * @param length The new length, a power of two large enough for every slot
+	 * @return The new index
+	 */
+	public static long[] rehash(long[] index, int length) {
+		long[] bigger = new long[length];
+		for (long slot : index)
+			if (slot != 0) insert(bigger, slot);
+		return bigger;
+	}
+}
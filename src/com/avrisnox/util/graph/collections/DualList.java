@@ -1,4 +1,480 @@
 package com.avrisnox.util.graph.collections;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**DualList
+ * A list of pairs that looks up in both directions, where a value may appear in any number of pairs: all the right values paired with a left one, and all the left values paired with a right one, such as the labels on a vertex and the vertices with a label.
+ * Pairs are packed into parallel arrays with no object per pair. Each side has an open-addressing index of longs from a key's hash to the first pair holding it, as in DualMap, and the pairs holding the same key are chained together through two int arrays of next and previous positions, so finding a key is one probe run and each further pair is one step along the chain.
+ * Adding a pair and removing any pair are both constant time. Pairs sit at positions 0 to size() - 1; removing one moves the last pair into its place. Pairs holding the same key are visited in the order they were added, even after a removal has moved some of them.
+ * Duplicate pairs are allowed; null values are not. A DualList is not safe for use by several threads at once; see ConcDualList.
+ *
+ * @param <A> The type of the left values
+ * @param <B> The type of the right values
+ */
 public class DualList<A, B> {
+	/* One side's values, its index of distinct keys and its chains - due to its private nature, it has been left undocumented. */
+	private static final class Side {
+		private Object[] values;
+		private int[] next;
+		private int[] previous;
+		private long[] table;
+		private int keys = 0;
+		private int threshold;
+
+		public Side(int capacity) {
+			values = new Object[capacity];
+			next = new int[capacity];
+			previous = new int[capacity];
+			table = new long[DualIndex.tableFor(capacity)];
+			threshold = DualIndex.threshold(table.length);
+		}
+
+		public int head(Object key, int hash) {
+			return DualIndex.find(table, values, 1, 0, key, hash);
+		}
+
+		/* The index slot of a chain whose head is at the position, or -1 if the position is not a head. */
+		public void grow(int length) {
+			values = Arrays.copyOf(values, length);
+			next = Arrays.copyOf(next, length);
+			previous = Arrays.copyOf(previous, length);
+		}
+
+		public void link(int position, Object key, int hash) {
+			values[position] = key;
+			int head = head(key, hash);
+			if (head < 0) {
+				if (keys + 1 > threshold) {
+					table = DualIndex.rehash(table, table.length * 2);
+					threshold = DualIndex.threshold(table.length);
+				}
+				DualIndex.insert(table, DualIndex.slot(hash, position));
+				keys++;
+				next[position] = position;
+				previous[position] = position;
+			} else {
+				int tail = previous[head];
+				next[tail] = position;
+				previous[position] = tail;
+				next[position] = head;
+				previous[head] = position;
+			}
+		}
+
+		public void unlink(int position) {
+			int hash = DualIndex.hash(values[position]);
+			int slot = DualIndex.slotOf(table, hash, position);
+			if (next[position] == position) {
+				DualIndex.delete(table, slot);
+				keys--;
+				return;
+			}
+			int after = next[position];
+			int before = previous[position];
+			next[before] = after;
+			previous[after] = before;
+			if (slot >= 0) table[slot] = DualIndex.slot(hash, after);
+		}
+
+		public void move(int from, int to) {
+			Object key = values[from];
+			values[to] = key;
+			values[from] = null;
+			if (next[from] == from) {
+				next[to] = to;
+				previous[to] = to;
+			} else {
+				int after = next[from];
+				int before = previous[from];
+				next[to] = after;
+				previous[to] = before;
+				next[before] = to;
+				previous[after] = to;
+			}
+			int hash = DualIndex.hash(key);
+			int slot = DualIndex.slotOf(table, hash, from);
+			if (slot >= 0) table[slot] = DualIndex.slot(hash, to);
+		}
+
+		public void clear(int size) {
+			Arrays.fill(values, 0, size, null);
+			Arrays.fill(table, 0);
+			keys = 0;
+		}
+
+		public long bytes() {
+			return 4 * 16L + 4L * values.length + 8L * next.length + 8L * table.length;
+		}
+	}
+
+	private final Side left;
+	private final Side right;
+	private int size = 0;
+
+	/**
+	 * DualList()
+	 * Creates an empty list.
+	 */
+	public DualList() {
+		this(16);
+	}
+
+	/**
+	 * DualList(int)
+	 * Creates an empty list with room for the given number of pairs before it has to grow.
+	 *
+	 * @param expectedSize The number of pairs expected
+	 * @throws IllegalArgumentException Thrown when the size is negative
+	 */
+	public DualList(int expectedSize) throws IllegalArgumentException {
+		if (expectedSize < 0) throw new IllegalArgumentException("Size of " + expectedSize + " not valid for DualList.");
+		left = new Side(Math.max(expectedSize, 4));
+		right = new Side(Math.max(expectedSize, 4));
+	}
+
+	/**
+	 * add(Object, Object)
+	 * Adds a pair at the end of the list.
+	 *
+	 * @param leftValue  The left value
+	 * @param rightValue The right value
+	 * @return The position of the new pair
+	 * @throws NullPointerException Thrown when either value is null
+	 */
+	public int add(A leftValue, B rightValue) throws NullPointerException {
+		if (leftValue == null || rightValue == null) throw new NullPointerException("DualList does not allow null values.");
+		if (size == left.values.length) {
+			int length = (int) Math.min(size * 2L, Integer.MAX_VALUE - 8);
+			if (length == size) throw new IllegalStateException("DualList is full at " + size + " pairs.");
+			left.grow(length);
+			right.grow(length);
+		}
+		left.link(size, leftValue, DualIndex.hash(leftValue));
+		right.link(size, rightValue, DualIndex.hash(rightValue));
+		return size++;
+	}
+
+	/**
+	 * getLeftAt(int)
+	 * Gets the left value of the pair at a position.
+	 *
+	 * @param index The position, from 0 to size() - 1
+	 * @return The left value
+	 * @throws IndexOutOfBoundsException Thrown when there is no pair at the position
+	 */
+	@SuppressWarnings("unchecked")
+	public A getLeftAt(int index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		return (A) left.values[index];
+	}
+
+	/**
+	 * getRightAt(int)
+	 * Gets the right value of the pair at a position.
+	 *
+	 * @param index The position, from 0 to size() - 1
+	 * @return The right value
+	 * @throws IndexOutOfBoundsException Thrown when there is no pair at the position
+	 */
+	@SuppressWarnings("unchecked")
+	public B getRightAt(int index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		return (B) right.values[index];
+	}
+
+	private void checkIndex(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " not valid for DualList of " + size + " pairs.");
+	}
+
+	private static int head(Side side, Object key) {
+		return (key == null ? -1 : side.head(key, DualIndex.hash(key)));
+	}
+
+	/**
+	 * containsLeft(Object)
+	 * Checks whether any pair holds a left value.
+	 *
+	 * @param leftValue The left value
+	 * @return True iff some pair holds it
+	 */
+	public boolean containsLeft(Object leftValue) {
+		return head(left, leftValue) >= 0;
+	}
+
+	/**
+	 * containsRight(Object)
+	 * Checks whether any pair holds a right value.
+	 *
+	 * @param rightValue The right value
+	 * @return True iff some pair holds it
+	 */
+	public boolean containsRight(Object rightValue) {
+		return head(right, rightValue) >= 0;
+	}
+
+	/**
+	 * contains(Object, Object)
+	 * Checks whether the list holds a pair, walking the chain of its left value.
+	 *
+	 * @param leftValue  The left value
+	 * @param rightValue The right value
+	 * @return True iff the pair is in the list
+	 */
+	public boolean contains(Object leftValue, Object rightValue) {
+		return indexOf(leftValue, rightValue) >= 0;
+	}
+
+	/**
+	 * indexOf(Object, Object)
+	 * Finds the position of a pair, walking the chain of its left value.
+	 *
+	 * @param leftValue  The left value
+	 * @param rightValue The right value
+	 * @return The position of the first such pair, or -1 if there is none
+	 */
+	public int indexOf(Object leftValue, Object rightValue) {
+		int head = head(left, leftValue);
+		if (head < 0 || rightValue == null) return -1;
+		int position = head;
+		do {
+			if (rightValue.equals(right.values[position])) return position;
+			position = left.next[position];
+		} while (position != head);
+		return -1;
+	}
+
+	/* Walks one side's chain from its head, giving each position - due to its private nature, it has been left undocumented. */
+	private static void walk(Side side, Object key, IntConsumer consumer) {
+		int head = head(side, key);
+		if (head < 0) return;
+		int position = head;
+		do {
+			int following = side.next[position];
+			consumer.accept(position);
+			position = following;
+		} while (position != head);
+	}
+
+	/**
+	 * forEachIndexOfLeft(Object, IntConsumer)
+	 * Gives the position of every pair holding a left value; the consumer must not change the list.
+	 *
+	 * @param leftValue The left value
+	 * @param consumer  Receives each position
+	 */
+	public void forEachIndexOfLeft(Object leftValue, IntConsumer consumer) {
+		walk(left, leftValue, consumer);
+	}
+
+	/**
+	 * forEachIndexOfRight(Object, IntConsumer)
+	 * Gives the position of every pair holding a right value; the consumer must not change the list.
+	 *
+	 * @param rightValue The right value
+	 * @param consumer   Receives each position
+	 */
+	public void forEachIndexOfRight(Object rightValue, IntConsumer consumer) {
+		walk(right, rightValue, consumer);
+	}
+
+	/**
+	 * forEachRight(Object, Consumer)
+	 * Gives every right value paired with a left value; the consumer must not change the list.
+	 *
+	 * @param leftValue The left value
+	 * @param consumer  Receives each right value
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachRight(Object leftValue, Consumer<? super B> consumer) {
+		walk(left, leftValue, position -> consumer.accept((B) right.values[position]));
+	}
+
+	/**
+	 * forEachLeft(Object, Consumer)
+	 * Gives every left value paired with a right value; the consumer must not change the list.
+	 *
+	 * @param rightValue The right value
+	 * @param consumer   Receives each left value
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachLeft(Object rightValue, Consumer<? super A> consumer) {
+		walk(right, rightValue, position -> consumer.accept((A) left.values[position]));
+	}
+
+	/**
+	 * getRights(Object)
+	 * Gets every right value paired with a left value.
+	 *
+	 * @param leftValue The left value
+	 * @return A new list of the right values, empty if the left value is in no pair
+	 */
+	public List<B> getRights(Object leftValue) {
+		List<B> result = new ArrayList<>();
+		forEachRight(leftValue, result::add);
+		return result;
+	}
+
+	/**
+	 * getLefts(Object)
+	 * Gets every left value paired with a right value.
+	 *
+	 * @param rightValue The right value
+	 * @return A new list of the left values, empty if the right value is in no pair
+	 */
+	public List<A> getLefts(Object rightValue) {
+		List<A> result = new ArrayList<>();
+		forEachLeft(rightValue, result::add);
+		return result;
+	}
+
+	/**
+	 * removeAt(int)
+	 * Removes the pair at a position, moving the last pair into its place.
+	 *
+	 * @param index The position, from 0 to size() - 1
+	 * @throws IndexOutOfBoundsException Thrown when there is no pair at the position
+	 */
+	public void removeAt(int index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		left.unlink(index);
+		right.unlink(index);
+		int last = --size;
+		if (index != last) {
+			left.move(last, index);
+			right.move(last, index);
+		} else {
+			left.values[last] = null;
+			right.values[last] = null;
+		}
+	}
+
+	/**
+	 * remove(Object, Object)
+	 * Removes the first pair equal to the given one.
+	 *
+	 * @param leftValue  The left value
+	 * @param rightValue The right value
+	 * @return True iff a pair was removed
+	 */
+	public boolean remove(Object leftValue, Object rightValue) {
+		int position = indexOf(leftValue, rightValue);
+		if (position < 0) return false;
+		removeAt(position);
+		return true;
+	}
+
+	/**
+	 * removeLeft(Object)
+	 * Removes every pair holding a left value.
+	 *
+	 * @param leftValue The left value
+	 * @return The number of pairs removed
+	 */
+	public int removeLeft(Object leftValue) {
+		int removed = 0;
+		for (int head; (head = head(left, leftValue)) >= 0; removed++)
+			removeAt(head);
+		return removed;
+	}
+
+	/**
+	 * removeRight(Object)
+	 * Removes every pair holding a right value.
+	 *
+	 * @param rightValue The right value
+	 * @return The number of pairs removed
+	 */
+	public int removeRight(Object rightValue) {
+		int removed = 0;
+		for (int head; (head = head(right, rightValue)) >= 0; removed++)
+			removeAt(head);
+		return removed;
+	}
+
+	/**
+	 * size()
+	 * Gets the number of pairs.
+	 *
+	 * @return The number of pairs
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the list has no pairs.
+	 *
+	 * @return True iff the list has no pairs
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * getLeftKeyCount()
+	 * Gets the number of distinct left values.
+	 *
+	 * @return The number of distinct left values
+	 */
+	public int getLeftKeyCount() {
+		return left.keys;
+	}
+
+	/**
+	 * getRightKeyCount()
+	 * Gets the number of distinct right values.
+	 *
+	 * @return The number of distinct right values
+	 */
+	public int getRightKeyCount() {
+		return right.keys;
+	}
+
+	/**
+	 * clear()
+	 * Removes every pair, keeping the arrays at their current size.
+	 */
+	public void clear() {
+		left.clear(size);
+		right.clear(size);
+		size = 0;
+	}
+
+	/**
+	 * forEach(BiConsumer)
+	 * Visits every pair in position order; the consumer must not change the list.
+	 *
+	 * @param consumer Receives each left value and its right value
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super A, ? super B> consumer) {
+		for (int i = 0; i < size; i++)
+			consumer.accept((A) left.values[i], (B) right.values[i]);
+	}
+
+	/**
+	 * getHeapBytes()
+	 * Estimates the memory the list's arrays take on the Java heap, assuming compressed references and leaving out the values themselves.
+	 *
+	 * @return The estimated heap footprint in bytes
+	 */
+	public long getHeapBytes() {
+		return left.bytes() + right.bytes();
+	}
+
+	/**
+	 * getBytesPerEntry()
+	 * Gets the heap footprint divided by the number of pairs.
+	 *
+	 * @return The bytes per pair, or 0 if there are no pairs
+	 */
+	public double getBytesPerEntry() {
+		return (size == 0 ? 0 : (double) getHeapBytes() / size);
+	}
 }
@@ -1,4 +1,349 @@
 package com.avrisnox.util.graph.collections;
 
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**DualMap
+ * A one-to-one map that looks up in both directions: each left value is paired with exactly one right value and the other way round, such as a vertex's number and its label.
+ * Pairs are packed side by side into one array, so there is no object per pair and a pair's two values share a cache line. Each side has an open-addressing index of longs, each holding a key's hash in its high half and its pair's position in its low half; a lookup probes that one array, and only touches the pair arrays (and calls equals) when the stored hash matches. Removal shifts later probes back, so no tombstones build up.
+ * With the indexes kept at most three quarters full this costs between 30 and 60 bytes per pair on top of the values themselves, depending on how recently the arrays grew, against about 80 for a pair of HashMaps.
+ * Pairs sit at positions 0 to size() - 1; removing one moves the last pair into its place, so positions are only stable while nothing is removed.
+ * Null values are not allowed. A DualMap is not safe for use by several threads at once; see ConcDualMap.
+ *
+ * @param <A> The type of the left values
+ * @param <B> The type of the right values
+ */
 public class DualMap<A, B> {
+	private Object[] pairs;
+	private long[] leftTable;
+	private long[] rightTable;
+	private int threshold;
+	private int size = 0;
+
+	/**
+	 * DualMap()
+	 * Creates an empty map.
+	 */
+	public DualMap() {
+		this(16);
+	}
+
+	/**
+	 * DualMap(int)
+	 * Creates an empty map with room for the given number of pairs before it has to grow.
+	 *
+	 * @param expectedSize The number of pairs expected
+	 * @throws IllegalArgumentException Thrown when the size is negative
+	 */
+	public DualMap(int expectedSize) throws IllegalArgumentException {
+		if (expectedSize < 0) throw new IllegalArgumentException("Size of " + expectedSize + " not valid for DualMap.");
+		int table = DualIndex.tableFor(expectedSize);
+		pairs = new Object[2 * Math.max(expectedSize, 4)];
+		leftTable = new long[table];
+		rightTable = new long[table];
+		threshold = DualIndex.threshold(table);
+	}
+
+	private void checkNotNull(Object left, Object right) {
+		if (left == null || right == null) throw new NullPointerException("DualMap does not allow null values.");
+	}
+
+	private void ensureRoom() {
+		if (2 * size == pairs.length) {
+			int length = (int) Math.min(pairs.length * 2L, Integer.MAX_VALUE - 9) & ~1;
+			if (length == 2 * size) throw new IllegalStateException("DualMap is full at " + size + " pairs.");
+			pairs = Arrays.copyOf(pairs, length);
+		}
+		if (size + 1 > threshold) {
+			leftTable = DualIndex.rehash(leftTable, leftTable.length * 2);
+			rightTable = DualIndex.rehash(rightTable, rightTable.length * 2);
+			threshold = DualIndex.threshold(leftTable.length);
+		}
+	}
+
+	/**
+	 * put(Object, Object)
+	 * Pairs two values, first breaking up any pair either of them is already in.
+	 *
+	 * @param left  The left value
+	 * @param right The right value
+	 * @return The right value the left one was paired with before, or null if it was not paired
+	 * @throws NullPointerException Thrown when either value is null
+	 */
+	@SuppressWarnings("unchecked")
+	public B put(A left, B right) throws NullPointerException {
+		checkNotNull(left, right);
+		int leftHash = DualIndex.hash(left);
+		int rightHash = DualIndex.hash(right);
+		int atLeft = DualIndex.find(leftTable, pairs, 2, 0, left, leftHash);
+		int atRight = DualIndex.find(rightTable, pairs, 2, 1, right, rightHash);
+		if (atLeft >= 0 && atLeft == atRight) return (B) pairs[2 * atLeft + 1];
+		if (atLeft < 0 && atRight < 0) {
+			ensureRoom();
+			pairs[2 * size] = left;
+			pairs[2 * size + 1] = right;
+			DualIndex.insert(leftTable, DualIndex.slot(leftHash, size));
+			DualIndex.insert(rightTable, DualIndex.slot(rightHash, size));
+			size++;
+			return null;
+		}
+		if (atLeft < 0) {
+			DualIndex.delete(leftTable, DualIndex.slotOf(leftTable, DualIndex.hash(pairs[2 * atRight]), atRight));
+			pairs[2 * atRight] = left;
+			DualIndex.insert(leftTable, DualIndex.slot(leftHash, atRight));
+			return null;
+		}
+		if (atRight >= 0) {
+			int last = size - 1;
+			removeAt(atRight);
+			if (atLeft == last) atLeft = atRight;
+		}
+		B previous = (B) pairs[2 * atLeft + 1];
+		DualIndex.delete(rightTable, DualIndex.slotOf(rightTable, DualIndex.hash(previous), atLeft));
+		pairs[2 * atLeft + 1] = right;
+		DualIndex.insert(rightTable, DualIndex.slot(rightHash, atLeft));
+		return previous;
+	}
+
+	/**
+	 * putIfAbsent(Object, Object)
+	 * Pairs two values only if neither of them is already paired.
+	 *
+	 * @param left  The left value
+	 * @param right The right value
+	 * @return True iff the pair was added
+	 * @throws NullPointerException Thrown when either value is null
+	 */
+	public boolean putIfAbsent(A left, B right) throws NullPointerException {
+		checkNotNull(left, right);
+		int leftHash = DualIndex.hash(left);
+		int rightHash = DualIndex.hash(right);
+		if (DualIndex.find(leftTable, pairs, 2, 0, left, leftHash) >= 0 || DualIndex.find(rightTable, pairs, 2, 1, right, rightHash) >= 0) return false;
+		ensureRoom();
+		pairs[2 * size] = left;
+		pairs[2 * size + 1] = right;
+		DualIndex.insert(leftTable, DualIndex.slot(leftHash, size));
+		DualIndex.insert(rightTable, DualIndex.slot(rightHash, size));
+		size++;
+		return true;
+	}
+
+	/**
+	 * getRight(Object)
+	 * Looks up the right value paired with a left one.
+	 *
+	 * @param left The left value
+	 * @return The right value, or null if the left one is not paired
+	 */
+	@SuppressWarnings("unchecked")
+	public B getRight(Object left) {
+		if (left == null) return null;
+		int position = DualIndex.find(leftTable, pairs, 2, 0, left, DualIndex.hash(left));
+		return (position < 0 ? null : (B) pairs[2 * position + 1]);
+	}
+
+	/**
+	 * getLeft(Object)
+	 * Looks up the left value paired with a right one.
+	 *
+	 * @param right The right value
+	 * @return The left value, or null if the right one is not paired
+	 */
+	@SuppressWarnings("unchecked")
+	public A getLeft(Object right) {
+		if (right == null) return null;
+		int position = DualIndex.find(rightTable, pairs, 2, 1, right, DualIndex.hash(right));
+		return (position < 0 ? null : (A) pairs[2 * position]);
+	}
+
+	/**
+	 * containsLeft(Object)
+	 * Checks whether a left value is paired.
+	 *
+	 * @param left The left value
+	 * @return True iff it is paired
+	 */
+	public boolean containsLeft(Object left) {
+		return indexOfLeft(left) >= 0;
+	}
+
+	/**
+	 * containsRight(Object)
+	 * Checks whether a right value is paired.
+	 *
+	 * @param right The right value
+	 * @return True iff it is paired
+	 */
+	public boolean containsRight(Object right) {
+		return indexOfRight(right) >= 0;
+	}
+
+	/**
+	 * indexOfLeft(Object)
+	 * Finds the position of the pair holding a left value.
+	 *
+	 * @param left The left value
+	 * @return The pair's position, or -1 if the value is not paired
+	 */
+	public int indexOfLeft(Object left) {
+		return (left == null ? -1 : DualIndex.find(leftTable, pairs, 2, 0, left, DualIndex.hash(left)));
+	}
+
+	/**
+	 * indexOfRight(Object)
+	 * Finds the position of the pair holding a right value.
+	 *
+	 * @param right The right value
+	 * @return The pair's position, or -1 if the value is not paired
+	 */
+	public int indexOfRight(Object right) {
+		return (right == null ? -1 : DualIndex.find(rightTable, pairs, 2, 1, right, DualIndex.hash(right)));
+	}
+
+	/**
+	 * getLeftAt(int)
+	 * Gets the left value of the pair at a position.
+	 *
+	 * @param index The position, from 0 to size() - 1
+	 * @return The left value
+	 * @throws IndexOutOfBoundsException Thrown when there is no pair at the position
+	 */
+	@SuppressWarnings("unchecked")
+	public A getLeftAt(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " not valid for DualMap of " + size + " pairs.");
+		return (A) pairs[2 * index];
+	}
+
+	/**
+	 * getRightAt(int)
+	 * Gets the right value of the pair at a position.
+	 *
+	 * @param index The position, from 0 to size() - 1
+	 * @return The right value
+	 * @throws IndexOutOfBoundsException Thrown when there is no pair at the position
+	 */
+	@SuppressWarnings("unchecked")
+	public B getRightAt(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " not valid for DualMap of " + size + " pairs.");
+		return (B) pairs[2 * index + 1];
+	}
+
+	/**
+	 * removeLeft(Object)
+	 * Removes the pair holding a left value.
+	 *
+	 * @param left The left value
+	 * @return The right value it was paired with, or null if it was not paired
+	 */
+	@SuppressWarnings("unchecked")
+	public B removeLeft(Object left) {
+		int position = indexOfLeft(left);
+		if (position < 0) return null;
+		B right = (B) pairs[2 * position + 1];
+		removeAt(position);
+		return right;
+	}
+
+	/**
+	 * removeRight(Object)
+	 * Removes the pair holding a right value.
+	 *
+	 * @param right The right value
+	 * @return The left value it was paired with, or null if it was not paired
+	 */
+	@SuppressWarnings("unchecked")
+	public A removeRight(Object right) {
+		int position = indexOfRight(right);
+		if (position < 0) return null;
+		A left = (A) pairs[2 * position];
+		removeAt(position);
+		return left;
+	}
+
+	/**
+	 * removeAt(int)
+	 * Removes the pair at a position, moving the last pair into its place.
+	 *
+	 * @param index The position, from 0 to size() - 1
+	 * @throws IndexOutOfBoundsException Thrown when there is no pair at the position
+	 */
+	public void removeAt(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " not valid for DualMap of " + size + " pairs.");
+		DualIndex.delete(leftTable, DualIndex.slotOf(leftTable, DualIndex.hash(pairs[2 * index]), index));
+		DualIndex.delete(rightTable, DualIndex.slotOf(rightTable, DualIndex.hash(pairs[2 * index + 1]), index));
+		int last = --size;
+		if (index != last) {
+			int leftHash = DualIndex.hash(pairs[2 * last]);
+			int rightHash = DualIndex.hash(pairs[2 * last + 1]);
+			leftTable[DualIndex.slotOf(leftTable, leftHash, last)] = DualIndex.slot(leftHash, index);
+			rightTable[DualIndex.slotOf(rightTable, rightHash, last)] = DualIndex.slot(rightHash, index);
+			pairs[2 * index] = pairs[2 * last];
+			pairs[2 * index + 1] = pairs[2 * last + 1];
+		}
+		pairs[2 * last] = null;
+		pairs[2 * last + 1] = null;
+	}
+
+	/**
+	 * size()
+	 * Gets the number of pairs.
+	 *
+	 * @return The number of pairs
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * isEmpty()
+	 * Checks whether the map has no pairs.
+	 *
+	 * @return True iff the map has no pairs
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * clear()
+	 * Removes every pair, keeping the arrays at their current size.
+	 */
+	public void clear() {
+		Arrays.fill(pairs, 0, 2 * size, null);
+		Arrays.fill(leftTable, 0);
+		Arrays.fill(rightTable, 0);
+		size = 0;
+	}
+
+	/**
+	 * forEach(BiConsumer)
+	 * Visits every pair in position order; the consumer must not change the map.
+	 *
+	 * @param consumer Receives each left value and its right value
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super A, ? super B> consumer) {
+		for (int i = 0; i < size; i++)
+			consumer.accept((A) pairs[2 * i], (B) pairs[2 * i + 1]);
+	}
+
+	/**
+	 * getHeapBytes()
+	 * Estimates the memory the map's arrays take on the Java heap, assuming compressed references and leaving out the values themselves.
+	 *
+	 * @return The estimated heap footprint in bytes
+	 */
+	public long getHeapBytes() {
+		return 3 * 16L + 4L * pairs.length + 8L * (leftTable.length + rightTable.length);
+	}
+
+	/**
+	 * getBytesPerEntry()
+	 * Gets the heap footprint divided by the number of pairs.
+	 *
+	 * @return The bytes per pair, or 0 if there are no pairs
+	 */
+	public double getBytesPerEntry() {
+		return (size == 0 ? 0 : (double) getHeapBytes() / size);
+	}
 }
@@ -1,4 +1,639 @@
 package com.avrisnox.util.graph.collections;
 
+import com.avrisnox.util.graph.components.Edge;
+import com.avrisnox.util.graph.components.Vertex;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**Graph
+ * An immutable directed graph stored in compressed sparse row (CSR) form.
+ * Vertices are numbered 0 to getVertexCount() - 1. The edges leaving each vertex sit next to each other in one int array of targets, sorted by target, and a second int array holds where each vertex's run starts; an edge is simply its index into the targets array.
+ * That costs 4 bytes per edge plus 4 per vertex, with no object per vertex or edge, and walking a vertex's edges is a linear scan of memory. Weighted graphs add 8 bytes per edge, either on the heap or in a direct buffer outside it.
+ * Graphs are put together with a Builder and are frozen from then on, so they can be shared between threads freely.
+ * Vertex and Edge are flyweight views for convenience; hot loops should use the int-based methods (getEdgeStart, getEdgeEnd, getTarget, getWeight) directly.
+ * An undirected graph is stored as a directed one with each edge added in both directions.
+ *
+ * @param <T> The type of the data attached to vertices
+ */
 public class Graph<T> {
+	/**Builder
+	 * Collects vertices and edges in any order, then freezes them into a Graph.
+	 * Edges are held as plain int (and double) arrays until build(), which sorts them into CSR form in linear time plus a sort of each vertex's own edges.
+	 *
+	 * @param <T> The type of the data attached to vertices
+	 */
+	public static class Builder<T> {
+		private final int expectedVertices;
+		private int vertexCount = 0;
+		private Object[] data = null;
+		private int edgeCount = 0;
+		private int[] sources;
+		private int[] targets;
+		private double[] weights = null;
+		private boolean offHeap = false;
+		private boolean built = false;
+
+		/**
+		 * Builder()
+		 * Creates an empty builder.
+		 */
+		public Builder() {
+			this(16, 16);
+		}
+
+		/**
+		 * Builder(int, int)
+		 * Creates an empty builder with room for the given number of vertices and edges before it has to grow.
+		 *
+		 * @param expectedVertices The number of vertices expected
+		 * @param expectedEdges    The number of edges expected
+		 */
+		public Builder(int expectedVertices, int expectedEdges) {
+			this.expectedVertices = expectedVertices;
+			sources = new int[Math.max(expectedEdges, 4)];
+			targets = new int[sources.length];
+		}
+
+		private void checkOpen() {
+			if (built) throw new IllegalStateException("Graph.Builder has already been built.");
+		}
+
+		/**
+		 * addVertex()
+		 * Adds a vertex without data.
+		 *
+		 * @return The number of the new vertex
+		 */
+		public int addVertex() {
+			checkOpen();
+			return vertexCount++;
+		}
+
+		/**
+		 * addVertex(Object)
+		 * Adds a vertex with data attached.
+		 *
+		 * @param value The data to attach to the vertex
+		 * @return The number of the new vertex
+		 */
+		public int addVertex(T value) {
+			int vertex = addVertex();
+			setData(vertex, value);
+			return vertex;
+		}
+
+		/**
+		 * addVertices(int)
+		 * Adds a number of vertices without data.
+		 *
+		 * @param count The number of vertices to add
+		 * @return The number of the first new vertex; the rest follow it
+		 */
+		public int addVertices(int count) {
+			checkOpen();
+			if (count < 0 || (long) vertexCount + count > Integer.MAX_VALUE) throw new IllegalArgumentException("Vertex count not valid for Graph.");
+			int first = vertexCount;
+			vertexCount += count;
+			return first;
+		}
+
+		/**
+		 * setData(int, Object)
+		 * Attaches data to a vertex, replacing any it had.
+		 *
+		 * @param vertex The number of the vertex
+		 * @param value  The data to attach
+		 */
+		public void setData(int vertex, T value) {
+			checkOpen();
+			checkVertex(vertex);
+			if (data == null) {
+				if (value == null) return;
+				data = new Object[Math.max(vertexCount, Math.max(expectedVertices, 16))];
+			} else if (data.length <= vertex) data = Arrays.copyOf(data, Math.max(data.length * 2, vertex + 1));
+			data[vertex] = value;
+		}
+
+		private void checkVertex(int vertex) {
+			if (vertex < 0 || vertex >= vertexCount) throw new IndexOutOfBoundsException("Vertex " + vertex + " not valid for Graph of " + vertexCount + " vertices.");
+		}
+
+		/**
+		 * addEdge(int, int)
+		 * Adds an edge; if the graph is weighted, the edge weighs 1.
+		 *
+		 * @param from The vertex the edge leaves
+		 * @param to   The vertex the edge enters
+		 */
+		public void addEdge(int from, int to) {
+			checkOpen();
+			checkVertex(from);
+			checkVertex(to);
+			if (edgeCount == sources.length) grow();
+			sources[edgeCount] = from;
+			targets[edgeCount] = to;
+			if (weights != null) weights[edgeCount] = 1;
+			edgeCount++;
+		}
+
+		/**
+		 * addEdge(int, int, double)
+		 * Adds a weighted edge; the first weighted edge makes the whole graph weighted, with earlier edges weighing 1.
+		 *
+		 * @param from   The vertex the edge leaves
+		 * @param to     The vertex the edge enters
+		 * @param weight The weight of the edge
+		 */
+		public void addEdge(int from, int to, double weight) {
+			checkOpen();
+			if (weights == null && weight != 1) {
+				weights = new double[sources.length];
+				Arrays.fill(weights, 0, edgeCount, 1);
+			}
+			addEdge(from, to);
+			if (weights != null) weights[edgeCount - 1] = weight;
+		}
+
+		private void grow() {
+			if (sources.length == Integer.MAX_VALUE - 8) throw new IllegalStateException("Graph cannot hold more than " + sources.length + " edges.");
+			int size = (int) Math.min((long) sources.length * 2, Integer.MAX_VALUE - 8);
+			sources = Arrays.copyOf(sources, size);
+			targets = Arrays.copyOf(targets, size);
+			if (weights != null) weights = Arrays.copyOf(weights, size);
+		}
+
+		/**
+		 * weighted()
+		 * Makes the graph weighted even if every edge weighs 1.
+		 *
+		 * @return This builder
+		 */
+		public Builder<T> weighted() {
+			checkOpen();
+			if (weights == null) {
+				weights = new double[sources.length];
+				Arrays.fill(weights, 0, edgeCount, 1);
+			}
+			return this;
+		}
+
+		/**
+		 * offHeap(boolean)
+		 * Chooses whether the built graph keeps its edge weights in a direct buffer outside the Java heap, where they add nothing to garbage collection work.
+		 *
+		 * @param offHeap True to keep weights off the heap; a direct buffer holds at most Integer.MAX_VALUE bytes, so this allows up to 268,435,455 edges
+		 * @return This builder
+		 */
+		public Builder<T> offHeap(boolean offHeap) {
+			checkOpen();
+			this.offHeap = offHeap;
+			return this;
+		}
+
+		/**
+		 * getVertexCount()
+		 * Gets the number of vertices added so far.
+		 *
+		 * @return The number of vertices
+		 */
+		public int getVertexCount() {
+			return vertexCount;
+		}
+
+		/**
+		 * getEdgeCount()
+		 * Gets the number of edges added so far.
+		 *
+		 * @return The number of edges
+		 */
+		public int getEdgeCount() {
+			return edgeCount;
+		}
+
+		/**
+		 * build()
+		 * Freezes the vertices and edges into a Graph; the builder cannot be used afterwards.
+		 *
+		 * @return The graph
+		 * @throws IllegalArgumentException Thrown when the weights were to be kept off the heap but are too many for one direct buffer
+		 */
+		public Graph<T> build() throws IllegalArgumentException {
+			checkOpen();
+			// Checked before anything is torn down, so the builder is still usable with offHeap(false)
+			if (offHeap && weights != null && 8L * edgeCount > Integer.MAX_VALUE) throw new IllegalArgumentException(edgeCount + " off-heap edge weights not valid for Graph; a direct buffer holds at most " + (Integer.MAX_VALUE / 8) + ".");
+			built = true;
+			int[] offsets = new int[vertexCount + 1];
+			for (int i = 0; i < edgeCount; i++)
+				offsets[sources[i] + 1]++;
+			for (int v = 0; v < vertexCount; v++)
+				offsets[v + 1] += offsets[v];
+
+			int[] next = Arrays.copyOf(offsets, vertexCount);
+			int[] sortedTargets = new int[edgeCount];
+			double[] sortedWeights = (weights != null ? new double[edgeCount] : null);
+			for (int i = 0; i < edgeCount; i++) {
+				int slot = next[sources[i]]++;
+				sortedTargets[slot] = targets[i];
+				if (sortedWeights != null) sortedWeights[slot] = weights[i];
+			}
+			sources = null;
+			targets = null;
+			weights = null;
+			sortRows(offsets, sortedTargets, sortedWeights);
+
+			Object[] values = (data != null ? Arrays.copyOf(data, vertexCount) : null);
+			data = null;
+			return new Graph<>(vertexCount, offsets, sortedTargets, storeWeights(sortedWeights, offHeap), values);
+		}
+	}
+
+	/* Sorts each vertex's run of edges by target, carrying the weights along. */
+	private static void sortRows(int[] offsets, int[] targets, double[] weights) {
+		long[] scratch = null;
+		double[] weightScratch = null;
+		for (int v = 0; v + 1 < offsets.length; v++) {
+			int start = offsets[v];
+			int end = offsets[v + 1];
+			if (end - start < 2) continue;
+			if (weights == null) {
+				Arrays.sort(targets, start, end);
+				continue;
+			}
+			int length = end - start;
+			if (scratch == null || scratch.length < length) {
+				scratch = new long[Math.max(length, 16)];
+				weightScratch = new double[scratch.length];
+			}
+			for (int i = 0; i < length; i++)
+				scratch[i] = ((long) targets[start + i] << 32) | i;
+			Arrays.sort(scratch, 0, length);
+			System.arraycopy(weights, start, weightScratch, 0, length);
+			for (int i = 0; i < length; i++) {
+				targets[start + i] = (int) (scratch[i] >>> 32);
+				weights[start + i] = weightScratch[(int) scratch[i]];
+			}
+		}
+	}
+
+	private static DoubleBuffer storeWeights(double[] weights, boolean offHeap) throws IllegalArgumentException {
+		if (weights == null) return null;
+		if (!offHeap) return DoubleBuffer.wrap(weights);
+		long bytes = 8L * weights.length;
+		if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException(weights.length + " off-heap edge weights not valid for Graph; a direct buffer holds at most " + (Integer.MAX_VALUE / 8) + ".");
+		DoubleBuffer direct = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		direct.put(weights);
+		direct.clear();
+		return direct;
+	}
+
+	private final int vertexCount;
+	private final int[] offsets;
+	private final int[] targets;
+	private final DoubleBuffer weights;
+	private final Object[] data;
+	private final boolean nonNegative;
+	private final double meanWeight;
+	private volatile Graph<T> reversed = null;
+
+	private Graph(int vertexCount, int[] offsets, int[] targets, DoubleBuffer weights, Object[] data) {
+		this.vertexCount = vertexCount;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		this.data = data;
+		// One pass when the graph is made, so searches never have to scan every edge per query
+		boolean valid = true;
+		double sum = 0;
+		for (int edge = 0; weights != null && edge < targets.length; edge++) {
+			double weight = weights.get(edge);
+			valid &= weight >= 0;
+			sum += weight;
+		}
+		nonNegative = valid;
+		meanWeight = (weights == null || targets.length == 0 ? 1 : sum / targets.length);
+	}
+
+	/**
+	 * fromArrays(int[], int[], double[], Object[], boolean)
+	 * Wraps arrays already in CSR form as a Graph without copying them, for code that builds CSR arrays itself (such as merging a batch of changes into an existing graph) and would only waste a copy going through a Builder.
+	 * The arrays are taken over as they are: the caller must not change them afterwards. The data array may be shared between graphs, since no graph changes it.
+	 *
+	 * @param offsets The start of each vertex's run of edges, with one extra entry at the end holding the edge count
+	 * @param targets The target of each edge, sorted within each vertex's run
+	 * @param weights The weight of each edge, or null for an unweighted graph
+	 * @param data    The data attached to each vertex, or null if there is none
+	 * @param offHeap True to copy the weights into a direct buffer outside the Java heap, which holds at most 268,435,455 of them
+	 * @param <T>     The type of the data attached to vertices
+	 * @return The graph
+	 * @throws IllegalArgumentException Thrown when the arrays do not describe a valid graph, or there are too many weights to keep off the heap
+	 */
+	public static <T> Graph<T> fromArrays(int[] offsets, int[] targets, double[] weights, Object[] data, boolean offHeap) throws IllegalArgumentException {
+		int vertexCount = offsets.length - 1;
+		if (vertexCount < 0 || offsets[0] != 0 || offsets[vertexCount] != targets.length) throw new IllegalArgumentException("Offsets not valid for Graph of " + targets.length + " edges.");
+		if (weights != null && weights.length != targets.length) throw new IllegalArgumentException("Weights of length " + weights.length + " not valid for Graph of " + targets.length + " edges.");
+		if (data != null && data.length != vertexCount) throw new IllegalArgumentException("Data of length " + data.length + " not valid for Graph of " + vertexCount + " vertices.");
+		for (int v = 0; v < vertexCount; v++) {
+			if (offsets[v + 1] < offsets[v]) throw new IllegalArgumentException("Offsets not valid for Graph of " + targets.length + " edges.");
+			for (int edge = offsets[v], previous = 0; edge < offsets[v + 1]; edge++) {
+				int target = targets[edge];
+				if (target < previous || target >= vertexCount) throw new IllegalArgumentException("Edge target " + target + " of vertex " + v + " not valid for Graph of " + vertexCount + " vertices.");
+				previous = target;
+			}
+		}
+		return new Graph<>(vertexCount, offsets, targets, storeWeights(weights, offHeap), data);
+	}
+
+	/**
+	 * getVertexCount()
+	 * Gets the number of vertices.
+	 *
+	 * @return The number of vertices
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * getEdgeCount()
+	 * Gets the number of edges.
+	 *
+	 * @return The number of edges
+	 */
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * isWeighted()
+	 * Checks whether the graph stores edge weights.
+	 *
+	 * @return True iff the edges have weights
+	 */
+	public boolean isWeighted() {
+		return weights != null;
+	}
+
+	/**
+	 * hasNonNegativeWeights()
+	 * Checks whether every edge weight is zero or more, as shortest path searches need; this is worked out once when the graph is made, so it costs nothing to ask.
+	 *
+	 * @return True iff no edge has a negative or NaN weight; always true for an unweighted graph
+	 */
+	public boolean hasNonNegativeWeights() {
+		return nonNegative;
+	}
+
+	/**
+	 * getMeanWeight()
+	 * Gets the mean edge weight, worked out once when the graph is made.
+	 *
+	 * @return The mean weight, or 1 if the graph is unweighted or has no edges
+	 */
+	public double getMeanWeight() {
+		return meanWeight;
+	}
+
+	/**
+	 * isOffHeap()
+	 * Checks whether the edge weights are kept outside the Java heap.
+	 *
+	 * @return True iff the weights are in a direct buffer
+	 */
+	public boolean isOffHeap() {
+		return weights != null && weights.isDirect();
+	}
+
+	/**
+	 * getData(int)
+	 * Gets the data attached to a vertex.
+	 *
+	 * @param vertex The number of the vertex
+	 * @return The data, or null if none was attached
+	 */
+	@SuppressWarnings("unchecked")
+	public T getData(int vertex) {
+		if (vertex < 0 || vertex >= vertexCount) throw new IndexOutOfBoundsException("Vertex " + vertex + " not valid for Graph of " + vertexCount + " vertices.");
+		return (data != null ? (T) data[vertex] : null);
+	}
+
+	/**
+	 * getOutDegree(int)
+	 * Gets the number of edges leaving a vertex.
+	 *
+	 * @param vertex The number of the vertex
+	 * @return The out-degree of the vertex
+	 */
+	public int getOutDegree(int vertex) {
+		return offsets[vertex + 1] - offsets[vertex];
+	}
+
+	/**
+	 * getEdgeStart(int)
+	 * Gets the first edge leaving a vertex; the vertex's edges run from here up to but not including getEdgeEnd(vertex).
+	 *
+	 * @param vertex The number of the vertex
+	 * @return The index of the vertex's first edge
+	 */
+	public int getEdgeStart(int vertex) {
+		return offsets[vertex];
+	}
+
+	/**
+	 * getEdgeEnd(int)
+	 * Gets the index just past the last edge leaving a vertex.
+	 *
+	 * @param vertex The number of the vertex
+	 * @return The end of the vertex's edges
+	 */
+	public int getEdgeEnd(int vertex) {
+		return offsets[vertex + 1];
+	}
+
+	/**
+	 * getTarget(int)
+	 * Gets the vertex an edge enters.
+	 *
+	 * @param edge The index of the edge
+	 * @return The target vertex
+	 */
+	public int getTarget(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * getWeight(int)
+	 * Gets the weight of an edge.
+	 *
+	 * @param edge The index of the edge
+	 * @return The weight of the edge, or 1 if the graph is unweighted
+	 */
+	public double getWeight(int edge) {
+		return (weights != null ? weights.get(edge) : 1);
+	}
+
+	/**
+	 * getSource(int)
+	 * Gets the vertex an edge leaves, by binary search over the vertices.
+	 *
+	 * @param edge The index of the edge
+	 * @return The source vertex
+	 */
+	public int getSource(int edge) {
+		if (edge < 0 || edge >= targets.length) throw new IndexOutOfBoundsException("Edge " + edge + " not valid for Graph of " + targets.length + " edges.");
+		int low = 0;
+		int high = vertexCount - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (offsets[middle] <= edge) low = middle;
+			else high = middle - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * findEdge(int, int)
+	 * Finds an edge between two vertices, by binary search over the edges leaving from.
+	 *
+	 * @param from The vertex the edge leaves
+	 * @param to   The vertex the edge enters
+	 * @return The index of an edge from one to the other, or -1 if there is none
+	 */
+	public int findEdge(int from, int to) {
+		int found = Arrays.binarySearch(targets, offsets[from], offsets[from + 1], to);
+		return (found >= 0 ? found : -1);
+	}
+
+	/**
+	 * hasEdge(int, int)
+	 * Checks whether there is an edge between two vertices.
+	 *
+	 * @param from The vertex the edge leaves
+	 * @param to   The vertex the edge enters
+	 * @return True iff there is at least one edge from one to the other
+	 */
+	public boolean hasEdge(int from, int to) {
+		return findEdge(from, to) >= 0;
+	}
+
+	/**
+	 * forEachNeighbour(int, IntConsumer)
+	 * Hands every vertex that an edge from the given vertex enters to the consumer, in ascending order.
+	 *
+	 * @param vertex   The number of the vertex
+	 * @param consumer Receives each neighbour
+	 */
+	public void forEachNeighbour(int vertex, IntConsumer consumer) {
+		for (int edge = offsets[vertex], end = offsets[vertex + 1]; edge < end; edge++)
+			consumer.accept(targets[edge]);
+	}
+
+	/**
+	 * getVertex(int)
+	 * Gets a flyweight view of a vertex.
+	 *
+	 * @param vertex The number of the vertex
+	 * @return A view of the vertex
+	 */
+	public Vertex<T> getVertex(int vertex) {
+		if (vertex < 0 || vertex >= vertexCount) throw new IndexOutOfBoundsException("Vertex " + vertex + " not valid for Graph of " + vertexCount + " vertices.");
+		return new Vertex<>(this, vertex);
+	}
+
+	/**
+	 * getEdges(int)
+	 * Gets flyweight views of the edges leaving a vertex, in order of target.
+	 *
+	 * @param vertex The number of the vertex
+	 * @return The edges leaving the vertex
+	 */
+	public Iterable<Edge<T>> getEdges(int vertex) {
+		int start = offsets[vertex];
+		int end = offsets[vertex + 1];
+		return () -> new Iterator<Edge<T>>() {
+			private int edge = start;
+
+			@Override
+			public boolean hasNext() {
+				return edge < end;
+			}
+
+			@Override
+			public Edge<T> next() {
+				if (edge >= end) throw new NoSuchElementException();
+				return new Edge<>(Graph.this, vertex, edge++);
+			}
+		};
+	}
+
+	/**
+	 * reverse()
+	 * Gets the graph with every edge turned around, sharing this graph's vertex data; it is built on first use and kept.
+	 * Searches that need the edges entering a vertex, such as bottom-up breadth-first search, walk the reverse graph.
+	 *
+	 * @return The reversed graph
+	 */
+	public Graph<T> reverse() {
+		Graph<T> result = reversed;
+		if (result != null) return result;
+		synchronized (this) {
+			if (reversed != null) return reversed;
+			int[] reverseOffsets = new int[vertexCount + 1];
+			for (int target : targets)
+				reverseOffsets[target + 1]++;
+			for (int v = 0; v < vertexCount; v++)
+				reverseOffsets[v + 1] += reverseOffsets[v];
+			int[] next = Arrays.copyOf(reverseOffsets, vertexCount);
+			int[] reverseTargets = new int[targets.length];
+			double[] reverseWeights = (weights != null ? new double[targets.length] : null);
+			for (int v = 0; v < vertexCount; v++)
+				for (int edge = offsets[v]; edge < offsets[v + 1]; edge++) {
+					int slot = next[targets[edge]]++;
+					reverseTargets[slot] = v;
+					if (reverseWeights != null) reverseWeights[slot] = weights.get(edge);
+				}
+			result = new Graph<>(vertexCount, reverseOffsets, reverseTargets, storeWeights(reverseWeights, isOffHeap()), data);
+			result.reversed = this;
+			reversed = result;
+			return result;
+		}
+	}
+
+	/**
+	 * getHeapBytes()
+	 * Estimates the memory the graph's arrays take on the Java heap, leaving out the vertex data objects themselves and any cached reverse graph.
+	 *
+	 * @return The estimated heap footprint in bytes
+	 */
+	public long getHeapBytes() {
+		long bytes = 16L + 4L * offsets.length + 16 + 4L * targets.length;
+		if (weights != null && !weights.isDirect()) bytes += 16 + 8L * weights.capacity();
+		if (data != null) bytes += 16 + 4L * data.length;
+		return bytes;
+	}
+
+	/**
+	 * getOffHeapBytes()
+	 * Gets the memory the graph's edge weights take outside the Java heap.
+	 *
+	 * @return The off-heap footprint in bytes
+	 */
+	public long getOffHeapBytes() {
+		return (weights != null && weights.isDirect() ? 8L * weights.capacity() : 0);
+	}
+
+	/**
+	 * getBytesPerEdge()
+	 * Gets the total footprint, on and off the heap, divided by the number of edges.
+	 *
+	 * @return The bytes per edge, or 0 if there are no edges
+	 */
+	public double getBytesPerEdge() {
+		return (targets.length == 0 ? 0 : (double) (getHeapBytes() + getOffHeapBytes()) / targets.length);
+	}
 }
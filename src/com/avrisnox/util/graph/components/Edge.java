@@ -1,4 +1,106 @@
 package com.avrisnox.util.graph.components;
 
+import com.avrisnox.util.graph.collections.Graph;
+
+/**Edge
+ * A flyweight view of one edge of a Graph: the graph, the vertex the edge leaves and the edge's index.
+ * Like Vertex, views are made on demand and hold no state of their own.
+ *
+ * @param <E> The type of the data attached to the vertices the edge joins
+ */
 public class Edge<E> {
+	private final Graph<E> graph;
+	private final int source;
+	private final int index;
+
+	/**
+	 * Edge(Graph, int, int)
+	 * Creates a view of an edge.
+	 *
+	 * @param graph  The graph the edge belongs to
+	 * @param source The vertex the edge leaves
+	 * @param index  The index of the edge in the graph
+	 */
+	public Edge(Graph<E> graph, int source, int index) {
+		this.graph = graph;
+		this.source = source;
+		this.index = index;
+	}
+
+	/**
+	 * getIndex()
+	 * Gets the index of the edge in its graph.
+	 *
+	 * @return The index of the edge
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * getSource()
+	 * Gets the number of the vertex the edge leaves.
+	 *
+	 * @return The source vertex
+	 */
+	public int getSource() {
+		return source;
+	}
+
+	/**
+	 * getTarget()
+	 * Gets the number of the vertex the edge enters.
+	 *
+	 * @return The target vertex
+	 */
+	public int getTarget() {
+		return graph.getTarget(index);
+	}
+
+	/**
+	 * getWeight()
+	 * Gets the weight of the edge.
+	 *
+	 * @return The weight, or 1 if the graph is unweighted
+	 */
+	public double getWeight() {
+		return graph.getWeight(index);
+	}
+
+	/**
+	 * getSourceVertex()
+	 * Gets a view of the vertex the edge leaves.
+	 *
+	 * @return The source vertex
+	 */
+	public Vertex<E> getSourceVertex() {
+		return new Vertex<>(graph, source);
+	}
+
+	/**
+	 * getTargetVertex()
+	 * Gets a view of the vertex the edge enters.
+	 *
+	 * @return The target vertex
+	 */
+	public Vertex<E> getTargetVertex() {
+		return new Vertex<>(graph, getTarget());
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Edge)) return false;
+		Edge<?> other = (Edge<?>) o;
+		return graph == other.graph && index == other.index;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(graph) * 31 + index;
+	}
+
+	@Override
+	public String toString() {
+		return "Edge " + source + "->" + getTarget();
+	}
 }
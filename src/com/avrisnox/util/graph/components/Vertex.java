@@ -1,4 +1,93 @@
 package com.avrisnox.util.graph.components;
 
+import com.avrisnox.util.graph.collections.Graph;
+
+/**Vertex
+ * A flyweight view of one vertex of a Graph: just the graph and the vertex's number.
+ * Views are made on demand and hold no state of their own, so two views of the same vertex are equal, and a view costs nothing once it is dropped.
+ *
+ * @param <T> The type of the data attached to vertices
+ */
 public class Vertex<T> {
+	private final Graph<T> graph;
+	private final int id;
+
+	/**
+	 * Vertex(Graph, int)
+	 * Creates a view of a vertex.
+	 *
+	 * @param graph The graph the vertex belongs to
+	 * @param id    The number of the vertex
+	 */
+	public Vertex(Graph<T> graph, int id) {
+		this.graph = graph;
+		this.id = id;
+	}
+
+	/**
+	 * getGraph()
+	 * Gets the graph the vertex belongs to.
+	 *
+	 * @return The graph
+	 */
+	public Graph<T> getGraph() {
+		return graph;
+	}
+
+	/**
+	 * getId()
+	 * Gets the number of the vertex.
+	 *
+	 * @return The number of the vertex
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * getData()
+	 * Gets the data attached to the vertex.
+	 *
+	 * @return The data, or null if none was attached
+	 */
+	public T getData() {
+		return graph.getData(id);
+	}
+
+	/**
+	 * getOutDegree()
+	 * Gets the number of edges leaving the vertex.
+	 *
+	 * @return The out-degree
+	 */
+	public int getOutDegree() {
+		return graph.getOutDegree(id);
+	}
+
+	/**
+	 * getEdges()
+	 * Gets views of the edges leaving the vertex, in order of target.
+	 *
+	 * @return The edges leaving the vertex
+	 */
+	public Iterable<Edge<T>> getEdges() {
+		return graph.getEdges(id);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Vertex)) return false;
+		Vertex<?> other = (Vertex<?>) o;
+		return graph == other.graph && id == other.id;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(graph) * 31 + id;
+	}
+
+	@Override
+	public String toString() {
+		return "Vertex " + id;
+	}
 }
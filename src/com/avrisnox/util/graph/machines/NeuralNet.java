@@ -1,4 +1,400 @@
 package com.avrisnox.util.graph.machines;
 
+import com.avrisnox.concurrent.Chunks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**NeuralNet
+ * A fully connected feed-forward network that runs on the CPU, trained by mini-batch gradient descent on mean squared error.
+ * Each layer's weights are one contiguous float[] matrix, row-major with one row per output neuron, and a batch of samples is one float[] with one row per sample, so a layer is a matrix multiply rather than a walk over neuron objects.
+ * The multiplies are cache-blocked: tiles of sample rows and weight rows small enough to stay in cache are combined before moving on, and the inner loops are plain unit-stride loops over float arrays, which the JIT unrolls and vectorizes with whatever SIMD the CPU has.
+ * The ForkJoinPool overloads split each batch across the pool's threads: forward passes and input gradients by sample, weight updates by output neuron, so no two threads ever write the same float.
+ * Prediction can run from many threads at once; training changes the weights and must not overlap with any other use of the network.
+ */
 public class NeuralNet {
+	/**Activation
+	 * The function applied to each neuron's weighted sum.
+	 */
+	public enum Activation {
+		IDENTITY, RELU, SIGMOID, TANH;
+
+		/**
+		 * apply(float)
+		 * Applies the function.
+		 *
+		 * @param x The weighted sum
+		 * @return The neuron's output
+		 */
+		public float apply(float x) {
+			switch (this) {
+				case RELU:
+					return (x > 0 ? x : 0);
+				case SIGMOID:
+					return (float) (1 / (1 + Math.exp(-x)));
+				case TANH:
+					return (float) Math.tanh(x);
+				default:
+					return x;
+			}
+		}
+
+		/**
+		 * derivative(float)
+		 * Gets the slope of the function, worked out from its output so the weighted sums need not be kept.
+		 *
+		 * @param y The neuron's output
+		 * @return The slope at that output
+		 */
+		public float derivative(float y) {
+			switch (this) {
+				case RELU:
+					return (y > 0 ? 1 : 0);
+				case SIGMOID:
+					return y * (1 - y);
+				case TANH:
+					return 1 - y * y;
+				default:
+					return 1;
+			}
+		}
+	}
+
+	/* Tile sizes: a tile of ROWS samples against COLUMNS weight rows over DEPTH inputs is 2 * 16 * 256 floats, 32KB, which stays in L1/L2. */
+	private static final int ROWS = 16;
+	private static final int COLUMNS = 16;
+	private static final int DEPTH = 256;
+	/* Roughly the multiply-adds worth handing to a task of its own. */
+	private static final long GRAIN = 1 << 16;
+
+	private final int[] sizes;
+	private final float[][] weights;
+	private final float[][] biases;
+	private final Activation hidden;
+	private final Activation output;
+
+	/**
+	 * NeuralNet(int...)
+	 * Creates a network with ReLU hidden layers and a linear output layer, with weights drawn from a fixed seed.
+	 *
+	 * @param sizes The number of neurons in each layer, from the inputs to the outputs
+	 * @throws IllegalArgumentException Thrown when there are fewer than two layers, a layer is empty, or a layer's weights are too many for one array
+	 */
+	public NeuralNet(int... sizes) throws IllegalArgumentException {
+		this(Activation.RELU, Activation.IDENTITY, 0, sizes);
+	}
+
+	/**
+	 * NeuralNet(Activation, Activation, long, int...)
+	 * Creates a network with random weights, scaled to the size of each layer so the outputs neither vanish nor explode.
+	 *
+	 * @param hidden The activation of the hidden layers
+	 * @param output The activation of the output layer
+	 * @param seed   The seed for the initial weights
+	 * @param sizes  The number of neurons in each layer, from the inputs to the outputs
+	 * @throws IllegalArgumentException Thrown when there are fewer than two layers, a layer is empty, or a layer's weights are too many for one array
+	 */
+	public NeuralNet(Activation hidden, Activation output, long seed, int... sizes) throws IllegalArgumentException {
+		if (sizes.length < 2) throw new IllegalArgumentException(sizes.length + " layers not valid for NeuralNet.");
+		for (int size : sizes)
+			if (size < 1) throw new IllegalArgumentException("Layer of " + size + " neurons not valid for NeuralNet.");
+		this.sizes = sizes.clone();
+		this.hidden = hidden;
+		this.output = output;
+		weights = new float[sizes.length - 1][];
+		biases = new float[sizes.length - 1][];
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int l = 0; l + 1 < sizes.length; l++) {
+			int in = sizes[l];
+			int out = sizes[l + 1];
+			weights[l] = new float[cells(in, out, "Weights")];
+			biases[l] = new float[out];
+			double scale = Math.sqrt((l + 2 < sizes.length && hidden == Activation.RELU ? 6.0 : 3.0) / in);
+			for (int i = 0; i < weights[l].length; i++)
+				weights[l][i] = (float) ((random.nextDouble() * 2 - 1) * scale);
+		}
+	}
+
+	/**
+	 * getLayerCount()
+	 * Gets the number of layers, counting the inputs as a layer.
+	 *
+	 * @return The number of layers
+	 */
+	public int getLayerCount() {
+		return sizes.length;
+	}
+
+	/**
+	 * getLayerSize(int)
+	 * Gets the number of neurons in a layer.
+	 *
+	 * @param layer The layer, 0 being the inputs
+	 * @return The number of neurons
+	 */
+	public int getLayerSize(int layer) {
+		return sizes[layer];
+	}
+
+	/**
+	 * getWeights(int)
+	 * Gets the weights feeding a layer; the array is the network's own, so changes to it change the network.
+	 *
+	 * @param layer The layer the weights feed, from 1 to getLayerCount() - 1
+	 * @return The weights, with the row for output neuron o and input i at index o * getLayerSize(layer - 1) + i
+	 */
+	public float[] getWeights(int layer) {
+		return weights[layer - 1];
+	}
+
+	/**
+	 * getBiases(int)
+	 * Gets the biases of a layer's neurons; the array is the network's own, so changes to it change the network.
+	 *
+	 * @param layer The layer, from 1 to getLayerCount() - 1
+	 * @return The biases
+	 */
+	public float[] getBiases(int layer) {
+		return biases[layer - 1];
+	}
+
+	/**
+	 * getParameterCount()
+	 * Gets the number of weights and biases.
+	 *
+	 * @return The number of parameters
+	 */
+	public long getParameterCount() {
+		long count = 0;
+		for (int l = 0; l < weights.length; l++)
+			count += weights[l].length + biases[l].length;
+		return count;
+	}
+
+	/* Splits [0, items) into chunks of at least GRAIN multiply-adds and runs them on the pool, or runs it whole if there is no pool. */
+	private static void split(ForkJoinPool pool, int items, long workPerItem, RangeBody body) {
+		int chunks = (pool == null ? 1 : (int) Math.max(1, Math.min(Math.min(pool.getParallelism() * 4L, items), items * workPerItem / GRAIN)));
+		if (chunks == 1) body.run(0, items);
+		else Chunks.run(pool, chunks, chunk -> body.run((int) ((long) chunk * items / chunks), (int) ((long) (chunk + 1) * items / chunks)));
+	}
+
+	/* A piece of work over a range of rows - due to its private nature, it has been left undocumented. */
+	private interface RangeBody {
+		void run(int from, int to);
+	}
+
+	/* The length of an array of rows by width values, or IllegalArgumentException when that is more than an array can hold. */
+	private static int cells(int rows, int width, String what) {
+		long cells = (long) rows * width;
+		if (cells > Integer.MAX_VALUE - 8) throw new IllegalArgumentException(what + " of " + rows + " by " + width + " values not valid for NeuralNet.");
+		return (int) cells;
+	}
+
+	private void checkBatch(float[] data, int count, int width, String what) {
+		if (count < 0 || data.length < (long) count * width) throw new IllegalArgumentException(what + " of length " + data.length + " not valid for " + count + " samples of " + width + " values.");
+	}
+
+	/**
+	 * predict(float[])
+	 * Runs one sample through the network.
+	 *
+	 * @param input The sample's inputs
+	 * @return The network's outputs
+	 * @throws IllegalArgumentException Thrown when there are too few inputs
+	 */
+	public float[] predict(float[] input) throws IllegalArgumentException {
+		return predict(input, 1, null);
+	}
+
+	/**
+	 * predict(float[], int)
+	 * Runs a batch of samples through the network on the calling thread.
+	 *
+	 * @param inputs The inputs, one row of getLayerSize(0) values per sample
+	 * @param count  The number of samples
+	 * @return The outputs, one row per sample
+	 * @throws IllegalArgumentException Thrown when there are too few inputs, or a layer's outputs for the batch are too many for one array
+	 */
+	public float[] predict(float[] inputs, int count) throws IllegalArgumentException {
+		return predict(inputs, count, null);
+	}
+
+	/**
+	 * predict(float[], int, ForkJoinPool)
+	 * Runs a batch of samples through the network, split across the pool's threads.
+	 *
+	 * @param inputs The inputs, one row of getLayerSize(0) values per sample
+	 * @param count  The number of samples
+	 * @param pool   The pool to run on, or null to run on the calling thread
+	 * @return The outputs, one row per sample
+	 * @throws IllegalArgumentException Thrown when there are too few inputs, or a layer's outputs for the batch are too many for one array
+	 */
+	public float[] predict(float[] inputs, int count, ForkJoinPool pool) throws IllegalArgumentException {
+		checkBatch(inputs, count, sizes[0], "Inputs");
+		float[] current = inputs;
+		for (int l = 0; l < weights.length; l++) {
+			float[] next = new float[cells(count, sizes[l + 1], "Batch")];
+			forward(l, current, next, count, pool);
+			current = next;
+		}
+		return current;
+	}
+
+	private void forward(int layer, float[] x, float[] y, int count, ForkJoinPool pool) {
+		int in = sizes[layer];
+		int out = sizes[layer + 1];
+		float[] w = weights[layer];
+		float[] b = biases[layer];
+		Activation activation = (layer + 1 == weights.length ? output : hidden);
+		split(pool, count, (long) in * out, (from, to) -> {
+			for (int i = from; i < to; i++)
+				System.arraycopy(b, 0, y, i * out, out);
+			for (int k0 = 0; k0 < in; k0 += DEPTH) {
+				int k1 = Math.min(k0 + DEPTH, in);
+				for (int i0 = from; i0 < to; i0 += ROWS) {
+					int i1 = Math.min(i0 + ROWS, to);
+					for (int o0 = 0; o0 < out; o0 += COLUMNS) {
+						int o1 = Math.min(o0 + COLUMNS, out);
+						for (int i = i0; i < i1; i++)
+							for (int o = o0; o < o1; o++)
+								y[i * out + o] += dot(x, i * in + k0, w, o * in + k0, k1 - k0);
+					}
+				}
+			}
+			if (activation != Activation.IDENTITY)
+				for (int j = from * out, end = to * out; j < end; j++)
+					y[j] = activation.apply(y[j]);
+		});
+	}
+
+	/* Four independent sums keep the adds from waiting on each other. */
+	private static float dot(float[] a, int aAt, float[] b, int bAt, int length) {
+		float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			s0 += a[aAt + i] * b[bAt + i];
+			s1 += a[aAt + i + 1] * b[bAt + i + 1];
+			s2 += a[aAt + i + 2] * b[bAt + i + 2];
+			s3 += a[aAt + i + 3] * b[bAt + i + 3];
+		}
+		for (; i < length; i++)
+			s0 += a[aAt + i] * b[bAt + i];
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	private static void axpy(float scale, float[] x, int xAt, float[] y, int yAt, int length) {
+		for (int i = 0; i < length; i++)
+			y[yAt + i] += scale * x[xAt + i];
+	}
+
+	/**
+	 * train(float[], float[], int, float)
+	 * Takes one gradient descent step on a mini-batch, on the calling thread.
+	 *
+	 * @param inputs       The inputs, one row of getLayerSize(0) values per sample
+	 * @param targets      The wanted outputs, one row per sample
+	 * @param count        The number of samples
+	 * @param learningRate The size of the step
+	 * @return The batch's mean squared error before the step, halved
+	 * @throws IllegalArgumentException Thrown when there are too few inputs or targets, or a layer's outputs for the batch are too many for one array
+	 */
+	public float train(float[] inputs, float[] targets, int count, float learningRate) throws IllegalArgumentException {
+		return train(inputs, targets, count, learningRate, null);
+	}
+
+	/**
+	 * train(float[], float[], int, float, ForkJoinPool)
+	 * Takes one gradient descent step on a mini-batch, split across the pool's threads; the result is the same as on one thread up to float rounding.
+	 *
+	 * @param inputs       The inputs, one row of getLayerSize(0) values per sample
+	 * @param targets      The wanted outputs, one row per sample
+	 * @param count        The number of samples
+	 * @param learningRate The size of the step
+	 * @param pool         The pool to run on, or null to run on the calling thread
+	 * @return The batch's mean squared error before the step, halved
+	 * @throws IllegalArgumentException Thrown when there are too few inputs or targets, or a layer's outputs for the batch are too many for one array
+	 */
+	public float train(float[] inputs, float[] targets, int count, float learningRate, ForkJoinPool pool) throws IllegalArgumentException {
+		checkBatch(inputs, count, sizes[0], "Inputs");
+		int layers = weights.length;
+		checkBatch(targets, count, sizes[layers], "Targets");
+		if (count == 0) return 0;
+		float[][] activations = new float[layers + 1][];
+		activations[0] = inputs;
+		for (int l = 0; l < layers; l++) {
+			activations[l + 1] = new float[cells(count, sizes[l + 1], "Batch")];
+			forward(l, activations[l], activations[l + 1], count, pool);
+		}
+
+		int outputs = sizes[layers];
+		float[] last = activations[layers];
+		float[] delta = new float[cells(count, outputs, "Batch")];
+		double loss = 0;
+		for (int j = 0; j < delta.length; j++) {
+			float error = last[j] - targets[j];
+			loss += error * error;
+			delta[j] = error * output.derivative(last[j]) / count;
+		}
+
+		for (int l = layers - 1; l >= 0; l--) {
+			float[] previous = null;
+			if (l > 0) {
+				previous = new float[cells(count, sizes[l], "Batch")];
+				backward(l, delta, activations[l], previous, count, pool);
+			}
+			update(l, delta, activations[l], count, learningRate, pool);
+			delta = previous;
+		}
+		return (float) (loss / (2.0 * count));
+	}
+
+	/* The gradient for the layer's inputs: dX = dY * W, times the slope of the hidden activation that produced X. */
+	private void backward(int layer, float[] dy, float[] x, float[] dx, int count, ForkJoinPool pool) {
+		int in = sizes[layer];
+		int out = sizes[layer + 1];
+		float[] w = weights[layer];
+		split(pool, count, (long) in * out, (from, to) -> {
+			for (int o0 = 0; o0 < out; o0 += COLUMNS) {
+				int o1 = Math.min(o0 + COLUMNS, out);
+				for (int i = from; i < to; i++)
+					for (int o = o0; o < o1; o++) {
+						float scale = dy[i * out + o];
+						if (scale != 0) axpy(scale, w, o * in, dx, i * in, in);
+					}
+			}
+			for (int j = from * in, end = to * in; j < end; j++)
+				dx[j] *= hidden.derivative(x[j]);
+		});
+	}
+
+	/* W -= rate * dY^T * X and b -= rate * column sums of dY, split by output neuron so each thread owns its rows of W. */
+	private void update(int layer, float[] dy, float[] x, int count, float rate, ForkJoinPool pool) {
+		int in = sizes[layer];
+		int out = sizes[layer + 1];
+		float[] w = weights[layer];
+		float[] b = biases[layer];
+		split(pool, out, (long) in * count, (from, to) -> {
+			for (int i0 = 0; i0 < count; i0 += ROWS) {
+				int i1 = Math.min(i0 + ROWS, count);
+				for (int o = from; o < to; o++) {
+					float bias = 0;
+					for (int i = i0; i < i1; i++) {
+						float g = dy[i * out + o];
+						if (g == 0) continue;
+						bias += g;
+						axpy(-rate * g, x, i * in, w, o * in, in);
+					}
+					b[o] -= rate * bias;
+				}
+			}
+		});
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder("NeuralNet (");
+		for (int l = 0; l < sizes.length; l++)
+			text.append(l > 0 ? "-" : "").append(sizes[l]);
+		return text.append(", ").append(getParameterCount()).append(" parameters)").toString();
+	}
 }
@@ -1,4 +1,366 @@
 package com.avrisnox.util.graph.machines;
 
+import java.util.Arrays;
+
+/**StateAutomata
+ * A nondeterministic finite automaton over chars: numbered states, transitions on ranges of chars, and epsilon transitions that are taken without reading anything.
+ * It is the easy form to write patterns in, either state by state or by combining smaller automata with literal, range, concat, union and star. It is slow to run directly, since every step has to track a set of states; MachineDeterminator compiles it into a StateMachine for that.
+ * Bytes are matched as the chars 0 to 255, so an automaton over Latin-1 or ASCII chars also matches the same text held as bytes.
+ */
 public class StateAutomata {
+	private int stateCount = 0;
+	private int start = -1;
+	private boolean[] accepting = new boolean[8];
+	private int[][] ranges = new int[8][];
+	private int[] rangeCounts = new int[8];
+	private int[][] epsilons = new int[8][];
+	private int[] epsilonCounts = new int[8];
+
+	/**
+	 * StateAutomata()
+	 * Creates an automaton with no states.
+	 */
+	public StateAutomata() {
+	}
+
+	private void checkState(int state) {
+		if (state < 0 || state >= stateCount) throw new IndexOutOfBoundsException("State " + state + " not valid for StateAutomata of " + stateCount + " states.");
+	}
+
+	/**
+	 * addState()
+	 * Adds a state that does not accept; the first state added is the start state unless setStart says otherwise.
+	 *
+	 * @return The number of the new state
+	 */
+	public int addState() {
+		if (stateCount == accepting.length) {
+			int size = stateCount * 2;
+			accepting = Arrays.copyOf(accepting, size);
+			ranges = Arrays.copyOf(ranges, size);
+			rangeCounts = Arrays.copyOf(rangeCounts, size);
+			epsilons = Arrays.copyOf(epsilons, size);
+			epsilonCounts = Arrays.copyOf(epsilonCounts, size);
+		}
+		if (start < 0) start = stateCount;
+		return stateCount++;
+	}
+
+	/**
+	 * setStart(int)
+	 * Sets the state the automaton starts in.
+	 *
+	 * @param state The start state
+	 */
+	public void setStart(int state) {
+		checkState(state);
+		start = state;
+	}
+
+	/**
+	 * setAccepting(int, boolean)
+	 * Sets whether input that ends in a state is accepted.
+	 *
+	 * @param state     The state
+	 * @param accepting True to accept input ending in the state
+	 */
+	public void setAccepting(int state, boolean accepting) {
+		checkState(state);
+		this.accepting[state] = accepting;
+	}
+
+	/**
+	 * addTransition(int, char, int)
+	 * Adds a transition taken on one char.
+	 *
+	 * @param from   The state the transition leaves
+	 * @param symbol The char it is taken on
+	 * @param to     The state it enters
+	 */
+	public void addTransition(int from, char symbol, int to) {
+		addTransition(from, symbol, symbol, to);
+	}
+
+	/**
+	 * addTransition(int, char, char, int)
+	 * Adds a transition taken on any char in a range.
+	 *
+	 * @param from The state the transition leaves
+	 * @param low  The lowest char it is taken on
+	 * @param high The highest char it is taken on
+	 * @param to   The state it enters
+	 * @throws IllegalArgumentException Thrown when low is above high
+	 */
+	public void addTransition(int from, char low, char high, int to) throws IllegalArgumentException {
+		checkState(from);
+		checkState(to);
+		if (low > high) throw new IllegalArgumentException("Range " + (int) low + "-" + (int) high + " not valid for StateAutomata.");
+		int count = rangeCounts[from];
+		if (ranges[from] == null) ranges[from] = new int[6];
+		else if (count * 3 == ranges[from].length) ranges[from] = Arrays.copyOf(ranges[from], count * 6);
+		ranges[from][count * 3] = low;
+		ranges[from][count * 3 + 1] = high;
+		ranges[from][count * 3 + 2] = to;
+		rangeCounts[from] = count + 1;
+	}
+
+	/**
+	 * addEpsilon(int, int)
+	 * Adds a transition taken without reading a char.
+	 *
+	 * @param from The state the transition leaves
+	 * @param to   The state it enters
+	 */
+	public void addEpsilon(int from, int to) {
+		checkState(from);
+		checkState(to);
+		int count = epsilonCounts[from];
+		if (epsilons[from] == null) epsilons[from] = new int[2];
+		else if (count == epsilons[from].length) epsilons[from] = Arrays.copyOf(epsilons[from], count * 2);
+		epsilons[from][count] = to;
+		epsilonCounts[from] = count + 1;
+	}
+
+	/**
+	 * getStateCount()
+	 * Gets the number of states.
+	 *
+	 * @return The number of states
+	 */
+	public int getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * getStart()
+	 * Gets the start state.
+	 *
+	 * @return The start state, or -1 if there are no states
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * isAccepting(int)
+	 * Checks whether input that ends in a state is accepted.
+	 *
+	 * @param state The state
+	 * @return True iff the state accepts
+	 */
+	public boolean isAccepting(int state) {
+		checkState(state);
+		return accepting[state];
+	}
+
+	/**
+	 * getRangeCount(int)
+	 * Gets the number of char transitions leaving a state.
+	 *
+	 * @param state The state
+	 * @return The number of transitions
+	 */
+	public int getRangeCount(int state) {
+		checkState(state);
+		return rangeCounts[state];
+	}
+
+	/**
+	 * getRangeLow(int, int)
+	 * Gets the lowest char a transition is taken on.
+	 *
+	 * @param state The state the transition leaves
+	 * @param index The index of the transition, from 0 to getRangeCount(state) - 1
+	 * @return The lowest char
+	 */
+	public char getRangeLow(int state, int index) {
+		return (char) ranges[state][range(state, index)];
+	}
+
+	/**
+	 * getRangeHigh(int, int)
+	 * Gets the highest char a transition is taken on.
+	 *
+	 * @param state The state the transition leaves
+	 * @param index The index of the transition, from 0 to getRangeCount(state) - 1
+	 * @return The highest char
+	 */
+	public char getRangeHigh(int state, int index) {
+		return (char) ranges[state][range(state, index) + 1];
+	}
+
+	/**
+	 * getRangeTarget(int, int)
+	 * Gets the state a transition enters.
+	 *
+	 * @param state The state the transition leaves
+	 * @param index The index of the transition, from 0 to getRangeCount(state) - 1
+	 * @return The state entered
+	 */
+	public int getRangeTarget(int state, int index) {
+		return ranges[state][range(state, index) + 2];
+	}
+
+	private int range(int state, int index) {
+		checkState(state);
+		if (index < 0 || index >= rangeCounts[state]) throw new IndexOutOfBoundsException("Transition " + index + " not valid for state " + state + " of StateAutomata.");
+		return index * 3;
+	}
+
+	/**
+	 * getEpsilonCount(int)
+	 * Gets the number of epsilon transitions leaving a state.
+	 *
+	 * @param state The state
+	 * @return The number of epsilon transitions
+	 */
+	public int getEpsilonCount(int state) {
+		checkState(state);
+		return epsilonCounts[state];
+	}
+
+	/**
+	 * getEpsilonTarget(int, int)
+	 * Gets the state an epsilon transition enters.
+	 *
+	 * @param state The state the transition leaves
+	 * @param index The index of the transition, from 0 to getEpsilonCount(state) - 1
+	 * @return The state entered
+	 */
+	public int getEpsilonTarget(int state, int index) {
+		checkState(state);
+		if (index < 0 || index >= epsilonCounts[state]) throw new IndexOutOfBoundsException("Epsilon transition " + index + " not valid for state " + state + " of StateAutomata.");
+		return epsilons[state][index];
+	}
+
+	/* Copies every state and transition of the other automaton in after this one's, returning what was added to its state numbers. */
+	private int append(StateAutomata other) {
+		int offset = stateCount;
+		for (int s = 0; s < other.stateCount; s++)
+			addState();
+		for (int s = 0; s < other.stateCount; s++) {
+			accepting[offset + s] = other.accepting[s];
+			for (int i = 0; i < other.rangeCounts[s]; i++)
+				addTransition(offset + s, (char) other.ranges[s][i * 3], (char) other.ranges[s][i * 3 + 1], offset + other.ranges[s][i * 3 + 2]);
+			for (int i = 0; i < other.epsilonCounts[s]; i++)
+				addEpsilon(offset + s, offset + other.epsilons[s][i]);
+		}
+		return offset;
+	}
+
+	private static void checkStarted(StateAutomata automata) {
+		if (automata.start < 0) throw new IllegalArgumentException("StateAutomata with no states not valid for combining.");
+	}
+
+	/**
+	 * literal(CharSequence)
+	 * Creates an automaton accepting exactly the given text.
+	 *
+	 * @param text The text to accept
+	 * @return The automaton
+	 */
+	public static StateAutomata literal(CharSequence text) {
+		StateAutomata result = new StateAutomata();
+		int state = result.addState();
+		for (int i = 0; i < text.length(); i++) {
+			int next = result.addState();
+			result.addTransition(state, text.charAt(i), next);
+			state = next;
+		}
+		result.setAccepting(state, true);
+		return result;
+	}
+
+	/**
+	 * range(char, char)
+	 * Creates an automaton accepting any one char in a range.
+	 *
+	 * @param low  The lowest char accepted
+	 * @param high The highest char accepted
+	 * @return The automaton
+	 * @throws IllegalArgumentException Thrown when low is above high
+	 */
+	public static StateAutomata range(char low, char high) throws IllegalArgumentException {
+		StateAutomata result = new StateAutomata();
+		int from = result.addState();
+		int to = result.addState();
+		result.addTransition(from, low, high, to);
+		result.setAccepting(to, true);
+		return result;
+	}
+
+	/**
+	 * concat(StateAutomata...)
+	 * Creates an automaton accepting text made of one text accepted by each automaton in turn.
+	 *
+	 * @param parts The automata to chain, which are copied rather than changed
+	 * @return The automaton
+	 * @throws IllegalArgumentException Thrown when no automata are given or one has no states
+	 */
+	public static StateAutomata concat(StateAutomata... parts) throws IllegalArgumentException {
+		if (parts.length == 0) throw new IllegalArgumentException("No StateAutomata not valid for concat.");
+		StateAutomata result = new StateAutomata();
+		int[] ends = new int[0];
+		for (StateAutomata part : parts) {
+			checkStarted(part);
+			int offset = result.append(part);
+			for (int end : ends) {
+				result.accepting[end] = false;
+				result.addEpsilon(end, offset + part.start);
+			}
+			ends = acceptingStates(part, offset);
+		}
+		result.start = parts[0].start;
+		return result;
+	}
+
+	private static int[] acceptingStates(StateAutomata part, int offset) {
+		int count = 0;
+		for (int s = 0; s < part.stateCount; s++)
+			if (part.accepting[s]) count++;
+		int[] states = new int[count];
+		for (int s = 0, i = 0; s < part.stateCount; s++)
+			if (part.accepting[s]) states[i++] = offset + s;
+		return states;
+	}
+
+	/**
+	 * union(StateAutomata...)
+	 * Creates an automaton accepting any text that one of the automata accepts.
+	 *
+	 * @param choices The automata to choose between, which are copied rather than changed
+	 * @return The automaton
+	 * @throws IllegalArgumentException Thrown when no automata are given or one has no states
+	 */
+	public static StateAutomata union(StateAutomata... choices) throws IllegalArgumentException {
+		if (choices.length == 0) throw new IllegalArgumentException("No StateAutomata not valid for union.");
+		StateAutomata result = new StateAutomata();
+		int start = result.addState();
+		for (StateAutomata choice : choices) {
+			checkStarted(choice);
+			int offset = result.append(choice);
+			result.addEpsilon(start, offset + choice.start);
+		}
+		return result;
+	}
+
+	/**
+	 * star(StateAutomata)
+	 * Creates an automaton accepting any number, including none, of texts the automaton accepts one after another.
+	 *
+	 * @param repeated The automaton to repeat, which is copied rather than changed
+	 * @return The automaton
+	 * @throws IllegalArgumentException Thrown when the automaton has no states
+	 */
+	public static StateAutomata star(StateAutomata repeated) throws IllegalArgumentException {
+		checkStarted(repeated);
+		StateAutomata result = new StateAutomata();
+		int start = result.addState();
+		result.setAccepting(start, true);
+		int offset = result.append(repeated);
+		result.addEpsilon(start, offset + repeated.start);
+		for (int end : acceptingStates(repeated, offset))
+			result.addEpsilon(end, start);
+		return result;
+	}
 }
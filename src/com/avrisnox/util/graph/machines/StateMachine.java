@@ -1,4 +1,261 @@
 package com.avrisnox.util.graph.machines;
 
+import java.nio.ByteBuffer;
+
+/**StateMachine
+ * A deterministic finite automaton compiled into a dense transition table, for running over large amounts of text.
+ * Chars are first mapped to symbol classes, groups of chars every state treats alike, so the table has one row per state and one column per class rather than one per char. Table entries hold the start of the next state's row rather than its number, so each step of a run is two array loads and an add: no branches on the input, no boxing and no allocation.
+ * A StateMachine is immutable and can be shared between threads; the usual way to get one is MachineDeterminator.compile(StateAutomata).
+ * Bytes are read as the chars 0 to 255.
+ */
 public class StateMachine {
+	private static final int CHARS = Character.MAX_VALUE + 1;
+
+	private final int stateCount;
+	private final int classCount;
+	private final char[] classes;
+	private final int[] byteClasses;
+	private final int[] table;
+	private final boolean[] accepting;
+	private final boolean[] acceptingRows;
+	private final int start;
+	private final int dead;
+
+	/**
+	 * StateMachine(char[], int, int[], boolean[], int)
+	 * Creates a machine from its tables, which are copied.
+	 *
+	 * @param classes     The symbol class of every char, indexed by char value
+	 * @param classCount  The number of symbol classes
+	 * @param transitions The state entered from each state on each class, at index state * classCount + class
+	 * @param accepting   Whether input ending in each state is accepted
+	 * @param start       The state the machine starts in
+	 * @throws IllegalArgumentException Thrown when the tables do not fit together
+	 */
+	public StateMachine(char[] classes, int classCount, int[] transitions, boolean[] accepting, int start) throws IllegalArgumentException {
+		stateCount = accepting.length;
+		this.classCount = classCount;
+		if (classes.length != CHARS) throw new IllegalArgumentException("Class table of length " + classes.length + " not valid for StateMachine.");
+		if (classCount < 1 || (long) stateCount * classCount != transitions.length) throw new IllegalArgumentException("Transition table of length " + transitions.length + " not valid for StateMachine of " + stateCount + " states and " + classCount + " classes.");
+		if (start < 0 || start >= stateCount) throw new IllegalArgumentException("Start state " + start + " not valid for StateMachine of " + stateCount + " states.");
+		for (char c : classes)
+			if (c >= classCount) throw new IllegalArgumentException("Class " + (int) c + " not valid for StateMachine of " + classCount + " classes.");
+		this.classes = classes.clone();
+		byteClasses = new int[256];
+		for (int b = 0; b < 256; b++)
+			byteClasses[b] = classes[b];
+		table = new int[transitions.length];
+		for (int i = 0; i < transitions.length; i++) {
+			if (transitions[i] < 0 || transitions[i] >= stateCount) throw new IllegalArgumentException("Target state " + transitions[i] + " not valid for StateMachine of " + stateCount + " states.");
+			table[i] = transitions[i] * classCount;
+		}
+		this.accepting = accepting.clone();
+		acceptingRows = new boolean[transitions.length];
+		for (int s = 0; s < stateCount; s++)
+			acceptingRows[s * classCount] = accepting[s];
+		this.start = start;
+		int found = -1;
+		for (int s = 0; s < stateCount && found < 0; s++) {
+			if (accepting[s]) continue;
+			int c = 0;
+			while (c < classCount && transitions[s * classCount + c] == s)
+				c++;
+			if (c == classCount) found = s;
+		}
+		dead = found;
+	}
+
+	/**
+	 * getStateCount()
+	 * Gets the number of states.
+	 *
+	 * @return The number of states
+	 */
+	public int getStateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * getClassCount()
+	 * Gets the number of symbol classes.
+	 *
+	 * @return The number of classes
+	 */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * getSymbolClass(char)
+	 * Gets the symbol class a char belongs to.
+	 *
+	 * @param symbol The char
+	 * @return The class
+	 */
+	public int getSymbolClass(char symbol) {
+		return classes[symbol];
+	}
+
+	/**
+	 * getTransition(int, int)
+	 * Gets the state entered from a state on a symbol class.
+	 *
+	 * @param state       The state
+	 * @param symbolClass The class
+	 * @return The state entered
+	 */
+	public int getTransition(int state, int symbolClass) {
+		if (state < 0 || state >= stateCount || symbolClass < 0 || symbolClass >= classCount) throw new IndexOutOfBoundsException("State " + state + " and class " + symbolClass + " not valid for StateMachine.");
+		return table[state * classCount + symbolClass] / classCount;
+	}
+
+	/**
+	 * getStart()
+	 * Gets the state the machine starts in.
+	 *
+	 * @return The start state
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * isAccepting(int)
+	 * Checks whether input that ends in a state is accepted.
+	 *
+	 * @param state The state
+	 * @return True iff the state accepts
+	 */
+	public boolean isAccepting(int state) {
+		return accepting[state];
+	}
+
+	/**
+	 * getDeadState()
+	 * Gets the state from which nothing can be accepted any more, if there is one; runs that reach it stop early.
+	 *
+	 * @return The dead state, or -1 if there is none
+	 */
+	public int getDeadState() {
+		return dead;
+	}
+
+	/**
+	 * step(int, char)
+	 * Moves from a state on one char.
+	 *
+	 * @param state  The state
+	 * @param symbol The char read
+	 * @return The state entered
+	 */
+	public int step(int state, char symbol) {
+		return table[state * classCount + classes[symbol]] / classCount;
+	}
+
+	/**
+	 * run(int, CharSequence, int, int)
+	 * Runs from a state over part of some text, so long input can be fed through in pieces.
+	 *
+	 * @param state The state to start from
+	 * @param input The text
+	 * @param from  The index of the first char to read
+	 * @param to    The index after the last char to read
+	 * @return The state the run ends in
+	 */
+	public int run(int state, CharSequence input, int from, int to) {
+		int[] table = this.table;
+		char[] classes = this.classes;
+		int row = state * classCount;
+		for (int i = from; i < to; i++)
+			row = table[row + classes[input.charAt(i)]];
+		return row / classCount;
+	}
+
+	/**
+	 * run(int, ByteBuffer)
+	 * Runs from a state over the bytes between a buffer's position and limit, without moving the position.
+	 *
+	 * @param state The state to start from
+	 * @param input The bytes
+	 * @return The state the run ends in
+	 */
+	public int run(int state, ByteBuffer input) {
+		int[] table = this.table;
+		int[] classes = byteClasses;
+		int row = state * classCount;
+		for (int i = input.position(), end = input.limit(); i < end; i++)
+			row = table[row + classes[input.get(i) & 0xFF]];
+		return row / classCount;
+	}
+
+	/**
+	 * matches(CharSequence)
+	 * Checks whether the machine accepts the whole of some text.
+	 *
+	 * @param input The text
+	 * @return True iff the text is accepted
+	 */
+	public boolean matches(CharSequence input) {
+		int[] table = this.table;
+		char[] classes = this.classes;
+		int deadRow = (dead >= 0 ? dead * classCount : -1);
+		int row = start * classCount;
+		for (int i = 0, end = input.length(); i < end && row != deadRow; i++)
+			row = table[row + classes[input.charAt(i)]];
+		return accepting[row / classCount];
+	}
+
+	/**
+	 * matches(ByteBuffer)
+	 * Checks whether the machine accepts all the bytes between a buffer's position and limit, without moving the position.
+	 *
+	 * @param input The bytes
+	 * @return True iff the bytes are accepted
+	 */
+	public boolean matches(ByteBuffer input) {
+		int[] table = this.table;
+		int[] classes = byteClasses;
+		int deadRow = (dead >= 0 ? dead * classCount : -1);
+		int row = start * classCount;
+		for (int i = input.position(), end = input.limit(); i < end && row != deadRow; i++)
+			row = table[row + classes[input.get(i) & 0xFF]];
+		return accepting[row / classCount];
+	}
+
+	/**
+	 * longestMatch(CharSequence, int)
+	 * Finds the longest stretch of text, starting at the given index, that the machine accepts, as a tokenizer needs.
+	 *
+	 * @param input The text
+	 * @param from  The index to start at
+	 * @return The index after the longest accepted stretch, or -1 if no stretch (not even an empty one) is accepted
+	 */
+	public int longestMatch(CharSequence input, int from) {
+		int[] table = this.table;
+		char[] classes = this.classes;
+		int deadRow = (dead >= 0 ? dead * classCount : -1);
+		int row = start * classCount;
+		int found = (accepting[start] ? from : -1);
+		for (int i = from, end = input.length(); i < end; i++) {
+			row = table[row + classes[input.charAt(i)]];
+			if (row == deadRow) break;
+			if (acceptingRows[row]) found = i + 1;
+		}
+		return found;
+	}
+
+	/**
+	 * getTableBytes()
+	 * Estimates the memory the machine's tables take.
+	 *
+	 * @return The footprint in bytes
+	 */
+	public long getTableBytes() {
+		return 16 + 2L * classes.length + 16 + 4L * byteClasses.length + 16 + 4L * table.length + 16 + accepting.length + 16 + acceptingRows.length;
+	}
+
+	@Override
+	public String toString() {
+		return "StateMachine (" + stateCount + " states, " + classCount + " symbol classes)";
+	}
 }
@@ -1,4 +1,157 @@
 package com.avrisnox.util.graph.misc;
 
+import com.avrisnox.util.graph.collections.Graph;
+
+/**GraphCompleter
+ * Fills graphs out: complete graphs, directed graphs made undirected, loops and repeated edges removed, and separate pieces joined into one connected graph.
+ * Each operation builds a new Graph straight into CSR arrays, merging each vertex's sorted run of edges with whatever is being added in one pass, so the cost is linear in the size of the result. The input graph is left as it is, and its vertex data and weight storage are carried over.
+ * These pair with RandomGen, whose models make directed graphs that may loop or repeat edges.
+ */
 public class GraphCompleter {
+	private static final int MAX_EDGES = Integer.MAX_VALUE - 8;
+
+	private GraphCompleter() {
+	}
+
+	/**
+	 * complete(int)
+	 * Builds the complete directed graph: an edge from every vertex to every other one, and no loops.
+	 *
+	 * @param vertices The number of vertices
+	 * @param <T>      The type of the data attached to vertices
+	 * @return The complete graph, unweighted and with no data
+	 * @throws IllegalArgumentException Thrown when the count is negative or there would be too many edges for a Graph
+	 */
+	public static <T> Graph<T> complete(int vertices) throws IllegalArgumentException {
+		if (vertices < 0 || (long) vertices * Math.max(vertices - 1, 0) > MAX_EDGES) throw new IllegalArgumentException(vertices + " vertices not valid for GraphCompleter.complete.");
+		int degree = Math.max(vertices - 1, 0);
+		int[] offsets = new int[vertices + 1];
+		int[] targets = new int[vertices * degree];
+		int edge = 0;
+		for (int v = 0; v < vertices; v++) {
+			offsets[v] = edge;
+			for (int u = 0; u < vertices; u++)
+				if (u != v) targets[edge++] = u;
+		}
+		offsets[vertices] = edge;
+		return Graph.fromArrays(offsets, targets, null, null, false);
+	}
+
+	/**
+	 * symmetrize(Graph)
+	 * Makes a graph undirected by adding the reverse of every edge that lacks one. Repeated edges are merged into one, keeping the weight of the first; where both directions were already there, each keeps its own weight.
+	 *
+	 * @param graph The graph
+	 * @param <T>   The type of the data attached to vertices
+	 * @return The undirected graph
+	 * @throws IllegalArgumentException Thrown when the result would have too many edges for a Graph
+	 */
+	public static <T> Graph<T> symmetrize(Graph<T> graph) throws IllegalArgumentException {
+		return merge(graph, graph.reverse(), true, false);
+	}
+
+	/**
+	 * simplify(Graph)
+	 * Removes loops and merges repeated edges into one, keeping the weight of the first.
+	 *
+	 * @param graph The graph
+	 * @param <T>   The type of the data attached to vertices
+	 * @return The simple graph
+	 */
+	public static <T> Graph<T> simplify(Graph<T> graph) {
+		return merge(graph, null, true, true);
+	}
+
+	/**
+	 * connect(Graph)
+	 * Joins a graph's weakly connected pieces into one by linking the lowest-numbered vertex of each piece to that of the next, in both directions so an undirected graph stays undirected. Links added to a weighted graph weigh 1.
+	 *
+	 * @param graph The graph
+	 * @param <T>   The type of the data attached to vertices
+	 * @return The connected graph, or the graph itself if it was already connected
+	 * @throws IllegalArgumentException Thrown when the result would have too many edges for a Graph
+	 */
+	public static <T> Graph<T> connect(Graph<T> graph) throws IllegalArgumentException {
+		int vertices = graph.getVertexCount();
+		int[] parent = new int[vertices];
+		for (int v = 0; v < vertices; v++)
+			parent[v] = v;
+		for (int v = 0; v < vertices; v++)
+			for (int edge = graph.getEdgeStart(v); edge < graph.getEdgeEnd(v); edge++) {
+				int a = root(parent, v);
+				int b = root(parent, graph.getTarget(edge));
+				if (a != b) parent[Math.max(a, b)] = Math.min(a, b);
+			}
+		int pieces = 0;
+		int[] firsts = new int[vertices];
+		for (int v = 0; v < vertices; v++)
+			if (root(parent, v) == v) firsts[pieces++] = v;
+		if (pieces < 2) return graph;
+
+		Graph.Builder<Object> links = new Graph.Builder<>(vertices, 2 * (pieces - 1));
+		links.addVertices(vertices);
+		if (graph.isWeighted()) links.weighted();
+		for (int i = 0; i + 1 < pieces; i++) {
+			links.addEdge(firsts[i], firsts[i + 1]);
+			links.addEdge(firsts[i + 1], firsts[i]);
+		}
+		return merge(graph, links.build(), false, false);
+	}
+
+	/* Finds the root of a vertex's set, halving the path as it goes; roots are always the lowest vertex of their set - due to its private nature, it has been left undocumented. */
+	private static int root(int[] parent, int v) {
+		while (parent[v] != v) {
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+
+	/* Merges two graphs' runs vertex by vertex into a new graph, optionally dropping repeats and loops; where both hold an edge, the first graph's comes first. */
+	private static <T> Graph<T> merge(Graph<T> graph, Graph<?> extra, boolean dropRepeats, boolean dropLoops) throws IllegalArgumentException {
+		int vertices = graph.getVertexCount();
+		boolean weighted = graph.isWeighted();
+		int[] offsets = new int[vertices + 1];
+		long total = 0;
+		for (int v = 0; v < vertices; v++) {
+			total += mergeRow(graph, extra, v, dropRepeats, dropLoops, null, null, 0);
+			if (total > MAX_EDGES) throw new IllegalArgumentException("Over " + MAX_EDGES + " edges not valid for a Graph.");
+			offsets[v + 1] = (int) total;
+		}
+		int[] targets = new int[(int) total];
+		double[] weights = (weighted ? new double[targets.length] : null);
+		for (int v = 0; v < vertices; v++)
+			mergeRow(graph, extra, v, dropRepeats, dropLoops, targets, weights, offsets[v]);
+
+		Object[] data = new Object[vertices];
+		boolean hasData = false;
+		for (int v = 0; v < vertices; v++) {
+			data[v] = graph.getData(v);
+			hasData |= data[v] != null;
+		}
+		return Graph.fromArrays(offsets, targets, weights, (hasData ? data : null), graph.isOffHeap());
+	}
+
+	/* Merges one vertex's runs, writing them from a place in the arrays if there are any, and returns how many edges the vertex gets. */
+	private static int mergeRow(Graph<?> graph, Graph<?> extra, int v, boolean dropRepeats, boolean dropLoops, int[] targets, double[] weights, int at) {
+		int i = graph.getEdgeStart(v);
+		int iEnd = graph.getEdgeEnd(v);
+		int j = (extra != null ? extra.getEdgeStart(v) : 0);
+		int jEnd = (extra != null ? extra.getEdgeEnd(v) : 0);
+		int count = 0;
+		int last = -1;
+		while (i < iEnd || j < jEnd) {
+			boolean first = j >= jEnd || (i < iEnd && graph.getTarget(i) <= extra.getTarget(j));
+			int target = (first ? graph.getTarget(i) : extra.getTarget(j));
+			int edge = (first ? i++ : j++);
+			if ((dropLoops && target == v) || (dropRepeats && target == last)) continue;
+			last = target;
+			if (targets != null) {
+				targets[at + count] = target;
+				if (weights != null) weights[at + count] = (first ? graph.getWeight(edge) : extra.getWeight(edge));
+			}
+			count++;
+		}
+		return count;
+	}
 }
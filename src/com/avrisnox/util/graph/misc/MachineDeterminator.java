@@ -1,4 +1,370 @@
 package com.avrisnox.util.graph.misc;
 
+import com.avrisnox.util.graph.machines.StateAutomata;
+import com.avrisnox.util.graph.machines.StateMachine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**MachineDeterminator
+ * Turns a StateAutomata into a StateMachine that runs in one table lookup per char.
+ * determinize does the subset construction: each state of the result stands for the set of automaton states the input could have reached. minimize then merges states that no input can tell apart with Hopcroft's algorithm, and merges symbol classes that every state treats alike, so the final table is as small as the language allows.
+ * Both steps only ever produce reachable states, and number them in breadth-first order from the start, so the same automaton always compiles to the same table.
+ */
 public class MachineDeterminator {
+	private MachineDeterminator() {
+	}
+
+	/* A set of automaton states, kept sorted, usable as a map key - due to its private nature, it has been left undocumented. */
+	private static final class StateSet {
+		private final int[] states;
+		private final int hash;
+
+		public StateSet(int[] states) {
+			this.states = states;
+			this.hash = Arrays.hashCode(states);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof StateSet && Arrays.equals(states, ((StateSet) o).states);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * compile(StateAutomata)
+	 * Determinizes and then minimizes an automaton.
+	 *
+	 * @param automata The automaton to compile
+	 * @return The smallest machine accepting the same text
+	 * @throws IllegalArgumentException Thrown when the automaton has no states
+	 */
+	public static StateMachine compile(StateAutomata automata) throws IllegalArgumentException {
+		return minimize(determinize(automata));
+	}
+
+	/**
+	 * determinize(StateAutomata)
+	 * Builds a machine accepting the same text as an automaton with the subset construction.
+	 * Chars are split into symbol classes at every point where some transition's range starts or ends, so the work grows with the number of distinct ranges rather than with the 65536 chars. The empty set of states becomes the machine's dead state.
+	 *
+	 * @param automata The automaton to determinize
+	 * @return The equivalent machine, which is not yet minimal
+	 * @throws IllegalArgumentException Thrown when the automaton has no states
+	 */
+	public static StateMachine determinize(StateAutomata automata) throws IllegalArgumentException {
+		int n = automata.getStateCount();
+		if (n == 0) throw new IllegalArgumentException("StateAutomata with no states not valid for determinize.");
+
+		TreeSet<Integer> cuts = new TreeSet<>();
+		cuts.add(0);
+		for (int s = 0; s < n; s++)
+			for (int i = 0; i < automata.getRangeCount(s); i++) {
+				cuts.add((int) automata.getRangeLow(s, i));
+				if (automata.getRangeHigh(s, i) < Character.MAX_VALUE) cuts.add(automata.getRangeHigh(s, i) + 1);
+			}
+		int classCount = cuts.size();
+		int[] lows = new int[classCount];
+		int k = 0;
+		for (int cut : cuts)
+			lows[k++] = cut;
+		char[] classes = new char[Character.MAX_VALUE + 1];
+		for (int c = 0; c < classCount; c++) {
+			int end = (c + 1 < classCount ? lows[c + 1] : classes.length);
+			Arrays.fill(classes, lows[c], end, (char) c);
+		}
+
+		// Per automaton state, the targets for each class it has a transition on, as (class, target) pairs.
+		int[][] moves = new int[n][];
+		for (int s = 0; s < n; s++) {
+			int count = 0;
+			for (int i = 0; i < automata.getRangeCount(s); i++)
+				count += classes[automata.getRangeHigh(s, i)] - classes[automata.getRangeLow(s, i)] + 1;
+			moves[s] = new int[count * 2];
+			int at = 0;
+			for (int i = 0; i < automata.getRangeCount(s); i++)
+				for (int c = classes[automata.getRangeLow(s, i)]; c <= classes[automata.getRangeHigh(s, i)]; c++) {
+					moves[s][at++] = c;
+					moves[s][at++] = automata.getRangeTarget(s, i);
+				}
+		}
+
+		int[] mark = new int[n];
+		int[] stack = new int[n];
+		int[] members = new int[n];
+		int stamp = 0;
+		Map<StateSet, Integer> ids = new HashMap<>();
+		StateSet[] sets = new StateSet[16];
+		int[] transitions = new int[16 * classCount];
+		boolean[] accepting = new boolean[16];
+		int stateCount = 0;
+
+		sets[stateCount] = new StateSet(new int[0]);
+		ids.put(sets[stateCount], stateCount);
+		stateCount++;
+		int[] first = {automata.getStart()};
+		StateSet startSet = closure(automata, first, 1, mark, ++stamp, stack, members);
+		int start = 0;
+		if (!ids.containsKey(startSet)) {
+			sets[stateCount] = startSet;
+			ids.put(startSet, stateCount);
+			start = stateCount++;
+		}
+
+		int[][] gathered = new int[classCount][];
+		int[] gatheredCounts = new int[classCount];
+		for (int d = 0; d < stateCount; d++) {
+			int[] set = sets[d].states;
+			for (int s : set)
+				if (automata.isAccepting(s)) accepting[d] = true;
+			Arrays.fill(gatheredCounts, 0);
+			for (int s : set)
+				for (int i = 0; i < moves[s].length; i += 2) {
+					int c = moves[s][i];
+					if (gathered[c] == null) gathered[c] = new int[4];
+					else if (gatheredCounts[c] == gathered[c].length) gathered[c] = Arrays.copyOf(gathered[c], gatheredCounts[c] * 2);
+					gathered[c][gatheredCounts[c]++] = moves[s][i + 1];
+				}
+			for (int c = 0; c < classCount; c++) {
+				int target = 0;
+				if (gatheredCounts[c] > 0) {
+					StateSet next = closure(automata, gathered[c], gatheredCounts[c], mark, ++stamp, stack, members);
+					Integer known = ids.get(next);
+					if (known != null) target = known;
+					else {
+						if (stateCount == sets.length) {
+							sets = Arrays.copyOf(sets, stateCount * 2);
+							accepting = Arrays.copyOf(accepting, stateCount * 2);
+							transitions = Arrays.copyOf(transitions, stateCount * 2 * classCount);
+						}
+						sets[stateCount] = next;
+						ids.put(next, stateCount);
+						target = stateCount++;
+					}
+				}
+				transitions[d * classCount + c] = target;
+			}
+			sets[d] = null;
+		}
+		return new StateMachine(classes, classCount, Arrays.copyOf(transitions, stateCount * classCount), Arrays.copyOf(accepting, stateCount), start);
+	}
+
+	/* The epsilon closure of the given states, as a sorted set; mark[s] == stamp means s has been seen in this call. */
+	private static StateSet closure(StateAutomata automata, int[] from, int count, int[] mark, int stamp, int[] stack, int[] members) {
+		int size = 0;
+		int top = 0;
+		for (int i = 0; i < count; i++)
+			if (mark[from[i]] != stamp) {
+				mark[from[i]] = stamp;
+				stack[top++] = from[i];
+			}
+		while (top > 0) {
+			int s = stack[--top];
+			members[size++] = s;
+			for (int i = 0; i < automata.getEpsilonCount(s); i++) {
+				int t = automata.getEpsilonTarget(s, i);
+				if (mark[t] != stamp) {
+					mark[t] = stamp;
+					stack[top++] = t;
+				}
+			}
+		}
+		int[] states = Arrays.copyOf(members, size);
+		Arrays.sort(states);
+		return new StateSet(states);
+	}
+
+	/**
+	 * minimize(StateMachine)
+	 * Builds the smallest machine accepting the same text, with Hopcroft's partition refinement in O(classes * states * log states) time.
+	 * Unreachable states are dropped first, and afterwards symbol classes that lead to the same state from every state are merged into one.
+	 *
+	 * @param machine The machine to minimize
+	 * @return The minimal equivalent machine
+	 */
+	public static StateMachine minimize(StateMachine machine) {
+		int classCount = machine.getClassCount();
+
+		// Keep only the states reachable from the start, numbered breadth-first.
+		int total = machine.getStateCount();
+		int[] renumber = new int[total];
+		Arrays.fill(renumber, -1);
+		int[] order = new int[total];
+		int n = 0;
+		renumber[machine.getStart()] = n;
+		order[n++] = machine.getStart();
+		for (int i = 0; i < n; i++)
+			for (int c = 0; c < classCount; c++) {
+				int t = machine.getTransition(order[i], c);
+				if (renumber[t] < 0) {
+					renumber[t] = n;
+					order[n++] = t;
+				}
+			}
+		int[] delta = new int[n * classCount];
+		for (int s = 0; s < n; s++)
+			for (int c = 0; c < classCount; c++)
+				delta[s * classCount + c] = renumber[machine.getTransition(order[s], c)];
+
+		// Predecessors of each state on each class, as one CSR array per class.
+		int[] inStart = new int[classCount * (n + 1)];
+		int[] inSources = new int[n * classCount];
+		for (int s = 0; s < n; s++)
+			for (int c = 0; c < classCount; c++)
+				inStart[c * (n + 1) + delta[s * classCount + c] + 1]++;
+		for (int c = 0; c < classCount; c++)
+			for (int t = 0; t < n; t++)
+				inStart[c * (n + 1) + t + 1] += inStart[c * (n + 1) + t];
+		int[] fill = new int[n];
+		for (int c = 0; c < classCount; c++) {
+			int base = c * (n + 1);
+			for (int t = 0; t < n; t++)
+				fill[t] = inStart[base + t];
+			for (int s = 0; s < n; s++)
+				inSources[c * n + fill[delta[s * classCount + c]]++] = s;
+		}
+
+		// The partition: elements grouped by block, each block a run [first, end) of elements, with marked members moved to the front of the run.
+		int[] elements = new int[n];
+		int[] position = new int[n];
+		int[] blockOf = new int[n];
+		int[] first = new int[n];
+		int[] end = new int[n];
+		int[] marked = new int[n];
+		int blocks = 0;
+		int accepting = 0;
+		for (int s = 0; s < n; s++)
+			if (machine.isAccepting(order[s])) elements[accepting++] = s;
+		int rejecting = accepting;
+		for (int s = 0; s < n; s++)
+			if (!machine.isAccepting(order[s])) elements[rejecting++] = s;
+		for (int i = 0; i < n; i++)
+			position[elements[i]] = i;
+		int[] worklist = new int[n];
+		int pending = 0;
+		if (accepting > 0) {
+			first[blocks] = 0;
+			end[blocks] = accepting;
+			blocks++;
+		}
+		if (accepting < n) {
+			first[blocks] = accepting;
+			end[blocks] = n;
+			blocks++;
+		}
+		for (int b = 0; b < blocks; b++)
+			for (int i = first[b]; i < end[b]; i++)
+				blockOf[elements[i]] = b;
+		if (blocks == 2) worklist[pending++] = (end[0] - first[0] <= end[1] - first[1] ? 0 : 1);
+
+		int[] splitter = new int[n];
+		int[] touched = new int[n];
+		while (pending > 0) {
+			int block = worklist[--pending];
+			int size = end[block] - first[block];
+			System.arraycopy(elements, first[block], splitter, 0, size);
+			for (int c = 0; c < classCount; c++) {
+				int touchedCount = 0;
+				int base = c * (n + 1);
+				for (int i = 0; i < size; i++) {
+					int t = splitter[i];
+					for (int j = inStart[base + t], stop = inStart[base + t + 1]; j < stop; j++) {
+						int s = inSources[c * n + j];
+						int b = blockOf[s];
+						int at = position[s];
+						int front = first[b] + marked[b];
+						if (at < front) continue;
+						if (marked[b] == 0) touched[touchedCount++] = b;
+						int other = elements[front];
+						elements[front] = s;
+						position[s] = front;
+						elements[at] = other;
+						position[other] = at;
+						marked[b]++;
+					}
+				}
+				for (int i = 0; i < touchedCount; i++) {
+					int b = touched[i];
+					int count = marked[b];
+					marked[b] = 0;
+					int length = end[b] - first[b];
+					if (count == length) continue;
+					int created = blocks++;
+					if (count <= length - count) {
+						first[created] = first[b];
+						end[created] = first[b] + count;
+						first[b] = end[created];
+					} else {
+						first[created] = first[b] + count;
+						end[created] = end[b];
+						end[b] = first[created];
+					}
+					for (int j = first[created]; j < end[created]; j++)
+						blockOf[elements[j]] = created;
+					worklist[pending++] = created;
+				}
+			}
+		}
+		return rebuild(machine, delta, classCount, n, blockOf, blocks, order);
+	}
+
+	/* Renumbers the blocks breadth-first from the start, merges classes with identical columns, and builds the minimal machine. */
+	private static StateMachine rebuild(StateMachine machine, int[] delta, int classCount, int n, int[] blockOf, int blocks, int[] order) {
+		int[] renumber = new int[blocks];
+		Arrays.fill(renumber, -1);
+		int[] representative = new int[blocks];
+		int[] queue = new int[blocks];
+		int count = 0;
+		renumber[blockOf[0]] = count;
+		representative[count] = 0;
+		queue[count++] = blockOf[0];
+		for (int i = 0; i < count; i++) {
+			int s = representative[i];
+			for (int c = 0; c < classCount; c++) {
+				int t = delta[s * classCount + c];
+				int b = blockOf[t];
+				if (renumber[b] < 0) {
+					renumber[b] = count;
+					representative[count] = t;
+					queue[count++] = b;
+				}
+			}
+		}
+
+		Map<StateSet, Integer> columns = new HashMap<>();
+		int[] mergedClass = new int[classCount];
+		int merged = 0;
+		int[] column = new int[count];
+		for (int c = 0; c < classCount; c++) {
+			for (int s = 0; s < count; s++)
+				column[s] = renumber[blockOf[delta[representative[s] * classCount + c]]];
+			StateSet key = new StateSet(column.clone());
+			Integer known = columns.get(key);
+			if (known == null) {
+				columns.put(key, merged);
+				known = merged++;
+			}
+			mergedClass[c] = known;
+		}
+
+		int[] transitions = new int[count * merged];
+		boolean[] accepting = new boolean[count];
+		for (int s = 0; s < count; s++) {
+			int state = representative[s];
+			accepting[s] = machine.isAccepting(order[state]);
+			for (int c = 0; c < classCount; c++)
+				transitions[s * merged + mergedClass[c]] = renumber[blockOf[delta[state * classCount + c]]];
+		}
+		char[] classes = new char[Character.MAX_VALUE + 1];
+		for (int ch = 0; ch < classes.length; ch++)
+			classes[ch] = (char) mergedClass[machine.getSymbolClass((char) ch)];
+		return new StateMachine(classes, merged, transitions, accepting, 0);
+	}
 }
@@ -1,4 +1,492 @@
 package com.avrisnox.util.graph.misc;
 
+import com.avrisnox.concurrent.Chunks;
+import com.avrisnox.util.graph.collections.Graph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**RandomGen
+ * Generates large synthetic graphs for testing and benchmarks: Erdos-Renyi, Barabasi-Albert, R-MAT and grids.
+ * Every model is cut into blocks of work that depend only on the model, never on the number of threads, and each block draws from its own SplitMix stream keyed by the seed and the block's number. A seed therefore gives exactly the same graph whatever pool runs it, and the blocks can run in any order.
+ * A model can be built straight into a Graph's CSR arrays - its edges are generated twice, once to count each vertex's edges and once to drop them into place, so no edge list is ever held - or streamed to an edge file, which can hold more edges than a Graph and is read back with readEdges.
+ * Edge files are little-endian: an int 0x52474531, the vertex count as an int and the edge count as a long, then each edge as a source int and a target int.
+ */
 public class RandomGen {
+	private static final int BLOCK_VERTICES = 1024;
+	private static final int BLOCK_EDGES = 1 << 16;
+	private static final int WRITE_EDGES = 8192;
+	private static final int MAGIC = 0x52474531;
+	private static final int HEADER = 16;
+	private static final int MAX_EDGES = Integer.MAX_VALUE - 8;
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+	private RandomGen() {
+	}
+
+	/**EdgeSink
+	 * Receives generated edges one at a time.
+	 */
+	public interface EdgeSink {
+		/**
+		 * edge(int, int)
+		 * Called once for each edge.
+		 *
+		 * @param source The vertex the edge leaves
+		 * @param target The vertex the edge enters
+		 */
+		void edge(int source, int target);
+	}
+
+	/* The SplitMix64 finalizer: a bijection on longs that scatters nearby inputs across the whole range. */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static SplittableRandom random(long seed, int block) {
+		return new SplittableRandom(mix(seed + (block + 1L) * GOLDEN));
+	}
+
+	/* Sorts each vertex's run of targets, in blocks of vertices - due to its private nature, it has been left undocumented. */
+	private static void sortRows(int[] offsets, int[] targets, ForkJoinPool pool) {
+		int vertices = offsets.length - 1;
+		Chunks.run(pool, (vertices + BLOCK_VERTICES - 1) / BLOCK_VERTICES, block -> {
+			int end = Math.min(vertices, (block + 1) * BLOCK_VERTICES);
+			for (int v = block * BLOCK_VERTICES; v < end; v++)
+				if (offsets[v + 1] - offsets[v] > 1) Arrays.sort(targets, offsets[v], offsets[v + 1]);
+		});
+	}
+
+	/* Turns a count of edges per vertex into CSR offsets, leaving each vertex's count replaced by where its run starts. */
+	private static int[] offsets(AtomicIntegerArray counts) {
+		int vertices = counts.length();
+		int[] offsets = new int[vertices + 1];
+		long total = 0;
+		for (int v = 0; v < vertices; v++) {
+			offsets[v] = (int) total;
+			total += counts.get(v);
+			if (total > MAX_EDGES) throw new IllegalArgumentException("Over " + MAX_EDGES + " edges not valid for a Graph; write them to a file instead.");
+			counts.set(v, offsets[v]);
+		}
+		offsets[vertices] = (int) total;
+		return offsets;
+	}
+
+	/**Model
+	 * A random graph model with its sizes fixed, ready to generate any number of graphs from different seeds.
+	 */
+	public abstract static class Model {
+		private final int vertexCount;
+		private final int blockCount;
+
+		private Model(int vertexCount, int blockCount) {
+			this.vertexCount = vertexCount;
+			this.blockCount = blockCount;
+		}
+
+		/* Generates one block's edges in order - due to its private nature, it has been left undocumented. */
+		abstract void generate(int block, long seed, EdgeSink sink);
+
+		/* The number of edges a block generates, or -1 if it has to be counted. */
+		long getBlockEdges(int block) {
+			return -1;
+		}
+
+		/**
+		 * getVertexCount()
+		 * Gets the number of vertices the model's graphs have.
+		 *
+		 * @return The number of vertices
+		 */
+		public int getVertexCount() {
+			return vertexCount;
+		}
+
+		/**
+		 * forEachEdge(long, EdgeSink)
+		 * Generates every edge on the calling thread, block by block, in the same order as they are written to a file.
+		 *
+		 * @param seed The seed
+		 * @param sink Receives each edge
+		 */
+		public void forEachEdge(long seed, EdgeSink sink) {
+			for (int block = 0; block < blockCount; block++)
+				generate(block, seed, sink);
+		}
+
+		/**
+		 * toGraph(long)
+		 * Generates a graph on the common pool.
+		 *
+		 * @param seed The seed
+		 * @param <T>  The type of the data attached to vertices
+		 * @return The graph, unweighted and with no data
+		 * @throws IllegalArgumentException Thrown when the model makes more edges than a Graph can hold
+		 */
+		public <T> Graph<T> toGraph(long seed) throws IllegalArgumentException {
+			return toGraph(seed, ForkJoinPool.commonPool());
+		}
+
+		/**
+		 * toGraph(long, ForkJoinPool)
+		 * Generates a graph straight into CSR arrays, with each vertex's edges sorted by target.
+		 *
+		 * @param seed The seed
+		 * @param pool The pool to run on; the result does not depend on its size
+		 * @param <T>  The type of the data attached to vertices
+		 * @return The graph, unweighted and with no data
+		 * @throws IllegalArgumentException Thrown when the model makes more edges than a Graph can hold
+		 */
+		public <T> Graph<T> toGraph(long seed, ForkJoinPool pool) throws IllegalArgumentException {
+			AtomicIntegerArray cursors = new AtomicIntegerArray(vertexCount);
+			Chunks.run(pool, blockCount, block -> generate(block, seed, (source, target) -> cursors.incrementAndGet(source)));
+			int[] offsets = offsets(cursors);
+			int[] targets = new int[offsets[vertexCount]];
+			Chunks.run(pool, blockCount, block -> generate(block, seed, (source, target) -> targets[cursors.getAndIncrement(source)] = target));
+			sortRows(offsets, targets, pool);
+			return Graph.fromArrays(offsets, targets, null, null, false);
+		}
+
+		/**
+		 * toGraph(long, double, double, ForkJoinPool)
+		 * Generates a graph as toGraph(long, ForkJoinPool) does, then gives each edge a weight drawn uniformly from a range.
+		 * Each weight is drawn from the seed and the edge's place in the finished graph, so it too is the same whatever the pool.
+		 *
+		 * @param seed      The seed
+		 * @param minWeight The smallest weight
+		 * @param maxWeight The largest weight
+		 * @param pool      The pool to run on
+		 * @param <T>       The type of the data attached to vertices
+		 * @return The weighted graph
+		 * @throws IllegalArgumentException Thrown when the range is empty or the model makes more edges than a Graph can hold
+		 */
+		public <T> Graph<T> toGraph(long seed, double minWeight, double maxWeight, ForkJoinPool pool) throws IllegalArgumentException {
+			if (!(minWeight <= maxWeight)) throw new IllegalArgumentException("Weights from " + minWeight + " to " + maxWeight + " not valid for RandomGen.");
+			Graph<T> graph = toGraph(seed, pool);
+			int edges = graph.getEdgeCount();
+			int[] offsets = new int[vertexCount + 1];
+			int[] targets = new int[edges];
+			double[] weights = new double[edges];
+			for (int v = 0; v < vertexCount; v++)
+				offsets[v + 1] = graph.getEdgeEnd(v);
+			long weightSeed = mix(seed ^ GOLDEN);
+			double range = maxWeight - minWeight;
+			Chunks.run(pool, (edges + BLOCK_EDGES - 1) / BLOCK_EDGES, block -> {
+				int end = (int) Math.min(edges, (block + 1L) * BLOCK_EDGES);
+				for (int edge = block * BLOCK_EDGES; edge < end; edge++) {
+					targets[edge] = graph.getTarget(edge);
+					weights[edge] = minWeight + range * ((mix(weightSeed + edge * GOLDEN) >>> 11) * 0x1.0p-53);
+				}
+			});
+			return Graph.fromArrays(offsets, targets, weights, null, false);
+		}
+
+		/**
+		 * toFile(Path, long)
+		 * Writes a graph's edges to a file on the common pool.
+		 *
+		 * @param file The file to write, replacing any file already there
+		 * @param seed The seed
+		 * @return The number of edges written
+		 * @throws IOException Thrown when the file cannot be written
+		 */
+		public long toFile(Path file, long seed) throws IOException {
+			return toFile(file, seed, ForkJoinPool.commonPool());
+		}
+
+		/**
+		 * toFile(Path, long, ForkJoinPool)
+		 * Writes a graph's edges to a file without holding them in memory: each block writes its edges at its own place in the file, so blocks are written in parallel and the file's bytes do not depend on the pool.
+		 * Models whose blocks vary in size are generated twice, once to count each block's edges.
+		 *
+		 * @param file The file to write, replacing any file already there
+		 * @param seed The seed
+		 * @param pool The pool to run on
+		 * @return The number of edges written
+		 * @throws IOException Thrown when the file cannot be written
+		 */
+		public long toFile(Path file, long seed, ForkJoinPool pool) throws IOException {
+			long[] starts = new long[blockCount + 1];
+			Chunks.run(pool, blockCount, block -> {
+				long known = getBlockEdges(block);
+				if (known < 0) {
+					long[] count = new long[1];
+					generate(block, seed, (source, target) -> count[0]++);
+					known = count[0];
+				}
+				starts[block + 1] = known;
+			});
+			for (int block = 0; block < blockCount; block++)
+				starts[block + 1] += starts[block];
+			long edges = starts[blockCount];
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(vertexCount).putLong(edges).flip();
+				while (header.hasRemaining())
+					channel.write(header, HEADER - header.remaining());
+				Chunks.run(pool, blockCount, block -> {
+					ByteBuffer buffer = ByteBuffer.allocate(8 * WRITE_EDGES).order(ByteOrder.LITTLE_ENDIAN);
+					long[] position = {HEADER + 8 * starts[block]};
+					generate(block, seed, (source, target) -> {
+						buffer.putInt(source).putInt(target);
+						if (!buffer.hasRemaining()) position[0] = write(channel, buffer, position[0]);
+					});
+					write(channel, buffer, position[0]);
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			return edges;
+		}
+	}
+
+	/* Writes a filled buffer at a place in a file and empties it, returning the place after it. */
+	private static long write(FileChannel channel, ByteBuffer buffer, long position) {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining())
+				position += channel.write(buffer, position);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.clear();
+		return position;
+	}
+
+	/**
+	 * readEdges(Path)
+	 * Reads an edge file written by toFile into a graph, counting each vertex's edges on a first pass so the edges go straight into CSR arrays.
+	 *
+	 * @param file The edge file
+	 * @param <T>  The type of the data attached to vertices
+	 * @return The graph, unweighted and with no data
+	 * @throws IOException              Thrown when the file cannot be read or is not a valid edge file
+	 * @throws IllegalArgumentException Thrown when the file holds more edges than a Graph can
+	 */
+	public static <T> Graph<T> readEdges(Path file) throws IOException, IllegalArgumentException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(8 * WRITE_EDGES * 16).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.limit(HEADER);
+			read(channel, buffer, 0);
+			buffer.flip();
+			if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC) throw new IOException("File '" + file + "' not valid for RandomGen.readEdges.");
+			int vertices = buffer.getInt();
+			long edges = buffer.getLong();
+			if (vertices < 0 || edges < 0 || channel.size() != HEADER + 8 * edges) throw new IOException("File '" + file + "' not valid for RandomGen.readEdges.");
+			if (edges > MAX_EDGES) throw new IllegalArgumentException(edges + " edges not valid for a Graph.");
+
+			AtomicIntegerArray cursors = new AtomicIntegerArray(vertices);
+			int[] targets = null;
+			int[] offsets = null;
+			for (int pass = 0; pass < 2; pass++) {
+				long position = HEADER;
+				while (position < HEADER + 8 * edges) {
+					buffer.clear();
+					buffer.limit((int) Math.min(buffer.capacity(), HEADER + 8 * edges - position));
+					position = read(channel, buffer, position);
+					buffer.flip();
+					while (buffer.hasRemaining()) {
+						int source = buffer.getInt();
+						int target = buffer.getInt();
+						if (source < 0 || source >= vertices || target < 0 || target >= vertices) throw new IOException("Edge from " + source + " to " + target + " in '" + file + "' not valid for a Graph of " + vertices + " vertices.");
+						if (targets == null) cursors.incrementAndGet(source);
+						else targets[cursors.getAndIncrement(source)] = target;
+					}
+				}
+				if (targets == null) {
+					offsets = offsets(cursors);
+					targets = new int[(int) edges];
+				}
+			}
+			sortRows(offsets, targets, ForkJoinPool.commonPool());
+			return Graph.fromArrays(offsets, targets, null, null, false);
+		}
+	}
+
+	/* Fills a buffer from a place in a file, returning the place after what was read. */
+	private static long read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) throw new IOException("Edge file ended early.");
+			position += read;
+		}
+		return position;
+	}
+
+	/**
+	 * erdosRenyi(int, double)
+	 * A directed G(n, p) model: each of the n(n - 1) possible edges between distinct vertices is present with probability p, independently.
+	 * Each vertex's edges are found by drawing the gaps between them from a geometric distribution, so the work grows with the number of edges rather than with n squared. For an undirected graph, symmetrize the result with GraphCompleter.
+	 *
+	 * @param vertices    The number of vertices
+	 * @param probability The probability of each edge
+	 * @return The model
+	 * @throws IllegalArgumentException Thrown when the count is negative or the probability is outside [0, 1]
+	 */
+	public static Model erdosRenyi(int vertices, double probability) throws IllegalArgumentException {
+		if (vertices < 0) throw new IllegalArgumentException(vertices + " vertices not valid for RandomGen.");
+		if (!(probability >= 0 && probability <= 1)) throw new IllegalArgumentException("Probability " + probability + " not valid for RandomGen.");
+		return new Model(vertices, (vertices + BLOCK_VERTICES - 1) / BLOCK_VERTICES) {
+			@Override
+			void generate(int block, long seed, EdgeSink sink) {
+				if (probability == 0) return;
+				SplittableRandom random = random(seed, block);
+				double logMiss = Math.log1p(-probability);
+				int end = Math.min(vertices, (block + 1) * BLOCK_VERTICES);
+				for (int u = block * BLOCK_VERTICES; u < end; u++)
+					for (long candidate = -1; ; ) {
+						double gap = Math.floor(Math.log1p(-random.nextDouble()) / logMiss);
+						if (gap >= vertices) break;
+						candidate += 1 + (long) gap;
+						if (candidate >= vertices - 1) break;
+						sink.edge(u, (int) (candidate < u ? candidate : candidate + 1));
+					}
+			}
+		};
+	}
+
+	/**
+	 * barabasiAlbert(int, int)
+	 * A preferential attachment model: each vertex in turn links to a given number of earlier vertices, each picked with probability proportional to its degree so far, which gives a power-law degree distribution.
+	 * The edges leave the new vertices, so every vertex has exactly that many out-edges; the first vertex's edges loop back to itself and later ones may repeat an edge, as in the usual fast generators. GraphCompleter can symmetrize and simplify the result.
+	 * Picking by degree normally makes each edge depend on all the ones before; here each edge's pick is drawn from a hash of the seed and the edge's number instead of from a running stream, so any edge can be worked out on its own by following a short chain of earlier picks, and the blocks still run in parallel.
+	 *
+	 * @param vertices      The number of vertices
+	 * @param edgesPerVertex The number of edges each vertex adds
+	 * @return The model
+	 * @throws IllegalArgumentException Thrown when the vertex count is negative, the edge count is not positive, or there would be more than 2^31 edges
+	 */
+	public static Model barabasiAlbert(int vertices, int edgesPerVertex) throws IllegalArgumentException {
+		if (vertices < 0) throw new IllegalArgumentException(vertices + " vertices not valid for RandomGen.");
+		if (edgesPerVertex < 1 || (long) vertices * edgesPerVertex > Integer.MAX_VALUE) throw new IllegalArgumentException(edgesPerVertex + " edges per vertex not valid for RandomGen with " + vertices + " vertices.");
+		return new Model(vertices, (vertices + BLOCK_VERTICES - 1) / BLOCK_VERTICES) {
+			@Override
+			void generate(int block, long seed, EdgeSink sink) {
+				long key = mix(seed);
+				int end = Math.min(vertices, (block + 1) * BLOCK_VERTICES);
+				for (int v = block * BLOCK_VERTICES; v < end; v++)
+					for (int k = 0; k < edgesPerVertex; k++) {
+						// Endpoint 2e is edge e's source and endpoint 2e + 1 copies a uniformly chosen earlier endpoint, which picks a vertex in proportion to its degree.
+						long edge = (long) v * edgesPerVertex + k;
+						long endpoint = (mix(key + edge * GOLDEN) >>> 1) % (2 * edge + 1);
+						while ((endpoint & 1) != 0) {
+							long earlier = endpoint >>> 1;
+							endpoint = (mix(key + earlier * GOLDEN) >>> 1) % (2 * earlier + 1);
+						}
+						sink.edge(v, (int) ((endpoint >>> 1) / edgesPerVertex));
+					}
+			}
+
+			@Override
+			long getBlockEdges(int block) {
+				return (long) (Math.min(vertices, (block + 1) * BLOCK_VERTICES) - block * BLOCK_VERTICES) * edgesPerVertex;
+			}
+		};
+	}
+
+	/**
+	 * rmat(int, long, double, double, double)
+	 * The recursive matrix (R-MAT) model used by the Graph500 benchmark: 2^scale vertices, and each edge placed by repeatedly choosing one quarter of the adjacency matrix with probabilities a, b, c and 1 - a - b - c.
+	 * This gives skewed degrees and community structure. Edges may repeat and loop; no noise or vertex relabelling is applied, so the busiest vertices have the lowest numbers.
+	 *
+	 * @param scale The base 2 logarithm of the number of vertices, from 1 to 30
+	 * @param edges The number of edges
+	 * @param a     The probability of the top left quarter
+	 * @param b     The probability of the top right quarter
+	 * @param c     The probability of the bottom left quarter
+	 * @return The model
+	 * @throws IllegalArgumentException Thrown when the scale, edge count or probabilities are out of range
+	 */
+	public static Model rmat(int scale, long edges, double a, double b, double c) throws IllegalArgumentException {
+		if (scale < 1 || scale > 30) throw new IllegalArgumentException("Scale " + scale + " not valid for RandomGen.");
+		if (edges < 0 || (edges + BLOCK_EDGES - 1) / BLOCK_EDGES > Integer.MAX_VALUE) throw new IllegalArgumentException(edges + " edges not valid for RandomGen.");
+		if (!(a >= 0 && b >= 0 && c >= 0 && a + b + c <= 1)) throw new IllegalArgumentException("Probabilities " + a + ", " + b + ", " + c + " not valid for RandomGen.");
+		double ab = a + b;
+		double abc = ab + c;
+		return new Model(1 << scale, (int) ((edges + BLOCK_EDGES - 1) / BLOCK_EDGES)) {
+			@Override
+			void generate(int block, long seed, EdgeSink sink) {
+				SplittableRandom random = random(seed, block);
+				long count = getBlockEdges(block);
+				for (long i = 0; i < count; i++) {
+					int source = 0;
+					int target = 0;
+					for (int bit = scale - 1; bit >= 0; bit--) {
+						double r = random.nextDouble();
+						if (r < a) continue;
+						if (r < ab) target |= 1 << bit;
+						else if (r < abc) source |= 1 << bit;
+						else {
+							source |= 1 << bit;
+							target |= 1 << bit;
+						}
+					}
+					sink.edge(source, target);
+				}
+			}
+
+			@Override
+			long getBlockEdges(int block) {
+				return Math.min(edges, (block + 1L) * BLOCK_EDGES) - (long) block * BLOCK_EDGES;
+			}
+		};
+	}
+
+	/**
+	 * rmat(int, long)
+	 * The R-MAT model with the Graph500 probabilities a = 0.57, b = 0.19 and c = 0.19.
+	 *
+	 * @param scale The base 2 logarithm of the number of vertices, from 1 to 30
+	 * @param edges The number of edges
+	 * @return The model
+	 * @throws IllegalArgumentException Thrown when the scale or edge count is out of range
+	 */
+	public static Model rmat(int scale, long edges) throws IllegalArgumentException {
+		return rmat(scale, edges, 0.57, 0.19, 0.19);
+	}
+
+	/**
+	 * grid(int, int, boolean)
+	 * A rows by columns grid with each vertex joined both ways to the ones above, below, left and right of it; vertex r * columns + c is in row r and column c.
+	 * A torus also joins each edge of the grid to the opposite one. There is nothing random about a grid, so the seed is ignored.
+	 *
+	 * @param rows    The number of rows
+	 * @param columns The number of columns
+	 * @param torus   True to wrap the grid around in both directions
+	 * @return The model
+	 * @throws IllegalArgumentException Thrown when either size is negative or there are too many vertices
+	 */
+	public static Model grid(int rows, int columns, boolean torus) throws IllegalArgumentException {
+		if (rows < 0 || columns < 0 || (long) rows * columns > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Grid of " + rows + " by " + columns + " not valid for RandomGen.");
+		int vertices = rows * columns;
+		return new Model(vertices, (vertices + BLOCK_VERTICES - 1) / BLOCK_VERTICES) {
+			@Override
+			void generate(int block, long seed, EdgeSink sink) {
+				int end = Math.min(vertices, (block + 1) * BLOCK_VERTICES);
+				for (int v = block * BLOCK_VERTICES; v < end; v++) {
+					int row = v / columns;
+					int column = v - row * columns;
+					if (row > 0) sink.edge(v, v - columns);
+					else if (torus && rows > 2) sink.edge(v, v + (rows - 1) * columns);
+					if (column > 0) sink.edge(v, v - 1);
+					else if (torus && columns > 2) sink.edge(v, v + columns - 1);
+					if (column < columns - 1) sink.edge(v, v + 1);
+					else if (torus && columns > 2) sink.edge(v, v - columns + 1);
+					if (row < rows - 1) sink.edge(v, v + columns);
+					else if (torus && rows > 2) sink.edge(v, v - (rows - 1) * columns);
+				}
+			}
+		};
+	}
 }
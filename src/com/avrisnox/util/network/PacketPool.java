@@ -0,0 +1,90 @@
+package com.avrisnox.util.network;
+
+import com.avrisnox.concurrent.collections.ConcQueue;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**PacketPool
+ * A fixed set of packets, each a slice of one large direct buffer, handed out and taken back without allocating.
+ * Direct buffers are what a DatagramChannel reads into and writes from without an extra copy, but they are slow to allocate and free, so SendGram and ReceiveGram allocate all of theirs once, up front, and recycle them through a pool.
+ */
+class PacketPool {
+	/**Packet
+	 * One pooled buffer and the address it came from or is going to.
+	 */
+	static final class Packet {
+		final ByteBuffer buffer;
+		SocketAddress address = null;
+
+		private Packet(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+	}
+
+	private final ConcQueue<Packet> free;
+	private final int count;
+	private final int payload;
+
+	/**
+	 * PacketPool(int, int)
+	 * Allocates the packets.
+	 *
+	 * @param count   The number of packets
+	 * @param payload The number of bytes each packet can hold
+	 * @throws IllegalArgumentException Thrown when the count or payload is not positive, or they are too big together
+	 */
+	PacketPool(int count, int payload) throws IllegalArgumentException {
+		if (count < 1 || payload < 1 || (long) count * payload > Integer.MAX_VALUE) throw new IllegalArgumentException(count + " packets of " + payload + " bytes not valid for PacketPool.");
+		this.count = count;
+		this.payload = payload;
+		free = new ConcQueue<>(count);
+		ByteBuffer memory = ByteBuffer.allocateDirect(count * payload);
+		for (int i = 0; i < count; i++) {
+			memory.limit((i + 1) * payload).position(i * payload);
+			free.offer(new Packet(memory.slice()));
+		}
+	}
+
+	/**
+	 * acquire()
+	 * Takes a packet with an empty buffer from the pool.
+	 *
+	 * @return The packet, or null if every packet is in use
+	 */
+	Packet acquire() {
+		return free.poll();
+	}
+
+	/**
+	 * release(Packet)
+	 * Gives a packet back to the pool.
+	 *
+	 * @param packet The packet, which must not be used afterwards
+	 */
+	void release(Packet packet) {
+		packet.buffer.clear();
+		packet.address = null;
+		free.offer(packet);
+	}
+
+	/**
+	 * getCount()
+	 * Gets the number of packets in the pool, in use or not.
+	 *
+	 * @return The number of packets
+	 */
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * getPayload()
+	 * Gets the number of bytes each packet can hold.
+	 *
+	 * @return The payload size
+	 */
+	int getPayload() {
+		return payload;
+	}
+}
@@ -1,4 +1,244 @@
 package com.avrisnox.util.network;
 
-public class ReceiveGram {
+import com.avrisnox.concurrent.control.Channel;
+import com.avrisnox.concurrent.threads.EternalThread;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**ReceiveGram
+ * Receives UDP datagrams on one port and hands them to a handler on several worker threads.
+ * One reader thread waits on a selector and, each time it wakes, drains every datagram the socket holds into pooled direct buffers; it hands each to a worker chosen by the sender's address, so datagrams from one sender are handled in the order they arrived while different senders spread across the cores.
+ * Nothing is allocated per datagram: buffers come from a pool, and the channel reuses its sender address object while datagrams keep coming from the same sender. When every buffer is busy the reader still drains the socket, dropping and counting the excess, so a slow handler shows up in getDropped() rather than as silent kernel drops.
+ * Java 8 cannot share a port between sockets (SO_REUSEPORT), so there is one socket and one reader; the reader only copies datagrams out of the kernel, and the handlers do the work in parallel.
+ */
+public class ReceiveGram implements Closeable {
+	private static final int DEFAULT_PAYLOAD = 1472;
+	private static final int DEFAULT_POOL = 8192;
+	private static final int RECEIVE_BUFFER = 4 << 20;
+
+	private final DatagramChannel channel;
+	private final Selector selector;
+	private final PacketPool pool;
+	private final ByteBuffer scratch;
+	private final Channel<PacketPool.Packet>[] queues;
+	private final EternalThread reader;
+	private final EternalThread[] workers;
+	private final BiConsumer<ByteBuffer, SocketAddress> handler;
+	private final LongAdder handled = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private volatile boolean closed = false;
+	private volatile long received = 0;
+	private volatile long batches = 0;
+
+	/**
+	 * ReceiveGram(SocketAddress, BiConsumer)
+	 * Opens a receiver with one worker per processor and 8192 pooled buffers of 1472 bytes.
+	 *
+	 * @param bind    The address to listen on
+	 * @param handler Handles each datagram: its payload, which is only valid during the call, and its sender
+	 * @throws IOException Thrown when the channel cannot be opened or bound
+	 */
+	public ReceiveGram(SocketAddress bind, BiConsumer<ByteBuffer, SocketAddress> handler) throws IOException {
+		this(bind, handler, Runtime.getRuntime().availableProcessors(), DEFAULT_PAYLOAD, DEFAULT_POOL);
+	}
+
+	/**
+	 * ReceiveGram(SocketAddress, BiConsumer, int, int, int)
+	 * Opens a receiver and starts its threads.
+	 *
+	 * @param bind       The address to listen on
+	 * @param handler    Handles each datagram: its payload, which is only valid during the call, and its sender
+	 * @param workers    The number of worker threads running the handler
+	 * @param maxPayload The largest payload in bytes; the rest of a longer datagram is lost
+	 * @param poolSize   The number of datagrams that can wait for a worker
+	 * @throws IOException              Thrown when the channel cannot be opened or bound
+	 * @throws IllegalArgumentException Thrown when a count or size is not positive
+	 */
+	@SuppressWarnings("unchecked")
+	public ReceiveGram(SocketAddress bind, BiConsumer<ByteBuffer, SocketAddress> handler, int workers, int maxPayload, int poolSize) throws IOException, IllegalArgumentException {
+		if (workers < 1) throw new IllegalArgumentException(workers + " workers not valid for ReceiveGram.");
+		this.handler = handler;
+		pool = new PacketPool(poolSize, maxPayload);
+		scratch = ByteBuffer.allocateDirect(maxPayload);
+		channel = DatagramChannel.open();
+		try {
+			channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER);
+			channel.bind(bind);
+			channel.configureBlocking(false);
+			selector = Selector.open();
+			channel.register(selector, SelectionKey.OP_READ);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		String name = "ReceiveGram on " + channel.getLocalAddress();
+		queues = (Channel<PacketPool.Packet>[]) new Channel<?>[workers];
+		this.workers = new EternalThread[workers];
+		for (int i = 0; i < workers; i++) {
+			int index = i;
+			queues[i] = new Channel<>(poolSize);
+			this.workers[i] = new EternalThread(name + " worker " + i, () -> work(index));
+			this.workers[i].start();
+		}
+		reader = new EternalThread(name, this::pump);
+		reader.start();
+	}
+
+	/* One pass of the reader thread: wait for datagrams, then drain the socket and hand them out. */
+	private void pump() {
+		try {
+			selector.select();
+			selector.selectedKeys().clear();
+			int count = 0;
+			while (!closed) {
+				PacketPool.Packet packet = pool.acquire();
+				ByteBuffer into = (packet != null ? packet.buffer : scratch);
+				SocketAddress from = channel.receive(into);
+				if (from == null) {
+					if (packet != null) pool.release(packet);
+					break;
+				}
+				count++;
+				if (packet == null) {
+					dropped.increment();
+					scratch.clear();
+					continue;
+				}
+				packet.buffer.flip();
+				packet.address = from;
+				if (!queues[(from.hashCode() & Integer.MAX_VALUE) % queues.length].trySend(packet)) {
+					dropped.increment();
+					pool.release(packet);
+				}
+			}
+			if (count > 0) {
+				received += count;
+				batches++;
+			}
+		} catch (IOException e) {
+			if (!closed) System.err.println("ReceiveGram on " + getLocalAddress() + " failed: " + e);
+			closed = true;
+		}
+		if (closed) {
+			reader.halt();
+			for (Channel<PacketPool.Packet> queue : queues)
+				queue.close();
+		}
+	}
+
+	/* One pass of a worker thread: handle the next datagram, or stop once the receiver is closed and the queue is empty. */
+	private void work(int index) {
+		PacketPool.Packet packet;
+		try {
+			packet = queues[index].receive();
+		} catch (InterruptedException e) {
+			return;
+		}
+		if (packet == null) {
+			workers[index].halt();
+			return;
+		}
+		try {
+			handler.accept(packet.buffer, packet.address);
+		} finally {
+			handled.increment();
+			pool.release(packet);
+		}
+	}
+
+	/**
+	 * close()
+	 * Stops receiving, lets the workers finish the datagrams already handed to them, and closes the channel.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		selector.wakeup();
+		try {
+			reader.join();
+			for (EternalThread worker : workers)
+				worker.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			selector.close();
+			channel.close();
+		} catch (IOException e) {
+			System.err.println("ReceiveGram could not close: " + e);
+		}
+	}
+
+	/**
+	 * isClosed()
+	 * Checks whether the receiver has been closed, by close() or by an I/O error.
+	 *
+	 * @return True iff the receiver no longer receives
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * getLocalAddress()
+	 * Gets the address the receiver listens on, which tells the port when it was bound to port 0.
+	 *
+	 * @return The local address, or null if the channel is closed
+	 */
+	public SocketAddress getLocalAddress() {
+		try {
+			return channel.getLocalAddress();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * getReceived()
+	 * Gets the number of datagrams read from the socket, including any dropped afterwards.
+	 *
+	 * @return The number received
+	 */
+	public long getReceived() {
+		return received;
+	}
+
+	/**
+	 * getHandled()
+	 * Gets the number of datagrams the handler has been given.
+	 *
+	 * @return The number handled
+	 */
+	public long getHandled() {
+		return handled.sum();
+	}
+
+	/**
+	 * getDropped()
+	 * Gets the number of datagrams read but dropped because every buffer was waiting for a worker.
+	 *
+	 * @return The number dropped
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * getBatches()
+	 * Gets the number of times the reader woke and found datagrams; getReceived() / getBatches() is the mean batch size.
+	 *
+	 * @return The number of batches
+	 */
+	public long getBatches() {
+		return batches;
+	}
 }
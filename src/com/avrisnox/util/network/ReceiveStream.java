@@ -1,4 +1,433 @@
 package com.avrisnox.util.network;
 
-public class ReceiveStream {
+import com.avrisnox.util.doc_storage.interfaces.StorableAsFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**ReceiveStream
+ * Accepts TCP connections from SendStreams and hands each frame that arrives to a Listener: raw bytes, StorableAsFile objects, and files.
+ * Connections are spread over one or more selector loops, each a single thread serving all of its connections without blocking, so thousands of mostly idle connections cost no more threads than a few busy ones.
+ * Each connection reads into its own direct buffer and cuts frames out of it; object and byte frames are collected in a reused heap buffer, and file frames go straight from the socket into the file with transferFrom once the buffered bytes are used up.
+ * Listener methods run on the loop threads, so they should be quick; a listener that throws is reported on stderr and the connection carries on.
+ */
+public class ReceiveStream implements Closeable {
+	private static final int READ_BUFFER = 1 << 16;
+	/* The size a connection's body buffer starts at and is cut back to after a frame of more than READ_BUFFER bytes. */
+	private static final int BODY_BUFFER = 256;
+	/* How long to stop accepting after accept itself fails, e.g. when out of file descriptors. */
+	private static final long ACCEPT_RETRY = 100;
+	/* Reads one connection may make per wakeup before the loop moves on, so one busy sender cannot starve the rest. */
+	private static final int READS_PER_WAKEUP = 16;
+
+	/**Listener
+	 * Receives frames as they arrive; each method does nothing unless overridden.
+	 */
+	public interface Listener {
+		/**
+		 * onBytes(ByteBuffer, SocketAddress)
+		 * Receives a frame of raw bytes.
+		 *
+		 * @param payload The bytes, which are only valid during the call
+		 * @param from    The address of the sender
+		 */
+		default void onBytes(ByteBuffer payload, SocketAddress from) {
+		}
+
+		/**
+		 * onObject(String, SocketAddress)
+		 * Receives an object sent as the string of its toFile().
+		 *
+		 * @param contents The object's string, to be given to fromFile
+		 * @param from     The address of the sender
+		 */
+		default void onObject(String contents, SocketAddress from) {
+		}
+
+		/**
+		 * onFile(Path, SocketAddress)
+		 * Receives a file, which has been written to the receiver's directory.
+		 *
+		 * @param file The stored file
+		 * @param from The address of the sender
+		 */
+		default void onFile(Path file, SocketAddress from) {
+		}
+	}
+
+	/**
+	 * objects(Supplier, BiConsumer)
+	 * Creates a listener that rebuilds each object frame with fromFile and passes the object on.
+	 *
+	 * @param factory  Creates an empty object to rebuild
+	 * @param consumer Receives each rebuilt object and the address of its sender
+	 * @param <T>      The type of the objects
+	 * @return The listener
+	 */
+	public static <T extends StorableAsFile> Listener objects(Supplier<? extends T> factory, BiConsumer<? super T, SocketAddress> consumer) {
+		return new Listener() {
+			@Override
+			public void onObject(String contents, SocketAddress from) {
+				T object = factory.get();
+				object.fromFile(contents);
+				consumer.accept(object, from);
+			}
+		};
+	}
+
+	/* Accepts every waiting connection and hands them round the loops; a failure to accept pauses accepting for a while, and a failure on one new connection drops only that one. */
+	private final class Acceptor implements StreamLoop.Handler {
+		private int next = 0;
+
+		@Override
+		public void ready(SelectionKey key) throws IOException {
+			while (true) {
+				SocketChannel channel;
+				try {
+					channel = server.accept();
+				} catch (IOException e) {
+					if (closed || !server.isOpen()) throw e;
+					// The connection stays in the backlog, so the key would come straight back ready; wait before trying again
+					System.err.println("ReceiveStream on " + getLocalAddress() + " could not accept, retrying in " + ACCEPT_RETRY + "ms: " + e);
+					key.interestOps(0);
+					loops[0].executeLater(() -> {
+						if (key.isValid()) key.interestOps(SelectionKey.OP_ACCEPT);
+					}, ACCEPT_RETRY);
+					return;
+				}
+				if (channel == null) return;
+				SocketAddress from;
+				try {
+					channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+					channel.configureBlocking(false);
+					from = channel.getRemoteAddress();
+				} catch (IOException e) {
+					System.err.println("ReceiveStream on " + getLocalAddress() + " dropped a new connection: " + e);
+					try {
+						channel.close();
+					} catch (IOException closing) {
+						System.err.println("ReceiveStream could not close a dropped connection: " + closing);
+					}
+					continue;
+				}
+				StreamLoop loop = loops[next++ % loops.length];
+				Connection connection = new Connection(channel, from, loop);
+				connections.add(connection);
+				loop.execute(() -> {
+					try {
+						connection.key = loop.register(channel, SelectionKey.OP_READ, connection);
+					} catch (IOException e) {
+						connection.failed(e);
+					}
+				});
+			}
+		}
+
+		@Override
+		public void failed(IOException cause) {
+			if (!closed) System.err.println("ReceiveStream on " + getLocalAddress() + " stopped accepting: " + cause);
+		}
+	}
+
+	/* One connection's read buffer and the frame being cut out of it - due to its private nature, it has been left undocumented. */
+	private final class Connection implements StreamLoop.Handler {
+		private final SocketChannel channel;
+		private final SocketAddress from;
+		private final StreamLoop loop;
+		private final ByteBuffer in = ByteBuffer.allocateDirect(READ_BUFFER);
+		private SelectionKey key = null;
+		private ByteBuffer body = ByteBuffer.allocate(BODY_BUFFER);
+		private byte kind = -1;
+		private long length = 0;
+		private Path path = null;
+		private FileChannel file = null;
+		private long filePosition = 0;
+		private long fileRemaining = 0;
+
+		public Connection(SocketChannel channel, SocketAddress from, StreamLoop loop) {
+			this.channel = channel;
+			this.from = from;
+			this.loop = loop;
+		}
+
+		@Override
+		public void ready(SelectionKey key) throws IOException {
+			for (int pass = 0; pass < READS_PER_WAKEUP; pass++) {
+				int read = channel.read(in);
+				if (read < 0) {
+					if (kind >= 0 || in.position() > 0) throw new IOException("Connection closed inside a frame.");
+					close();
+					return;
+				}
+				in.flip();
+				boolean more = true;
+				while (more)
+					more = parse();
+				in.compact();
+				if (file != null && in.position() == 0) {
+					long moved;
+					while (fileRemaining > 0 && (moved = file.transferFrom(channel, filePosition, fileRemaining)) > 0) {
+						filePosition += moved;
+						fileRemaining -= moved;
+						bytesReceived.add(moved);
+					}
+					if (fileRemaining == 0) finishFile();
+				}
+				if (read == 0) return;
+			}
+		}
+
+		/* Cuts as much of the current frame out of the read buffer as it holds; true if another pass may get further. */
+		private boolean parse() throws IOException {
+			if (kind < 0) {
+				if (in.remaining() < SendStream.HEADER) return false;
+				kind = in.get();
+				length = in.getLong();
+				bytesReceived.add(SendStream.HEADER);
+				if (kind == SendStream.FILE) {
+					if (directory == null) throw new IOException("File frame not valid for ReceiveStream without a directory.");
+					if (length < 2) throw new IOException("File frame of " + length + " bytes not valid for ReceiveStream.");
+					return true;
+				}
+				if ((kind != SendStream.BYTES && kind != SendStream.OBJECT) || length < 0 || length > SendStream.MAX_FRAME) throw new IOException("Frame of kind " + kind + " and " + length + " bytes not valid for ReceiveStream.");
+				if (body.capacity() < length) body = ByteBuffer.allocate((int) Math.max(length, body.capacity() * 2L));
+				body.clear().limit((int) length);
+			}
+			if (kind == SendStream.FILE) return (file == null ? openFile() : writeFile());
+			int count = Math.min(in.remaining(), body.remaining());
+			int limit = in.limit();
+			in.limit(in.position() + count);
+			body.put(in);
+			in.limit(limit);
+			bytesReceived.add(count);
+			if (body.hasRemaining()) return false;
+			body.flip();
+			deliver();
+			kind = -1;
+			// One large frame should not pin up to MAX_FRAME bytes for the rest of the connection's life
+			if (body.capacity() > READ_BUFFER) body = ByteBuffer.allocate(BODY_BUFFER);
+			return true;
+		}
+
+		private boolean openFile() throws IOException {
+			if (in.remaining() < 2) return false;
+			int nameLength = in.getShort(in.position()) & 0xFFFF;
+			if (nameLength == 0 || nameLength > SendStream.MAX_NAME || nameLength + 2 > length) throw new IOException("File name of " + nameLength + " bytes not valid for ReceiveStream.");
+			if (in.remaining() < 2 + nameLength) return false;
+			in.getShort();
+			byte[] name = new byte[nameLength];
+			in.get(name);
+			bytesReceived.add(2 + nameLength);
+			Path named = Paths.get(new String(name, StandardCharsets.UTF_8)).getFileName();
+			if (named == null) throw new IOException("File name not valid for ReceiveStream.");
+			path = directory.resolve(named.toString());
+			file = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			filePosition = 0;
+			fileRemaining = length - 2 - nameLength;
+			if (fileRemaining == 0) finishFile();
+			return true;
+		}
+
+		private boolean writeFile() throws IOException {
+			if (!in.hasRemaining()) return false;
+			int count = (int) Math.min(in.remaining(), fileRemaining);
+			int limit = in.limit();
+			in.limit(in.position() + count);
+			while (in.hasRemaining())
+				filePosition += file.write(in, filePosition);
+			in.limit(limit);
+			fileRemaining -= count;
+			bytesReceived.add(count);
+			if (fileRemaining == 0) finishFile();
+			return true;
+		}
+
+		private void finishFile() throws IOException {
+			file.close();
+			file = null;
+			kind = -1;
+			Path done = path;
+			path = null;
+			framesReceived.increment();
+			try {
+				listener.onFile(done, from);
+			} catch (RuntimeException e) {
+				System.err.println("ReceiveStream listener failed on a file from " + from + ": " + e);
+			}
+		}
+
+		private void deliver() {
+			framesReceived.increment();
+			try {
+				if (kind == SendStream.OBJECT) listener.onObject(new String(body.array(), 0, body.limit(), StandardCharsets.UTF_8), from);
+				else listener.onBytes(body, from);
+			} catch (RuntimeException e) {
+				System.err.println("ReceiveStream listener failed on a frame from " + from + ": " + e);
+			}
+		}
+
+		@Override
+		public void failed(IOException cause) {
+			if (!closed) System.err.println("ReceiveStream connection from " + from + " failed: " + cause);
+			close();
+			if (path != null) {
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException e) {
+					System.err.println("ReceiveStream could not remove partial file '" + path + "': " + e);
+				}
+			}
+		}
+
+		private void close() {
+			connections.remove(this);
+			if (key != null) key.cancel();
+			try {
+				channel.close();
+				if (file != null) file.close();
+			} catch (IOException e) {
+				System.err.println("ReceiveStream could not close connection from " + from + ": " + e);
+			}
+		}
+	}
+
+	private final ServerSocketChannel server;
+	private final StreamLoop[] loops;
+	private final Listener listener;
+	private final Path directory;
+	private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+	private final LongAdder framesReceived = new LongAdder();
+	private final LongAdder bytesReceived = new LongAdder();
+	private volatile boolean closed = false;
+
+	/**
+	 * ReceiveStream(SocketAddress, Listener)
+	 * Listens for connections on one loop, refusing file frames.
+	 *
+	 * @param bind     The address to listen on
+	 * @param listener Receives the frames
+	 * @throws IOException Thrown when the address cannot be bound
+	 */
+	public ReceiveStream(SocketAddress bind, Listener listener) throws IOException {
+		this(bind, listener, null, 1);
+	}
+
+	/**
+	 * ReceiveStream(SocketAddress, Listener, Path, int)
+	 * Listens for connections, spreading them over the given number of loops.
+	 *
+	 * @param bind      The address to listen on
+	 * @param listener  Receives the frames
+	 * @param directory The directory received files are stored in, or null to refuse file frames
+	 * @param loops     The number of loop threads
+	 * @throws IOException              Thrown when the address cannot be bound
+	 * @throws IllegalArgumentException Thrown when there are no loops
+	 */
+	public ReceiveStream(SocketAddress bind, Listener listener, Path directory, int loops) throws IOException, IllegalArgumentException {
+		if (loops < 1) throw new IllegalArgumentException(loops + " loops not valid for ReceiveStream.");
+		this.listener = listener;
+		this.directory = directory;
+		server = ServerSocketChannel.open();
+		this.loops = new StreamLoop[loops];
+		try {
+			server.bind(bind, 1024);
+			server.configureBlocking(false);
+			String name = "ReceiveStream on " + server.getLocalAddress();
+			for (int i = 0; i < loops; i++)
+				this.loops[i] = new StreamLoop(name + " loop " + i);
+		} catch (IOException e) {
+			server.close();
+			for (StreamLoop loop : this.loops)
+				if (loop != null) loop.close();
+			throw e;
+		}
+		Acceptor acceptor = new Acceptor();
+		this.loops[0].execute(() -> {
+			try {
+				this.loops[0].register(server, SelectionKey.OP_ACCEPT, acceptor);
+			} catch (IOException e) {
+				acceptor.failed(e);
+			}
+		});
+	}
+
+	/**
+	 * close()
+	 * Stops accepting, closes every connection and stops the loops; frames still in flight are lost.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			server.close();
+		} catch (IOException e) {
+			System.err.println("ReceiveStream could not close: " + e);
+		}
+		// Each connection is closed on its own loop, which owns its buffers and open file; the loops run these before halting
+		for (Connection connection : connections)
+			connection.loop.execute(connection::close);
+		for (StreamLoop loop : loops)
+			loop.close();
+	}
+
+	/**
+	 * getLocalAddress()
+	 * Gets the address the receiver listens on, which tells the port when it was bound to port 0.
+	 *
+	 * @return The local address, or null if it is closed
+	 */
+	public SocketAddress getLocalAddress() {
+		try {
+			return server.getLocalAddress();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * getConnectionCount()
+	 * Gets the number of open connections.
+	 *
+	 * @return The number of connections
+	 */
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	/**
+	 * getFramesReceived()
+	 * Gets the number of whole frames received.
+	 *
+	 * @return The number of frames
+	 */
+	public long getFramesReceived() {
+		return framesReceived.sum();
+	}
+
+	/**
+	 * getBytesReceived()
+	 * Gets the number of bytes received, headers included.
+	 *
+	 * @return The bytes received
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.sum();
+	}
 }
@@ -1,4 +1,283 @@
 package com.avrisnox.util.network;
 
-public class SendGram {
+import com.avrisnox.concurrent.collections.ConcQueue;
+import com.avrisnox.concurrent.threads.EternalThread;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.atomic.LongAdder;
+
+/**SendGram
+ * Sends UDP datagrams from any number of threads through one non-blocking DatagramChannel.
+ * send copies the payload into a pooled direct buffer and queues it; one sender thread writes out everything queued each time it wakes, so a burst of sends costs one wakeup rather than one system call handoff each. When the socket's buffer is full the thread waits on a selector for room, and the queue absorbs the burst.
+ * Nothing is allocated per datagram. If every pooled buffer is queued, send drops the datagram and says so rather than blocking, since UDP gives no delivery guarantee to wait for anyway.
+ * A SendGram made with a target is connected to it, which lets the kernel skip the address lookup on every datagram.
+ */
+public class SendGram implements Closeable {
+	private static final int DEFAULT_QUEUE = 4096;
+	private static final int DEFAULT_PAYLOAD = 1472;
+
+	private final DatagramChannel channel;
+	private final Selector selector;
+	private final SelectionKey key;
+	private final SocketAddress target;
+	private final PacketPool pool;
+	private final ConcQueue<PacketPool.Packet> queue;
+	private final EternalThread sender;
+	private final LongAdder dropped = new LongAdder();
+	private volatile boolean sleeping = false;
+	private volatile boolean closed = false;
+	private volatile long sent = 0;
+	private volatile long bytesSent = 0;
+	private volatile long batches = 0;
+	private PacketPool.Packet pending = null;
+
+	/**
+	 * SendGram(SocketAddress)
+	 * Opens a sender with room for 4096 queued datagrams of up to 1472 bytes, the most that fits in one Ethernet frame.
+	 *
+	 * @param target The address to send to, or null to give an address with every datagram
+	 * @throws IOException Thrown when the channel cannot be opened or connected
+	 */
+	public SendGram(SocketAddress target) throws IOException {
+		this(target, DEFAULT_QUEUE, DEFAULT_PAYLOAD);
+	}
+
+	/**
+	 * SendGram(SocketAddress, int, int)
+	 * Opens a sender and starts its thread.
+	 *
+	 * @param target        The address to send to, or null to give an address with every datagram
+	 * @param queueCapacity The most datagrams that can wait to be sent
+	 * @param maxPayload    The largest payload in bytes
+	 * @throws IOException              Thrown when the channel cannot be opened or connected
+	 * @throws IllegalArgumentException Thrown when the capacity or payload is not positive
+	 */
+	public SendGram(SocketAddress target, int queueCapacity, int maxPayload) throws IOException, IllegalArgumentException {
+		pool = new PacketPool(queueCapacity, maxPayload);
+		queue = new ConcQueue<>(queueCapacity);
+		this.target = target;
+		channel = DatagramChannel.open();
+		try {
+			channel.configureBlocking(false);
+			if (target != null) channel.connect(target);
+			selector = Selector.open();
+			key = channel.register(selector, 0);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		sender = new EternalThread("SendGram to " + target, this::pump);
+		sender.start();
+	}
+
+	/**
+	 * send(ByteBuffer)
+	 * Queues the bytes between a buffer's position and limit as one datagram to the target, without moving the position.
+	 *
+	 * @param data The payload
+	 * @return True iff the datagram was queued; false if the queue was full and it was dropped
+	 * @throws IllegalArgumentException Thrown when the payload is too big or the sender has no target
+	 * @throws IllegalStateException    Thrown when the sender has been closed
+	 */
+	public boolean send(ByteBuffer data) throws IllegalArgumentException, IllegalStateException {
+		return send(data, null);
+	}
+
+	/**
+	 * send(byte[], int, int)
+	 * Queues part of an array as one datagram to the target.
+	 *
+	 * @param data   The array holding the payload
+	 * @param offset The index of the payload's first byte
+	 * @param length The number of bytes in the payload
+	 * @return True iff the datagram was queued; false if the queue was full and it was dropped
+	 * @throws IllegalArgumentException Thrown when the payload is too big or the sender has no target
+	 * @throws IllegalStateException    Thrown when the sender has been closed
+	 */
+	public boolean send(byte[] data, int offset, int length) throws IllegalArgumentException, IllegalStateException {
+		return send(ByteBuffer.wrap(data, offset, length), null);
+	}
+
+	/**
+	 * send(ByteBuffer, SocketAddress)
+	 * Queues the bytes between a buffer's position and limit as one datagram to an address, without moving the position.
+	 *
+	 * @param data The payload
+	 * @param to   The address to send to, or null for the target
+	 * @return True iff the datagram was queued; false if the queue was full and it was dropped
+	 * @throws IllegalArgumentException Thrown when the payload is too big, there is no address, or the address is not the target of a connected sender
+	 * @throws IllegalStateException    Thrown when the sender has been closed
+	 */
+	public boolean send(ByteBuffer data, SocketAddress to) throws IllegalArgumentException, IllegalStateException {
+		if (closed) throw new IllegalStateException("Cannot send on a closed SendGram.");
+		if (data.remaining() > pool.getPayload()) throw new IllegalArgumentException("Payload of " + data.remaining() + " bytes not valid for SendGram of at most " + pool.getPayload() + " bytes.");
+		if (target == null ? to == null : to != null && !to.equals(target)) throw new IllegalArgumentException("Address " + to + " not valid for SendGram to " + target + ".");
+		PacketPool.Packet packet = pool.acquire();
+		if (packet == null) {
+			dropped.increment();
+			return false;
+		}
+		packet.buffer.put(data.duplicate()).flip();
+		packet.address = (target == null ? to : null);
+		queue.offer(packet);
+		if (sleeping) selector.wakeup();
+		return true;
+	}
+
+	/* One pass of the sender thread: write out everything queued, then sleep until there is more or the socket has room again. */
+	private void pump() {
+		try {
+			int written = 0;
+			while (true) {
+				PacketPool.Packet packet = (pending != null ? pending : queue.poll());
+				if (packet == null) break;
+				pending = null;
+				int bytes;
+				try {
+					bytes = (packet.address == null ? channel.write(packet.buffer) : channel.send(packet.buffer, packet.address));
+				} catch (PortUnreachableException e) {
+					dropped.increment();
+					pool.release(packet);
+					continue;
+				}
+				if (bytes == 0 && packet.buffer.hasRemaining()) {
+					pending = packet;
+					break;
+				}
+				bytesSent += bytes;
+				sent++;
+				written++;
+				pool.release(packet);
+			}
+			if (written > 0) batches++;
+			if (pending != null) {
+				key.interestOps(SelectionKey.OP_WRITE);
+				selector.select();
+				key.interestOps(0);
+			} else if (closed) {
+				shutdown();
+				return;
+			} else {
+				sleeping = true;
+				if (queue.isEmpty() && !closed) selector.select();
+				sleeping = false;
+			}
+			selector.selectedKeys().clear();
+		} catch (IOException e) {
+			System.err.println("SendGram to " + target + " failed: " + e);
+			shutdown();
+		}
+	}
+
+	/* Runs on the sender thread: stops the loop, drops whatever is still queued and closes the channel. */
+	private void shutdown() {
+		closed = true;
+		sender.halt();
+		for (PacketPool.Packet packet; (packet = queue.poll()) != null; ) {
+			dropped.increment();
+			pool.release(packet);
+		}
+		try {
+			selector.close();
+			channel.close();
+		} catch (IOException e) {
+			System.err.println("SendGram to " + target + " could not close: " + e);
+		}
+	}
+
+	/**
+	 * close()
+	 * Stops taking datagrams, waits for the ones already queued to be written out, and closes the channel.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		selector.wakeup();
+		try {
+			sender.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * isClosed()
+	 * Checks whether the sender has been closed, by close() or by an I/O error.
+	 *
+	 * @return True iff the sender no longer takes datagrams
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * getLocalAddress()
+	 * Gets the address datagrams are sent from.
+	 *
+	 * @return The local address, or null if the channel is closed
+	 */
+	public SocketAddress getLocalAddress() {
+		try {
+			return channel.getLocalAddress();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * getSent()
+	 * Gets the number of datagrams handed to the operating system.
+	 *
+	 * @return The number sent
+	 */
+	public long getSent() {
+		return sent;
+	}
+
+	/**
+	 * getBytesSent()
+	 * Gets the number of payload bytes handed to the operating system.
+	 *
+	 * @return The bytes sent
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * getDropped()
+	 * Gets the number of datagrams dropped because the queue was full, the target was unreachable, or the sender closed first.
+	 *
+	 * @return The number dropped
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * getBatches()
+	 * Gets the number of times the sender thread woke and wrote something; getSent() / getBatches() is the mean batch size.
+	 *
+	 * @return The number of batches
+	 */
+	public long getBatches() {
+		return batches;
+	}
+
+	/**
+	 * getQueued()
+	 * Gets the number of datagrams waiting to be written.
+	 *
+	 * @return The queue length
+	 */
+	public int getQueued() {
+		return queue.size();
+	}
 }
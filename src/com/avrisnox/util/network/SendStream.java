@@ -1,4 +1,381 @@
 package com.avrisnox.util.network;
 
-public class SendStream {
+import com.avrisnox.concurrent.control.Monitor;
+import com.avrisnox.util.doc_storage.interfaces.StorableAsFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**SendStream
+ * Sends framed payloads over one non-blocking TCP connection to a ReceiveStream: raw bytes, StorableAsFile objects, and whole files.
+ * Each frame is a 9-byte header (its kind and its length as a long) followed by the payload, so the receiver never has to guess where one payload ends.
+ * Any thread may send; frames are queued and written by a shared selector loop. Small frames queued together are coalesced into one direct buffer and go out in one write, so a burst of small objects costs a few system calls rather than one each, without waiting on Nagle's algorithm (which is turned off).
+ * Files are sent with FileChannel.transferTo, so a stored document or a zip archive from FileAccessoryFactory goes from the page cache to the socket without being copied through the Java heap.
+ * Frames arrive in the order they were sent.
+ * Byte and object frames may carry at most 64MB, as the receiver collects each one in memory before handing it over; larger payloads should be sent as files, which have no limit.
+ */
+public class SendStream implements Closeable {
+	static final byte BYTES = 0;
+	static final byte OBJECT = 1;
+	static final byte FILE = 2;
+	static final int HEADER = 9;
+	static final int MAX_NAME = 1024;
+	static final int MAX_FRAME = 64 << 20;
+	private static final int COALESCE = 1 << 16;
+
+	/* A queued frame: the header (and a file's name) always, then either a body or a file - due to its private nature, it has been left undocumented. */
+	private static final class Frame {
+		private final ByteBuffer head;
+		private final ByteBuffer body;
+		private final FileChannel file;
+		private long position;
+		private long remaining;
+
+		public Frame(ByteBuffer head, ByteBuffer body, FileChannel file, long remaining) {
+			this.head = head;
+			this.body = body;
+			this.file = file;
+			this.remaining = remaining;
+		}
+	}
+
+	/* Does the writing on the loop's thread - due to its private nature, it has been left undocumented. */
+	private final class Writer implements StreamLoop.Handler {
+		@Override
+		public void ready(SelectionKey key) throws IOException {
+			if (drain()) key.interestOps(0);
+		}
+
+		@Override
+		public void failed(IOException cause) {
+			System.err.println("SendStream to " + target + " failed: " + cause);
+			abort();
+		}
+	}
+
+	private final SocketAddress target;
+	private final SocketChannel channel;
+	private final StreamLoop loop;
+	private final Writer writer = new Writer();
+	private final ConcurrentLinkedQueue<Frame> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicLong outstanding = new AtomicLong();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final Monitor flushed = new Monitor();
+	private volatile boolean closed = false;
+	private volatile long framesSent = 0;
+	private volatile long bytesSent = 0;
+	private volatile long writes = 0;
+	private SelectionKey key = null;
+	private ByteBuffer out = null;
+	private Frame current = null;
+
+	/**
+	 * SendStream(SocketAddress)
+	 * Connects to a ReceiveStream, waiting until the connection is made.
+	 *
+	 * @param target The address of the receiver
+	 * @throws IOException Thrown when the connection cannot be made
+	 */
+	public SendStream(SocketAddress target) throws IOException {
+		this.target = target;
+		loop = StreamLoop.shared();
+		channel = SocketChannel.open(target);
+		try {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			channel.configureBlocking(false);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		loop.execute(() -> {
+			try {
+				out = ByteBuffer.allocateDirect(COALESCE);
+				key = loop.register(channel, 0, writer);
+			} catch (IOException e) {
+				writer.failed(e);
+			}
+		});
+	}
+
+	/**
+	 * send(ByteBuffer)
+	 * Queues the bytes between a buffer's position and limit as one frame, copying them so the buffer can be reused at once; the position is not moved.
+	 *
+	 * @param data The payload
+	 * @throws IllegalArgumentException Thrown when the payload is over 64MB
+	 * @throws IllegalStateException    Thrown when the stream has been closed
+	 */
+	public void send(ByteBuffer data) throws IllegalArgumentException, IllegalStateException {
+		checkLength(data.remaining());
+		ByteBuffer body = ByteBuffer.allocate(data.remaining());
+		body.put(data.duplicate()).flip();
+		enqueue(new Frame(header(BYTES, body.remaining(), 0), body, null, 0));
+	}
+
+	/**
+	 * send(StorableAsFile)
+	 * Queues an object as one frame, as the UTF-8 bytes of its toFile() string.
+	 *
+	 * @param object The object to send
+	 * @throws IllegalArgumentException Thrown when the object's string is over 64MB as UTF-8
+	 * @throws IllegalStateException    Thrown when the stream has been closed
+	 */
+	public void send(StorableAsFile object) throws IllegalArgumentException, IllegalStateException {
+		ByteBuffer body = ByteBuffer.wrap(object.toFile().getBytes(StandardCharsets.UTF_8));
+		checkLength(body.remaining());
+		enqueue(new Frame(header(OBJECT, body.remaining(), 0), body, null, 0));
+	}
+
+	/**
+	 * send(String)
+	 * Queues a file as one frame, sent straight from disk; see send(Path).
+	 *
+	 * @param filepath The path to and name of the file
+	 * @throws IOException              Thrown when the file cannot be opened
+	 * @throws IllegalArgumentException Thrown when the file's name is over 1024 bytes
+	 * @throws IllegalStateException    Thrown when the stream has been closed
+	 */
+	public void send(String filepath) throws IOException, IllegalArgumentException, IllegalStateException {
+		send(Paths.get(filepath));
+	}
+
+	/**
+	 * send(Path)
+	 * Queues a file as one frame, sent straight from disk with transferTo; the receiver stores it under the same file name.
+	 * The file is opened now and its length taken now, so it must not shrink before it has been sent.
+	 *
+	 * @param file The file
+	 * @throws IOException              Thrown when the file cannot be opened
+	 * @throws IllegalArgumentException Thrown when the file's name is over 1024 bytes
+	 * @throws IllegalStateException    Thrown when the stream has been closed
+	 */
+	public void send(Path file) throws IOException, IllegalArgumentException, IllegalStateException {
+		byte[] name = file.getFileName().toString().getBytes(StandardCharsets.UTF_8);
+		if (name.length > MAX_NAME) throw new IllegalArgumentException("File name of " + name.length + " bytes not valid for SendStream.");
+		FileChannel contents = FileChannel.open(file, StandardOpenOption.READ);
+		long size = contents.size();
+		ByteBuffer head = header(FILE, 2 + name.length + size, 2 + name.length);
+		head.putShort((short) name.length).put(name).flip();
+		try {
+			enqueue(new Frame(head, null, contents, size));
+		} catch (IllegalStateException e) {
+			contents.close();
+			throw e;
+		}
+	}
+
+	/* Refuses payloads the receiver would treat as a broken stream, before they are queued ahead of good ones. */
+	private static void checkLength(int length) throws IllegalArgumentException {
+		if (length > MAX_FRAME) throw new IllegalArgumentException("Frame of " + length + " bytes not valid for SendStream; the most is " + MAX_FRAME + ".");
+	}
+
+	private static ByteBuffer header(byte kind, long length, int extra) {
+		ByteBuffer head = ByteBuffer.allocate(HEADER + extra);
+		head.put(kind).putLong(length);
+		if (extra == 0) head.flip();
+		return head;
+	}
+
+	private void enqueue(Frame frame) throws IllegalStateException {
+		if (closed) throw new IllegalStateException("Cannot send on a closed SendStream.");
+		outstanding.incrementAndGet();
+		queue.add(frame);
+		if (scheduled.compareAndSet(false, true)) loop.execute(this::kick);
+	}
+
+	/* Runs on the loop: write what can be written now, and wait for room if the socket is full. */
+	private void kick() {
+		scheduled.set(false);
+		if (key == null || !key.isValid()) {
+			// A sender that got past the closed check as the connection went still counted its frame; drop it so flush() returns
+			discard();
+			return;
+		}
+		try {
+			if (!drain()) key.interestOps(SelectionKey.OP_WRITE);
+		} catch (IOException e) {
+			key.cancel();
+			writer.failed(e);
+		}
+	}
+
+	/* Writes queued frames until the queue is empty (true) or the socket is full (false); coalesces whole frames into out while they fit. */
+	private boolean drain() throws IOException {
+		while (true) {
+			while (current == null) {
+				Frame frame = queue.peek();
+				if (frame == null || frame.head.remaining() > out.remaining()) break;
+				queue.poll();
+				out.put(frame.head);
+				if (frame.file == null && frame.body.remaining() <= out.remaining()) {
+					out.put(frame.body);
+					done(frame);
+				} else current = frame;
+			}
+			if (out.position() > 0) {
+				out.flip();
+				bytesSent += channel.write(out);
+				writes++;
+				boolean empty = !out.hasRemaining();
+				out.compact();
+				if (!empty) return false;
+			}
+			if (current != null) {
+				if (current.file != null) {
+					long sent = current.file.transferTo(current.position, current.remaining, channel);
+					writes++;
+					bytesSent += sent;
+					current.position += sent;
+					current.remaining -= sent;
+					if (current.remaining > 0) {
+						if (sent == 0 && current.position >= current.file.size()) throw new IOException("File shrank while being sent.");
+						if (sent == 0) return false;
+						continue;
+					}
+				} else {
+					bytesSent += channel.write(current.body);
+					writes++;
+					if (current.body.hasRemaining()) return false;
+				}
+				done(current);
+				current = null;
+				continue;
+			}
+			if (queue.isEmpty()) return true;
+		}
+	}
+
+	private void done(Frame frame) throws IOException {
+		if (frame.file != null) frame.file.close();
+		framesSent++;
+		if (outstanding.decrementAndGet() == 0) flushed.run(flushed::signalAll);
+	}
+
+	/* Runs on the loop after a failure: drops everything queued and wakes anyone flushing. */
+	private void abort() {
+		closed = true;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.err.println("SendStream to " + target + " could not close: " + e);
+		}
+		discard();
+	}
+
+	/* Runs on the loop once the connection is gone: drops each frame still queued, counting it off so the count only reaches 0 when every frame is accounted for. */
+	private void discard() {
+		if (current != null) queue.add(current);
+		current = null;
+		for (Frame frame; (frame = queue.poll()) != null; ) {
+			if (frame.file != null) {
+				try {
+					frame.file.close();
+				} catch (IOException e) {
+					System.err.println("SendStream to " + target + " could not close a file: " + e);
+				}
+			}
+			if (outstanding.decrementAndGet() == 0) flushed.run(flushed::signalAll);
+		}
+	}
+
+	/**
+	 * flush()
+	 * Waits until every frame sent so far has been handed to the operating system, or the connection has failed.
+	 *
+	 * @throws InterruptedException Thrown when the thread is interrupted while waiting
+	 */
+	public void flush() throws InterruptedException {
+		flushed.enter();
+		try {
+			flushed.awaitUntil(() -> outstanding.get() == 0);
+		} finally {
+			flushed.exit();
+		}
+	}
+
+	/**
+	 * close()
+	 * Stops taking frames, waits for the queued ones to be written, and closes the connection.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			flush();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		loop.execute(() -> {
+			if (key != null) key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				System.err.println("SendStream to " + target + " could not close: " + e);
+			}
+			discard();
+		});
+	}
+
+	/**
+	 * isClosed()
+	 * Checks whether the stream has been closed, by close() or by a failed connection.
+	 *
+	 * @return True iff the stream no longer takes frames
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * getFramesSent()
+	 * Gets the number of frames fully handed to the operating system.
+	 *
+	 * @return The number of frames sent
+	 */
+	public long getFramesSent() {
+		return framesSent;
+	}
+
+	/**
+	 * getBytesSent()
+	 * Gets the number of bytes handed to the operating system, headers included.
+	 *
+	 * @return The bytes sent
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * getWrites()
+	 * Gets the number of write and transferTo calls made; getFramesSent() / getWrites() shows how well small frames are being coalesced.
+	 *
+	 * @return The number of writes
+	 */
+	public long getWrites() {
+		return writes;
+	}
+
+	/**
+	 * getQueued()
+	 * Gets the number of frames not yet fully written.
+	 *
+	 * @return The number of frames waiting
+	 */
+	public long getQueued() {
+		return outstanding.get();
+	}
 }
@@ -0,0 +1,177 @@
+package com.avrisnox.util.network;
+
+import com.avrisnox.concurrent.threads.EternalThread;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**StreamLoop
+ * One selector and the thread that serves it, shared by any number of non-blocking connections.
+ * Every read and write on a registered channel happens on the loop's thread, so a connection's state needs no locking; other threads hand work to the loop with execute, which wakes the selector.
+ * Work that should wait a while, such as retrying after a failure, is put off with executeLater rather than by sleeping, so the loop's other channels are still served in the meantime.
+ * SendStreams share one default loop, so many connections cost one thread rather than one each.
+ */
+class StreamLoop {
+	/**Handler
+	 * The code a channel runs when the selector finds it ready.
+	 */
+	interface Handler {
+		/**
+		 * ready(SelectionKey)
+		 * Does whatever the channel is ready for; runs on the loop's thread.
+		 *
+		 * @param key The channel's key, with its ready operations set
+		 * @throws IOException Thrown when the channel fails; failed is then called
+		 */
+		void ready(SelectionKey key) throws IOException;
+
+		/**
+		 * failed(IOException)
+		 * Cleans up after ready has thrown; runs on the loop's thread.
+		 *
+		 * @param cause The failure
+		 */
+		void failed(IOException cause);
+	}
+
+	/* A task put off until a given time - due to its private nature, it has been left undocumented. */
+	private static final class Later {
+		private final long due;
+		private final Runnable task;
+
+		public Later(long due, Runnable task) {
+			this.due = due;
+			this.task = task;
+		}
+	}
+
+	private static StreamLoop shared = null;
+
+	private final Selector selector;
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final PriorityQueue<Later> later = new PriorityQueue<>(Comparator.comparingLong((Later task) -> task.due));
+	private final EternalThread thread;
+
+	/**
+	 * StreamLoop(String)
+	 * Opens a selector and starts the loop's thread.
+	 *
+	 * @param name The name of the thread
+	 * @throws IOException Thrown when the selector cannot be opened
+	 */
+	StreamLoop(String name) throws IOException {
+		selector = Selector.open();
+		thread = new EternalThread(name, this::pump);
+		thread.start();
+	}
+
+	/**
+	 * shared()
+	 * Gets the default loop, starting it on first use.
+	 *
+	 * @return The shared loop
+	 * @throws IOException Thrown when the selector cannot be opened
+	 */
+	static synchronized StreamLoop shared() throws IOException {
+		if (shared == null) shared = new StreamLoop("StreamLoop (shared)");
+		return shared;
+	}
+
+	/**
+	 * execute(Runnable)
+	 * Runs a task on the loop's thread at its next wakeup, waking it now.
+	 *
+	 * @param task The task
+	 */
+	void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	/**
+	 * executeLater(Runnable, long)
+	 * Runs a task on the loop's thread once the delay has passed; must be called on the loop's thread.
+	 *
+	 * @param task  The task
+	 * @param delay The delay, in milliseconds
+	 */
+	void executeLater(Runnable task, long delay) {
+		later.add(new Later(System.nanoTime() + delay * 1_000_000L, task));
+	}
+
+	/**
+	 * register(SelectableChannel, int, Handler)
+	 * Registers a non-blocking channel with the loop; must be called on the loop's thread.
+	 *
+	 * @param channel The channel
+	 * @param ops     The operations to wait for
+	 * @param handler The handler to run when the channel is ready
+	 * @return The channel's key
+	 * @throws IOException Thrown when the channel cannot be registered
+	 */
+	SelectionKey register(SelectableChannel channel, int ops, Handler handler) throws IOException {
+		return channel.register(selector, ops, handler);
+	}
+
+	/**
+	 * inLoop()
+	 * Checks whether the calling thread is the loop's thread.
+	 *
+	 * @return True iff called from the loop
+	 */
+	boolean inLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	/* One pass of the loop: wait, run queued tasks and those whose time has come, then serve every ready channel. */
+	private void pump() {
+		try {
+			Later next = later.peek();
+			// select(0) waits with no time limit
+			selector.select(next == null ? 0 : Math.max(1, (next.due - System.nanoTime()) / 1_000_000L));
+		} catch (IOException | ClosedSelectorException e) {
+			System.err.println("StreamLoop '" + thread.getName() + "' failed: " + e);
+			thread.halt();
+			return;
+		}
+		for (Runnable task; (task = tasks.poll()) != null; )
+			task.run();
+		for (long now = System.nanoTime(); !later.isEmpty() && later.peek().due - now <= 0; )
+			later.poll().task.run();
+		if (thread.isHalted()) {
+			try {
+				selector.close();
+			} catch (IOException e) {
+				System.err.println("StreamLoop '" + thread.getName() + "' could not close: " + e);
+			}
+			return;
+		}
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			Handler handler = (Handler) key.attachment();
+			try {
+				if (key.isValid()) handler.ready(key);
+			} catch (IOException e) {
+				key.cancel();
+				handler.failed(e);
+			}
+		}
+	}
+
+	/**
+	 * close()
+	 * Stops the loop and closes its selector; channels still registered are left open.
+	 */
+	void close() {
+		execute(thread::halt);
+	}
+}